@@ -86,7 +86,12 @@ public class PhaseMetadata extends AMetadataPhase {
 			throw new TorrentException("Failed to read metadata", e);
 		}
 
-		torrent.setFileSet(new TorrentFileSet(torrent.getMetadata(), new File(downloadFolderRoot, torrent.getDisplayName())));
+		torrent.setFileSet(new TorrentFileSet(
+			torrent.getMetadata(),
+			new File(downloadFolderRoot, torrent.getDisplayName()),
+			torrentClient.getFileStorageFactory(),
+			torrentClient.getFileHandlePool()
+		));
 	}
 
 	private Collection<Peer> getRelevantPeers(Collection<Peer> peers) {
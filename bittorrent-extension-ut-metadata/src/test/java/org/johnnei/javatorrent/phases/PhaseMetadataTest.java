@@ -12,6 +12,9 @@ import org.mockito.ArgumentCaptor;
 
 import org.johnnei.javatorrent.TorrentClient;
 import org.johnnei.javatorrent.bittorrent.encoding.SHA1;
+import org.johnnei.javatorrent.disk.ChannelFileStorage;
+import org.johnnei.javatorrent.disk.IFileHandlePool;
+import org.johnnei.javatorrent.disk.IFileStorage;
 import org.johnnei.javatorrent.module.UTMetadataExtension;
 import org.johnnei.javatorrent.protocol.extension.ExtensionModule;
 import org.johnnei.javatorrent.protocol.extension.PeerExtensions;
@@ -34,6 +37,8 @@ import static java.util.Arrays.asList;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -71,6 +76,10 @@ public class PhaseMetadataTest {
 
 		when(torrentMock.getMetadata()).thenReturn(metadataMock);
 		when(torrentClientMock.getModule(ExtensionModule.class)).thenReturn(Optional.of(extensionModuleMock));
+		when(torrentClientMock.getFileStorageFactory()).thenReturn((channel, size) -> new ChannelFileStorage(channel));
+		IFileHandlePool fileHandlePoolMock = mock(IFileHandlePool.class);
+		when(fileHandlePoolMock.createStorage(any(), anyLong(), any())).thenReturn(mock(IFileStorage.class));
+		when(torrentClientMock.getFileHandlePool()).thenReturn(fileHandlePoolMock);
 		when(extensionModuleMock.getExtensionByName("ut_metadata")).thenReturn(Optional.of(metadataExtensionMock));
 		when(metadataExtensionMock.getTorrentFile(torrentMock)).thenReturn(metadataFile);
 		when(metadataExtensionMock.getDownloadFolder()).thenReturn(tmp.resolve("folder").toFile());
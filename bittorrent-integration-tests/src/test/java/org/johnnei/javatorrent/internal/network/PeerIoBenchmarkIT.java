@@ -0,0 +1,204 @@
+package org.johnnei.javatorrent.internal.network;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.johnnei.javatorrent.async.LoopingRunnable;
+import org.johnnei.javatorrent.bittorrent.protocol.MessageFactory;
+import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageHave;
+import org.johnnei.javatorrent.internal.torrent.TorrentManager;
+import org.johnnei.javatorrent.network.BitTorrentSocket;
+import org.johnnei.javatorrent.network.OutStream;
+import org.johnnei.javatorrent.network.socket.TcpSocket;
+import org.johnnei.javatorrent.torrent.Torrent;
+import org.johnnei.javatorrent.torrent.peer.Peer;
+
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Compares {@link PeerIoRunnable} (polling) with {@link PeerIoThreads} (a thread per peer) at a large amount of connected peers. Every peer receives a
+ * number of <code>have</code> messages over a loopback TCP connection. The time until all messages have been processed and the CPU time which is used
+ * while the peers are idle are logged.
+ * <p>
+ * The benchmark is skipped unless <code>-Djavatorrent.benchmark=true</code> is set. Each peer uses two file descriptors, 10k peers requires the open file
+ * limit to be raised accordingly. Virtual threads are only used when running on Java 21 or later.
+ * </p>
+ */
+public class PeerIoBenchmarkIT {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PeerIoBenchmarkIT.class);
+
+	private static final int MESSAGES_PER_PEER = 20;
+
+	private static final long IDLE_MEASUREMENT = 5_000;
+
+	@ParameterizedTest
+	@ValueSource(ints = { 1_000, 10_000 })
+	public void benchmarkPolling(int peerCount) throws Exception {
+		assumeTrue(Boolean.getBoolean("javatorrent.benchmark"), "Benchmarks are disabled");
+
+		try (PeerSet peers = new PeerSet(peerCount)) {
+			TorrentManager torrentManager = mock(TorrentManager.class);
+			when(torrentManager.getTorrents()).thenReturn(Collections.singletonList(peers.torrent));
+
+			LoopingRunnable runnable = new LoopingRunnable(new PeerIoRunnable(torrentManager));
+			Thread thread = new Thread(runnable, "Peer IO");
+			thread.setDaemon(true);
+			thread.start();
+
+			try {
+				peers.measure("Polling");
+			} finally {
+				runnable.stop();
+			}
+		}
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = { 1_000, 10_000 })
+	public void benchmarkThreads(int peerCount) throws Exception {
+		assumeTrue(Boolean.getBoolean("javatorrent.benchmark"), "Benchmarks are disabled");
+
+		try (PeerSet peers = new PeerSet(peerCount)) {
+			PeerIoThreads peerIoThreads = new PeerIoThreads();
+			try {
+				peers.peers.forEach(peerIoThreads::registerPeer);
+				peers.measure(peerIoThreads.isVirtual() ? "VirtualThread" : "PlatformThread");
+			} finally {
+				peerIoThreads.close();
+			}
+		}
+	}
+
+	private static long getProcessCpuTime() {
+		OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+		if (bean instanceof com.sun.management.OperatingSystemMXBean) {
+			return ((com.sun.management.OperatingSystemMXBean) bean).getProcessCpuTime();
+		}
+
+		return -1;
+	}
+
+	/**
+	 * A set of peers which are connected over loopback to sockets which are controlled by the benchmark.
+	 */
+	private static final class PeerSet implements AutoCloseable {
+
+		private final Torrent torrent;
+
+		private final List<Peer> peers;
+
+		private final List<Socket> remoteSockets;
+
+		private final AtomicLong processedMessages;
+
+		private final int peerCount;
+
+		PeerSet(int peerCount) throws IOException {
+			this.peerCount = peerCount;
+			peers = new ArrayList<>(peerCount);
+			remoteSockets = new ArrayList<>(peerCount);
+			processedMessages = new AtomicLong();
+			torrent = mock(Torrent.class);
+			when(torrent.getPeers()).thenReturn(peers);
+
+			MessageFactory messageFactory = mock(MessageFactory.class);
+			when(messageFactory.createById(anyInt())).thenAnswer(invocation -> new MessageHave());
+
+			try (ServerSocket serverSocket = new ServerSocket(0, peerCount, InetAddress.getLoopbackAddress())) {
+				for (int i = 0; i < peerCount; i++) {
+					Socket remoteSocket = new Socket();
+					remoteSocket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort()));
+					remoteSockets.add(remoteSocket);
+
+					BitTorrentSocket socket = new BitTorrentSocket(messageFactory, new TcpSocket(serverSocket.accept()));
+					socket.setPassedHandshake();
+
+					// Mockito would otherwise record every invocation of every peer.
+					Peer peer = mock(Peer.class, withSettings().stubOnly());
+					when(peer.getBitTorrentSocket()).thenReturn(socket);
+					when(peer.getTorrent()).thenReturn(torrent);
+					when(peer.getIdAsString()).thenReturn(Integer.toString(i));
+					doAnswer(invocation -> processedMessages.incrementAndGet()).when(peer).setHavingPiece(anyInt());
+					peers.add(peer);
+				}
+			}
+		}
+
+		void measure(String mode) throws Exception {
+			OutStream messages = new OutStream();
+			for (int i = 0; i < MESSAGES_PER_PEER; i++) {
+				messages.writeInt(5);
+				messages.writeByte(4);
+				messages.writeInt(i);
+			}
+			byte[] messageBytes = messages.toByteArray();
+			long expectedMessages = (long) peerCount * MESSAGES_PER_PEER;
+
+			long startCpu = getProcessCpuTime();
+			long start = System.nanoTime();
+			for (Socket remoteSocket : remoteSockets) {
+				OutputStream outputStream = remoteSocket.getOutputStream();
+				outputStream.write(messageBytes);
+				outputStream.flush();
+			}
+
+			assertTimeoutPreemptively(Duration.ofMinutes(5), () -> {
+				while (processedMessages.get() < expectedMessages) {
+					Thread.sleep(1);
+				}
+			});
+			long processDuration = System.nanoTime() - start;
+			long processCpu = getProcessCpuTime() - startCpu;
+
+			long idleStartCpu = getProcessCpuTime();
+			Thread.sleep(IDLE_MEASUREMENT);
+			long idleCpu = getProcessCpuTime() - idleStartCpu;
+
+			LOGGER.info(
+				"{} with {} peers: processed {} messages in {} ms ({} ms CPU), idle CPU usage {} ms per second.",
+				mode,
+				peerCount,
+				expectedMessages,
+				TimeUnit.NANOSECONDS.toMillis(processDuration),
+				TimeUnit.NANOSECONDS.toMillis(processCpu),
+				TimeUnit.NANOSECONDS.toMillis(idleCpu) / (IDLE_MEASUREMENT / 1000)
+			);
+		}
+
+		@Override
+		public void close() {
+			peers.forEach(peer -> peer.getBitTorrentSocket().close());
+			for (Socket remoteSocket : remoteSockets) {
+				try {
+					remoteSocket.close();
+				} catch (IOException e) {
+					LOGGER.debug("Failed to close remote socket.", e);
+				}
+			}
+		}
+	}
+}
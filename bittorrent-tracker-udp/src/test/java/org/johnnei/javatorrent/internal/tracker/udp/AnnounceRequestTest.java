@@ -52,6 +52,7 @@ public class AnnounceRequestTest {
 		Torrent torrent = new Torrent.Builder()
 				.setMetadata(new Metadata.Builder().setHash(DummyEntity.createRandomBytes(20)).build())
 				.setName("Dummy Torrent")
+				.setTorrentClient(DummyEntity.createTorrentClient())
 				.build();
 
 		TorrentInfo info = new TorrentInfo(torrent, Clock.systemDefaultZone());
@@ -99,6 +100,7 @@ public class AnnounceRequestTest {
 		Torrent torrent = new Torrent.Builder()
 				.setMetadata(new Metadata.Builder().setHash(DummyEntity.createUniqueTorrentHash()).build())
 				.setName("Dummy Torrent")
+				.setTorrentClient(DummyEntity.createTorrentClient())
 				.build();
 		torrent.setFileSet(torrentFileSetMock);
 
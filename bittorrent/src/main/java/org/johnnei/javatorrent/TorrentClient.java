@@ -1,5 +1,6 @@
 package org.johnnei.javatorrent;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -8,28 +9,40 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
-import org.johnnei.javatorrent.async.LoopingRunnable;
 import org.johnnei.javatorrent.bittorrent.protocol.MessageFactory;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.IMessage;
 import org.johnnei.javatorrent.bittorrent.tracker.ITracker;
 import org.johnnei.javatorrent.bittorrent.tracker.TrackerException;
 import org.johnnei.javatorrent.bittorrent.tracker.TrackerFactory;
+import org.johnnei.javatorrent.disk.ChannelFileStorage;
 import org.johnnei.javatorrent.disk.IDiskJob;
-import org.johnnei.javatorrent.internal.disk.IOManager;
+import org.johnnei.javatorrent.disk.IFileHandlePool;
+import org.johnnei.javatorrent.disk.IFileStorageFactory;
+import org.johnnei.javatorrent.internal.disk.DiskWorkerPool;
+import org.johnnei.javatorrent.internal.disk.FileHandlePool;
+import org.johnnei.javatorrent.internal.disk.PieceCache;
+import org.johnnei.javatorrent.internal.disk.PieceReadCache;
+import org.johnnei.javatorrent.internal.network.PeerHandshake;
 import org.johnnei.javatorrent.internal.torrent.TorrentManager;
 import org.johnnei.javatorrent.internal.tracker.TrackerManager;
 import org.johnnei.javatorrent.module.IModule;
+import org.johnnei.javatorrent.network.BitTorrentSocket;
 import org.johnnei.javatorrent.network.ConnectionDegradation;
+import org.johnnei.javatorrent.network.PeerIoMode;
+import org.johnnei.javatorrent.network.TokenBucket;
 import org.johnnei.javatorrent.phases.PhaseRegulator;
 import org.johnnei.javatorrent.torrent.Torrent;
 import org.johnnei.javatorrent.torrent.algos.requests.IRequestLimiter;
+import org.johnnei.javatorrent.torrent.peer.Peer;
 import org.johnnei.javatorrent.tracker.IPeerConnector;
 import org.johnnei.javatorrent.tracker.IPeerDistributor;
+import org.johnnei.javatorrent.tracker.NioPeerConnector;
 import org.johnnei.javatorrent.utils.Argument;
 import org.johnnei.javatorrent.utils.CheckedBiFunction;
 
@@ -60,11 +73,33 @@ public class TorrentClient {
 
 	private IRequestLimiter requestLimiter;
 
+	private PeerIoMode peerIoMode;
+
+	private int peerIoThreadCount;
+
+	private TokenBucket downloadLimiter;
+
+	private TokenBucket uploadLimiter;
+
+	private volatile int peerDownloadRateLimit;
+
+	private volatile int peerUploadRateLimit;
+
 	private ScheduledExecutorService executorService;
 
-	private IOManager ioManager;
+	private DiskWorkerPool diskWorkerPool;
 
-	private LoopingRunnable ioManagerRunner;
+	private IFileStorageFactory fileStorageFactory;
+
+	private PieceCache pieceCache;
+
+	private PieceReadCache readCache;
+
+	private ForkJoinPool recheckPool;
+
+	private File resumeFolder;
+
+	private IFileHandlePool fileHandlePool;
 
 	private int downloadPort;
 
@@ -86,7 +121,16 @@ public class TorrentClient {
 		executorService = Objects.requireNonNull(builder.executorService, "Executor service is required to process torrent tasks.");
 		requestLimiter = Objects.requireNonNull(builder.requestLimiter, "Request Limiter is required to improve transfer rates.");
 
-		peerConnector = Objects.requireNonNull(builder.peerConnector, "Peer connector required to allow external connections").apply(this);
+		peerIoMode = builder.peerIoMode;
+		peerIoThreadCount = builder.peerIoThreadCount;
+		LOGGER.info(String.format("Configured %s peer IO mode on %d thread(s)", peerIoMode, peerIoThreadCount));
+
+		downloadLimiter = new TokenBucket(builder.downloadRateLimit);
+		uploadLimiter = new TokenBucket(builder.uploadRateLimit);
+		peerDownloadRateLimit = builder.peerDownloadRateLimit;
+		peerUploadRateLimit = builder.peerUploadRateLimit;
+
+		peerConnector = Objects.requireNonNull(builder.getPeerConnector(), "Peer connector required to allow external connections").apply(this);
 		LOGGER.info(String.format("Configured %s as Peer Connector", peerConnector));
 
 		Objects.requireNonNull(builder.trackerFactoryBuilder, "At least one tracker protocol must be configured.");
@@ -105,11 +149,17 @@ public class TorrentClient {
 		extensionBytes = builder.extensionBytes;
 		peerId = createPeerId();
 		transactionId = new AtomicInteger(new Random().nextInt());
-		ioManager = new IOManager();
-		ioManagerRunner = new LoopingRunnable(ioManager, true);
-		Thread ioManagerThread = new Thread(ioManagerRunner, String.format("Disk Manager - %s", ioManager.toString()));
-		ioManagerThread.setDaemon(true);
-		ioManagerThread.start();
+		fileStorageFactory = builder.fileStorageFactory;
+		pieceCache = new PieceCache(builder.pieceCacheSize);
+		readCache = new PieceReadCache(builder.readCacheSize);
+		fileHandlePool = new FileHandlePool(builder.maxOpenFiles);
+		LOGGER.info(String.format("Configured a maximum of %d open file(s)", builder.maxOpenFiles));
+		diskWorkerPool = new DiskWorkerPool(builder.diskWorkerCount);
+		LOGGER.info(String.format("Configured %d disk worker(s)", builder.diskWorkerCount));
+		diskWorkerPool.start();
+		recheckPool = new ForkJoinPool(builder.recheckThreadCount);
+		resumeFolder = builder.resumeFolder;
+		LOGGER.info(String.format("Configured %d recheck thread(s)", builder.recheckThreadCount));
 
 		torrentManager.start(this);
 		if (builder.acceptIncomingConnections) {
@@ -160,7 +210,10 @@ public class TorrentClient {
 	 */
 	public void shutdown() {
 		torrentManager.stop();
-		ioManagerRunner.stop();
+		diskWorkerPool.stop();
+		recheckPool.shutdownNow();
+		torrentManager.getTorrents().forEach(Torrent::saveResumeData);
+		fileHandlePool.closeIdleFiles();
 		executorService.shutdown();
 		peerConnector.stop();
 		modules.stream().forEach(IModule::onShutdown);
@@ -171,11 +224,11 @@ public class TorrentClient {
 	}
 
 	/**
-	 * Submits the disk job to be processed by the IO manager.
+	 * Submits the disk job to be processed by one of the disk workers.
 	 * @param task The disk job to execute.
 	 */
 	public void addDiskJob(IDiskJob task) {
-		ioManager.addTask(task);
+		diskWorkerPool.addTask(task);
 	}
 
 	/**
@@ -310,8 +363,147 @@ public class TorrentClient {
 		return requestLimiter;
 	}
 
+	/**
+	 * @return The factory which creates the storage of the files of the torrents.
+	 */
+	public IFileStorageFactory getFileStorageFactory() {
+		return fileStorageFactory;
+	}
+
+	/**
+	 * @return The cache which keeps the received blocks in memory until their piece is complete.
+	 */
+	public PieceCache getPieceCache() {
+		return pieceCache;
+	}
+
+	/**
+	 * @return The cache which keeps recently uploaded pieces in memory, this exposes the hit and miss rates.
+	 */
+	public PieceReadCache getReadCache() {
+		return readCache;
+	}
+
+	/**
+	 * @return The pool on which the pieces on disk are verified when the progress of a torrent is checked.
+	 */
+	public ForkJoinPool getRecheckPool() {
+		return recheckPool;
+	}
+
+	/**
+	 * @return The pool which limits the amount of files which are open over all torrents, this exposes the eviction metrics.
+	 */
+	public IFileHandlePool getFileHandlePool() {
+		return fileHandlePool;
+	}
+
+	/**
+	 * @return The folder in which the resume data of the torrents is stored or <code>null</code> when the resume data isn't stored.
+	 */
+	public File getResumeFolder() {
+		return resumeFolder;
+	}
+
+	/**
+	 * @return The configured strategy to process the peer IO.
+	 */
+	public PeerIoMode getPeerIoMode() {
+		return peerIoMode;
+	}
+
+	/**
+	 * @return The amount of threads which process the peer IO.
+	 */
+	public int getPeerIoThreadCount() {
+		return peerIoThreadCount;
+	}
+
+	/**
+	 * Gets the limiter which caps the download rate of all torrents. The limit can be changed at any time with {@link TokenBucket#setRate(int)}.
+	 * @return The global download limiter.
+	 */
+	public TokenBucket getDownloadLimiter() {
+		return downloadLimiter;
+	}
+
+	/**
+	 * Gets the limiter which caps the upload rate of all torrents. The limit can be changed at any time with {@link TokenBucket#setRate(int)}.
+	 * @return The global upload limiter.
+	 */
+	public TokenBucket getUploadLimiter() {
+		return uploadLimiter;
+	}
+
+	/**
+	 * @return The maximum download rate in bytes per second for peers which are added from now on, zero for unlimited.
+	 */
+	public int getPeerDownloadRateLimit() {
+		return peerDownloadRateLimit;
+	}
+
+	/**
+	 * Changes the maximum download rate of peers which are added from now on. The limit of connected peers can be changed through
+	 * {@link org.johnnei.javatorrent.network.BitTorrentSocket#getDownloadLimiter()}.
+	 * @param peerDownloadRateLimit The maximum amount of bytes per second, zero for unlimited.
+	 */
+	public void setPeerDownloadRateLimit(int peerDownloadRateLimit) {
+		Argument.requirePositive(peerDownloadRateLimit, "Peer download rate limit can not be negative.");
+		this.peerDownloadRateLimit = peerDownloadRateLimit;
+	}
+
+	/**
+	 * @return The maximum upload rate in bytes per second for peers which are added from now on, zero for unlimited.
+	 */
+	public int getPeerUploadRateLimit() {
+		return peerUploadRateLimit;
+	}
+
+	/**
+	 * Changes the maximum upload rate of peers which are added from now on. The limit of connected peers can be changed through
+	 * {@link org.johnnei.javatorrent.network.BitTorrentSocket#getUploadLimiter()}.
+	 * @param peerUploadRateLimit The maximum amount of bytes per second, zero for unlimited.
+	 */
+	public void setPeerUploadRateLimit(int peerUploadRateLimit) {
+		Argument.requirePositive(peerUploadRateLimit, "Peer upload rate limit can not be negative.");
+		this.peerUploadRateLimit = peerUploadRateLimit;
+	}
+
+	/**
+	 * Starts the BitTorrent handshake on a connection which has been accepted. The handshake is executed without blocking the caller, the peer is
+	 * added to the requested torrent once the handshake has completed.
+	 * @param socket The accepted socket.
+	 */
+	public void startHandshake(BitTorrentSocket socket) {
+		torrentManager.registerHandshake(new PeerHandshake(this, socket, null));
+	}
+
+	/**
+	 * Starts the BitTorrent handshake on a connection which we have established. The handshake is executed without blocking the caller, the peer is
+	 * added to the torrent once the handshake has completed.
+	 * @param socket The connected socket.
+	 * @param torrent The torrent for which the connection was made.
+	 */
+	public void startHandshake(BitTorrentSocket socket, Torrent torrent) {
+		torrentManager.registerHandshake(new PeerHandshake(this, socket, Argument.requireNonNull(torrent, "Torrent can not be null.")));
+	}
+
+	/**
+	 * Hands a peer which has passed the handshake over to the peer IO processing.
+	 * @param peer The peer to process.
+	 */
+	public void registerPeer(Peer peer) {
+		torrentManager.registerPeer(peer);
+	}
+
 	public static class Builder {
 
+		private static final long DEFAULT_PIECE_CACHE_SIZE = 32L * 1024 * 1024;
+
+		private static final long DEFAULT_READ_CACHE_SIZE = 32L * 1024 * 1024;
+
+		private static final int DEFAULT_MAX_OPEN_FILES = FileHandlePool.DEFAULT_CAPACITY;
+
 		private final MessageFactory.Builder messageFactoryBuilder;
 
 		private final Collection<IModule> modules;
@@ -330,6 +522,32 @@ public class TorrentClient {
 
 		private IRequestLimiter requestLimiter;
 
+		private PeerIoMode peerIoMode;
+
+		private int peerIoThreadCount;
+
+		private int diskWorkerCount;
+
+		private IFileStorageFactory fileStorageFactory;
+
+		private long pieceCacheSize;
+
+		private long readCacheSize;
+
+		private int maxOpenFiles;
+
+		private int recheckThreadCount;
+
+		private File resumeFolder;
+
+		private int downloadRateLimit;
+
+		private int uploadRateLimit;
+
+		private int peerDownloadRateLimit;
+
+		private int peerUploadRateLimit;
+
 		private boolean acceptIncomingConnections;
 
 		private int downloadPort;
@@ -341,6 +559,14 @@ public class TorrentClient {
 			trackerFactoryBuilder = new TrackerFactory.Builder();
 			modules = new ArrayList<>();
 			extensionBytes = new byte[8];
+			peerIoMode = PeerIoMode.Polling;
+			peerIoThreadCount = 1;
+			diskWorkerCount = 1;
+			fileStorageFactory = (channel, size) -> new ChannelFileStorage(channel);
+			pieceCacheSize = DEFAULT_PIECE_CACHE_SIZE;
+			readCacheSize = DEFAULT_READ_CACHE_SIZE;
+			maxOpenFiles = DEFAULT_MAX_OPEN_FILES;
+			recheckThreadCount = Runtime.getRuntime().availableProcessors();
 		}
 
 		public Builder registerModule(IModule module) {
@@ -400,11 +626,26 @@ public class TorrentClient {
 			return this;
 		}
 
+		/**
+		 * Sets the connector which establishes the connections with the peers found by the trackers. When no connector is configured and
+		 * {@link PeerIoMode#Selector} is used, a {@link NioPeerConnector} with up to {@link NioPeerConnector#DEFAULT_MAX_IN_FLIGHT} concurrent
+		 * connection attempts is used.
+		 * @param peerConnector The function which creates the connector for the client.
+		 * @return The modified instance
+		 */
 		public Builder setPeerConnector(Function<TorrentClient, IPeerConnector> peerConnector) {
 			this.peerConnector = peerConnector;
 			return this;
 		}
 
+		private Function<TorrentClient, IPeerConnector> getPeerConnector() {
+			if (peerConnector == null && peerIoMode == PeerIoMode.Selector) {
+				return client -> new NioPeerConnector(client, NioPeerConnector.DEFAULT_MAX_IN_FLIGHT);
+			}
+
+			return peerConnector;
+		}
+
 		public Builder setExecutorService(ScheduledExecutorService executorService) {
 			this.executorService = executorService;
 			return this;
@@ -415,6 +656,167 @@ public class TorrentClient {
 			return this;
 		}
 
+		/**
+		 * Sets the strategy which is used to read and write the messages of the connected peers. By default {@link PeerIoMode#Polling} is used.
+		 * @param peerIoMode The peer IO mode.
+		 * @return The modified instance
+		 */
+		public Builder setPeerIoMode(PeerIoMode peerIoMode) {
+			this.peerIoMode = Argument.requireNonNull(peerIoMode, "Peer IO mode can not be null.");
+			return this;
+		}
+
+		/**
+		 * Sets the amount of threads which process the peer IO. Each peer is pinned to one of the threads based on the hash of its id. With
+		 * {@link PeerIoMode#Selector} peers are moved between the threads when the amount of peers per thread becomes skewed. By default 1 thread is used.
+		 * This setting has no effect with {@link PeerIoMode#VirtualThread} as every peer gets its own threads.
+		 * @param peerIoThreadCount The amount of threads.
+		 * @return The modified instance
+		 */
+		public Builder setPeerIoThreadCount(int peerIoThreadCount) {
+			Argument.requireWithinBounds(peerIoThreadCount, 1, Integer.MAX_VALUE, () -> "Peer IO thread count must be at least 1.");
+			this.peerIoThreadCount = peerIoThreadCount;
+			return this;
+		}
+
+		/**
+		 * Sets the amount of threads which process the disk jobs. Jobs of the same piece are always processed by the same thread in order of their
+		 * priority, jobs of other pieces and torrents are processed in parallel. By default 1 thread is used.
+		 * @param diskWorkerCount The amount of threads.
+		 * @return The modified instance
+		 */
+		public Builder setDiskWorkerCount(int diskWorkerCount) {
+			Argument.requireWithinBounds(diskWorkerCount, 1, Integer.MAX_VALUE, () -> "Disk worker count must be at least 1.");
+			this.diskWorkerCount = diskWorkerCount;
+			return this;
+		}
+
+		/**
+		 * Sets the factory which creates the storage through which the files of the torrents are read and written. By default
+		 * {@link ChannelFileStorage} is used.
+		 * @param fileStorageFactory The factory to create the file storages with.
+		 * @return The modified instance
+		 * @see org.johnnei.javatorrent.disk.MappedFileStorageFactory
+		 */
+		public Builder setFileStorageFactory(IFileStorageFactory fileStorageFactory) {
+			this.fileStorageFactory = Argument.requireNonNull(fileStorageFactory, "File storage factory can not be null.");
+			return this;
+		}
+
+		/**
+		 * Sets the amount of bytes which can be used to keep partially received pieces in memory. Cached pieces are verified from memory and written to
+		 * disk in a single write once they pass the hash check. Pieces which don't fit are written block by block. By default 32MB is used.
+		 * @param pieceCacheSize The size of the cache in bytes or zero to disable the cache.
+		 * @return The modified instance
+		 */
+		public Builder setPieceCacheSize(long pieceCacheSize) {
+			if (pieceCacheSize < 0) {
+				throw new IllegalArgumentException("Piece cache size can not be negative.");
+			}
+
+			this.pieceCacheSize = pieceCacheSize;
+			return this;
+		}
+
+		/**
+		 * Sets the amount of bytes which can be used to keep recently uploaded pieces in memory. A request for a block reads the entire piece so that
+		 * requests for the other blocks are served from memory. By default 32MB is used.
+		 * @param readCacheSize The size of the cache in bytes or zero to disable the cache.
+		 * @return The modified instance
+		 * @see TorrentClient#getReadCache()
+		 */
+		public Builder setReadCacheSize(long readCacheSize) {
+			if (readCacheSize < 0) {
+				throw new IllegalArgumentException("Read cache size can not be negative.");
+			}
+
+			this.readCacheSize = readCacheSize;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum amount of files which are kept open over all torrents. Files are opened once they are accessed and the least recently used
+		 * files are closed when the limit is exceeded. By default 512 files are kept open.
+		 * @param maxOpenFiles The maximum amount of open files.
+		 * @return The modified instance
+		 * @see TorrentClient#getFileHandlePool()
+		 */
+		public Builder setMaxOpenFiles(int maxOpenFiles) {
+			Argument.requireWithinBounds(maxOpenFiles, 1, Integer.MAX_VALUE, () -> "Maximum amount of open files must be at least 1.");
+			this.maxOpenFiles = maxOpenFiles;
+			return this;
+		}
+
+		/**
+		 * Sets the amount of threads which verify the pieces on disk when the progress of a torrent is checked. Each thread hashes a single piece at a
+		 * time. By default one thread per available processor is used.
+		 * @param recheckThreadCount The amount of threads.
+		 * @return The modified instance
+		 */
+		public Builder setRecheckThreadCount(int recheckThreadCount) {
+			Argument.requireWithinBounds(recheckThreadCount, 1, Integer.MAX_VALUE, () -> "Recheck thread count must be at least 1.");
+			this.recheckThreadCount = recheckThreadCount;
+			return this;
+		}
+
+		/**
+		 * Sets the folder in which the progress of each torrent is stored. On the next start the pieces which were verified before are restored from the
+		 * stored progress instead of being checked again, only the pieces of files which have changed in the meantime are checked. By default the progress
+		 * isn't stored.
+		 * @param resumeFolder The folder to store the resume data in.
+		 * @return The modified instance
+		 */
+		public Builder setResumeFolder(File resumeFolder) {
+			this.resumeFolder = Argument.requireNonNull(resumeFolder, "Resume folder can not be null.");
+			return this;
+		}
+
+		/**
+		 * Sets the maximum amount of bytes per second which are downloaded over all torrents. By default the download rate is unlimited.
+		 * @param downloadRateLimit The maximum rate or zero for unlimited.
+		 * @return The modified instance
+		 * @see TorrentClient#getDownloadLimiter()
+		 */
+		public Builder setDownloadRateLimit(int downloadRateLimit) {
+			Argument.requirePositive(downloadRateLimit, "Download rate limit can not be negative.");
+			this.downloadRateLimit = downloadRateLimit;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum amount of bytes per second which are uploaded over all torrents. By default the upload rate is unlimited.
+		 * @param uploadRateLimit The maximum rate or zero for unlimited.
+		 * @return The modified instance
+		 * @see TorrentClient#getUploadLimiter()
+		 */
+		public Builder setUploadRateLimit(int uploadRateLimit) {
+			Argument.requirePositive(uploadRateLimit, "Upload rate limit can not be negative.");
+			this.uploadRateLimit = uploadRateLimit;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum amount of bytes per second which are downloaded from a single peer. By default the download rate is unlimited.
+		 * @param peerDownloadRateLimit The maximum rate or zero for unlimited.
+		 * @return The modified instance
+		 */
+		public Builder setPeerDownloadRateLimit(int peerDownloadRateLimit) {
+			Argument.requirePositive(peerDownloadRateLimit, "Peer download rate limit can not be negative.");
+			this.peerDownloadRateLimit = peerDownloadRateLimit;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum amount of bytes per second which are uploaded to a single peer. By default the upload rate is unlimited.
+		 * @param peerUploadRateLimit The maximum rate or zero for unlimited.
+		 * @return The modified instance
+		 */
+		public Builder setPeerUploadRateLimit(int peerUploadRateLimit) {
+			Argument.requirePositive(peerUploadRateLimit, "Peer upload rate limit can not be negative.");
+			this.peerUploadRateLimit = peerUploadRateLimit;
+			return this;
+		}
+
 		/**
 		 * Sets the download port at which we are listening
 		 * @param downloadPort The port at which we are listening
@@ -0,0 +1,132 @@
+package org.johnnei.javatorrent.bittorrent.protocol.messages;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+import org.johnnei.javatorrent.bittorrent.protocol.BitTorrent;
+import org.johnnei.javatorrent.network.InStream;
+import org.johnnei.javatorrent.network.OutStream;
+import org.johnnei.javatorrent.torrent.files.Piece;
+import org.johnnei.javatorrent.torrent.peer.Peer;
+
+/**
+ * An outgoing {@link MessageBlock} of which the data is not held in memory. Sockets which are backed by a channel transfer the data directly from the
+ * files onto the socket. Other sockets will read the data from the files at the moment the message is written.
+ *
+ * @see Piece#transferTo(int, int, java.nio.channels.WritableByteChannel)
+ */
+public class MessageBlockRegion implements IMessage {
+
+	/**
+	 * The amount of bytes in the message before the block data starts: length, id, index and offset.
+	 */
+	public static final int HEADER_SIZE = 13;
+
+	private final Piece piece;
+
+	private final int offset;
+
+	private final int length;
+
+	private final Consumer<MessageBlockRegion> callback;
+
+	/**
+	 * Creates a new block message for the given section of the piece.
+	 * @param piece The piece from which the data will be send.
+	 * @param offset The offset within the piece.
+	 * @param length The amount of bytes to send.
+	 */
+	public MessageBlockRegion(Piece piece, int offset, int length) {
+		this(piece, offset, length, region -> {});
+	}
+
+	/**
+	 * Creates a new block message for the given section of the piece.
+	 * @param piece The piece from which the data will be send.
+	 * @param offset The offset within the piece.
+	 * @param length The amount of bytes to send.
+	 * @param callback The callback which is invoked once all block data has been written onto the socket.
+	 */
+	public MessageBlockRegion(Piece piece, int offset, int length, Consumer<MessageBlockRegion> callback) {
+		this.piece = piece;
+		this.offset = offset;
+		this.length = length;
+		this.callback = callback;
+	}
+
+	/**
+	 * Notifies the callback that all block data has been written onto the socket.
+	 */
+	public void onTransferred() {
+		callback.accept(this);
+	}
+
+	/**
+	 * Writes the fields which precede the block data.
+	 * @param outStream The stream to write on.
+	 */
+	public void writeHeader(OutStream outStream) {
+		outStream.writeInt(getLength());
+		outStream.writeByte(getId());
+		outStream.writeInt(piece.getIndex());
+		outStream.writeInt(offset);
+	}
+
+	@Override
+	public void write(OutStream outStream) {
+		outStream.writeInt(piece.getIndex());
+		outStream.writeInt(offset);
+		try {
+			outStream.write(piece.loadPiece(offset, length));
+		} catch (IOException e) {
+			throw new UncheckedIOException(String.format("Failed to read block data of %s", this), e);
+		}
+	}
+
+	@Override
+	public void read(InStream inStream) {
+		throw new UnsupportedOperationException("Block regions can only be send, incoming blocks are read as MessageBlock.");
+	}
+
+	@Override
+	public void process(Peer peer) {
+		throw new UnsupportedOperationException("Block regions can only be send, incoming blocks are processed as MessageBlock.");
+	}
+
+	@Override
+	public int getLength() {
+		return 9 + length;
+	}
+
+	@Override
+	public int getId() {
+		return BitTorrent.MESSAGE_PIECE;
+	}
+
+	/**
+	 * @return The piece from which the data will be send.
+	 */
+	public Piece getPiece() {
+		return piece;
+	}
+
+	/**
+	 * @return The offset within the piece.
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * @return The amount of bytes of block data.
+	 */
+	public int getBlockLength() {
+		return length;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("MessageBlockRegion[index=%d, offset=%d, length=%d]", piece.getIndex(), offset, length);
+	}
+}
@@ -0,0 +1,83 @@
+package org.johnnei.javatorrent.disk;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+
+import org.johnnei.javatorrent.utils.Argument;
+
+/**
+ * A {@link IFileStorage} which uses the positional read and write methods of {@link FileChannel}. Those don't modify the file pointer so concurrent
+ * access to the same file doesn't require locking. This is the default storage.
+ */
+public class ChannelFileStorage implements IFileStorage {
+
+	/**
+	 * The amount of bytes which are read at once when digesting a section of the file.
+	 */
+	private static final int DIGEST_BUFFER_SIZE = 1 << 14;
+
+	private final FileChannel channel;
+
+	/**
+	 * Creates a new storage.
+	 * @param channel The read/write channel of the file.
+	 */
+	public ChannelFileStorage(FileChannel channel) {
+		this.channel = Argument.requireNonNull(channel, "Channel can not be null.");
+	}
+
+	@Override
+	public void read(ByteBuffer buffer, long position) throws IOException {
+		long readPosition = position;
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, readPosition);
+			if (read < 0) {
+				throw new EOFException(String.format("File ended at %d while %d more bytes were expected.", readPosition, buffer.remaining()));
+			}
+			readPosition += read;
+		}
+	}
+
+	@Override
+	public void write(ByteBuffer buffer, long position) throws IOException {
+		long writePosition = position;
+		while (buffer.hasRemaining()) {
+			writePosition += channel.write(buffer, writePosition);
+		}
+	}
+
+	@Override
+	public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+		return channel.transferTo(position, count, target);
+	}
+
+	@Override
+	public void digest(MessageDigest digest, long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(Math.min(length, DIGEST_BUFFER_SIZE));
+		long digestPosition = position;
+		int remainingBytes = length;
+		while (remainingBytes > 0) {
+			buffer.clear();
+			buffer.limit(Math.min(remainingBytes, buffer.capacity()));
+			read(buffer, digestPosition);
+			buffer.flip();
+			digestPosition += buffer.remaining();
+			remainingBytes -= buffer.remaining();
+			digest.update(buffer);
+		}
+	}
+
+	@Override
+	public long size() throws IOException {
+		return channel.size();
+	}
+
+	@Override
+	public String toString() {
+		return "ChannelFileStorage[]";
+	}
+}
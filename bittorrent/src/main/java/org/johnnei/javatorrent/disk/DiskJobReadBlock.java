@@ -4,23 +4,61 @@ import java.io.IOException;
 import java.util.function.Consumer;
 
 import org.johnnei.javatorrent.internal.disk.DiskJobPriority;
+import org.johnnei.javatorrent.internal.disk.PieceReadCache;
 import org.johnnei.javatorrent.torrent.files.Piece;
 
 public class DiskJobReadBlock implements IDiskJob {
 
 	private final Consumer<DiskJobReadBlock> callback;
+	private final Consumer<DiskJobReadBlock> failureCallback;
 	private final Piece piece;
 	private final int offset;
 
 	private final int length;
 
+	private final PieceReadCache readCache;
+
 	private byte[] blockData;
 
 	public DiskJobReadBlock(Piece piece, int offset, int length, Consumer<DiskJobReadBlock> callback) {
+		this(piece, offset, length, null, callback);
+	}
+
+	/**
+	 * Creates a new job to read a block of a piece.
+	 * @param piece The piece to read from.
+	 * @param offset The offset within the piece.
+	 * @param length The amount of bytes to read.
+	 * @param readCache The cache to read through or <code>null</code> to always read from disk.
+	 * @param callback The callback which gets called on completion of this job
+	 */
+	public DiskJobReadBlock(Piece piece, int offset, int length, PieceReadCache readCache, Consumer<DiskJobReadBlock> callback) {
+		this(piece, offset, length, readCache, callback, job -> {});
+	}
+
+	/**
+	 * Creates a new job to read a block of a piece.
+	 * @param piece The piece to read from.
+	 * @param offset The offset within the piece.
+	 * @param length The amount of bytes to read.
+	 * @param readCache The cache to read through or <code>null</code> to always read from disk.
+	 * @param callback The callback which gets called on completion of this job
+	 * @param failureCallback The callback which gets called when the block could not be read.
+	 */
+	public DiskJobReadBlock(
+		Piece piece,
+		int offset,
+		int length,
+		PieceReadCache readCache,
+		Consumer<DiskJobReadBlock> callback,
+		Consumer<DiskJobReadBlock> failureCallback
+	) {
 		this.callback = callback;
+		this.failureCallback = failureCallback;
 		this.piece = piece;
 		this.offset = offset;
 		this.length = length;
+		this.readCache = readCache;
 	}
 
 	/**
@@ -28,10 +66,23 @@ public class DiskJobReadBlock implements IDiskJob {
 	 */
 	@Override
 	public void process() throws IOException {
-		blockData = piece.loadPiece(offset, length);
+		if (readCache == null) {
+			blockData = piece.loadPiece(offset, length);
+		} else {
+			blockData = readCache.read(piece, offset, length);
+		}
 		callback.accept(this);
 	}
 
+	/**
+	 * Informs the failure callback that the job has been dropped.
+	 * @param cause The exception which caused the last attempt to fail.
+	 */
+	@Override
+	public void onFailure(IOException cause) {
+		failureCallback.accept(this);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -9,6 +9,7 @@ import org.johnnei.javatorrent.torrent.files.Piece;
 public class DiskJobWriteBlock implements IDiskJob {
 
 	private final Consumer<DiskJobWriteBlock> callback;
+	private final Consumer<DiskJobWriteBlock> failureCallback;
 	private final Piece piece;
 	private final int blockIndex;
 	private final byte[] data;
@@ -21,7 +22,26 @@ public class DiskJobWriteBlock implements IDiskJob {
 	 * @param callback The callback which gets called on completion of this job
 	 */
 	public DiskJobWriteBlock(Piece piece, int blockIndex, byte[] data, Consumer<DiskJobWriteBlock> callback) {
+		this(piece, blockIndex, data, callback, job -> {});
+	}
+
+	/**
+	 * Creates a new job to store a block of a piece.
+	 * @param piece The piece in which this block is found
+	 * @param blockIndex The index of the block within the given piece.
+	 * @param data The bytes to write for the block
+	 * @param callback The callback which gets called on completion of this job
+	 * @param failureCallback The callback which gets called when the block could not be written.
+	 */
+	public DiskJobWriteBlock(
+		Piece piece,
+		int blockIndex,
+		byte[] data,
+		Consumer<DiskJobWriteBlock> callback,
+		Consumer<DiskJobWriteBlock> failureCallback
+	) {
 		this.callback = callback;
+		this.failureCallback = failureCallback;
 		this.piece = piece;
 		this.blockIndex = blockIndex;
 		this.data = data;
@@ -33,6 +53,15 @@ public class DiskJobWriteBlock implements IDiskJob {
 		callback.accept(this);
 	}
 
+	/**
+	 * Informs the failure callback that the job has been dropped.
+	 * @param cause The exception which caused the last attempt to fail.
+	 */
+	@Override
+	public void onFailure(IOException cause) {
+		failureCallback.accept(this);
+	}
+
 	/**
 	 * Gets the piece for which this store task is being used.
 	 * @return The piece for which a block is/was being written.
@@ -0,0 +1,94 @@
+package org.johnnei.javatorrent.disk;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+import org.johnnei.javatorrent.internal.disk.DiskJobPriority;
+import org.johnnei.javatorrent.torrent.files.Piece;
+
+/**
+ * A job to verify the hash of a piece which has been received in memory and write it to disk when the hash matches.
+ */
+public class DiskJobWritePiece implements IDiskJob {
+
+	private final Consumer<DiskJobWritePiece> callback;
+
+	private final Consumer<DiskJobWritePiece> failureCallback;
+
+	private final Piece piece;
+
+	private final byte[] data;
+
+	private boolean matchingHash;
+
+	/**
+	 * Creates a new job to verify and store a piece.
+	 * @param piece The piece to store.
+	 * @param data The data of the entire piece.
+	 * @param callback The callback which gets called on completion of this job
+	 */
+	public DiskJobWritePiece(Piece piece, byte[] data, Consumer<DiskJobWritePiece> callback) {
+		this(piece, data, callback, job -> {});
+	}
+
+	/**
+	 * Creates a new job to verify and store a piece.
+	 * @param piece The piece to store.
+	 * @param data The data of the entire piece.
+	 * @param callback The callback which gets called on completion of this job
+	 * @param failureCallback The callback which gets called when the piece could not be written.
+	 */
+	public DiskJobWritePiece(Piece piece, byte[] data, Consumer<DiskJobWritePiece> callback, Consumer<DiskJobWritePiece> failureCallback) {
+		this.callback = callback;
+		this.failureCallback = failureCallback;
+		this.piece = piece;
+		this.data = data;
+	}
+
+	@Override
+	public void process() throws IOException {
+		matchingHash = piece.checkHash(data);
+		if (matchingHash) {
+			piece.storePiece(data);
+		}
+		callback.accept(this);
+	}
+
+	/**
+	 * Informs the failure callback that the job has been dropped.
+	 * @param cause The exception which caused the last attempt to fail.
+	 */
+	@Override
+	public void onFailure(IOException cause) {
+		failureCallback.accept(this);
+	}
+
+	/**
+	 * This method returns the result of the {@link #process()} call.
+	 * @return <code>true</code> when the hash verification passed and the piece has been written, otherwise <code>false</code>.
+	 *
+	 * @see #process()
+	 */
+	public boolean isMatchingHash() {
+		return matchingHash;
+	}
+
+	/**
+	 * Gets the piece which is being stored.
+	 * @return The piece which is affected by this job.
+	 */
+	@Override
+	public Piece getPiece() {
+		return piece;
+	}
+
+	@Override
+	public int getPriority() {
+		return DiskJobPriority.RECEIVED_DATA.getPriority();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("DiskJobWritePiece[piece=%d]", piece.getIndex());
+	}
+}
@@ -2,6 +2,8 @@ package org.johnnei.javatorrent.disk;
 
 import java.io.IOException;
 
+import org.johnnei.javatorrent.torrent.files.Piece;
+
 public interface IDiskJob {
 
 	/**
@@ -16,4 +18,22 @@ public interface IDiskJob {
 	 */
 	int getPriority();
 
+	/**
+	 * The piece on which this job operates. Jobs for the same piece are processed by the same disk worker in order of their priority.
+	 *
+	 * @return The piece or <code>null</code> when the job doesn't operate on a single piece.
+	 */
+	default Piece getPiece() {
+		return null;
+	}
+
+	/**
+	 * Called when the job has failed on every attempt and will not be retried anymore.
+	 *
+	 * @param cause The exception which caused the last attempt to fail.
+	 */
+	default void onFailure(IOException cause) {
+		// Jobs without failure handling are dropped silently.
+	}
+
 }
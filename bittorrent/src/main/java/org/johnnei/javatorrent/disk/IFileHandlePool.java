@@ -0,0 +1,52 @@
+package org.johnnei.javatorrent.disk;
+
+import java.io.File;
+
+/**
+ * Opens the files of torrents on demand and limits the amount of files which are open at the same time.
+ *
+ * @see org.johnnei.javatorrent.TorrentClient#getFileHandlePool()
+ */
+public interface IFileHandlePool {
+
+	/**
+	 * Creates the storage of a file which is opened through this pool once it is accessed.
+	 *
+	 * @param file The file on disk.
+	 * @param fileSize The size of the file once completed.
+	 * @param storageFactory The factory to create the storage of the opened file with.
+	 * @return The storage of the file.
+	 */
+	IFileStorage createStorage(File file, long fileSize, IFileStorageFactory storageFactory);
+
+	/**
+	 * Closes all files which are not in use.
+	 */
+	void closeIdleFiles();
+
+	/**
+	 * @return The maximum amount of files which are kept open.
+	 */
+	int getCapacity();
+
+	/**
+	 * @return The amount of files which are currently open.
+	 */
+	int getOpenFileCount();
+
+	/**
+	 * @return The amount of accesses to a file which was already open.
+	 */
+	long getHitCount();
+
+	/**
+	 * @return The amount of times a file had to be opened.
+	 */
+	long getOpenCount();
+
+	/**
+	 * @return The amount of files which have been closed to stay within the capacity.
+	 */
+	long getEvictionCount();
+
+}
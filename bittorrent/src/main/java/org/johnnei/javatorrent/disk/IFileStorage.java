@@ -0,0 +1,69 @@
+package org.johnnei.javatorrent.disk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+
+/**
+ * The access to the data of a single file on disk. All access is positional, implementations must allow concurrent calls from multiple disk workers.
+ *
+ * @see IFileStorageFactory
+ */
+public interface IFileStorage {
+
+	/**
+	 * Reads from the file starting at the given position until the buffer is full.
+	 *
+	 * @param buffer The buffer to read into.
+	 * @param position The position in the file of the first byte to read.
+	 * @throws java.io.EOFException When the file ends before the buffer is full.
+	 * @throws IOException When the underlying IO causes an error.
+	 */
+	void read(ByteBuffer buffer, long position) throws IOException;
+
+	/**
+	 * Writes the remaining bytes of the buffer into the file starting at the given position.
+	 *
+	 * @param buffer The buffer to write.
+	 * @param position The position in the file of the first byte to write.
+	 * @throws IOException When the underlying IO causes an error.
+	 */
+	void write(ByteBuffer buffer, long position) throws IOException;
+
+	/**
+	 * Transfers a section of the file onto the given channel. Less bytes than requested can be transferred when the channel is in non-blocking mode.
+	 *
+	 * @param position The position in the file of the first byte to transfer.
+	 * @param count The amount of bytes to transfer.
+	 * @param target The channel to transfer the bytes to.
+	 * @return The amount of bytes which have been transferred.
+	 * @throws IOException When the underlying IO causes an error.
+	 */
+	long transferTo(long position, long count, WritableByteChannel target) throws IOException;
+
+	/**
+	 * Updates the digest with a section of the file.
+	 *
+	 * @param digest The digest to update.
+	 * @param position The position in the file of the first byte to digest.
+	 * @param length The amount of bytes to digest.
+	 * @throws java.io.EOFException When the file ends before the section has been digested.
+	 * @throws IOException When the underlying IO causes an error.
+	 */
+	void digest(MessageDigest digest, long position, int length) throws IOException;
+
+	/**
+	 * @return The amount of bytes which are currently available in the file.
+	 * @throws IOException When the underlying IO causes an error.
+	 */
+	long size() throws IOException;
+
+	/**
+	 * Notifies the storage that the file has been closed. The storage will no longer be used and must release the resources which it holds for the file.
+	 */
+	default void onClose() {
+		// Storages without resources of their own have nothing to release.
+	}
+
+}
@@ -0,0 +1,25 @@
+package org.johnnei.javatorrent.disk;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * Creates the {@link IFileStorage} for the files of a torrent.
+ *
+ * @see ChannelFileStorage
+ * @see MappedFileStorageFactory
+ */
+@FunctionalInterface
+public interface IFileStorageFactory {
+
+	/**
+	 * Creates the storage for a single file.
+	 *
+	 * @param channel The read/write channel of the file.
+	 * @param size The size of the file once it has been completed.
+	 * @return The newly created storage.
+	 * @throws IOException When the storage could not be created.
+	 */
+	IFileStorage create(FileChannel channel, long size) throws IOException;
+
+}
@@ -26,9 +26,14 @@ class DiskJobWrapper implements Comparable<DiskJobWrapper> {
 
 	private int attempt;
 
+	private IOException failure;
+
+	private Instant nextAttemptTime;
+
 	DiskJobWrapper(IDiskJob diskJob) {
 		this.diskJob = Objects.requireNonNull(diskJob, "Can't wrap a null-job");
 		this.submitTime = clock.instant();
+		this.nextAttemptTime = submitTime;
 	}
 
 	/**
@@ -47,11 +52,41 @@ class DiskJobWrapper implements Comparable<DiskJobWrapper> {
 			return true;
 		} catch (IOException e) {
 			attempt++;
+			failure = e;
 			LOGGER.warn("Failed to process {}. (Attempt: {})", diskJob, attempt, e);
 			return false;
 		}
 	}
 
+	/**
+	 * Delays the next attempt of the job.
+	 * @param delay The time to wait before the job may be processed again.
+	 */
+	void scheduleRetry(Duration delay) {
+		nextAttemptTime = clock.instant().plus(delay);
+	}
+
+	/**
+	 * Informs the wrapped job that it has been dropped after failing on every attempt.
+	 */
+	void fail() {
+		diskJob.onFailure(failure);
+	}
+
+	/**
+	 * @return The amount of times the job has failed to process.
+	 */
+	int getAttempt() {
+		return attempt;
+	}
+
+	/**
+	 * @return The moment at which the job may be processed.
+	 */
+	Instant getNextAttemptTime() {
+		return nextAttemptTime;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
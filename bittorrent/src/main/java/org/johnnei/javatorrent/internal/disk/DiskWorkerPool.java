@@ -0,0 +1,112 @@
+package org.johnnei.javatorrent.internal.disk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.johnnei.javatorrent.async.LoopingRunnable;
+import org.johnnei.javatorrent.disk.IDiskJob;
+import org.johnnei.javatorrent.torrent.files.Piece;
+import org.johnnei.javatorrent.utils.Argument;
+
+/**
+ * Distributes the disk jobs over a fixed set of {@link IOManager} workers which each run on their own thread. Jobs which operate on the same piece are
+ * always assigned to the same worker, so they are processed in order of their {@link DiskJobPriority}. Jobs of other pieces, files and torrents are
+ * processed in parallel.
+ */
+public class DiskWorkerPool {
+
+	private final List<IOManager> workers;
+
+	private final List<LoopingRunnable> runnables;
+
+	private final List<Thread> threads;
+
+	/**
+	 * The worker which receives the next job which isn't bound to a piece.
+	 */
+	private final AtomicInteger nextWorker;
+
+	/**
+	 * Creates a new pool.
+	 * @param workerCount The amount of workers.
+	 */
+	public DiskWorkerPool(int workerCount) {
+		Argument.requireWithinBounds(workerCount, 1, Integer.MAX_VALUE, () -> "Disk worker count must be at least 1.");
+		workers = new ArrayList<>(workerCount);
+		runnables = new ArrayList<>(workerCount);
+		threads = new ArrayList<>(workerCount);
+		nextWorker = new AtomicInteger();
+
+		for (int i = 0; i < workerCount; i++) {
+			IOManager worker = new IOManager();
+			workers.add(worker);
+			runnables.add(new LoopingRunnable(worker, true));
+		}
+	}
+
+	/**
+	 * Starts the threads of the workers.
+	 */
+	public void start() {
+		for (int i = 0; i < runnables.size(); i++) {
+			String name = runnables.size() == 1 ? "Disk Manager" : String.format("Disk Manager #%d", i);
+			Thread thread = new Thread(runnables.get(i), name);
+			thread.setDaemon(true);
+			thread.start();
+			threads.add(thread);
+		}
+	}
+
+	/**
+	 * Stops the threads of the workers. Jobs which are still queued will not be processed.
+	 */
+	public void stop() {
+		runnables.forEach(LoopingRunnable::stop);
+		// Wake up the workers which are waiting for a job.
+		threads.forEach(Thread::interrupt);
+	}
+
+	/**
+	 * Submits the job to the worker which is responsible for the piece of the job.
+	 * @param task The job to process.
+	 */
+	public void addTask(IDiskJob task) {
+		workers.get(getWorkerIndex(task)).addTask(task);
+	}
+
+	int getWorkerIndex(IDiskJob task) {
+		if (workers.size() == 1) {
+			return 0;
+		}
+
+		Piece piece = task.getPiece();
+		if (piece == null) {
+			return Math.floorMod(nextWorker.getAndIncrement(), workers.size());
+		}
+
+		// Pieces of different torrents share their indices, include the file set to spread them over the workers.
+		int hash = 31 * System.identityHashCode(piece.getFileSet()) + piece.getIndex();
+		return Math.floorMod(hash, workers.size());
+	}
+
+	/**
+	 * @return The amount of jobs which are waiting to be processed over all workers.
+	 */
+	public int getQueueSize() {
+		return workers.stream().mapToInt(IOManager::getQueueSize).sum();
+	}
+
+	/**
+	 * @return The workers of this pool.
+	 */
+	List<IOManager> getWorkers() {
+		return Collections.unmodifiableList(workers);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("DiskWorkerPool[workers=%d]", workers.size());
+	}
+}
@@ -0,0 +1,219 @@
+package org.johnnei.javatorrent.internal.disk;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import org.johnnei.javatorrent.disk.IFileHandlePool;
+import org.johnnei.javatorrent.disk.IFileStorage;
+import org.johnnei.javatorrent.disk.IFileStorageFactory;
+
+/**
+ * Limits the amount of files which are open at the same time over all torrents. Files are opened on first access and the least recently used files are
+ * closed once the limit is exceeded. A closed file is transparently opened again on the next access. Files which are being accessed are never closed, so
+ * the limit is exceeded temporarily when more files are in use at the same time.
+ * <p>
+ * Files are opened and closed while holding the lock of the file instead of the pool, so creating a file on a slow disk doesn't stall the access to
+ * other files which are already open.
+ * </p>
+ */
+public class FileHandlePool implements IFileHandlePool {
+
+	/**
+	 * The default maximum amount of open files.
+	 */
+	public static final int DEFAULT_CAPACITY = 512;
+
+	/**
+	 * The pool which is shared by all files which are created without a pool.
+	 */
+	private static final FileHandlePool SHARED_POOL = new FileHandlePool(DEFAULT_CAPACITY);
+
+	private final int capacity;
+
+	/**
+	 * The open files in order of access, the least recently used file is first.
+	 */
+	private final LinkedHashMap<PooledFileStorage, PooledFileStorage> openFiles;
+
+	private long hitCount;
+
+	private long openCount;
+
+	private long evictionCount;
+
+	/**
+	 * Creates a new pool.
+	 * @param capacity The maximum amount of files which are kept open.
+	 */
+	public FileHandlePool(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("File handle pool must allow at least one open file.");
+		}
+
+		this.capacity = capacity;
+		openFiles = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	/**
+	 * Gets the pool which is used by the files which are not opened through the pool of a {@link org.johnnei.javatorrent.TorrentClient}. The pool is
+	 * shared so that the limit of {@link #DEFAULT_CAPACITY} files applies to all of those files together.
+	 * @return The shared pool.
+	 */
+	public static FileHandlePool getSharedPool() {
+		return SHARED_POOL;
+	}
+
+	@Override
+	public IFileStorage createStorage(File file, long fileSize, IFileStorageFactory storageFactory) {
+		return new PooledFileStorage(file, fileSize, storageFactory, this);
+	}
+
+	/**
+	 * Opens the file when it isn't open yet and marks it as in use. Every call must be followed by a call to {@link #release(PooledFileStorage)}.
+	 * @param file The file to access.
+	 * @return The storage of the opened file.
+	 * @throws IOException When the file can't be opened.
+	 */
+	IFileStorage acquire(PooledFileStorage file) throws IOException {
+		synchronized (this) {
+			if (openFiles.get(file) != null) {
+				hitCount++;
+				file.users++;
+				return file.getOpenStorage();
+			}
+		}
+
+		IFileStorage storage;
+		Collection<PooledFileStorage> evictedFiles;
+		synchronized (file) {
+			synchronized (this) {
+				// Another caller might have opened the file while waiting for the file lock.
+				if (openFiles.get(file) != null) {
+					hitCount++;
+					file.users++;
+					return file.getOpenStorage();
+				}
+			}
+
+			// The file might still be open when it has been evicted but not closed yet, in which case the handle is reused.
+			boolean reused = file.isOpen();
+			if (!reused) {
+				file.open();
+			}
+
+			synchronized (this) {
+				openFiles.put(file, file);
+				if (reused) {
+					hitCount++;
+				} else {
+					openCount++;
+				}
+				file.users++;
+				storage = file.getOpenStorage();
+				evictedFiles = removeIdleFiles(capacity);
+				evictionCount += evictedFiles.size();
+			}
+		}
+
+		closeFiles(evictedFiles);
+		return storage;
+	}
+
+	/**
+	 * Marks the file as no longer in use by the caller.
+	 * @param file The file which was acquired.
+	 */
+	void release(PooledFileStorage file) {
+		Collection<PooledFileStorage> evictedFiles;
+		synchronized (this) {
+			file.users--;
+			evictedFiles = removeIdleFiles(capacity);
+			evictionCount += evictedFiles.size();
+		}
+
+		closeFiles(evictedFiles);
+	}
+
+	@Override
+	public void closeIdleFiles() {
+		Collection<PooledFileStorage> idleFiles;
+		synchronized (this) {
+			idleFiles = removeIdleFiles(0);
+		}
+
+		closeFiles(idleFiles);
+	}
+
+	/**
+	 * Removes the least recently used idle files until at most the given amount of files is open. The removed files must be closed with
+	 * {@link #closeFiles(Collection)} once the pool lock has been released.
+	 */
+	private Collection<PooledFileStorage> removeIdleFiles(int maxOpenFiles) {
+		if (openFiles.size() <= maxOpenFiles) {
+			return Collections.emptyList();
+		}
+
+		Collection<PooledFileStorage> removedFiles = new ArrayList<>();
+		Iterator<PooledFileStorage> iterator = openFiles.keySet().iterator();
+		while (openFiles.size() > maxOpenFiles && iterator.hasNext()) {
+			PooledFileStorage file = iterator.next();
+			if (file.users == 0) {
+				iterator.remove();
+				removedFiles.add(file);
+			}
+		}
+		return removedFiles;
+	}
+
+	private void closeFiles(Collection<PooledFileStorage> files) {
+		for (PooledFileStorage file : files) {
+			synchronized (file) {
+				synchronized (this) {
+					if (openFiles.containsKey(file)) {
+						// The file has been opened again after it was removed.
+						continue;
+					}
+				}
+
+				if (file.isOpen()) {
+					file.close();
+				}
+			}
+		}
+	}
+
+	@Override
+	public int getCapacity() {
+		return capacity;
+	}
+
+	@Override
+	public synchronized int getOpenFileCount() {
+		return openFiles.size();
+	}
+
+	@Override
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	@Override
+	public synchronized long getOpenCount() {
+		return openCount;
+	}
+
+	@Override
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("FileHandlePool[capacity=%d, open=%d, evictions=%d]", capacity, getOpenFileCount(), getEvictionCount());
+	}
+}
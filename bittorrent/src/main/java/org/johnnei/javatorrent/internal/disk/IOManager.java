@@ -1,5 +1,9 @@
 package org.johnnei.javatorrent.internal.disk;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
 import java.util.PriorityQueue;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
@@ -11,18 +15,53 @@ import org.johnnei.javatorrent.internal.utils.Sync;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * A disk worker which processes its jobs in order of their {@link DiskJobPriority}. Jobs which fail are retried with an exponentially increasing delay so
+ * the other jobs are processed in the meantime. A job which keeps failing is dropped and informed through {@link IDiskJob#onFailure(java.io.IOException)}.
+ *
+ * @see DiskWorkerPool
+ */
 public class IOManager implements Runnable {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(IOManager.class);
 
+	private static final int DEFAULT_MAX_ATTEMPTS = 5;
+
+	private static final Duration DEFAULT_RETRY_DELAY = Duration.ofMillis(250);
+
+	private static final Duration MAX_RETRY_DELAY = Duration.ofSeconds(30);
+
+	private final Clock clock = Clock.systemDefaultZone();
+
 	private final Lock lock;
 
 	private final Condition newTaskEvent;
 
+	private final int maxAttempts;
+
+	private final Duration retryDelay;
+
 	private PriorityQueue<DiskJobWrapper> taskQueue;
 
+	/**
+	 * The jobs which have failed in order of their next attempt.
+	 */
+	private PriorityQueue<DiskJobWrapper> retryQueue;
+
 	public IOManager() {
+		this(DEFAULT_MAX_ATTEMPTS, DEFAULT_RETRY_DELAY);
+	}
+
+	/**
+	 * Creates a new worker.
+	 * @param maxAttempts The amount of times a job is attempted before it's dropped.
+	 * @param retryDelay The delay before the first retry of a failed job, which doubles on every next retry.
+	 */
+	IOManager(int maxAttempts, Duration retryDelay) {
+		this.maxAttempts = maxAttempts;
+		this.retryDelay = retryDelay;
 		taskQueue = new PriorityQueue<>();
+		retryQueue = new PriorityQueue<>(Comparator.comparing(DiskJobWrapper::getNextAttemptTime));
 		lock = new ReentrantLock();
 		newTaskEvent = lock.newCondition();
 	}
@@ -41,38 +80,94 @@ public class IOManager implements Runnable {
 	}
 
 	private boolean awaitTask() {
-		while (taskQueue.isEmpty()) {
-			try {
-				lock.lock();
-				newTaskEvent.await();
-			} catch (InterruptedException e) {
-				LOGGER.info("IO Manager was interrupted. Stopping thread.", e);
-				return false;
-			} finally {
-				lock.unlock();
+		// Check the queue while holding the lock, otherwise a task which is added before waiting would not wake us up.
+		lock.lock();
+		try {
+			long waitTime;
+			while ((waitTime = getNanosUntilNextTask()) != 0) {
+				if (waitTime < 0) {
+					newTaskEvent.await();
+				} else {
+					newTaskEvent.awaitNanos(waitTime);
+				}
 			}
+		} catch (InterruptedException e) {
+			LOGGER.info("IO Manager was interrupted. Stopping thread.", e);
+			return false;
+		} finally {
+			lock.unlock();
 		}
 
 		return true;
 	}
 
-	private void processTasks() {
-		while (!taskQueue.isEmpty()) {
-			DiskJobWrapper task;
-			synchronized (this) {
-				task = taskQueue.remove();
-			}
+	/**
+	 * @return <code>0</code> when a task can be processed, <code>-1</code> when there are no tasks, otherwise the nanoseconds until the next retry.
+	 */
+	private synchronized long getNanosUntilNextTask() {
+		if (!taskQueue.isEmpty()) {
+			return 0;
+		}
+
+		if (retryQueue.isEmpty()) {
+			return -1;
+		}
+
+		return Math.max(0, Duration.between(clock.instant(), retryQueue.peek().getNextAttemptTime()).toNanos());
+	}
+
+	/**
+	 * @return The amount of tasks which are waiting to be processed, including the tasks which are waiting to be retried.
+	 */
+	public synchronized int getQueueSize() {
+		return taskQueue.size() + retryQueue.size();
+	}
 
+	private synchronized DiskJobWrapper pollTask() {
+		Instant now = clock.instant();
+		while (!retryQueue.isEmpty() && !retryQueue.peek().getNextAttemptTime().isAfter(now)) {
+			taskQueue.add(retryQueue.remove());
+		}
+
+		return taskQueue.poll();
+	}
+
+	private void processTasks() {
+		DiskJobWrapper task;
+		while ((task = pollTask()) != null) {
 			LOGGER.trace("Processing task: {}", task);
 
 			if (!task.process()) {
-				synchronized (this) {
-					taskQueue.add(task);
-				}
+				onTaskFailed(task);
 			}
 		}
 	}
 
+	private void onTaskFailed(DiskJobWrapper task) {
+		if (task.getAttempt() >= maxAttempts) {
+			LOGGER.error("Dropping {} after {} failed attempts.", task, task.getAttempt());
+			task.fail();
+			return;
+		}
+
+		// Delay the retry instead of re-queueing it directly, otherwise a failing job of a high priority starves all other jobs.
+		task.scheduleRetry(getRetryDelay(task.getAttempt()));
+		synchronized (this) {
+			retryQueue.add(task);
+		}
+	}
+
+	/**
+	 * Calculates the delay before the next attempt of a job.
+	 * @param attempt The amount of times the job has failed.
+	 * @return The delay before the next attempt.
+	 */
+	Duration getRetryDelay(int attempt) {
+		// Cap the exponent to prevent the shift from overflowing.
+		Duration delay = retryDelay.multipliedBy(1L << Math.min(attempt - 1, 20));
+		return delay.compareTo(MAX_RETRY_DELAY) > 0 ? MAX_RETRY_DELAY : delay;
+	}
+
 	/**
 	 * Processes all pending tasks.
 	 *
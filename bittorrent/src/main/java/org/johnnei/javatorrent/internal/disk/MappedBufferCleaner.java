@@ -0,0 +1,84 @@
+package org.johnnei.javatorrent.internal.disk;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Unmaps {@link MappedByteBuffer}s before they are garbage collected. Java provides no public API to unmap a buffer so this uses the internal cleaner of
+ * the buffer: <code>sun.misc.Unsafe#invokeCleaner</code> on Java 9 and newer, <code>DirectBuffer#cleaner</code> on Java 8. When neither is accessible
+ * the buffer is left to the garbage collector.
+ * <p>
+ * A buffer must not be accessed after it has been unmapped, doing so crashes the JVM.
+ * </p>
+ */
+final class MappedBufferCleaner {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(MappedBufferCleaner.class);
+
+	private static final Cleaner CLEANER = createCleaner();
+
+	private MappedBufferCleaner() {
+		// Utility class
+	}
+
+	/**
+	 * Unmaps the buffer.
+	 *
+	 * @param buffer The buffer to unmap.
+	 * @return <code>true</code> when the buffer has been unmapped, <code>false</code> when it will be unmapped once it is garbage collected.
+	 */
+	static boolean unmap(MappedByteBuffer buffer) {
+		if (CLEANER == null) {
+			return false;
+		}
+
+		try {
+			CLEANER.clean(buffer);
+			return true;
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			LOGGER.debug("Failed to unmap buffer, it will be unmapped once it is garbage collected.", e);
+			return false;
+		}
+	}
+
+	private static Cleaner createCleaner() {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			Object unsafe = theUnsafe.get(null);
+			return buffer -> invokeCleaner.invoke(unsafe, buffer);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			LOGGER.trace("Unsafe#invokeCleaner is not available.", e);
+		}
+
+		try {
+			Method cleanerMethod = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+			Method cleanMethod = Class.forName("sun.misc.Cleaner").getMethod("clean");
+			return buffer -> {
+				Object cleaner = cleanerMethod.invoke(buffer);
+				if (cleaner != null) {
+					cleanMethod.invoke(cleaner);
+				}
+			};
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			LOGGER.trace("DirectBuffer#cleaner is not available.", e);
+		}
+
+		LOGGER.warn("Mapped buffers can't be explicitly unmapped on this JVM, they will be unmapped once they are garbage collected.");
+		return null;
+	}
+
+	@FunctionalInterface
+	private interface Cleaner {
+
+		void clean(MappedByteBuffer buffer) throws ReflectiveOperationException;
+
+	}
+}
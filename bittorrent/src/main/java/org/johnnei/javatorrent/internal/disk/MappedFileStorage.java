@@ -0,0 +1,186 @@
+package org.johnnei.javatorrent.internal.disk;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.johnnei.javatorrent.disk.IFileStorage;
+import org.johnnei.javatorrent.internal.disk.MappedWindowCache.MappedWindow;
+import org.johnnei.javatorrent.utils.Argument;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link IFileStorage} which maps windows of the file into memory. Reads and writes are memory copies and digests read straight from the mapping.
+ * Like positional writes on the channel, writing extends the file up to the last written byte.
+ * <p>
+ * Mapping a window extends the file to the end of the window. The storage keeps track of the last written byte instead of relying on the size of the
+ * file and truncates the file to it when the file is closed.
+ * </p>
+ *
+ * @see MappedWindowCache
+ */
+public class MappedFileStorage implements IFileStorage {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(MappedFileStorage.class);
+
+	private final FileChannel channel;
+
+	private final long fileSize;
+
+	private final MappedWindowCache windowCache;
+
+	/**
+	 * The amount of bytes which have been written to the file, the file itself may be longer due to the mapped windows.
+	 */
+	private final AtomicLong writtenBytes;
+
+	/**
+	 * Creates a new storage.
+	 * @param channel The read/write channel of the file.
+	 * @param fileSize The size of the file once it has been completed.
+	 * @param windowCache The cache which manages the mapped windows.
+	 * @throws IOException When the size of the file could not be read.
+	 */
+	public MappedFileStorage(FileChannel channel, long fileSize, MappedWindowCache windowCache) throws IOException {
+		this.channel = Argument.requireNonNull(channel, "Channel can not be null.");
+		this.windowCache = Argument.requireNonNull(windowCache, "Window cache can not be null.");
+		this.fileSize = fileSize;
+		writtenBytes = new AtomicLong(channel.size());
+	}
+
+	@Override
+	public void read(ByteBuffer buffer, long position) throws IOException {
+		requireAvailable(position, buffer.remaining());
+
+		long readPosition = position;
+		while (buffer.hasRemaining()) {
+			try (MappedWindow window = acquireWindow(readPosition)) {
+				ByteBuffer section = getSection(window, readPosition, buffer.remaining());
+				readPosition += section.remaining();
+				buffer.put(section);
+			}
+		}
+	}
+
+	@Override
+	public void write(ByteBuffer buffer, long position) throws IOException {
+		if (position < 0 || position + buffer.remaining() > fileSize) {
+			throw new IOException(String.format("Cannot write %d bytes at %d in a file of %d bytes.", buffer.remaining(), position, fileSize));
+		}
+
+		long writePosition = position;
+		while (buffer.hasRemaining()) {
+			try (MappedWindow window = acquireWindow(writePosition)) {
+				ByteBuffer section = getSection(window, writePosition, buffer.remaining());
+				int length = section.remaining();
+
+				ByteBuffer source = buffer.duplicate();
+				source.limit(source.position() + length);
+				section.put(source);
+
+				buffer.position(buffer.position() + length);
+				writePosition += length;
+			}
+		}
+
+		if (writePosition > position) {
+			writtenBytes.accumulateAndGet(writePosition, Math::max);
+		}
+	}
+
+	@Override
+	public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+		long available = Math.min(count, getAvailableBytes() - position);
+		long transferredBytes = 0;
+		while (transferredBytes < available) {
+			long transferPosition = position + transferredBytes;
+			try (MappedWindow window = acquireWindow(transferPosition)) {
+				ByteBuffer section = getSection(window, transferPosition, (int) Math.min(Integer.MAX_VALUE, available - transferredBytes));
+				int length = section.remaining();
+				int written = target.write(section);
+				transferredBytes += written;
+
+				if (written < length) {
+					// The target can't accept more bytes without blocking.
+					break;
+				}
+			}
+		}
+
+		return transferredBytes;
+	}
+
+	@Override
+	public void digest(MessageDigest digest, long position, int length) throws IOException {
+		requireAvailable(position, length);
+
+		long digestPosition = position;
+		int remainingBytes = length;
+		while (remainingBytes > 0) {
+			try (MappedWindow window = acquireWindow(digestPosition)) {
+				ByteBuffer section = getSection(window, digestPosition, remainingBytes);
+				digestPosition += section.remaining();
+				remainingBytes -= section.remaining();
+				digest.update(section);
+			}
+		}
+	}
+
+	@Override
+	public long size() throws IOException {
+		return writtenBytes.get();
+	}
+
+	@Override
+	public void onClose() {
+		windowCache.release(channel);
+
+		try {
+			// Cut off the part of the last mapped window which has not been written yet.
+			if (channel.size() > writtenBytes.get()) {
+				channel.truncate(writtenBytes.get());
+			}
+		} catch (IOException e) {
+			LOGGER.warn("Failed to truncate file to the {} written bytes.", writtenBytes.get(), e);
+		}
+	}
+
+	private long getAvailableBytes() {
+		return Math.min(writtenBytes.get(), fileSize);
+	}
+
+	private void requireAvailable(long position, int length) throws IOException {
+		long availableBytes = getAvailableBytes();
+		if (position + length > availableBytes) {
+			throw new EOFException(String.format("File ended at %d while %d bytes were expected at %d.", availableBytes, length, position));
+		}
+	}
+
+	private MappedWindow acquireWindow(long position) throws IOException {
+		return windowCache.acquire(channel, fileSize, position / windowCache.getWindowSize());
+	}
+
+	/**
+	 * Gets the buffer which covers the given section up to the end of the window in which the section starts.
+	 */
+	private ByteBuffer getSection(MappedWindow window, long position, int length) {
+		int offsetInWindow = (int) (position % windowCache.getWindowSize());
+		int sectionEnd = (int) Math.min(windowCache.getWindowSize(), (long) offsetInWindow + length);
+
+		ByteBuffer section = window.getBuffer();
+		section.limit(sectionEnd);
+		section.position(offsetInWindow);
+		return section;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("MappedFileStorage[fileSize=%d]", fileSize);
+	}
+}
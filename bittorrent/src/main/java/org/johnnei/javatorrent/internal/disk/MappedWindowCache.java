@@ -0,0 +1,231 @@
+package org.johnnei.javatorrent.internal.disk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.johnnei.javatorrent.utils.Argument;
+
+/**
+ * Keeps track of the windows which are mapped into memory by {@link MappedFileStorage}. Windows are mapped on first access and the least recently used
+ * windows are dropped once the mapped bytes exceed the configured limit.
+ * <p>
+ * Windows are always mapped in full, up to the size of the file once completed, so each window is mapped once for as long as it stays in the cache. A
+ * read-write mapping extends the file to the end of the mapping, {@link MappedFileStorage} keeps track of the bytes which have actually been written.
+ * </p>
+ * <p>
+ * Dropped windows are unmapped explicitly with {@link MappedBufferCleaner}. As accessing an unmapped buffer crashes the JVM, windows are handed out as
+ * {@link MappedWindow} which must be closed once the buffer is no longer used. A dropped window which is still in use is unmapped once it is closed.
+ * </p>
+ */
+public class MappedWindowCache {
+
+	private final int windowSize;
+
+	private final long maxMappedBytes;
+
+	/**
+	 * The mapped windows in order of access, the least recently used window is first.
+	 */
+	private final LinkedHashMap<WindowKey, MappedWindow> windows;
+
+	private long mappedBytes;
+
+	private long mappingCount;
+
+	/**
+	 * Creates a new cache.
+	 * @param windowSize The maximum size of a single mapped window.
+	 * @param maxMappedBytes The amount of bytes which may be mapped over all windows.
+	 */
+	public MappedWindowCache(int windowSize, long maxMappedBytes) {
+		Argument.requireWithinBounds(windowSize, 1, Integer.MAX_VALUE, () -> "Window size must be at least 1 byte.");
+		if (maxMappedBytes < windowSize) {
+			throw new IllegalArgumentException("Maximum amount of mapped bytes must allow at least one window.");
+		}
+
+		this.windowSize = windowSize;
+		this.maxMappedBytes = maxMappedBytes;
+		windows = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	/**
+	 * Gets the window of the file, mapping it when it isn't mapped yet. The returned window must be closed once its buffer is no longer used.
+	 *
+	 * @param channel The channel of the file.
+	 * @param fileSize The size of the file once completed, the last window will not be mapped beyond it.
+	 * @param windowIndex The index of the window within the file.
+	 * @return The mapped window.
+	 * @throws IOException When the window could not be mapped.
+	 */
+	public MappedWindow acquire(FileChannel channel, long fileSize, long windowIndex) throws IOException {
+		WindowKey key = new WindowKey(channel, windowIndex);
+		synchronized (this) {
+			MappedWindow window = windows.get(key);
+			if (window != null) {
+				window.users++;
+				return window;
+			}
+		}
+
+		// Map outside of the lock to not block access to other windows.
+		long position = windowIndex * windowSize;
+		long length = Math.min(windowSize, fileSize - position);
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, length);
+
+		synchronized (this) {
+			mappingCount++;
+			MappedWindow existingWindow = windows.get(key);
+			if (existingWindow != null) {
+				// Another thread mapped the same window in the mean time, our mapping has not been handed out so it can be dropped immediately.
+				MappedBufferCleaner.unmap(buffer);
+				existingWindow.users++;
+				return existingWindow;
+			}
+
+			MappedWindow window = new MappedWindow(buffer);
+			window.users++;
+			windows.put(key, window);
+			mappedBytes += length;
+			evictWindows();
+			return window;
+		}
+	}
+
+	/**
+	 * Drops all windows of the file. This must be called when the channel is closed as the windows of the channel will never be accessed again.
+	 *
+	 * @param channel The channel of the file.
+	 */
+	public synchronized void release(FileChannel channel) {
+		Iterator<Map.Entry<WindowKey, MappedWindow>> iterator = windows.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<WindowKey, MappedWindow> entry = iterator.next();
+			if (entry.getKey().channel == channel) {
+				iterator.remove();
+				drop(entry.getValue());
+			}
+		}
+	}
+
+	private void evictWindows() {
+		Iterator<MappedWindow> iterator = windows.values().iterator();
+		// Never evict the most recently mapped window, it's about to be used.
+		while (mappedBytes > maxMappedBytes && windows.size() > 1) {
+			MappedWindow window = iterator.next();
+			iterator.remove();
+			drop(window);
+		}
+	}
+
+	private void drop(MappedWindow window) {
+		mappedBytes -= window.buffer.capacity();
+		window.dropped = true;
+		if (window.users == 0) {
+			MappedBufferCleaner.unmap(window.buffer);
+		}
+	}
+
+	private synchronized void close(MappedWindow window) {
+		window.users--;
+		if (window.dropped && window.users == 0) {
+			MappedBufferCleaner.unmap(window.buffer);
+		}
+	}
+
+	/**
+	 * @return The maximum size of a single mapped window.
+	 */
+	public int getWindowSize() {
+		return windowSize;
+	}
+
+	/**
+	 * @return The amount of bytes which are currently mapped by this cache.
+	 */
+	public synchronized long getMappedBytes() {
+		return mappedBytes;
+	}
+
+	/**
+	 * @return The amount of times a window has been mapped since the creation of this cache.
+	 */
+	synchronized long getMappingCount() {
+		return mappingCount;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("MappedWindowCache[windowSize=%d, maxMappedBytes=%d]", windowSize, maxMappedBytes);
+	}
+
+	/**
+	 * A window which has been handed out by the cache. The window stays mapped until it has been closed by all users.
+	 */
+	public final class MappedWindow implements AutoCloseable {
+
+		private final MappedByteBuffer buffer;
+
+		/**
+		 * The amount of users which have not yet closed the window. Guarded by the cache.
+		 */
+		private int users;
+
+		/**
+		 * If the window has been removed from the cache. Guarded by the cache.
+		 */
+		private boolean dropped;
+
+		private MappedWindow(MappedByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		/**
+		 * @return The buffer of the window. The buffer is not shared and can be freely repositioned. It must not be used after this window is closed.
+		 */
+		public ByteBuffer getBuffer() {
+			return buffer.duplicate();
+		}
+
+		@Override
+		public void close() {
+			MappedWindowCache.this.close(this);
+		}
+	}
+
+	private static final class WindowKey {
+
+		private final FileChannel channel;
+
+		private final long index;
+
+		WindowKey(FileChannel channel, long index) {
+			this.channel = channel;
+			this.index = index;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+
+			if (!(o instanceof WindowKey)) {
+				return false;
+			}
+
+			WindowKey other = (WindowKey) o;
+			return channel == other.channel && index == other.index;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(System.identityHashCode(channel), index);
+		}
+	}
+}
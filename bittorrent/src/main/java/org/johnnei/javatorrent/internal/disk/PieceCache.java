@@ -0,0 +1,176 @@
+package org.johnnei.javatorrent.internal.disk;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.johnnei.javatorrent.torrent.AbstractFileSet;
+import org.johnnei.javatorrent.torrent.files.BlockStatus;
+import org.johnnei.javatorrent.torrent.files.Piece;
+
+/**
+ * A bounded write-back cache which keeps the received blocks of pieces in memory until the piece is complete. Once complete, the hash is verified from
+ * memory and the piece is written to disk in a single sequential write. Pieces which fail the hash check never reach the disk.
+ * <p>
+ * Whether a piece is cached is decided on its first received block. When there isn't enough room left for the entire piece, all of its blocks are written
+ * to disk directly until the piece has been completed.
+ * </p>
+ */
+public class PieceCache {
+
+	private final long capacity;
+
+	/**
+	 * The cached pieces. Pieces are compared by identity as pieces of different torrents share the same indices.
+	 */
+	private final Map<Piece, CachedPiece> cachedPieces;
+
+	/**
+	 * The pieces of which blocks have been written to disk directly.
+	 */
+	private final Set<Piece> uncachedPieces;
+
+	private long usedBytes;
+
+	/**
+	 * Creates a new cache.
+	 * @param capacity The maximum amount of bytes of pieces to keep in memory, zero disables the cache.
+	 */
+	public PieceCache(long capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("Cache capacity can not be negative.");
+		}
+
+		this.capacity = capacity;
+		cachedPieces = new IdentityHashMap<>();
+		uncachedPieces = Collections.newSetFromMap(new IdentityHashMap<>());
+	}
+
+	/**
+	 * Stores the block in memory when the piece is (or can be) cached.
+	 *
+	 * @param piece The piece to which the block belongs.
+	 * @param blockIndex The index of the block within the piece.
+	 * @param blockData The data of the block.
+	 * @return <code>true</code> when the block has been cached, <code>false</code> when it must be written to disk.
+	 */
+	public synchronized boolean storeBlock(Piece piece, int blockIndex, byte[] blockData) {
+		if (capacity == 0) {
+			return false;
+		}
+
+		CachedPiece cachedPiece = cachedPieces.get(piece);
+		if (cachedPiece == null) {
+			if (uncachedPieces.contains(piece) || piece.isDone()) {
+				// Either blocks have already been written to disk or the block has been received twice.
+				return false;
+			}
+
+			int pieceSize = piece.getSize();
+			if (usedBytes + pieceSize > capacity) {
+				uncachedPieces.add(piece);
+				return false;
+			}
+
+			cachedPiece = new CachedPiece(pieceSize);
+			cachedPieces.put(piece, cachedPiece);
+			usedBytes += pieceSize;
+		}
+
+		int offset = blockIndex * piece.getFileSet().getBlockSize();
+		System.arraycopy(blockData, 0, cachedPiece.data, offset, blockData.length);
+		cachedPiece.storedBlocks.set(blockIndex);
+		return true;
+	}
+
+	/**
+	 * Gets the data of a piece of which all blocks have been cached.
+	 *
+	 * @param piece The piece to get the data of.
+	 * @return The data of the piece or <code>null</code> when the piece isn't cached or not all blocks are available.
+	 */
+	public synchronized byte[] getPieceData(Piece piece) {
+		CachedPiece cachedPiece = cachedPieces.get(piece);
+		if (cachedPiece == null || cachedPiece.storedBlocks.cardinality() != piece.getBlockCount()) {
+			return null;
+		}
+
+		return cachedPiece.data;
+	}
+
+	/**
+	 * Checks if blocks of the piece are kept in memory. The blocks of cached pieces are marked as {@link BlockStatus#Stored}
+	 * before they have been written to disk.
+	 *
+	 * @param piece The piece to check.
+	 * @return <code>true</code> when the piece is in the cache.
+	 */
+	public synchronized boolean isCached(Piece piece) {
+		return cachedPieces.containsKey(piece);
+	}
+
+	/**
+	 * Removes the piece from the cache. This must be called once a piece has passed the hash check and has been written to disk.
+	 *
+	 * @param piece The piece to remove.
+	 */
+	public synchronized void release(Piece piece) {
+		CachedPiece cachedPiece = cachedPieces.remove(piece);
+		if (cachedPiece != null) {
+			usedBytes -= cachedPiece.data.length;
+		}
+		uncachedPieces.remove(piece);
+	}
+
+	/**
+	 * Removes all pieces of the file set from the cache. This must be called when the torrent is removed as its pieces would otherwise keep their
+	 * memory reserved. Blocks which have only been cached are lost.
+	 *
+	 * @param fileSet The file set of which the pieces must be removed.
+	 */
+	public synchronized void release(AbstractFileSet fileSet) {
+		Iterator<Map.Entry<Piece, CachedPiece>> iterator = cachedPieces.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<Piece, CachedPiece> entry = iterator.next();
+			if (entry.getKey().getFileSet() == fileSet) {
+				usedBytes -= entry.getValue().data.length;
+				iterator.remove();
+			}
+		}
+		uncachedPieces.removeIf(piece -> piece.getFileSet() == fileSet);
+	}
+
+	/**
+	 * @return The amount of bytes which are reserved by the cached pieces.
+	 */
+	public synchronized long getUsedBytes() {
+		return usedBytes;
+	}
+
+	/**
+	 * @return The maximum amount of bytes of pieces to keep in memory.
+	 */
+	public long getCapacity() {
+		return capacity;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("PieceCache[capacity=%d]", capacity);
+	}
+
+	private static final class CachedPiece {
+
+		private final byte[] data;
+
+		private final BitSet storedBlocks;
+
+		CachedPiece(int pieceSize) {
+			data = new byte[pieceSize];
+			storedBlocks = new BitSet();
+		}
+	}
+}
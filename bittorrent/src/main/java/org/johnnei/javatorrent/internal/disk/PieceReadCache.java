@@ -0,0 +1,209 @@
+package org.johnnei.javatorrent.internal.disk;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.johnnei.javatorrent.torrent.AbstractFileSet;
+import org.johnnei.javatorrent.torrent.files.Piece;
+
+/**
+ * A bounded cache which keeps recently uploaded pieces in memory. When a block of a piece is requested, the entire piece is read so that requests for the
+ * other blocks of the piece (by the same or other peers) are served from memory. The least recently used pieces are evicted once the capacity is exceeded.
+ * <p>
+ * Only completed pieces are cached as their data will no longer change.
+ * </p>
+ */
+public class PieceReadCache {
+
+	private final long capacity;
+
+	/**
+	 * The cached pieces in order of access, the least recently used piece is first.
+	 */
+	private final LinkedHashMap<PieceKey, byte[]> pieces;
+
+	private final AtomicLong hitCount;
+
+	private final AtomicLong missCount;
+
+	private long usedBytes;
+
+	/**
+	 * Creates a new cache.
+	 * @param capacity The maximum amount of bytes of pieces to keep in memory, zero disables the cache.
+	 */
+	public PieceReadCache(long capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("Cache capacity can not be negative.");
+		}
+
+		this.capacity = capacity;
+		pieces = new LinkedHashMap<>(16, 0.75f, true);
+		hitCount = new AtomicLong();
+		missCount = new AtomicLong();
+	}
+
+	/**
+	 * Reads a section of the piece, either from memory or from disk.
+	 *
+	 * @param piece The piece to read from.
+	 * @param offset The offset within the piece.
+	 * @param length The amount of bytes to read.
+	 * @return The read bytes.
+	 * @throws IOException When the underlying IO causes an error.
+	 * @see Piece#loadPiece(int, int)
+	 */
+	public byte[] read(Piece piece, int offset, int length) throws IOException {
+		if (capacity == 0 || !piece.isDone() || piece.getSize() > capacity) {
+			return piece.loadPiece(offset, length);
+		}
+
+		PieceKey key = new PieceKey(piece);
+		byte[] pieceData;
+		synchronized (this) {
+			pieceData = pieces.get(key);
+		}
+
+		if (pieceData == null) {
+			missCount.incrementAndGet();
+			// Read ahead the remainder of the piece. Reads of the same piece are processed by the same disk worker so this isn't duplicated.
+			pieceData = piece.loadPiece(0, piece.getSize());
+			cache(key, pieceData);
+		} else {
+			hitCount.incrementAndGet();
+		}
+
+		return Arrays.copyOfRange(pieceData, offset, offset + length);
+	}
+
+	/**
+	 * Reads a section of the piece only when the piece is held in memory. This allows callers to skip the disk queue for cached pieces. Misses are not
+	 * counted as the caller is expected to fall back onto {@link #read(Piece, int, int)} or another way of reading the piece.
+	 *
+	 * @param piece The piece to read from.
+	 * @param offset The offset within the piece.
+	 * @param length The amount of bytes to read.
+	 * @return The read bytes or {@link Optional#empty()} when the piece is not cached.
+	 */
+	public Optional<byte[]> readCached(Piece piece, int offset, int length) {
+		if (capacity == 0) {
+			return Optional.empty();
+		}
+
+		byte[] pieceData;
+		synchronized (this) {
+			pieceData = pieces.get(new PieceKey(piece));
+		}
+
+		if (pieceData == null) {
+			return Optional.empty();
+		}
+
+		hitCount.incrementAndGet();
+		return Optional.of(Arrays.copyOfRange(pieceData, offset, offset + length));
+	}
+
+	private synchronized void cache(PieceKey key, byte[] pieceData) {
+		if (pieces.putIfAbsent(key, pieceData) != null) {
+			return;
+		}
+
+		usedBytes += pieceData.length;
+		Iterator<Map.Entry<PieceKey, byte[]>> iterator = pieces.entrySet().iterator();
+		while (usedBytes > capacity) {
+			usedBytes -= iterator.next().getValue().length;
+			iterator.remove();
+		}
+	}
+
+	/**
+	 * Removes all pieces of the file set from the cache.
+	 *
+	 * @param fileSet The file set of which the pieces must be removed.
+	 */
+	public synchronized void release(AbstractFileSet fileSet) {
+		Iterator<Map.Entry<PieceKey, byte[]>> iterator = pieces.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<PieceKey, byte[]> entry = iterator.next();
+			if (entry.getKey().fileSet == fileSet) {
+				usedBytes -= entry.getValue().length;
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * @return The amount of reads which have been served from memory.
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * @return The amount of reads which required the piece to be read from disk.
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * @return The fraction of the reads which have been served from memory or zero when nothing has been read yet.
+	 */
+	public double getHitRate() {
+		long hits = hitCount.get();
+		long total = hits + missCount.get();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	/**
+	 * @return The amount of bytes which are kept in memory.
+	 */
+	public synchronized long getUsedBytes() {
+		return usedBytes;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("PieceReadCache[capacity=%d, hits=%d, misses=%d]", capacity, hitCount.get(), missCount.get());
+	}
+
+	/**
+	 * Identifies a piece by its file set and index. {@link Piece#equals(Object)} only considers the index which is shared between torrents.
+	 */
+	private static final class PieceKey {
+
+		private final AbstractFileSet fileSet;
+
+		private final int index;
+
+		PieceKey(Piece piece) {
+			fileSet = piece.getFileSet();
+			index = piece.getIndex();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+
+			if (!(o instanceof PieceKey)) {
+				return false;
+			}
+
+			PieceKey other = (PieceKey) o;
+			return fileSet == other.fileSet && index == other.index;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(System.identityHashCode(fileSet), index);
+		}
+	}
+}
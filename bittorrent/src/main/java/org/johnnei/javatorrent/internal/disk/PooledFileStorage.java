@@ -0,0 +1,171 @@
+package org.johnnei.javatorrent.internal.disk;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.johnnei.javatorrent.disk.IFileStorage;
+import org.johnnei.javatorrent.disk.IFileStorageFactory;
+import org.johnnei.javatorrent.utils.Argument;
+
+/**
+ * A {@link IFileStorage} which opens the file through a {@link FileHandlePool} on every access. The file is created once it's accessed for the first
+ * time, the actual access is delegated to the storage created by the {@link IFileStorageFactory} for the opened file.
+ */
+public class PooledFileStorage implements IFileStorage {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PooledFileStorage.class);
+
+	private final File file;
+
+	private final long fileSize;
+
+	private final IFileStorageFactory storageFactory;
+
+	private final FileHandlePool pool;
+
+	/**
+	 * The handle of the file while it's open. Opened and closed by the pool while holding the lock of this storage.
+	 */
+	private RandomAccessFile fileAccess;
+
+	/**
+	 * The storage of the file while it's open. Opened and closed by the pool while holding the lock of this storage.
+	 */
+	private IFileStorage storage;
+
+	/**
+	 * The amount of callers which are accessing the file. Guarded by the pool.
+	 */
+	int users;
+
+	/**
+	 * Creates a new storage which opens the file on demand.
+	 * @param file The file on disk.
+	 * @param fileSize The size of the file once completed.
+	 * @param storageFactory The factory to create the storage of the opened file with.
+	 * @param pool The pool which limits the amount of open files.
+	 */
+	public PooledFileStorage(File file, long fileSize, IFileStorageFactory storageFactory, FileHandlePool pool) {
+		this.file = Argument.requireNonNull(file, "File can not be null.");
+		this.fileSize = fileSize;
+		this.storageFactory = Argument.requireNonNull(storageFactory, "Storage factory can not be null.");
+		this.pool = Argument.requireNonNull(pool, "File handle pool can not be null.");
+	}
+
+	@Override
+	public void read(ByteBuffer buffer, long position) throws IOException {
+		IFileStorage openStorage = pool.acquire(this);
+		try {
+			openStorage.read(buffer, position);
+		} finally {
+			pool.release(this);
+		}
+	}
+
+	@Override
+	public void write(ByteBuffer buffer, long position) throws IOException {
+		IFileStorage openStorage = pool.acquire(this);
+		try {
+			openStorage.write(buffer, position);
+		} finally {
+			pool.release(this);
+		}
+	}
+
+	@Override
+	public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+		IFileStorage openStorage = pool.acquire(this);
+		try {
+			return openStorage.transferTo(position, count, target);
+		} finally {
+			pool.release(this);
+		}
+	}
+
+	@Override
+	public void digest(MessageDigest digest, long position, int length) throws IOException {
+		IFileStorage openStorage = pool.acquire(this);
+		try {
+			openStorage.digest(digest, position, length);
+		} finally {
+			pool.release(this);
+		}
+	}
+
+	@Override
+	public long size() throws IOException {
+		IFileStorage openStorage = pool.acquire(this);
+		try {
+			return openStorage.size();
+		} finally {
+			pool.release(this);
+		}
+	}
+
+	/**
+	 * Gets the handle of the file, opening it when needed. The pool may close the handle once the file is no longer in use.
+	 * @return The handle of the file.
+	 * @throws IOException When the file can't be opened.
+	 */
+	public RandomAccessFile getFileAccess() throws IOException {
+		pool.acquire(this);
+		try {
+			return fileAccess;
+		} finally {
+			pool.release(this);
+		}
+	}
+
+	void open() throws IOException {
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (!parent.exists() && !parent.mkdirs()) {
+			throw new IOException(String.format("Failed to create folder %s", parent.getAbsolutePath()));
+		}
+
+		fileAccess = new RandomAccessFile(file, "rw");
+		try {
+			storage = storageFactory.create(fileAccess.getChannel(), fileSize);
+		} catch (IOException | RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+	IFileStorage getOpenStorage() {
+		return storage;
+	}
+
+	void close() {
+		if (storage != null) {
+			storage.onClose();
+		}
+
+		try {
+			fileAccess.close();
+		} catch (IOException e) {
+			LOGGER.warn("Failed to close {}", file.getAbsolutePath(), e);
+		}
+
+		fileAccess = null;
+		storage = null;
+	}
+
+	/**
+	 * @return <code>true</code> when the file is currently open.
+	 */
+	boolean isOpen() {
+		return fileAccess != null;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("PooledFileStorage[file=%s]", file.getName());
+	}
+}
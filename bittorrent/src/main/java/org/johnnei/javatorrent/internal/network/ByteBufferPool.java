@@ -0,0 +1,104 @@
+package org.johnnei.javatorrent.internal.network;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded pool of equally sized heap {@link ByteBuffer}s. Heap buffers are used so that the received messages can be read through a view on the
+ * backing array. When the pool is empty a new buffer is allocated, when the pool is full released buffers are left to the garbage collector.
+ */
+public class ByteBufferPool {
+
+	/**
+	 * The default size of the pooled buffers. Fits a block message of 16KiB plus the next messages on the connection.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 32 * 1024;
+
+	/**
+	 * The default maximum amount of buffers kept in the pool.
+	 */
+	public static final int DEFAULT_MAX_POOLED_BUFFERS = 512;
+
+	private static final ByteBufferPool SHARED_POOL = new ByteBufferPool(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_POOLED_BUFFERS);
+
+	private final int bufferSize;
+
+	private final int maxPooledBuffers;
+
+	private final Queue<ByteBuffer> buffers;
+
+	private final AtomicInteger pooledBuffers;
+
+	/**
+	 * Creates a new empty pool.
+	 * @param bufferSize The capacity of the buffers handed out by this pool.
+	 * @param maxPooledBuffers The maximum amount of buffers which are kept for re-use.
+	 */
+	public ByteBufferPool(int bufferSize, int maxPooledBuffers) {
+		this.bufferSize = bufferSize;
+		this.maxPooledBuffers = maxPooledBuffers;
+		buffers = new ConcurrentLinkedQueue<>();
+		pooledBuffers = new AtomicInteger();
+	}
+
+	/**
+	 * @return The pool which is shared by all connections.
+	 */
+	public static ByteBufferPool getSharedPool() {
+		return SHARED_POOL;
+	}
+
+	/**
+	 * Takes a buffer from the pool or allocates a new one when the pool is empty.
+	 * @return A cleared buffer with a capacity of {@link #getBufferSize()}.
+	 */
+	public ByteBuffer acquire() {
+		ByteBuffer buffer = buffers.poll();
+		if (buffer == null) {
+			return ByteBuffer.allocate(bufferSize);
+		}
+
+		pooledBuffers.decrementAndGet();
+		buffer.clear();
+		return buffer;
+	}
+
+	/**
+	 * Returns a buffer into the pool. The buffer must no longer be used by the caller. Buffers which have not been created by this pool or which
+	 * exceed the capacity of the pool are discarded.
+	 * @param buffer The buffer to return.
+	 */
+	public void release(ByteBuffer buffer) {
+		if (buffer.capacity() != bufferSize || buffer.isDirect()) {
+			return;
+		}
+
+		if (pooledBuffers.incrementAndGet() > maxPooledBuffers) {
+			pooledBuffers.decrementAndGet();
+			return;
+		}
+
+		buffers.add(buffer);
+	}
+
+	/**
+	 * @return The capacity of the buffers handed out by this pool.
+	 */
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	/**
+	 * @return The amount of buffers which are currently available for re-use.
+	 */
+	public int getPooledBufferCount() {
+		return pooledBuffers.get();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ByteBufferPool[bufferSize=%d, pooled=%d/%d]", bufferSize, pooledBuffers.get(), maxPooledBuffers);
+	}
+}
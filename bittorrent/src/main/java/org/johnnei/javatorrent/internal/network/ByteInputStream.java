@@ -42,6 +42,18 @@ public class ByteInputStream extends DataInputStream {
 		return array;
 	}
 
+	/**
+	 * Reads exactly the given amount of bytes into the given array.
+	 * @param buffer The array to read into.
+	 * @param offset The offset in the array at which the first byte is stored.
+	 * @param length The amount of bytes to read.
+	 * @throws IOException When the stream fails to provide the requested bytes.
+	 */
+	public void readByteArray(byte[] buffer, int offset, int length) throws IOException {
+		readFully(buffer, offset, length);
+		speed += length;
+	}
+
 	public int pollSpeed() {
 		int polledSpeed = speed;
 		speed -= polledSpeed;
@@ -19,6 +19,12 @@ public class ByteOutputStream extends FilterOutputStream {
 		super.write(i);
 	}
 
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		speed += len;
+		out.write(b, off, len);
+	}
+
 	public int pollSpeed() {
 		int polledSpeed = speed;
 		speed -= polledSpeed;
@@ -0,0 +1,190 @@
+package org.johnnei.javatorrent.internal.network;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.johnnei.javatorrent.TorrentClient;
+import org.johnnei.javatorrent.bittorrent.protocol.BitTorrentHandshake;
+import org.johnnei.javatorrent.network.BitTorrentSocket;
+import org.johnnei.javatorrent.torrent.Torrent;
+import org.johnnei.javatorrent.torrent.peer.Peer;
+import org.johnnei.javatorrent.utils.Argument;
+import org.johnnei.javatorrent.utils.StringUtils;
+
+/**
+ * The BitTorrent handshake of a single connection. The handshake is advanced by calling {@link #process()} whenever bytes might have arrived and
+ * finished with {@link #complete()} which hands the peer over to its torrent.
+ *
+ * @see PeerIoEventLoop#registerHandshake(PeerHandshake)
+ */
+public class PeerHandshake {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PeerHandshake.class);
+
+	private final TorrentClient torrentClient;
+
+	private final BitTorrentSocket socket;
+
+	/**
+	 * The torrent for which we initiated the connection or <code>null</code> when the connection was accepted.
+	 */
+	private final Torrent torrent;
+
+	private State state;
+
+	private BitTorrentHandshake remoteHandshake;
+
+	/**
+	 * Creates a new handshake.
+	 * @param torrentClient The client which owns the connection.
+	 * @param socket The connected socket.
+	 * @param torrent The torrent for which we connected to the peer or <code>null</code> when the peer connected to us.
+	 */
+	public PeerHandshake(TorrentClient torrentClient, BitTorrentSocket socket, Torrent torrent) {
+		this.torrentClient = Argument.requireNonNull(torrentClient, "Torrent client can not be null.");
+		this.socket = Argument.requireNonNull(socket, "Socket can not be null.");
+		this.torrent = torrent;
+		state = State.Created;
+	}
+
+	/**
+	 * Advances the handshake with the bytes which are available without blocking. On the first invocation of a connection which we initiated our
+	 * handshake will be sent.
+	 * @return <code>true</code> when the handshake of the remote end has been received and {@link #complete()} must be called.
+	 * @throws IOException When the connection fails or the remote end is not speaking the BitTorrent protocol.
+	 */
+	public boolean process() throws IOException {
+		if (state == State.Created) {
+			if (torrent != null) {
+				sendHandshake(torrent);
+			}
+			state = State.AwaitingHandshake;
+		}
+
+		if (state != State.AwaitingHandshake) {
+			return state == State.Received;
+		}
+
+		Optional<BitTorrentHandshake> handshake = socket.pollHandshake();
+		if (!handshake.isPresent()) {
+			return false;
+		}
+
+		remoteHandshake = handshake.get();
+		state = State.Received;
+		return true;
+	}
+
+	/**
+	 * Executes the handshake in a blocking manner. This is used when the handshake can't be driven by an event loop.
+	 * @throws IOException When the connection fails, the remote end is not speaking the BitTorrent protocol or doesn't respond in time.
+	 */
+	public void processBlocking() throws IOException {
+		if (torrent != null) {
+			sendHandshake(torrent);
+		}
+
+		remoteHandshake = socket.readHandshake();
+		state = State.Received;
+		complete();
+	}
+
+	/**
+	 * Validates the received handshake and adds the peer to its torrent. For accepted connections our handshake is sent once the torrent is known.
+	 * Connections for torrents which aren't known are closed.
+	 * @throws IOException When the handshake is for another torrent or the peer can not be added.
+	 */
+	public void complete() throws IOException {
+		if (state != State.Received) {
+			throw new IllegalStateException(String.format("Handshake can not be completed in state %s", state));
+		}
+
+		state = State.Completed;
+
+		Torrent peerTorrent;
+		if (torrent == null) {
+			Optional<Torrent> knownTorrent = torrentClient.getTorrentByHash(remoteHandshake.getTorrentHash());
+			if (!knownTorrent.isPresent()) {
+				// We don't know the torrent the peer is downloading
+				LOGGER.debug("Peer requested unknown torrent {}", StringUtils.byteArrayToString(remoteHandshake.getTorrentHash()));
+				socket.close();
+				return;
+			}
+
+			peerTorrent = knownTorrent.get();
+			sendHandshake(peerTorrent);
+		} else {
+			byte[] torrentHash = torrent.getMetadata().getHash();
+			if (!Arrays.equals(torrentHash, remoteHandshake.getTorrentHash())) {
+				throw new IOException(String.format(
+						"Peer does not download the same torrent (Expected: %s, Got: %s)",
+						StringUtils.byteArrayToString(torrentHash),
+						StringUtils.byteArrayToString(remoteHandshake.getTorrentHash())));
+			}
+
+			peerTorrent = torrent;
+		}
+
+		Peer peer = createPeer(peerTorrent);
+		LOGGER.debug("Completed handshake with {}", socket);
+		peerTorrent.addPeer(peer);
+	}
+
+	private void sendHandshake(Torrent handshakeTorrent) throws IOException {
+		socket.sendHandshake(torrentClient.getExtensionBytes(), torrentClient.getPeerId(), handshakeTorrent.getMetadata().getHash());
+	}
+
+	Peer createPeer(Torrent peerTorrent) {
+		return new Peer.Builder()
+				.setSocket(socket)
+				.setTorrent(peerTorrent)
+				.setExtensionBytes(remoteHandshake.getPeerExtensionBytes())
+				.setId(remoteHandshake.getPeerId())
+				.build();
+	}
+
+	/**
+	 * @return The socket on which the handshake is executed.
+	 */
+	public BitTorrentSocket getSocket() {
+		return socket;
+	}
+
+	/**
+	 * @return The current state of the handshake.
+	 */
+	public State getState() {
+		return state;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("PeerHandshake[socket=%s, state=%s]", socket, state);
+	}
+
+	/**
+	 * The states of the handshake.
+	 */
+	public enum State {
+		/**
+		 * Nothing has been exchanged yet.
+		 */
+		Created,
+		/**
+		 * Waiting for the remote end to send its handshake.
+		 */
+		AwaitingHandshake,
+		/**
+		 * The handshake of the remote end has been received.
+		 */
+		Received,
+		/**
+		 * The peer has been handed to its torrent or has been rejected.
+		 */
+		Completed
+	}
+}
@@ -0,0 +1,548 @@
+package org.johnnei.javatorrent.internal.network;
+
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.time.Clock;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import org.johnnei.javatorrent.network.BitTorrentSocket;
+import org.johnnei.javatorrent.torrent.peer.Peer;
+import org.johnnei.javatorrent.torrent.peer.PeerDirection;
+
+/**
+ * An event loop which processes the reading and writing of peers by using a {@link Selector}. Peers which are not backed by a
+ * {@link SocketChannel} are polled in between the selects. The loop also drives the handshakes of new connections, which are failed when they
+ * don't complete within {@link #HANDSHAKE_TIMEOUT}.
+ */
+public class PeerIoEventLoop implements Runnable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PeerIoEventLoop.class);
+
+	/**
+	 * The maximum time in milliseconds to wait on the selector when there are no polled peers.
+	 */
+	private static final long SELECT_TIMEOUT = 1_000;
+
+	/**
+	 * The maximum time in milliseconds to wait on the selector when polled or throttled peers need to be processed.
+	 */
+	private static final long POLL_INTERVAL = 5;
+
+	/**
+	 * The maximum time in milliseconds in which the remote end must have sent its handshake.
+	 */
+	private static final long HANDSHAKE_TIMEOUT = 5_000;
+
+	private Clock clock = Clock.systemDefaultZone();
+
+	private final Selector selector;
+
+	/**
+	 * Peers which have been handed to this loop but are not yet known to the {@link #selector}.
+	 */
+	private final Queue<Peer> pendingRegistrations;
+
+	/**
+	 * Handshakes which have been handed to this loop but are not yet known to the {@link #selector}.
+	 */
+	private final Queue<PeerHandshake> pendingHandshakes;
+
+	/**
+	 * The handshakes in progress ordered by their deadline. Finished handshakes are removed once their deadline has passed. Only accessed from the
+	 * thread executing this loop.
+	 */
+	private final Queue<HandshakeContext> handshakeDeadlines;
+
+	/**
+	 * Handshakes of sockets which can only be accessed through their streams. Only accessed from the thread executing this loop.
+	 */
+	private final Collection<HandshakeContext> polledHandshakes;
+
+	/**
+	 * The amount of keys in the {@link #selector} which belong to handshakes.
+	 */
+	private int handshakeKeyCount;
+
+	/**
+	 * Peers which have got new outbound messages since the last cycle.
+	 */
+	private final Queue<PeerContext> pendingWrites;
+
+	/**
+	 * Tasks which must be executed on the thread executing this loop.
+	 */
+	private final Queue<Runnable> pendingTasks;
+
+	/**
+	 * Peers which can only be accessed through their streams. Only accessed from the thread executing this loop.
+	 */
+	private final Collection<Peer> polledPeers;
+
+	/**
+	 * Peers which are not interested in (some) of the selector events as their rate limiters have run out of tokens. Only accessed from the thread
+	 * executing this loop.
+	 */
+	private final Queue<PeerContext> throttledPeers;
+
+	/**
+	 * The amount of peers which were processed by this loop during the last cycle.
+	 */
+	private volatile int peerCount;
+
+	/**
+	 * Creates a new event loop with a newly opened {@link Selector}.
+	 * @throws IOException When the selector can not be opened.
+	 */
+	public PeerIoEventLoop() throws IOException {
+		this(Selector.open());
+	}
+
+	PeerIoEventLoop(Selector selector) {
+		this.selector = selector;
+		pendingRegistrations = new ConcurrentLinkedQueue<>();
+		pendingHandshakes = new ConcurrentLinkedQueue<>();
+		handshakeDeadlines = new PriorityQueue<>(Comparator.comparingLong(context -> context.deadline));
+		polledHandshakes = new ArrayList<>();
+		pendingWrites = new ConcurrentLinkedQueue<>();
+		pendingTasks = new ConcurrentLinkedQueue<>();
+		polledPeers = new ArrayList<>();
+		throttledPeers = new ArrayDeque<>();
+	}
+
+	/**
+	 * Hands the peer over to this loop. The peer will start being processed on the next cycle.
+	 * @param peer The peer which has passed the handshake.
+	 */
+	public void registerPeer(Peer peer) {
+		pendingRegistrations.add(peer);
+		selector.wakeup();
+	}
+
+	/**
+	 * Hands a new connection over to this loop. The handshake will start being processed on the next cycle.
+	 * @param handshake The handshake to execute.
+	 */
+	public void registerHandshake(PeerHandshake handshake) {
+		pendingHandshakes.add(handshake);
+		selector.wakeup();
+	}
+
+	/**
+	 * Moves peers from this loop to the given loop. The peers are released during the next cycle of this loop.
+	 * @param count The maximum amount of peers to move.
+	 * @param target The loop which will process the moved peers.
+	 */
+	public void migratePeers(int count, PeerIoEventLoop target) {
+		pendingTasks.add(() -> releasePeers(count, target));
+		selector.wakeup();
+	}
+
+	/**
+	 * @return The amount of peers which were processed by this loop during the last cycle.
+	 */
+	public int getPeerCount() {
+		return peerCount;
+	}
+
+	/**
+	 * Closes the selector which causes the loop to stop processing. The sockets of the peers are left untouched.
+	 */
+	public void close() {
+		try {
+			selector.close();
+		} catch (IOException e) {
+			LOGGER.debug("Failed to close selector.", e);
+		}
+	}
+
+	@Override
+	public void run() {
+		try {
+			runPendingTasks();
+			registerPendingHandshakes();
+			registerPendingPeers();
+			selector.select(getSelectTimeout());
+			processSelectedKeys();
+			processPendingWrites();
+			processThrottledPeers();
+			polledPeers.removeIf(peer -> !PeerIoRunnable.processPeer(peer));
+			polledHandshakes.removeIf(this::processPolledHandshake);
+			expireHandshakes();
+			peerCount = selector.keys().size() - handshakeKeyCount + polledPeers.size();
+		} catch (ClosedSelectorException e) {
+			LOGGER.trace("Selector has been closed.", e);
+		} catch (IOException e) {
+			LOGGER.warn("Failed to select ready peers.", e);
+		}
+	}
+
+	private long getSelectTimeout() {
+		if (!polledPeers.isEmpty() || !throttledPeers.isEmpty() || !polledHandshakes.isEmpty()) {
+			return POLL_INTERVAL;
+		}
+
+		HandshakeContext nextDeadline = handshakeDeadlines.peek();
+		if (nextDeadline == null) {
+			return SELECT_TIMEOUT;
+		}
+
+		// A timeout of zero would block indefinitely.
+		return Math.max(1, Math.min(SELECT_TIMEOUT, nextDeadline.deadline - clock.millis()));
+	}
+
+	private void runPendingTasks() {
+		Runnable task;
+		while ((task = pendingTasks.poll()) != null) {
+			task.run();
+		}
+	}
+
+	private void releasePeers(int count, PeerIoEventLoop target) {
+		List<Peer> releasedPeers = new ArrayList<>(count);
+		for (SelectionKey key : selector.keys()) {
+			if (releasedPeers.size() >= count) {
+				break;
+			}
+
+			if (!key.isValid()) {
+				continue;
+			}
+
+			if (!(key.attachment() instanceof PeerContext)) {
+				continue;
+			}
+
+			PeerContext context = (PeerContext) key.attachment();
+			key.cancel();
+			context.peer.getBitTorrentSocket().setOutboundMessageListener(null);
+			releasedPeers.add(context.peer);
+		}
+
+		Iterator<Peer> polledPeerIterator = polledPeers.iterator();
+		while (releasedPeers.size() < count && polledPeerIterator.hasNext()) {
+			releasedPeers.add(polledPeerIterator.next());
+			polledPeerIterator.remove();
+		}
+
+		LOGGER.debug("Moving {} peers from {} to {}", releasedPeers.size(), this, target);
+		releasedPeers.forEach(target::registerPeer);
+	}
+
+	private void registerPendingHandshakes() {
+		PeerHandshake handshake;
+		while ((handshake = pendingHandshakes.poll()) != null) {
+			register(handshake);
+		}
+	}
+
+	private void register(PeerHandshake handshake) {
+		HandshakeContext context = new HandshakeContext(handshake, clock.millis() + HANDSHAKE_TIMEOUT);
+		handshakeDeadlines.add(context);
+
+		try {
+			BitTorrentSocket socket = handshake.getSocket();
+			if (socket.isSelectable()) {
+				context.key = socket.enableNonBlockingMode().register(selector, SelectionKey.OP_READ, context);
+				handshakeKeyCount++;
+			} else {
+				polledHandshakes.add(context);
+			}
+
+			// Sends our handshake and consumes the bytes which might already have been received.
+			processHandshake(context);
+		} catch (Exception e) {
+			failHandshake(context, e);
+		}
+	}
+
+	private boolean processPolledHandshake(HandshakeContext context) {
+		if (!context.done) {
+			try {
+				processHandshake(context);
+			} catch (Exception e) {
+				failHandshake(context, e);
+			}
+		}
+
+		return context.done;
+	}
+
+	private void processHandshake(HandshakeContext context) throws IOException {
+		if (!context.handshake.process()) {
+			return;
+		}
+
+		// Release the registration before the peer gets registered for its messages.
+		finishHandshake(context);
+		context.handshake.complete();
+	}
+
+	private void expireHandshakes() {
+		long now = clock.millis();
+		HandshakeContext context;
+		while ((context = handshakeDeadlines.peek()) != null && (context.done || context.deadline <= now)) {
+			handshakeDeadlines.poll();
+			if (!context.done) {
+				failHandshake(context, new IOException("Remote end failed to supply handshake within 5 seconds"));
+			}
+		}
+	}
+
+	private void finishHandshake(HandshakeContext context) {
+		context.done = true;
+		if (context.key != null) {
+			context.key.cancel();
+			context.key = null;
+			handshakeKeyCount--;
+		}
+	}
+
+	private void failHandshake(HandshakeContext context, Exception e) {
+		LOGGER.debug("Handshake failed on {}", context.handshake.getSocket(), e);
+		finishHandshake(context);
+		context.handshake.getSocket().close();
+	}
+
+	private void registerPendingPeers() {
+		Peer peer;
+		while ((peer = pendingRegistrations.poll()) != null) {
+			register(peer);
+		}
+	}
+
+	private void register(Peer peer) {
+		BitTorrentSocket socket = peer.getBitTorrentSocket();
+		if (!socket.isSelectable()) {
+			LOGGER.debug("Polling {} as the socket is not backed by a channel.", peer);
+			polledPeers.add(peer);
+			return;
+		}
+
+		PeerContext context = new PeerContext(peer);
+		try (MDC.MDCCloseable ignored = MDC.putCloseable("context", peer.getIdAsString())) {
+			SocketChannel channel = socket.enableNonBlockingMode();
+			SelectionKey staleKey = channel.keyFor(selector);
+			if (staleKey != null && !staleKey.isValid()) {
+				// The key of the handshake is only removed from the selector on the next select.
+				selector.selectNow();
+			}
+			context.key = channel.register(selector, SelectionKey.OP_READ, context);
+			socket.setOutboundMessageListener(() -> scheduleWrite(context));
+
+			// Messages could have been queued before the listener was in place.
+			handleWrite(context);
+		} catch (Exception e) {
+			disconnect(context, e);
+		}
+	}
+
+	private void scheduleWrite(PeerContext context) {
+		if (context.writeScheduled.compareAndSet(false, true)) {
+			pendingWrites.add(context);
+			selector.wakeup();
+		}
+	}
+
+	private void processSelectedKeys() {
+		Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+		while (keys.hasNext()) {
+			SelectionKey key = keys.next();
+			keys.remove();
+
+			if (key.attachment() instanceof HandshakeContext) {
+				HandshakeContext handshakeContext = (HandshakeContext) key.attachment();
+				try {
+					processHandshake(handshakeContext);
+				} catch (Exception e) {
+					failHandshake(handshakeContext, e);
+				}
+				continue;
+			}
+
+			PeerContext context = (PeerContext) key.attachment();
+			try (MDC.MDCCloseable ignored = MDC.putCloseable("context", context.peer.getIdAsString())) {
+				if (key.isValid() && key.isWritable()) {
+					handleWrite(context);
+				}
+
+				if (key.isValid() && key.isReadable()) {
+					handleRead(context);
+				}
+			} catch (Exception e) {
+				disconnect(context, e);
+			}
+		}
+	}
+
+	private void processPendingWrites() {
+		PeerContext context;
+		while ((context = pendingWrites.poll()) != null) {
+			context.writeScheduled.set(false);
+
+			if (context.key == null || !context.key.isValid()) {
+				continue;
+			}
+
+			try (MDC.MDCCloseable ignored = MDC.putCloseable("context", context.peer.getIdAsString())) {
+				handleWrite(context);
+			} catch (Exception e) {
+				disconnect(context, e);
+			}
+		}
+	}
+
+	private void processThrottledPeers() {
+		for (int i = throttledPeers.size(); i > 0; i--) {
+			PeerContext context = throttledPeers.poll();
+			context.throttled = false;
+
+			if (!context.key.isValid()) {
+				continue;
+			}
+
+			try (MDC.MDCCloseable ignored = MDC.putCloseable("context", context.peer.getIdAsString())) {
+				if (context.writePending) {
+					handleWrite(context);
+				}
+				handleRead(context);
+			} catch (Exception e) {
+				disconnect(context, e);
+			}
+		}
+	}
+
+	private void handleWrite(PeerContext context) throws IOException {
+		BitTorrentSocket socket = context.peer.getBitTorrentSocket();
+		context.writePending = !socket.writeMessages();
+		if (!context.writePending) {
+			queueUpload(context.peer);
+		}
+
+		updateInterest(context);
+	}
+
+	private void handleRead(PeerContext context) throws IOException {
+		BitTorrentSocket socket = context.peer.getBitTorrentSocket();
+		while (socket.canReadMessage()) {
+			socket.readMessage().process(context.peer);
+		}
+
+		queueUpload(context.peer);
+		updateInterest(context);
+	}
+
+	/**
+	 * Updates the events on which the selector will wake up for this peer. Throttled directions are not selected as the socket would be ready
+	 * immediately, instead the peer is revisited every {@link #POLL_INTERVAL} until the limiters have been refilled.
+	 */
+	private void updateInterest(PeerContext context) {
+		BitTorrentSocket socket = context.peer.getBitTorrentSocket();
+		int interestOps = 0;
+		boolean throttled = false;
+
+		if (socket.isDownloadThrottled()) {
+			throttled = true;
+		} else {
+			interestOps |= SelectionKey.OP_READ;
+		}
+
+		if (context.writePending) {
+			if (socket.isUploadThrottled()) {
+				throttled = true;
+			} else {
+				interestOps |= SelectionKey.OP_WRITE;
+			}
+		}
+
+		context.key.interestOps(interestOps);
+		if (throttled && !context.throttled) {
+			context.throttled = true;
+			throttledPeers.add(context);
+		}
+	}
+
+	private static void queueUpload(Peer peer) {
+		if (peer.getWorkQueueSize(PeerDirection.Upload) > 0 && !peer.getBitTorrentSocket().hasOutboundMessages()) {
+			peer.queueNextPieceForSending();
+		}
+	}
+
+	private static void disconnect(PeerContext context, Exception e) {
+		LOGGER.error("Error for peer: {}", context.peer, e);
+		if (context.key != null) {
+			context.key.cancel();
+		}
+		context.peer.getBitTorrentSocket().setOutboundMessageListener(null);
+		context.peer.getBitTorrentSocket().close();
+		context.peer.getTorrent().removePeer(context.peer);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("PeerIoEventLoop[peers=%d]", peerCount);
+	}
+
+	private static final class HandshakeContext {
+
+		private final PeerHandshake handshake;
+
+		/**
+		 * The time in milliseconds at which the handshake fails when not completed.
+		 */
+		private final long deadline;
+
+		private SelectionKey key;
+
+		/**
+		 * If the handshake has either been completed or failed.
+		 */
+		private boolean done;
+
+		HandshakeContext(PeerHandshake handshake, long deadline) {
+			this.handshake = handshake;
+			this.deadline = deadline;
+		}
+
+	}
+
+	private static final class PeerContext {
+
+		private final Peer peer;
+
+		private final AtomicBoolean writeScheduled;
+
+		private SelectionKey key;
+
+		/**
+		 * If the socket has got bytes left to write.
+		 */
+		private boolean writePending;
+
+		/**
+		 * If this context is in the {@link #throttledPeers} queue.
+		 */
+		private boolean throttled;
+
+		PeerContext(Peer peer) {
+			this.peer = peer;
+			writeScheduled = new AtomicBoolean();
+		}
+
+	}
+}
@@ -19,8 +19,24 @@ public class PeerIoRunnable implements Runnable {
 
 	private TorrentManager manager;
 
+	private final int shard;
+
+	private final int shardCount;
+
 	public PeerIoRunnable(TorrentManager manager) {
+		this(manager, 0, 1);
+	}
+
+	/**
+	 * Creates a runnable which only processes the peers which are pinned to the given shard.
+	 * @param manager The manager which provides the torrents.
+	 * @param shard The index of the shard which this runnable processes.
+	 * @param shardCount The total amount of shards.
+	 */
+	public PeerIoRunnable(TorrentManager manager, int shard, int shardCount) {
 		this.manager = manager;
+		this.shard = shard;
+		this.shardCount = shardCount;
 	}
 
 	@Override
@@ -29,25 +45,36 @@ public class PeerIoRunnable implements Runnable {
 	}
 
 	private void processTorrent(final Torrent torrent) {
-		torrent.getPeers().forEach(this::processPeer);
+		for (Peer peer : torrent.getPeers()) {
+			if (shardCount == 1 || Math.floorMod(peer.hashCode(), shardCount) == shard) {
+				processPeer(peer);
+			}
+		}
 	}
 
-	private void processPeer(Peer peer) {
+	/**
+	 * Writes and reads at most one message for the given peer.
+	 * @param peer The peer to process.
+	 * @return <code>false</code> when the peer is disconnected, otherwise <code>true</code>.
+	 */
+	static boolean processPeer(Peer peer) {
 		if (peer.getBitTorrentSocket().closed()) {
-			return;
+			return false;
 		}
 
 		try (MDC.MDCCloseable ignored = MDC.putCloseable("context", peer.getIdAsString())) {
 			handleWrite(peer);
 			handleRead(peer);
+			return true;
 		} catch (Exception e) {
 			LOGGER.error("Error for peer: {}", peer, e);
 			peer.getBitTorrentSocket().close();
 			peer.getTorrent().removePeer(peer);
+			return false;
 		}
 	}
 
-	private void handleWrite(Peer peer) throws IOException {
+	private static void handleWrite(Peer peer) throws IOException {
 		BitTorrentSocket socket = peer.getBitTorrentSocket();
 
 		if (socket.hasOutboundMessages()) {
@@ -57,7 +84,7 @@ public class PeerIoRunnable implements Runnable {
 		}
 	}
 
-	private void handleRead(Peer peer) throws IOException {
+	private static void handleRead(Peer peer) throws IOException {
 		BitTorrentSocket socket = peer.getBitTorrentSocket();
 		if (!socket.canReadMessage()) {
 			return;
@@ -0,0 +1,202 @@
+package org.johnnei.javatorrent.internal.network;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import org.johnnei.javatorrent.internal.utils.PeerThreadFactory;
+import org.johnnei.javatorrent.network.BitTorrentSocket;
+import org.johnnei.javatorrent.torrent.peer.Peer;
+import org.johnnei.javatorrent.torrent.peer.PeerDirection;
+
+/**
+ * Processes every peer on a dedicated reader and writer thread which block on the socket streams. The threads are virtual threads when the JVM supports
+ * them which makes a thread per peer affordable. Handshakes are executed on their own thread as well.
+ *
+ * @see PeerThreadFactory
+ */
+public class PeerIoThreads {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PeerIoThreads.class);
+
+	/**
+	 * The maximum time in milliseconds the writer sleeps without being notified of new messages.
+	 */
+	private static final long IDLE_TIMEOUT = 1_000;
+
+	/**
+	 * The time in milliseconds the writer waits before checking if the upload limiters have been refilled.
+	 */
+	private static final long THROTTLE_WAIT = 10;
+
+	private final PeerThreadFactory threadFactory;
+
+	private final Map<Peer, PeerConnection> connections;
+
+	private volatile boolean closed;
+
+	/**
+	 * Creates a new instance which uses virtual threads when available.
+	 */
+	public PeerIoThreads() {
+		this(new PeerThreadFactory("Peer IO "));
+	}
+
+	PeerIoThreads(PeerThreadFactory threadFactory) {
+		this.threadFactory = threadFactory;
+		connections = new ConcurrentHashMap<>();
+		if (!threadFactory.isVirtual()) {
+			LOGGER.warn("Virtual threads are not supported by this JVM, every peer will occupy two platform threads.");
+		}
+	}
+
+	/**
+	 * Starts the threads which read and write the messages of the given peer. The threads end once the socket has been closed.
+	 * @param peer The peer to process.
+	 */
+	public void registerPeer(Peer peer) {
+		if (closed) {
+			peer.getBitTorrentSocket().close();
+			return;
+		}
+
+		PeerConnection connection = new PeerConnection(peer);
+		connections.put(peer, connection);
+		connection.start();
+	}
+
+	/**
+	 * Executes the given handshake on its own thread.
+	 * @param handshake The handshake to execute.
+	 */
+	public void registerHandshake(PeerHandshake handshake) {
+		threadFactory.newThread(() -> {
+			try {
+				handshake.processBlocking();
+			} catch (IOException e) {
+				LOGGER.debug("Handshake failed on {}", handshake.getSocket(), e);
+				handshake.getSocket().close();
+			}
+		}).start();
+	}
+
+	/**
+	 * @return The amount of peers which are being processed.
+	 */
+	public int getPeerCount() {
+		return connections.size();
+	}
+
+	/**
+	 * @return <code>true</code> when the peers are processed by virtual threads.
+	 */
+	public boolean isVirtual() {
+		return threadFactory.isVirtual();
+	}
+
+	/**
+	 * Closes the sockets of all peers, which ends their threads.
+	 */
+	public void close() {
+		closed = true;
+		connections.keySet().forEach(peer -> peer.getBitTorrentSocket().close());
+	}
+
+	@Override
+	public String toString() {
+		return String.format("PeerIoThreads[peers=%d, virtual=%s]", connections.size(), isVirtual());
+	}
+
+	private final class PeerConnection {
+
+		private final Peer peer;
+
+		private final BitTorrentSocket socket;
+
+		private final Thread reader;
+
+		private final Thread writer;
+
+		private final AtomicBoolean disconnected;
+
+		PeerConnection(Peer peer) {
+			this.peer = peer;
+			socket = peer.getBitTorrentSocket();
+			disconnected = new AtomicBoolean();
+			reader = threadFactory.newThread(this::read);
+			writer = threadFactory.newThread(this::write);
+		}
+
+		void start() {
+			socket.setOutboundMessageListener(() -> LockSupport.unpark(writer));
+			reader.start();
+			writer.start();
+		}
+
+		private void read() {
+			try (MDC.MDCCloseable ignored = MDC.putCloseable("context", peer.getIdAsString())) {
+				while (!socket.closed()) {
+					socket.awaitMessage().process(peer);
+
+					// Requests for blocks are served by the writer.
+					LockSupport.unpark(writer);
+				}
+				disconnect(null);
+			} catch (Exception e) {
+				disconnect(e);
+			}
+		}
+
+		private void write() {
+			try (MDC.MDCCloseable ignored = MDC.putCloseable("context", peer.getIdAsString())) {
+				while (!socket.closed()) {
+					if (socket.hasOutboundMessages()) {
+						if (socket.isUploadThrottled()) {
+							LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(THROTTLE_WAIT));
+						} else {
+							socket.sendMessage();
+						}
+						continue;
+					}
+
+					if (peer.getWorkQueueSize(PeerDirection.Upload) > 0) {
+						peer.queueNextPieceForSending();
+					}
+
+					if (!socket.hasOutboundMessages()) {
+						// The block is either being read from disk or nothing is pending, wait for the socket to notify us.
+						LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(IDLE_TIMEOUT));
+					}
+				}
+			} catch (Exception e) {
+				disconnect(e);
+			}
+		}
+
+		private void disconnect(Exception e) {
+			if (!disconnected.compareAndSet(false, true)) {
+				return;
+			}
+
+			if (e == null || socket.closed()) {
+				LOGGER.debug("Connection closed for peer: {}", peer, e);
+			} else {
+				LOGGER.error("Error for peer: {}", peer, e);
+			}
+
+			connections.remove(peer);
+			socket.setOutboundMessageListener(null);
+			socket.close();
+			LockSupport.unpark(reader);
+			LockSupport.unpark(writer);
+			peer.getTorrent().removePeer(peer);
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package org.johnnei.javatorrent.internal.torrent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.johnnei.javatorrent.torrent.FileInfo;
+import org.johnnei.javatorrent.torrent.FileSegment;
+
+/**
+ * Maps the bytes of a file set onto its files. The first byte offsets of the files are kept in a sorted array so the file containing a byte is found with
+ * a binary search instead of visiting all files.
+ */
+public class FileSpanIndex {
+
+	private final List<FileInfo> files;
+
+	/**
+	 * The first byte offset of each file, in the same order as {@link #files}.
+	 */
+	private final long[] offsets;
+
+	/**
+	 * The offset of the byte following the last file.
+	 */
+	private final long endOffset;
+
+	/**
+	 * Creates the index of the given files.
+	 * @param files The files ordered by their first byte offset.
+	 */
+	public FileSpanIndex(List<FileInfo> files) {
+		this.files = new ArrayList<>(files);
+		offsets = new long[files.size()];
+
+		long end = 0;
+		for (int i = 0; i < offsets.length; i++) {
+			FileInfo file = files.get(i);
+			offsets[i] = file.getFirstByteOffset();
+			if (i > 0 && offsets[i] < offsets[i - 1]) {
+				throw new IllegalArgumentException(String.format("Files must be ordered by their first byte offset, %s is not.", file));
+			}
+			end = Math.max(end, file.getFirstByteOffset() + file.getSize());
+		}
+		endOffset = end;
+	}
+
+	/**
+	 * Finds the file which contains the given byte.
+	 * @param offset The offset of the byte as if all files are a single file.
+	 * @return The index of the file.
+	 */
+	int findFileIndex(long offset) {
+		if (offsets.length == 0 || offset < offsets[0]) {
+			throw new IllegalArgumentException(String.format("Byte %d is not within the files.", offset));
+		}
+
+		// Find the last file which starts at or before the offset. Empty files share their offset with the next file, which must be preferred.
+		int low = 0;
+		int high = offsets.length - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (offsets[middle] <= offset) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Finds the file which contains the given byte.
+	 * @param offset The offset of the byte as if all files are a single file.
+	 * @return The file containing the byte.
+	 */
+	public FileInfo getFile(long offset) {
+		return files.get(findFileIndex(offset));
+	}
+
+	/**
+	 * Splits the given range of bytes into the sections of each file which it covers.
+	 * @param offset The offset of the first byte as if all files are a single file.
+	 * @param length The amount of bytes.
+	 * @return The segments in order of their position within the range.
+	 * @throws IllegalArgumentException When the range exceeds the files.
+	 */
+	public List<FileSegment> getSegments(long offset, int length) {
+		if (length < 0 || offset + length > endOffset) {
+			throw new IllegalArgumentException(String.format("Range of %d bytes at %d is not within the %d bytes of the files.", length, offset, endOffset));
+		}
+
+		if (length == 0) {
+			return Collections.emptyList();
+		}
+
+		int fileIndex = findFileIndex(offset);
+		FileInfo file = files.get(fileIndex);
+		long offsetInFile = offset - file.getFirstByteOffset();
+		int segmentLength = (int) Math.min(length, file.getSize() - offsetInFile);
+		if (segmentLength == length) {
+			// Most blocks are within a single file.
+			return Collections.singletonList(new FileSegment(file, offsetInFile, 0, length));
+		}
+
+		List<FileSegment> segments = new ArrayList<>(2);
+		int dataOffset = 0;
+		while (dataOffset < length) {
+			if (segmentLength > 0) {
+				segments.add(new FileSegment(file, offsetInFile, dataOffset, segmentLength));
+				dataOffset += segmentLength;
+			}
+
+			if (dataOffset < length) {
+				// The files are contiguous so the remainder continues at the start of the next file.
+				file = files.get(++fileIndex);
+				offsetInFile = 0;
+				segmentLength = (int) Math.min(length - dataOffset, file.getSize());
+			}
+		}
+
+		return segments;
+	}
+
+	/**
+	 * @return The amount of files in the index.
+	 */
+	public int getFileCount() {
+		return files.size();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("FileSpanIndex[files=%d, size=%d]", files.size(), endOffset);
+	}
+}
@@ -0,0 +1,182 @@
+package org.johnnei.javatorrent.internal.torrent;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.function.IntPredicate;
+
+import org.johnnei.javatorrent.torrent.peer.Peer;
+
+/**
+ * Tracks by how many peers each piece is available. The pieces are grouped in buckets by their availability, so the rarest piece which a peer has can be
+ * found by visiting the rarest buckets instead of counting the availability of every piece over all peers. Pieces which have been completed are retired
+ * from the buckets as they no longer have to be selected.
+ */
+public class PieceAvailability {
+
+	private final int pieceCount;
+
+	/**
+	 * The amount of peers which have each piece.
+	 */
+	private final int[] availability;
+
+	/**
+	 * The pieces which are not retired, grouped by their availability. The bucket at index <code>n</code> contains the pieces which are available at
+	 * <code>n</code> peers.
+	 */
+	private final List<BitSet> buckets;
+
+	/**
+	 * The pieces which no longer have to be selected.
+	 */
+	private final BitSet retiredPieces;
+
+	/**
+	 * The pieces which have been counted for each registered peer.
+	 */
+	private final Map<Peer, BitSet> peerPieces;
+
+	/**
+	 * Creates a new index without any peers.
+	 * @param pieceCount The amount of pieces in the torrent.
+	 */
+	public PieceAvailability(int pieceCount) {
+		this.pieceCount = pieceCount;
+		availability = new int[pieceCount];
+		buckets = new ArrayList<>();
+		retiredPieces = new BitSet(pieceCount);
+		peerPieces = new HashMap<>();
+
+		BitSet unavailablePieces = new BitSet(pieceCount);
+		unavailablePieces.set(0, pieceCount);
+		buckets.add(unavailablePieces);
+	}
+
+	/**
+	 * Registers the peer and counts the pieces which the peer already has. Pieces which are announced by a peer are only counted once the peer is
+	 * registered.
+	 * @param peer The peer to register.
+	 */
+	public synchronized void addPeer(Peer peer) {
+		if (peerPieces.containsKey(peer)) {
+			return;
+		}
+
+		BitSet pieces = new BitSet(pieceCount);
+		peerPieces.put(peer, pieces);
+		for (int pieceIndex = 0; pieceIndex < pieceCount; pieceIndex++) {
+			if (peer.hasPiece(pieceIndex)) {
+				pieces.set(pieceIndex);
+				changeAvailability(pieceIndex, 1);
+			}
+		}
+	}
+
+	/**
+	 * Counts the piece as available at the given peer. This has no effect when the peer isn't registered or the piece has already been counted for the peer.
+	 * @param peer The peer which has the piece.
+	 * @param pieceIndex The index of the piece.
+	 */
+	public synchronized void onPeerHasPiece(Peer peer, int pieceIndex) {
+		BitSet pieces = peerPieces.get(peer);
+		if (pieces == null || pieceIndex < 0 || pieceIndex >= pieceCount || pieces.get(pieceIndex)) {
+			return;
+		}
+
+		pieces.set(pieceIndex);
+		changeAvailability(pieceIndex, 1);
+	}
+
+	/**
+	 * Unregisters the peer and no longer counts the pieces of the peer.
+	 * @param peer The peer to remove.
+	 */
+	public synchronized void removePeer(Peer peer) {
+		BitSet pieces = peerPieces.remove(peer);
+		if (pieces == null) {
+			return;
+		}
+
+		for (int pieceIndex = pieces.nextSetBit(0); pieceIndex >= 0; pieceIndex = pieces.nextSetBit(pieceIndex + 1)) {
+			changeAvailability(pieceIndex, -1);
+		}
+	}
+
+	/**
+	 * Retires the piece from the buckets as it no longer has to be selected. The availability of the piece is still tracked.
+	 * @param pieceIndex The index of the completed piece.
+	 */
+	public synchronized void onPieceCompleted(int pieceIndex) {
+		if (pieceIndex < 0 || pieceIndex >= pieceCount || retiredPieces.get(pieceIndex)) {
+			return;
+		}
+
+		retiredPieces.set(pieceIndex);
+		buckets.get(availability[pieceIndex]).clear(pieceIndex);
+	}
+
+	private void changeAvailability(int pieceIndex, int change) {
+		int oldAvailability = availability[pieceIndex];
+		int newAvailability = oldAvailability + change;
+		availability[pieceIndex] = newAvailability;
+
+		if (retiredPieces.get(pieceIndex)) {
+			return;
+		}
+
+		buckets.get(oldAvailability).clear(pieceIndex);
+		while (buckets.size() <= newAvailability) {
+			buckets.add(new BitSet(pieceCount));
+		}
+		buckets.get(newAvailability).set(pieceIndex);
+	}
+
+	/**
+	 * @param pieceIndex The index of the piece.
+	 * @return The amount of registered peers which have the piece.
+	 */
+	public synchronized int getAvailability(int pieceIndex) {
+		return availability[pieceIndex];
+	}
+
+	/**
+	 * Finds the rarest piece which the peer has and is accepted by the filter. Retired pieces are never returned.
+	 * @param peer The peer which must have the piece.
+	 * @param filter The filter on the index of the piece.
+	 * @return The index of the rarest accepted piece or {@link OptionalInt#empty()} when the peer has none of them.
+	 */
+	public synchronized OptionalInt findRarestPiece(Peer peer, IntPredicate filter) {
+		BitSet pieces = peerPieces.get(peer);
+		if (pieces == null) {
+			return OptionalInt.empty();
+		}
+
+		// Pieces which no peer has can't be available at the given peer.
+		for (int bucketIndex = 1; bucketIndex < buckets.size(); bucketIndex++) {
+			BitSet bucket = buckets.get(bucketIndex);
+			for (int pieceIndex = bucket.nextSetBit(0); pieceIndex >= 0; pieceIndex = bucket.nextSetBit(pieceIndex + 1)) {
+				if (pieces.get(pieceIndex) && filter.test(pieceIndex)) {
+					return OptionalInt.of(pieceIndex);
+				}
+			}
+		}
+
+		return OptionalInt.empty();
+	}
+
+	/**
+	 * @return The amount of registered peers.
+	 */
+	public synchronized int getPeerCount() {
+		return peerPieces.size();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("PieceAvailability[pieces=%d, peers=%d]", pieceCount, getPeerCount());
+	}
+}
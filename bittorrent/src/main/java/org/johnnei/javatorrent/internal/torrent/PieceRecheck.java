@@ -0,0 +1,187 @@
+package org.johnnei.javatorrent.internal.torrent;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.johnnei.javatorrent.torrent.files.Piece;
+
+/**
+ * Verifies the pieces which are already on disk by splitting them over the threads of a {@link ForkJoinPool}. Each thread hashes a single piece at a
+ * time which is streamed from the disk, so the memory in use is bound by the parallelism of the pool instead of the amount of pieces. Pieces which pass
+ * the hash check are reported as soon as they are verified so they can be shared before the entire recheck has completed.
+ */
+public class PieceRecheck {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PieceRecheck.class);
+
+	private final List<Piece> pieces;
+
+	private final Consumer<Piece> onPieceVerified;
+
+	private final AtomicInteger checkedPieces;
+
+	private final AtomicInteger verifiedPieces;
+
+	private final RecheckTask task;
+
+	private volatile boolean cancelled;
+
+	/**
+	 * Creates a new recheck.
+	 * @param pieces The pieces to verify.
+	 * @param onPieceVerified The consumer which is notified for each piece which passed the hash check. This is invoked from the threads of the pool.
+	 */
+	public PieceRecheck(Collection<Piece> pieces, Consumer<Piece> onPieceVerified) {
+		this.pieces = new ArrayList<>(pieces);
+		this.onPieceVerified = onPieceVerified;
+		checkedPieces = new AtomicInteger();
+		verifiedPieces = new AtomicInteger();
+		task = new RecheckTask(0, this.pieces.size());
+	}
+
+	/**
+	 * Submits the recheck to the given pool.
+	 * @param pool The pool on which the pieces are verified.
+	 */
+	public void start(ForkJoinPool pool) {
+		LOGGER.info("Checking progress of {} piece(s)...", pieces.size());
+		pool.execute(task);
+	}
+
+	/**
+	 * Waits for the recheck to complete.
+	 */
+	public void await() {
+		try {
+			task.join();
+		} catch (CancellationException e) {
+			// The pool has been shutdown before the recheck could complete.
+			LOGGER.debug("Recheck has been cancelled by the pool.", e);
+		}
+	}
+
+	/**
+	 * Cancels the recheck. Pieces which are being hashed will complete, pieces which have not been started on will no longer be checked.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * @return <code>true</code> when {@link #cancel()} has been called.
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * @return <code>true</code> when all pieces have been checked or when the pieces which were being hashed during {@link #cancel()} have completed.
+	 */
+	public boolean isDone() {
+		return task.isDone();
+	}
+
+	/**
+	 * @return <code>true</code> when every piece has been checked, a cancelled recheck is never completed.
+	 */
+	public boolean isCompleted() {
+		return checkedPieces.get() == pieces.size();
+	}
+
+	/**
+	 * @return The amount of pieces which have been checked so far.
+	 */
+	public int getCheckedPieceCount() {
+		return checkedPieces.get();
+	}
+
+	/**
+	 * @return The amount of pieces which passed the hash check so far.
+	 */
+	public int getVerifiedPieceCount() {
+		return verifiedPieces.get();
+	}
+
+	/**
+	 * @return The amount of pieces which will be checked.
+	 */
+	public int getPieceCount() {
+		return pieces.size();
+	}
+
+	/**
+	 * @return The fraction of pieces which have been checked, between 0 and 1.
+	 */
+	public double getProgress() {
+		if (pieces.isEmpty()) {
+			return 1;
+		}
+
+		return checkedPieces.get() / (double) pieces.size();
+	}
+
+	private void checkPiece(Piece piece) {
+		if (cancelled) {
+			return;
+		}
+
+		try {
+			if (piece.checkHash()) {
+				verifiedPieces.incrementAndGet();
+				onPieceVerified.accept(piece);
+			}
+		} catch (IOException e) {
+			LOGGER.warn("Failed hash check for piece {}.", piece.getIndex(), e);
+		} finally {
+			checkedPieces.incrementAndGet();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("PieceRecheck[checked=%d, pieces=%d, cancelled=%s]", checkedPieces.get(), pieces.size(), cancelled);
+	}
+
+	/**
+	 * Splits the range of pieces in halves until a single piece remains which is then verified.
+	 */
+	private final class RecheckTask extends RecursiveAction {
+
+		private final int start;
+
+		private final int end;
+
+		RecheckTask(int start, int end) {
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (cancelled) {
+				return;
+			}
+
+			if (end - start > 1) {
+				int middle = (start + end) >>> 1;
+				invokeAll(new RecheckTask(start, middle), new RecheckTask(middle, end));
+			} else if (start < end) {
+				checkPiece(pieces.get(start));
+			}
+
+			if (start == 0 && end == pieces.size() && !cancelled) {
+				LOGGER.info("Checking progress done");
+			}
+		}
+	}
+}
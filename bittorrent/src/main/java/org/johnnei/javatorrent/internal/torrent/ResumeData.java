@@ -0,0 +1,339 @@
+package org.johnnei.javatorrent.internal.torrent;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.johnnei.javatorrent.bittorrent.encoding.BencodedInteger;
+import org.johnnei.javatorrent.bittorrent.encoding.BencodedList;
+import org.johnnei.javatorrent.bittorrent.encoding.BencodedMap;
+import org.johnnei.javatorrent.bittorrent.encoding.BencodedString;
+import org.johnnei.javatorrent.bittorrent.encoding.Bencoding;
+import org.johnnei.javatorrent.bittorrent.encoding.IBencodedValue;
+import org.johnnei.javatorrent.network.InStream;
+import org.johnnei.javatorrent.torrent.AbstractFileSet;
+import org.johnnei.javatorrent.torrent.FileInfo;
+import org.johnnei.javatorrent.torrent.files.BlockStatus;
+import org.johnnei.javatorrent.torrent.files.Piece;
+
+/**
+ * The progress of a torrent which allows a restart to skip hashing the pieces which were verified before. The record contains the verified pieces, the
+ * blocks of incomplete pieces which have been written to disk and the size and modification time of each file. Only the pieces which overlap with a file
+ * of which the size or modification time has changed since the record was made need to be checked again.
+ * <p>
+ * The record is stored as a bencoded dictionary.
+ */
+public class ResumeData {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ResumeData.class);
+
+	private static final int VERSION = 1;
+
+	private static final String KEY_VERSION = "version";
+
+	private static final String KEY_INFO_HASH = "info hash";
+
+	private static final String KEY_PIECES = "pieces";
+
+	private static final String KEY_BLOCKS = "blocks";
+
+	private static final String KEY_FILES = "files";
+
+	private static final String KEY_SIZE = "size";
+
+	private static final String KEY_MODIFIED = "modified";
+
+	private final byte[] infoHash;
+
+	private final byte[] havePieces;
+
+	private final Map<Integer, BitSet> storedBlocks;
+
+	private final List<FileFingerprint> files;
+
+	ResumeData(byte[] infoHash, byte[] havePieces, Map<Integer, BitSet> storedBlocks, List<FileFingerprint> files) {
+		this.infoHash = infoHash;
+		this.havePieces = havePieces;
+		this.storedBlocks = storedBlocks;
+		this.files = files;
+	}
+
+	/**
+	 * Captures the current progress of the file set.
+	 * @param infoHash The hash of the torrent to which the file set belongs.
+	 * @param fileSet The file set to capture.
+	 * @param isOnDisk The predicate which tests if the stored blocks of the piece have been written to disk.
+	 * @return The captured progress.
+	 */
+	public static ResumeData capture(byte[] infoHash, AbstractFileSet fileSet, Predicate<Piece> isOnDisk) {
+		// Capture the pieces before the files, a write in between causes the file to be checked again instead of trusting an outdated modification time.
+		byte[] havePieces = fileSet.getBitfieldBytes();
+
+		Map<Integer, BitSet> storedBlocks = new HashMap<>();
+		fileSet.getNeededPieces()
+			.filter(piece -> piece.hasBlockWithStatus(BlockStatus.Stored))
+			.filter(isOnDisk)
+			.forEach(piece -> {
+				BitSet blocks = new BitSet(piece.getBlockCount());
+				for (int i = 0; i < piece.getBlockCount(); i++) {
+					if (piece.getBlockStatus(i) == BlockStatus.Stored) {
+						blocks.set(i);
+					}
+				}
+				storedBlocks.put(piece.getIndex(), blocks);
+			});
+
+		List<FileFingerprint> files = fileSet.getFiles().stream()
+			.map(FileInfo::getFile)
+			.map(FileFingerprint::new)
+			.collect(Collectors.toList());
+
+		return new ResumeData(infoHash, havePieces, storedBlocks, files);
+	}
+
+	/**
+	 * Reads the resume data from the given file.
+	 * @param file The file to read.
+	 * @return The resume data or {@link Optional#empty()} when the file doesn't exist or is invalid. A damaged record must never prevent the torrent from
+	 * starting, so any failure to interpret the file results in the record being ignored.
+	 */
+	public static Optional<ResumeData> read(File file) {
+		if (!file.exists()) {
+			return Optional.empty();
+		}
+
+		try {
+			byte[] bytes = Files.readAllBytes(file.toPath());
+			IBencodedValue value = new Bencoding().decode(new InStream(bytes));
+			return Optional.of(fromBencoded(value.asMap()));
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warn("Ignoring invalid resume data {}.", file.getAbsolutePath(), e);
+			return Optional.empty();
+		}
+	}
+
+	private static ResumeData fromBencoded(Map<String, IBencodedValue> dictionary) {
+		long version = getValue(dictionary, KEY_VERSION).asLong();
+		if (version != VERSION) {
+			throw new IllegalArgumentException(String.format("Unsupported resume data version %d.", version));
+		}
+
+		Map<Integer, BitSet> storedBlocks = new HashMap<>();
+		for (IBencodedValue entry : getValue(dictionary, KEY_BLOCKS).asList()) {
+			List<IBencodedValue> pieceEntry = entry.asList();
+			if (pieceEntry.size() != 2) {
+				throw new IllegalArgumentException(String.format("Resume data contains a block entry with %d values instead of 2.", pieceEntry.size()));
+			}
+
+			long pieceIndex = pieceEntry.get(0).asLong();
+			if (pieceIndex < 0 || pieceIndex > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException(String.format("Resume data contains blocks of invalid piece %d.", pieceIndex));
+			}
+			storedBlocks.put((int) pieceIndex, BitSet.valueOf(pieceEntry.get(1).asBytes()));
+		}
+
+		List<FileFingerprint> files = new ArrayList<>();
+		for (IBencodedValue entry : getValue(dictionary, KEY_FILES).asList()) {
+			Map<String, IBencodedValue> fileEntry = entry.asMap();
+			files.add(new FileFingerprint(getValue(fileEntry, KEY_SIZE).asLong(), getValue(fileEntry, KEY_MODIFIED).asLong()));
+		}
+
+		return new ResumeData(
+			getValue(dictionary, KEY_INFO_HASH).asBytes(),
+			getValue(dictionary, KEY_PIECES).asBytes(),
+			storedBlocks,
+			files
+		);
+	}
+
+	private static IBencodedValue getValue(Map<String, IBencodedValue> dictionary, String key) {
+		IBencodedValue value = dictionary.get(key);
+		if (value == null) {
+			throw new IllegalArgumentException(String.format("Resume data is missing the %s entry.", key));
+		}
+		return value;
+	}
+
+	/**
+	 * Writes the resume data to the given file. The data is written to a temporary file first which then replaces the given file, so a crash during the
+	 * write doesn't leave a corrupted record behind.
+	 * @param file The file to write to.
+	 * @throws IOException When the file can't be written.
+	 */
+	public void write(File file) throws IOException {
+		BencodedMap dictionary = new BencodedMap();
+		dictionary.put(KEY_VERSION, new BencodedInteger(VERSION));
+		dictionary.put(KEY_INFO_HASH, new BencodedString(infoHash));
+		dictionary.put(KEY_PIECES, new BencodedString(havePieces));
+
+		BencodedList blocks = new BencodedList();
+		storedBlocks.forEach((pieceIndex, pieceBlocks) -> {
+			BencodedList pieceEntry = new BencodedList();
+			pieceEntry.add(new BencodedInteger(pieceIndex));
+			pieceEntry.add(new BencodedString(pieceBlocks.toByteArray()));
+			blocks.add(pieceEntry);
+		});
+		dictionary.put(KEY_BLOCKS, blocks);
+
+		BencodedList fileEntries = new BencodedList();
+		for (FileFingerprint fingerprint : files) {
+			BencodedMap fileEntry = new BencodedMap();
+			fileEntry.put(KEY_SIZE, new BencodedInteger(fingerprint.size));
+			fileEntry.put(KEY_MODIFIED, new BencodedInteger(fingerprint.lastModified));
+			fileEntries.add(fileEntry);
+		}
+		dictionary.put(KEY_FILES, fileEntries);
+
+		Path target = file.toPath();
+		Path parent = target.toAbsolutePath().getParent();
+		Files.createDirectories(parent);
+		Path temporaryFile = Files.createTempFile(parent, file.getName(), ".tmp");
+		try {
+			Files.write(temporaryFile, dictionary.serialize());
+			try {
+				Files.move(temporaryFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporaryFile, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temporaryFile);
+		}
+	}
+
+	/**
+	 * Restores the progress onto the file set. When the resume data doesn't belong to the file set all needed pieces must be checked.
+	 * @param torrentHash The hash of the torrent to which the file set belongs.
+	 * @param fileSet The file set to restore.
+	 * @param onPieceVerified The consumer which marks the pieces which were verified before as completed.
+	 * @return The pieces which must be checked on disk as their files have changed or all of their blocks have been stored.
+	 */
+	public Collection<Piece> restore(byte[] torrentHash, AbstractFileSet fileSet, Consumer<Piece> onPieceVerified) {
+		if (!Arrays.equals(infoHash, torrentHash) || havePieces.length != fileSet.getBitfieldBytes().length || files.size() != fileSet.getFiles().size()) {
+			LOGGER.info("Resume data doesn't match the torrent, checking all pieces.");
+			return fileSet.getNeededPieces().collect(Collectors.toList());
+		}
+
+		List<FileInfo> changedFiles = new ArrayList<>();
+		for (int i = 0; i < files.size(); i++) {
+			FileInfo fileInfo = fileSet.getFiles().get(i);
+			if (!files.get(i).equals(new FileFingerprint(fileInfo.getFile()))) {
+				changedFiles.add(fileInfo);
+			}
+		}
+
+		if (!changedFiles.isEmpty()) {
+			LOGGER.info("{} file(s) have changed since the resume data was saved, the pieces of those files will be checked.", changedFiles.size());
+		}
+
+		Collection<Piece> piecesToCheck = new ArrayList<>();
+		fileSet.getNeededPieces().forEach(piece -> {
+			if (isOverlappingWith(piece, fileSet.getPieceSize(), changedFiles)) {
+				piecesToCheck.add(piece);
+			} else if (hasPiece(piece.getIndex())) {
+				onPieceVerified.accept(piece);
+			} else if (restoreStoredBlocks(piece)) {
+				// All blocks are on disk but the hash check didn't complete.
+				piecesToCheck.add(piece);
+			}
+		});
+
+		return piecesToCheck;
+	}
+
+	private boolean restoreStoredBlocks(Piece piece) {
+		BitSet blocks = storedBlocks.get(piece.getIndex());
+		if (blocks == null) {
+			return false;
+		}
+
+		for (int i = blocks.nextSetBit(0); i >= 0 && i < piece.getBlockCount(); i = blocks.nextSetBit(i + 1)) {
+			piece.setBlockStatus(i, BlockStatus.Stored);
+		}
+
+		return piece.countBlocksWithStatus(BlockStatus.Stored) == piece.getBlockCount();
+	}
+
+	private boolean hasPiece(int pieceIndex) {
+		return (havePieces[pieceIndex / 8] & (0x80 >> (pieceIndex % 8))) != 0;
+	}
+
+	private static boolean isOverlappingWith(Piece piece, long pieceSize, Collection<FileInfo> changedFiles) {
+		long pieceStart = piece.getIndex() * pieceSize;
+		long pieceEnd = pieceStart + piece.getSize();
+		return changedFiles.stream().anyMatch(file -> file.getFirstByteOffset() < pieceEnd && file.getFirstByteOffset() + file.getSize() > pieceStart);
+	}
+
+	/**
+	 * @return The amount of files in the record.
+	 */
+	int getFileCount() {
+		return files.size();
+	}
+
+	/**
+	 * @return The amount of incomplete pieces of which blocks have been written to disk.
+	 */
+	int getPartialPieceCount() {
+		return storedBlocks.size();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ResumeData[files=%d, partialPieces=%d]", files.size(), storedBlocks.size());
+	}
+
+	/**
+	 * The size and modification time of a file which are used to detect changes to the file while the torrent wasn't running.
+	 */
+	static final class FileFingerprint {
+
+		private final long size;
+
+		private final long lastModified;
+
+		FileFingerprint(File file) {
+			this(file.length(), file.lastModified());
+		}
+
+		FileFingerprint(long size, long lastModified) {
+			this.size = size;
+			this.lastModified = lastModified;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+
+			if (!(o instanceof FileFingerprint)) {
+				return false;
+			}
+
+			FileFingerprint that = (FileFingerprint) o;
+			return size == that.size && lastModified == that.lastModified;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * Long.hashCode(size) + Long.hashCode(lastModified);
+		}
+	}
+}
@@ -4,16 +4,24 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.johnnei.javatorrent.TorrentClient;
 import org.johnnei.javatorrent.async.LoopingRunnable;
+import org.johnnei.javatorrent.internal.network.PeerHandshake;
+import org.johnnei.javatorrent.internal.network.PeerIoEventLoop;
 import org.johnnei.javatorrent.internal.network.PeerIoRunnable;
+import org.johnnei.javatorrent.internal.network.PeerIoThreads;
 import org.johnnei.javatorrent.internal.tracker.TrackerManager;
+import org.johnnei.javatorrent.network.PeerIoMode;
 import org.johnnei.javatorrent.network.TcpPeerConnectionAcceptor;
 import org.johnnei.javatorrent.torrent.Torrent;
+import org.johnnei.javatorrent.torrent.peer.Peer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,6 +30,11 @@ public class TorrentManager {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(TorrentManager.class);
 
+	/**
+	 * The minimum difference in peers between the busiest and least busy loop before peers get moved.
+	 */
+	private static final int MINIMUM_PEER_IO_SKEW = 8;
+
 	private final Object torrentListLock = new Object();
 
 	private TorrentClient torrentClient;
@@ -32,11 +45,29 @@ public class TorrentManager {
 
 	private LoopingRunnable connectorRunnable;
 
-	private LoopingRunnable peerIoRunnable;
+	private List<LoopingRunnable> peerIoRunnables;
+
+	private List<PeerIoEventLoop> peerIoEventLoops;
+
+	private ScheduledFuture<?> rebalanceTask;
+
+	/**
+	 * The loop which executes the handshakes when the peer IO isn't processed by event loops.
+	 */
+	private PeerIoEventLoop handshakeLoop;
+
+	private LoopingRunnable handshakeRunnable;
+
+	/**
+	 * The threads which process the peers in {@link PeerIoMode#VirtualThread}.
+	 */
+	private PeerIoThreads peerIoThreads;
 
 	public TorrentManager(TrackerManager trackerManager) {
 		this.trackerManager = trackerManager;
 		activeTorrents = new ArrayList<>();
+		peerIoRunnables = new ArrayList<>();
+		peerIoEventLoops = new ArrayList<>();
 	}
 
 	/**
@@ -45,13 +76,129 @@ public class TorrentManager {
 	public void start(TorrentClient torrentClient) {
 		this.torrentClient = torrentClient;
 
+		if (torrentClient.getPeerIoMode() == PeerIoMode.VirtualThread) {
+			peerIoThreads = new PeerIoThreads();
+			return;
+		}
+
 		// Start reading peer input/output
-		peerIoRunnable = new LoopingRunnable(new PeerIoRunnable(this));
-		Thread thread = new Thread(peerIoRunnable, "Peer IO");
+		int threadCount = Math.max(1, torrentClient.getPeerIoThreadCount());
+		if (torrentClient.getPeerIoMode() == PeerIoMode.Selector) {
+			createEventLoops(threadCount);
+		}
+
+		if (!peerIoEventLoops.isEmpty()) {
+			peerIoEventLoops.forEach(loop -> peerIoRunnables.add(new LoopingRunnable(loop, true)));
+		} else {
+			for (int shard = 0; shard < threadCount; shard++) {
+				peerIoRunnables.add(new LoopingRunnable(new PeerIoRunnable(this, shard, threadCount)));
+			}
+		}
+
+		for (int i = 0; i < peerIoRunnables.size(); i++) {
+			String name = peerIoRunnables.size() == 1 ? "Peer IO" : String.format("Peer IO #%d", i);
+			Thread thread = new Thread(peerIoRunnables.get(i), name);
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		if (peerIoEventLoops.isEmpty()) {
+			startHandshakeLoop();
+		}
+
+		if (peerIoEventLoops.size() > 1) {
+			rebalanceTask = torrentClient.getExecutorService().scheduleAtFixedRate(this::rebalancePeerIo, 30, 30, TimeUnit.SECONDS);
+		}
+	}
+
+	private void createEventLoops(int count) {
+		try {
+			for (int i = 0; i < count; i++) {
+				peerIoEventLoops.add(new PeerIoEventLoop());
+			}
+		} catch (IOException e) {
+			LOGGER.warn("Failed to open selector, falling back to polling peer IO.", e);
+			peerIoEventLoops.forEach(PeerIoEventLoop::close);
+			peerIoEventLoops.clear();
+		}
+	}
+
+	private void startHandshakeLoop() {
+		try {
+			handshakeLoop = new PeerIoEventLoop();
+		} catch (IOException e) {
+			LOGGER.warn("Failed to open selector, handshakes will be executed by the accepting threads.", e);
+			return;
+		}
+
+		handshakeRunnable = new LoopingRunnable(handshakeLoop, true);
+		Thread thread = new Thread(handshakeRunnable, "Peer Handshake");
 		thread.setDaemon(true);
 		thread.start();
 	}
 
+	/**
+	 * Hands a new connection over to the peer IO processing to execute the BitTorrent handshake. With {@link PeerIoMode#Selector} the handshake is
+	 * pinned to one of the event loops based on the hash of the socket, with {@link PeerIoMode#VirtualThread} it gets its own thread, otherwise a
+	 * dedicated loop is used.
+	 * @param handshake The handshake to execute.
+	 */
+	public void registerHandshake(PeerHandshake handshake) {
+		if (peerIoThreads != null) {
+			peerIoThreads.registerHandshake(handshake);
+		} else if (!peerIoEventLoops.isEmpty()) {
+			peerIoEventLoops.get(Math.floorMod(handshake.getSocket().hashCode(), peerIoEventLoops.size())).registerHandshake(handshake);
+		} else if (handshakeLoop != null) {
+			handshakeLoop.registerHandshake(handshake);
+		} else {
+			try {
+				handshake.processBlocking();
+			} catch (IOException e) {
+				LOGGER.debug("Handshake failed on {}", handshake.getSocket(), e);
+				handshake.getSocket().close();
+			}
+		}
+	}
+
+	/**
+	 * Hands a peer which has passed the handshake over to the peer IO processing. This is only required for {@link PeerIoMode#Selector} and
+	 * {@link PeerIoMode#VirtualThread} as the polling mode discovers the peers through the torrents. With {@link PeerIoMode#Selector} the peer is pinned
+	 * to one of the event loops based on the hash of its id.
+	 * @param peer The peer to process.
+	 */
+	public void registerPeer(Peer peer) {
+		if (peerIoThreads != null) {
+			peerIoThreads.registerPeer(peer);
+			return;
+		}
+
+		if (peerIoEventLoops.isEmpty()) {
+			return;
+		}
+
+		peerIoEventLoops.get(Math.floorMod(peer.hashCode(), peerIoEventLoops.size())).registerPeer(peer);
+	}
+
+	/**
+	 * Moves peers from the busiest event loop to the least busy event loop when the difference between them has become too large. Peers are pinned by
+	 * the hash of their id which can cause skew when peers with the same shard stay connected longer than others.
+	 */
+	public void rebalancePeerIo() {
+		if (peerIoEventLoops.size() < 2) {
+			return;
+		}
+
+		PeerIoEventLoop busiest = peerIoEventLoops.stream().max(Comparator.comparingInt(PeerIoEventLoop::getPeerCount)).get();
+		PeerIoEventLoop leastBusy = peerIoEventLoops.stream().min(Comparator.comparingInt(PeerIoEventLoop::getPeerCount)).get();
+
+		int skew = busiest.getPeerCount() - leastBusy.getPeerCount();
+		if (skew <= Math.max(MINIMUM_PEER_IO_SKEW, busiest.getPeerCount() / 4)) {
+			return;
+		}
+
+		busiest.migratePeers(skew / 2, leastBusy);
+	}
+
 	/**
 	 * Attempts to start a server socket to accept incoming TCP connections.
 	 */
@@ -70,7 +217,21 @@ public class TorrentManager {
 	 * Gracefully stops the connection processing.
 	 */
 	public void stop() {
-		peerIoRunnable.stop();
+		peerIoRunnables.forEach(LoopingRunnable::stop);
+		peerIoEventLoops.forEach(PeerIoEventLoop::close);
+
+		if (peerIoThreads != null) {
+			peerIoThreads.close();
+		}
+
+		if (handshakeLoop != null) {
+			handshakeRunnable.stop();
+			handshakeLoop.close();
+		}
+
+		if (rebalanceTask != null) {
+			rebalanceTask.cancel(false);
+		}
 
 		if (connectorRunnable != null) {
 			connectorRunnable.stop();
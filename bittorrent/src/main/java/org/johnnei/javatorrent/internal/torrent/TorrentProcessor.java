@@ -10,6 +10,7 @@ import org.johnnei.javatorrent.TorrentClient;
 import org.johnnei.javatorrent.internal.tracker.TrackerManager;
 import org.johnnei.javatorrent.phases.IDownloadPhase;
 import org.johnnei.javatorrent.torrent.Torrent;
+import org.johnnei.javatorrent.torrent.TorrentFileSet;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,7 +39,7 @@ class TorrentProcessor {
 		this.trackerManager = trackerManager;
 		this.torrentClient = torrentClient;
 		this.torrent = torrent;
-		scheduledTasks = new ArrayList<>(3);
+		scheduledTasks = new ArrayList<>(5);
 
 		downloadPhase = torrentClient.getPhaseRegulator().createInitialPhase(torrentClient, torrent);
 		downloadPhase.onPhaseEnter();
@@ -47,6 +48,7 @@ class TorrentProcessor {
 		scheduledTasks.add(torrentClient.getExecutorService().scheduleAtFixedRate(this::updateChokingStates, 1, 10, TimeUnit.SECONDS));
 		scheduledTasks.add(torrentClient.getExecutorService().scheduleAtFixedRate(this::removeDisconnectedPeers, 30, 60, TimeUnit.SECONDS));
 		scheduledTasks.add(torrentClient.getExecutorService().scheduleAtFixedRate(this::updateTrackerStates, 10, 30, TimeUnit.SECONDS));
+		scheduledTasks.add(torrentClient.getExecutorService().scheduleAtFixedRate(torrent::saveResumeData, 60, 60, TimeUnit.SECONDS));
 	}
 
 	public void updateTrackerStates() {
@@ -92,6 +94,15 @@ class TorrentProcessor {
 			task.cancel(false);
 		}
 
+		torrent.getRecheck().ifPresent(PieceRecheck::cancel);
+		torrent.saveResumeData();
+
+		TorrentFileSet fileSet = torrent.getFileSet();
+		if (fileSet != null) {
+			torrentClient.getPieceCache().release(fileSet);
+			torrentClient.getReadCache().release(fileSet);
+		}
+
 		torrentManager.removeTorrent(torrent);
 	}
 
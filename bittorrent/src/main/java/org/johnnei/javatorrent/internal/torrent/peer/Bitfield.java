@@ -1,72 +1,74 @@
 package org.johnnei.javatorrent.internal.torrent.peer;
 
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 
+/**
+ * The pieces which are available, stored as bits in words of 64 pieces in the same order as the bitfield defined in BEP #3.<br>
+ * Pieces are marked with atomic word updates, so checking and marking pieces never blocks. The amount of marked pieces is maintained on every change
+ * instead of being counted on request. Resizing replaces the words, pieces which are marked while the words are being replaced are carried over to the
+ * new words.
+ */
 public class Bitfield {
 
+	private static final int BITS_PER_WORD = 64;
+
 	/**
-	 * The lock which prevents thread-unsafety when the bitfieldBytes gets resized.<br>
-	 * Read lock: Read/Write data into the {@link #bitfieldBytes} (both are allowed as missing one bit is not critical)<br>
-	 * Write lock: Resizing the datastructure
+	 * The current words. Replaced as a whole when the bitfield is resized.
 	 */
-	private ReadWriteLock resizeLock;
-
-	private byte[] bitfieldBytes;
+	private volatile Words words;
 
 	public Bitfield(int size) {
-		bitfieldBytes = new byte[size];
-		resizeLock = new ReentrantReadWriteLock();
+		words = new Words(size);
 	}
 
 	/**
-	 * Increases or decreased the bitfieldBytes size but it will preserve the old data
+	 * Increases or decreased the bitfield size but it will preserve the old data
 	 *
-	 * @param size The new size to grow/shrink to
+	 * @param size The new size in bytes to grow/shrink to
 	 */
-	public void setSize(int size) {
-		resizeLock.readLock().lock();
-		if (size == bitfieldBytes.length) {
-			resizeLock.readLock().unlock();
+	public synchronized void setSize(int size) {
+		Words oldWords = words;
+		if (size == oldWords.byteSize) {
 			return;
 		}
-		resizeLock.readLock().unlock();
 
-		resizeLock.writeLock().lock();
-
-		byte[] newBitfield = new byte[size];
-		System.arraycopy(bitfieldBytes, 0, newBitfield, 0, Math.min(size, bitfieldBytes.length));
-		bitfieldBytes = newBitfield;
+		Words newWords = new Words(size);
+		newWords.addAll(oldWords);
+		words = newWords;
+		// Pieces which have been marked on the old words while they were being copied.
+		newWords.addAll(oldWords);
+	}
 
-		resizeLock.writeLock().unlock();
+	/**
+	 * Grows the bitfield to at least the given size. Unlike {@link #setSize(int)} this never shrinks the bitfield when it has been grown concurrently.
+	 *
+	 * @param size The minimum size in bytes
+	 */
+	private synchronized void ensureSize(int size) {
+		if (words.byteSize < size) {
+			setSize(size);
+		}
 	}
 
 	/**
-	 * Checks the bitfieldBytes if we have the given piece
+	 * Checks the bitfield if we have the given piece
 	 *
 	 * @param pieceIndex the piece to check
 	 * @return True if we verified the hash of that piece, else false
 	 */
 	public boolean hasPiece(int pieceIndex) {
-		int byteIndex = pieceIndex / 8;
-		int bit = pieceIndex % 8;
-
-		resizeLock.readLock().lock();
-		if (byteIndex < bitfieldBytes.length) {
-			int bitVal = 0x80 >> bit;
-			boolean isSet = (bitfieldBytes[byteIndex] & bitVal) > 0;
-			resizeLock.readLock().unlock();
-			return isSet;
-		} else {
-			resizeLock.readLock().unlock();
+		Words currentWords = words;
+		if (pieceIndex < 0 || pieceIndex >= currentWords.bitCount) {
 			return false;
 		}
+
+		return (currentWords.bits.get(getWordIndex(pieceIndex)) & getBitMask(pieceIndex)) != 0;
 	}
 
 	/**
 	 * Notify that we have the given piece<br>
-	 * This will update the bitfieldBytes to bitwise OR the bit to 1
+	 * This will update the bitfield to bitwise OR the bit to 1
 	 *
 	 * @param pieceIndex The piece to add
 	 */
@@ -76,55 +78,206 @@ public class Bitfield {
 
 	/**
 	 * Notify that we have the given piece<br>
-	 * This will update the bitfieldBytes to bitwise OR the bit to 1
+	 * This will update the bitfield to bitwise OR the bit to 1
 	 *
 	 * @param pieceIndex The piece to add
-	 * @param mayExpand If the bitfieldBytes may grow to fit the new have data
+	 * @param mayExpand If the bitfield may grow to fit the new have data
 	 */
 	public void havePiece(int pieceIndex, boolean mayExpand) {
-		int byteIndex = pieceIndex / 8;
-		int bit = pieceIndex % 8;
-		resizeLock.readLock().lock();
-		if (byteIndex >= bitfieldBytes.length) {
-			if (mayExpand) {
-				resizeLock.readLock().unlock();
-				setSize(byteIndex + 1);
-				resizeLock.readLock().lock();
-			} else {
-				return; // Prevent IndexOutOfRange
+		if (pieceIndex < 0) {
+			return;
+		}
+
+		Words currentWords = words;
+		while (true) {
+			if (pieceIndex >= currentWords.bitCount) {
+				if (!mayExpand) {
+					// Prevent IndexOutOfRange
+					return;
+				}
+
+				ensureSize(pieceIndex / 8 + 1);
+				currentWords = words;
+				continue;
+			}
+
+			currentWords.or(getWordIndex(pieceIndex), getBitMask(pieceIndex));
+
+			Words latestWords = words;
+			if (latestWords == currentWords) {
+				return;
 			}
+
+			// The bitfield has been resized concurrently, mark the piece on the new words as it might not have been carried over.
+			currentWords = latestWords;
 		}
-		bitfieldBytes[byteIndex] |= (0x80 >> bit);
-		resizeLock.readLock().unlock();
 	}
 
 	/**
-	 * Returns a copy of the internal byte array
-	 * @return
+	 * Returns a copy of the bitfield as defined in BEP #3
+	 * @return The bitfield bytes.
 	 */
 	public byte[] getBytes() {
-		resizeLock.readLock().lock();
-		byte[] clone = bitfieldBytes.clone();
-		resizeLock.readLock().unlock();
-		return clone;
+		Words currentWords = words;
+		byte[] bytes = new byte[currentWords.byteSize];
+		for (int i = 0; i < bytes.length; i++) {
+			long word = currentWords.bits.get(i / 8);
+			bytes[i] = (byte) (word >>> (56 - (i % 8) * 8));
+		}
+		return bytes;
 	}
 
 	/**
-	 * Goes through the bitfieldBytes and checks how many pieces the client has
+	 * Gets the amount of pieces which have been marked. This is maintained on every change and therefore doesn't visit the bitfield.
 	 *
 	 * @return The amount of pieces the client has
 	 */
 	public int countHavePieces() {
-		resizeLock.readLock().lock();
-		int pieces = bitfieldBytes.length * 8;
-		int have = 0;
-		for (int pieceIndex = 0; pieceIndex < pieces; pieceIndex++) {
-			if (hasPiece(pieceIndex)) {
-				have++;
+		return words.cardinality.get();
+	}
+
+	/**
+	 * Counts the pieces which are marked in both this and the other bitfield.
+	 *
+	 * @param other The other bitfield.
+	 * @param pieceCount The amount of pieces to compare, the bits beyond the last piece are ignored.
+	 * @return The amount of pieces marked in both bitfields.
+	 */
+	public int countAnd(Bitfield other, int pieceCount) {
+		Words thisWords = words;
+		Words otherWords = other.words;
+		int wordCount = getWordCount(Math.min(pieceCount, Math.min(thisWords.bitCount, otherWords.bitCount)));
+
+		int count = 0;
+		for (int i = 0; i < wordCount; i++) {
+			count += Long.bitCount(thisWords.bits.get(i) & otherWords.bits.get(i) & getWordMask(i, pieceCount));
+		}
+		return count;
+	}
+
+	/**
+	 * Counts the pieces which are marked in this bitfield but not in the other bitfield.
+	 *
+	 * @param other The other bitfield.
+	 * @param pieceCount The amount of pieces to compare, the bits beyond the last piece are ignored.
+	 * @return The amount of pieces only marked in this bitfield.
+	 */
+	public int countAndNot(Bitfield other, int pieceCount) {
+		Words thisWords = words;
+		Words otherWords = other.words;
+		int wordCount = getWordCount(Math.min(pieceCount, thisWords.bitCount));
+
+		int count = 0;
+		for (int i = 0; i < wordCount; i++) {
+			count += Long.bitCount(thisWords.bits.get(i) & ~otherWords.getWord(i) & getWordMask(i, pieceCount));
+		}
+		return count;
+	}
+
+	/**
+	 * Checks if any piece is marked in this bitfield but not in the other bitfield. This is the same as <code>countAndNot(other, pieceCount) &gt; 0</code>
+	 * but stops at the first word which contains such piece.
+	 *
+	 * @param other The other bitfield.
+	 * @param pieceCount The amount of pieces to compare, the bits beyond the last piece are ignored.
+	 * @return <code>true</code> when this bitfield has a piece which the other bitfield doesn't have.
+	 */
+	public boolean hasAnyAndNot(Bitfield other, int pieceCount) {
+		Words thisWords = words;
+		Words otherWords = other.words;
+		int wordCount = getWordCount(Math.min(pieceCount, thisWords.bitCount));
+
+		for (int i = 0; i < wordCount; i++) {
+			if ((thisWords.bits.get(i) & ~otherWords.getWord(i) & getWordMask(i, pieceCount)) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int getWordIndex(int pieceIndex) {
+		return pieceIndex / BITS_PER_WORD;
+	}
+
+	private static long getBitMask(int pieceIndex) {
+		// The first piece is stored in the highest bit to match the order of the bits within the bytes of the bitfield.
+		return Long.MIN_VALUE >>> (pieceIndex % BITS_PER_WORD);
+	}
+
+	private static int getWordCount(int bitCount) {
+		return (bitCount + BITS_PER_WORD - 1) / BITS_PER_WORD;
+	}
+
+	/**
+	 * @return The mask of the bits of the word which are within the given amount of bits.
+	 */
+	private static long getWordMask(int wordIndex, int bitCount) {
+		int bitsInWord = bitCount - wordIndex * BITS_PER_WORD;
+		if (bitsInWord >= BITS_PER_WORD) {
+			return -1L;
+		} else if (bitsInWord <= 0) {
+			return 0L;
+		} else {
+			return -1L << (BITS_PER_WORD - bitsInWord);
+		}
+	}
+
+	/**
+	 * The words of a bitfield of a fixed size.
+	 */
+	private static final class Words {
+
+		private final int byteSize;
+
+		private final int bitCount;
+
+		private final AtomicLongArray bits;
+
+		/**
+		 * The amount of set bits in {@link #bits}.
+		 */
+		private final AtomicInteger cardinality;
+
+		Words(int byteSize) {
+			this.byteSize = byteSize;
+			bitCount = byteSize * 8;
+			bits = new AtomicLongArray(getWordCount(bitCount));
+			cardinality = new AtomicInteger();
+		}
+
+		long getWord(int wordIndex) {
+			return wordIndex < bits.length() ? bits.get(wordIndex) : 0L;
+		}
+
+		/**
+		 * Sets the bits of the mask in the word and counts the bits which were not set yet.
+		 */
+		void or(int wordIndex, long mask) {
+			long oldWord;
+			long newWord;
+			do {
+				oldWord = bits.get(wordIndex);
+				newWord = oldWord | mask;
+				if (oldWord == newWord) {
+					return;
+				}
+			} while (!bits.compareAndSet(wordIndex, oldWord, newWord));
+
+			cardinality.addAndGet(Long.bitCount(newWord & ~oldWord));
+		}
+
+		/**
+		 * Sets all bits which are set in the other words and fit within these words.
+		 */
+		void addAll(Words other) {
+			int wordCount = Math.min(bits.length(), other.bits.length());
+			for (int i = 0; i < wordCount; i++) {
+				long mask = other.bits.get(i) & getWordMask(i, bitCount);
+				if (mask != 0) {
+					or(i, mask);
+				}
 			}
 		}
-		resizeLock.readLock().unlock();
-		return have;
 	}
 
 }
@@ -0,0 +1,146 @@
+package org.johnnei.javatorrent.internal.utils;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.johnnei.javatorrent.utils.Argument;
+
+/**
+ * An unbounded lock-free queue which allows multiple threads to add elements while a single thread removes them. Producers only contend on a single
+ * atomic swap, the consumer never writes to state shared with the producers other than the size counter.
+ * <p>
+ * Methods which remove elements ({@link #poll()}, {@link #remove()}, {@link #clear()}) must only be called by the consuming thread or by threads
+ * which have a happens-before relation with the previous consumer. {@link #size()}, {@link #isEmpty()} and {@link #peek()} may be called from any
+ * thread. The iterator is weakly consistent and does not support removal.
+ * </p>
+ *
+ * @param <E> The type of the elements.
+ */
+public class MpscQueue<E> extends AbstractQueue<E> {
+
+	/**
+	 * The last node in the chain. Swapped by the producers.
+	 */
+	private final AtomicReference<Node<E>> tail;
+
+	/**
+	 * The sentinel node preceding the first element. Only moved by the consumer.
+	 */
+	private volatile Node<E> head;
+
+	private final AtomicInteger size;
+
+	/**
+	 * Creates a new empty queue.
+	 */
+	public MpscQueue() {
+		Node<E> sentinel = new Node<>(null);
+		head = sentinel;
+		tail = new AtomicReference<>(sentinel);
+		size = new AtomicInteger();
+	}
+
+	@Override
+	public boolean offer(E e) {
+		Argument.requireNonNull(e, "Element can not be null.");
+
+		Node<E> node = new Node<>(e);
+		// The size is increased before the element becomes visible so that a successful poll never observes a negative size.
+		size.incrementAndGet();
+		Node<E> previous = tail.getAndSet(node);
+		previous.next = node;
+		return true;
+	}
+
+	@Override
+	public E poll() {
+		Node<E> next = head.next;
+		if (next == null) {
+			return null;
+		}
+
+		E value = next.value;
+		next.value = null;
+		head = next;
+		size.decrementAndGet();
+		return value;
+	}
+
+	@Override
+	public E peek() {
+		Node<E> next = head.next;
+		return next == null ? null : next.value;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Elements which are being added concurrently are included in the size as soon as the add has started, they might not yet be returned by
+	 * {@link #poll()}.
+	 * </p>
+	 */
+	@Override
+	public int size() {
+		return size.get();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size.get() == 0;
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return new WeakIterator<>(head.next);
+	}
+
+	private static final class WeakIterator<E> implements Iterator<E> {
+
+		private Node<E> node;
+
+		private E value;
+
+		WeakIterator(Node<E> start) {
+			advanceTo(start);
+		}
+
+		private void advanceTo(Node<E> start) {
+			node = start;
+			value = null;
+			// Skip nodes which have been consumed since they were observed.
+			while (node != null && (value = node.value) == null) {
+				node = node.next;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return node != null;
+		}
+
+		@Override
+		public E next() {
+			if (node == null) {
+				throw new NoSuchElementException();
+			}
+
+			E current = value;
+			advanceTo(node.next);
+			return current;
+		}
+	}
+
+	private static final class Node<E> {
+
+		private volatile E value;
+
+		private volatile Node<E> next;
+
+		Node(E value) {
+			this.value = value;
+		}
+	}
+}
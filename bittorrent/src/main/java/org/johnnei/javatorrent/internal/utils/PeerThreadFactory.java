@@ -0,0 +1,72 @@
+package org.johnnei.javatorrent.internal.utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link ThreadFactory} which creates virtual threads when the JVM supports them (Java 21 and later). The virtual thread API is resolved
+ * reflectively as the library is compiled for Java 8. On older JVMs daemon platform threads are created instead.
+ */
+public class PeerThreadFactory implements ThreadFactory {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PeerThreadFactory.class);
+
+	private final String namePrefix;
+
+	private final AtomicInteger threadNumber;
+
+	/**
+	 * The virtual thread factory or <code>null</code> when not supported by the JVM.
+	 */
+	private final ThreadFactory virtualThreadFactory;
+
+	/**
+	 * Creates a new factory.
+	 * @param namePrefix The prefix of the names of the created threads.
+	 */
+	public PeerThreadFactory(String namePrefix) {
+		this.namePrefix = namePrefix;
+		threadNumber = new AtomicInteger();
+		virtualThreadFactory = createVirtualThreadFactory(namePrefix);
+	}
+
+	private static ThreadFactory createVirtualThreadFactory(String namePrefix) {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+			Method factory = builderClass.getMethod("factory");
+			return (ThreadFactory) factory.invoke(builder);
+		} catch (ReflectiveOperationException e) {
+			LOGGER.debug("Virtual threads are not supported by this JVM.", e);
+			return null;
+		}
+	}
+
+	@Override
+	public Thread newThread(Runnable runnable) {
+		if (virtualThreadFactory != null) {
+			return virtualThreadFactory.newThread(runnable);
+		}
+
+		Thread thread = new Thread(runnable, namePrefix + threadNumber.getAndIncrement());
+		thread.setDaemon(true);
+		return thread;
+	}
+
+	/**
+	 * @return <code>true</code> when the created threads are virtual threads.
+	 */
+	public boolean isVirtual() {
+		return virtualThreadFactory != null;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("PeerThreadFactory[namePrefix=%s, virtual=%s]", namePrefix, isVirtual());
+	}
+}
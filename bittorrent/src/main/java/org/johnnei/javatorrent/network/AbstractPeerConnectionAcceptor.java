@@ -1,13 +1,9 @@
 package org.johnnei.javatorrent.network;
 
 import java.io.IOException;
-import java.util.Optional;
 
 import org.johnnei.javatorrent.TorrentClient;
-import org.johnnei.javatorrent.bittorrent.protocol.BitTorrentHandshake;
 import org.johnnei.javatorrent.network.socket.ISocket;
-import org.johnnei.javatorrent.torrent.Torrent;
-import org.johnnei.javatorrent.torrent.peer.Peer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,7 +26,9 @@ public abstract class AbstractPeerConnectionAcceptor implements Runnable {
 		ISocket socket = null;
 		try {
 			socket = acceptSocket();
-			acceptConnection(createSocket(socket));
+			BitTorrentSocket peerSocket = createSocket(socket);
+			LOGGER.debug("Accepted connection from {}", peerSocket);
+			torrentClient.startHandshake(peerSocket);
 		} catch (IOException e) {
 			LOGGER.debug("Failed to create connection with peer.", e);
 			closeQuietly(socket);
@@ -39,35 +37,10 @@ public abstract class AbstractPeerConnectionAcceptor implements Runnable {
 
 	protected abstract ISocket acceptSocket() throws IOException;
 
-	private void acceptConnection(BitTorrentSocket peerSocket) throws IOException {
-		BitTorrentHandshake handshake = peerSocket.readHandshake();
-
-		Optional<Torrent> torrent = torrentClient.getTorrentByHash(handshake.getTorrentHash());
-		if (!torrent.isPresent()) {
-			// We don't know the torrent the peer is downloading
-			peerSocket.close();
-			return;
-		}
-
-		Peer peer = createPeer(peerSocket, torrent.get(), handshake.getPeerExtensionBytes(), handshake.getPeerId());
-		peerSocket.sendHandshake(torrentClient.getExtensionBytes(), torrentClient.getPeerId(), torrent.get().getMetadata().getHash());
-		LOGGER.debug("Accepted connection from {}", peerSocket);
-		torrent.get().addPeer(peer);
-	}
-
 	BitTorrentSocket createSocket(ISocket socket) throws IOException {
 		return new BitTorrentSocket(torrentClient.getMessageFactory(), socket);
 	}
 
-	Peer createPeer(BitTorrentSocket socket, Torrent torrent, byte[] extensionBytes, byte[] peerId) {
-		return new Peer.Builder()
-				.setSocket(socket)
-				.setTorrent(torrent)
-				.setExtensionBytes(extensionBytes)
-				.setId(peerId)
-				.build();
-	}
-
 	private void closeQuietly(ISocket socket) {
 		if (socket == null) {
 			return;
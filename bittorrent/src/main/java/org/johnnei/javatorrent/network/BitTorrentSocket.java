@@ -2,15 +2,22 @@ package org.johnnei.javatorrent.network;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.LinkedList;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,18 +26,19 @@ import org.johnnei.javatorrent.bittorrent.protocol.BitTorrentHandshake;
 import org.johnnei.javatorrent.bittorrent.protocol.MessageFactory;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.IMessage;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageBlock;
+import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageBlockRegion;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageKeepAlive;
+import org.johnnei.javatorrent.internal.network.ByteBufferPool;
 import org.johnnei.javatorrent.internal.network.ByteInputStream;
 import org.johnnei.javatorrent.internal.network.ByteOutputStream;
+import org.johnnei.javatorrent.internal.utils.MpscQueue;
 import org.johnnei.javatorrent.network.socket.ISocket;
+import org.johnnei.javatorrent.utils.Argument;
 
 public class BitTorrentSocket {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(BitTorrentSocket.class);
 
-	private final Object queueLock = new Object();
-	private final Object blockQueueLock = new Object();
-
 	/**
 	 * Clock instance to allow for speedy unit tests on this.
 	 */
@@ -38,6 +46,18 @@ public class BitTorrentSocket {
 
 	private static final int HANDSHAKE_SIZE = 68;
 
+	private static final int HANDSHAKE_TIMEOUT = 5_000;
+
+	/**
+	 * The amount of bytes which is collected in a single batch of outgoing messages before the batch gets written.
+	 */
+	private static final int WRITE_BATCH_SIZE = 32 * 1024;
+
+	/**
+	 * The time in milliseconds which {@link #awaitMessage()} waits before checking if the download limiters have been refilled.
+	 */
+	private static final long THROTTLE_WAIT = 10;
+
 	private ISocket socket;
 
 	private ByteInputStream inStream;
@@ -62,7 +82,7 @@ public class BitTorrentSocket {
 	private boolean passedHandshake;
 
 	/**
-	 * The queue containing the messages which still have to be send
+	 * The queue containing the messages which still have to be send. Messages are added by any thread and consumed by the IO thread.
 	 */
 	private Queue<IMessage> messageQueue;
 
@@ -71,10 +91,6 @@ public class BitTorrentSocket {
 	 */
 	private Queue<IMessage> blockQueue;
 
-	private OutStream buffer;
-
-	private int bufferSize;
-
 	/**
 	 * The last time a buffer was created
 	 */
@@ -85,14 +101,109 @@ public class BitTorrentSocket {
 	 */
 	private LocalDateTime lastActivity;
 
+	/**
+	 * The channel which is used to exchange messages once this socket has been switched to non-blocking mode.
+	 */
+	private SocketChannel channel;
+
+	/**
+	 * The pool from which the {@link #readBuffer} is taken.
+	 */
+	private final ByteBufferPool bufferPool;
+
+	/**
+	 * Guards the {@link #readBuffer} from being returned to the pool while it is being used. This is not a monitor as {@link #awaitMessage()} blocks
+	 * while holding it, which would pin a virtual thread onto its carrier.
+	 */
+	private final Lock readBufferLock = new ReentrantLock();
+
+	/**
+	 * The bytes which have been received but have not yet been consumed as messages. Only allocated once messages are being read.
+	 */
+	private ByteBuffer readBuffer;
+
+	/**
+	 * The offset in {@link #readBuffer} at which the next unconsumed message starts.
+	 */
+	private int readOffset;
+
+	/**
+	 * The re-used buffer in which a batch of outgoing messages is serialized.
+	 */
+	private final OutStream writeBatch;
+
+	/**
+	 * The view on {@link #writeBatch} which is (partially) waiting to be written onto the {@link #channel}.
+	 */
+	private ByteBuffer writeBuffer;
+
+	/**
+	 * The block of which the header has been added to the current batch and of which the data will be transferred directly from the files.
+	 */
+	private MessageBlockRegion pendingRegion;
+
+	/**
+	 * The amount of bytes of the {@link #pendingRegion} data which have been transferred.
+	 */
+	private int pendingRegionProgress;
+
+	/**
+	 * The amount of batches which have been written.
+	 */
+	private long flushCount;
+
+	/**
+	 * The amount of messages which have been written as part of a batch.
+	 */
+	private long flushedMessageCount;
+
+	/**
+	 * The amount of bytes which have been written as part of a batch.
+	 */
+	private long flushedByteCount;
+
+	/**
+	 * The amount of bytes read from the {@link #channel} since the last {@link #pollRates()}
+	 */
+	private int channelDownloadRate;
+
+	/**
+	 * The amount of bytes written to the {@link #channel} since the last {@link #pollRates()}
+	 */
+	private int channelUploadRate;
+
+	/**
+	 * The bytes of the remote handshake which have been received so far by {@link #pollHandshake()}.
+	 */
+	private ByteBuffer handshakeBuffer;
+
+	/**
+	 * Limits the rate at which bytes are read from this socket.
+	 */
+	private TokenBucket downloadLimiter;
+
+	/**
+	 * Limits the rate at which bytes are written to this socket.
+	 */
+	private TokenBucket uploadLimiter;
+
+	/**
+	 * The listener which gets notified when a message has been queued.
+	 */
+	private volatile Runnable outboundMessageListener;
+
 	/**
 	 * Creates a new unbound BitTorrent socket.
 	 * @param messageFactory The factory to create {@link IMessage} instances.
 	 */
 	public BitTorrentSocket(MessageFactory messageFactory) {
 		this.messageFactory = messageFactory;
-		messageQueue = new LinkedList<>();
-		blockQueue = new LinkedList<>();
+		messageQueue = new MpscQueue<>();
+		blockQueue = new MpscQueue<>();
+		writeBatch = new OutStream(1024);
+		bufferPool = ByteBufferPool.getSharedPool();
+		downloadLimiter = new TokenBucket(0);
+		uploadLimiter = new TokenBucket(0);
 		lastActivity = LocalDateTime.now(clock);
 	}
 
@@ -142,72 +253,317 @@ public class BitTorrentSocket {
 	 * @param message The message to be added to the queue
 	 */
 	public void enqueueMessage(IMessage message) {
-		if (message instanceof MessageBlock) {
-			synchronized (blockQueueLock) {
-				blockQueue.add(message);
-			}
+		if (message instanceof MessageBlock || message instanceof MessageBlockRegion) {
+			blockQueue.add(message);
 		} else {
-			synchronized (queueLock) {
-				messageQueue.add(message);
-			}
+			messageQueue.add(message);
 		}
+
+		Runnable listener = outboundMessageListener;
+		if (listener != null) {
+			listener.run();
+		}
+	}
+
+	/**
+	 * Registers a listener which will be notified after a message has been queued by {@link #enqueueMessage(IMessage)}.
+	 * @param listener The listener to notify or <code>null</code> to remove the current listener.
+	 */
+	public void setOutboundMessageListener(Runnable listener) {
+		outboundMessageListener = listener;
+	}
+
+	/**
+	 * Sets the limiters which are consulted before bytes are read from or written to this socket.
+	 * @param downloadLimiter The limiter for the incoming bytes.
+	 * @param uploadLimiter The limiter for the outgoing bytes.
+	 */
+	public void setRateLimiters(TokenBucket downloadLimiter, TokenBucket uploadLimiter) {
+		this.downloadLimiter = Argument.requireNonNull(downloadLimiter, "Download limiter can not be null.");
+		this.uploadLimiter = Argument.requireNonNull(uploadLimiter, "Upload limiter can not be null.");
+	}
+
+	/**
+	 * Gets the limiter for the incoming bytes of this socket. The limit can be changed at any time with {@link TokenBucket#setRate(int)}.
+	 * @return The download limiter.
+	 */
+	public TokenBucket getDownloadLimiter() {
+		return downloadLimiter;
+	}
+
+	/**
+	 * Gets the limiter for the outgoing bytes of this socket. The limit can be changed at any time with {@link TokenBucket#setRate(int)}.
+	 * @return The upload limiter.
+	 */
+	public TokenBucket getUploadLimiter() {
+		return uploadLimiter;
+	}
+
+	/**
+	 * @return <code>true</code> when reading must wait for the download limiters to refill.
+	 */
+	public boolean isDownloadThrottled() {
+		return !downloadLimiter.hasTokens();
+	}
+
+	/**
+	 * @return <code>true</code> when writing must wait for the upload limiters to refill.
+	 */
+	public boolean isUploadThrottled() {
+		return !uploadLimiter.hasTokens();
 	}
 
 	private void createIOStreams() throws IOException {
-		inStream = new ByteInputStream(new BufferedInputStream(socket.getInputStream()));
+		InputStream inputStream = socket.getInputStream();
+		if (!socket.getChannel().isPresent()) {
+			// Channel backed sockets must not read ahead as those bytes would be lost when switching to non-blocking mode.
+			inputStream = new BufferedInputStream(inputStream);
+		}
+		inStream = new ByteInputStream(inputStream);
 		outStream = new ByteOutputStream(new BufferedOutputStream(socket.getOutputStream()));
 	}
 
-	public IMessage readMessage() {
+	/**
+	 * Checks if the underlying socket is backed by a channel which can be used with {@link #enableNonBlockingMode()}.
+	 * @return <code>true</code> when the socket can be switched to non-blocking mode.
+	 */
+	public boolean isSelectable() {
+		return socket != null && socket.getChannel().isPresent();
+	}
 
-		InStream stream = getBufferedMessage();
-		int length = stream.readInt();
-		if (length == 0) {
-			return new MessageKeepAlive();
+	/**
+	 * Checks if {@link MessageBlockRegion} messages will be transferred directly from the files onto the socket. This is only the case for sockets in
+	 * non-blocking mode.
+	 * @return <code>true</code> when block data can be send without loading it into memory.
+	 */
+	public boolean supportsFileTransfer() {
+		return channel != null;
+	}
+
+	/**
+	 * Switches this socket to non-blocking mode. From this moment on messages will be exchanged directly on the channel of the underlying socket instead
+	 * of its streams. Use {@link #canReadMessage()} to read and {@link #writeMessages()} to write messages. Invoking this method on a socket which is
+	 * already in non-blocking mode has no effect.
+	 * @return The channel which must be registered on a {@link java.nio.channels.Selector}.
+	 * @throws IOException When the channel can not be configured.
+	 * @throws IllegalStateException When the underlying socket is not backed by a channel.
+	 */
+	public SocketChannel enableNonBlockingMode() throws IOException {
+		if (channel != null) {
+			return channel;
 		}
 
-		int id = stream.readByte();
-		IMessage message = messageFactory.createById(id);
-		message.read(stream);
+		if (!isSelectable()) {
+			throw new IllegalStateException("Socket is not backed by a channel.");
+		}
+
+		SocketChannel socketChannel = socket.getChannel().get();
+		socketChannel.configureBlocking(false);
+		channel = socketChannel;
+		return socketChannel;
+	}
+
+	public IMessage readMessage() {
+		IMessage message;
+		readBufferLock.lock();
+		try {
+			InStream stream = getBufferedMessage();
+			int length = stream.readInt();
+			if (length == 0) {
+				return new MessageKeepAlive();
+			}
+
+			int id = stream.readByte();
+			message = messageFactory.createById(id);
+			message.read(stream);
+		} finally {
+			readBufferLock.unlock();
+		}
 
 		LOGGER.trace("Read message: {}", message);
 		return message;
 	}
 
 	/**
-	 * Sends at most 1 pending message. {@link org.johnnei.javatorrent.bittorrent.protocol.messages.MessageBlock} will be send last
+	 * Sends a batch of pending messages with a single flush. Messages are added to the batch until either no more messages are pending or the batch
+	 * exceeds {@link #WRITE_BATCH_SIZE}. {@link org.johnnei.javatorrent.bittorrent.protocol.messages.MessageBlock} will be send last
 	 * @throws IOException
 	 */
 	public void sendMessage() throws IOException {
-		IMessage message = null;
+		if (channel != null) {
+			// Streams can't be used once the channel has been configured to be non-blocking.
+			writeMessages();
+			return;
+		}
+
+		if (isUploadThrottled()) {
+			return;
+		}
 
-		if (!messageQueue.isEmpty()) {
-			synchronized (queueLock) {
-				message = messageQueue.poll();
+		int messageCount = fillWriteBatch();
+
+		if (messageCount == 0) {
+			return;
+		}
+
+		writeBatch.writeTo(outStream);
+		outStream.flush();
+		uploadLimiter.consume(writeBatch.size());
+		onBatchFlushed(messageCount, writeBatch.size());
+		writeBatch.reset();
+		lastActivity = LocalDateTime.now(clock);
+	}
+
+	/**
+	 * Writes the pending messages onto the channel until either all messages have been written or the channel is not capable of accepting more bytes
+	 * without blocking or the upload limiters have run out of tokens. {@link org.johnnei.javatorrent.bittorrent.protocol.messages.MessageBlock} will be
+	 * send last.
+	 * @return <code>true</code> when all pending messages have been written, otherwise <code>false</code>.
+	 * @throws IOException When the writing onto the channel fails.
+	 * @see #enableNonBlockingMode()
+	 */
+	public boolean writeMessages() throws IOException {
+		while (true) {
+			if (writeBuffer != null) {
+				int writtenBytes = writeLimited();
+				if (writtenBytes > 0) {
+					channelUploadRate += writtenBytes;
+					uploadLimiter.consume(writtenBytes);
+					lastActivity = LocalDateTime.now(clock);
+				}
+
+				if (writeBuffer.hasRemaining()) {
+					return false;
+				}
+
+				writeBuffer = null;
+				writeBatch.reset();
+			}
+
+			if (pendingRegion != null && !transferPendingRegion()) {
+				return false;
 			}
-		} else if (!blockQueue.isEmpty()) {
-			synchronized (blockQueueLock) {
-				message = blockQueue.poll();
+
+			int messageCount = fillWriteBatch();
+			if (messageCount == 0) {
+				return true;
 			}
+
+			writeBuffer = writeBatch.toByteBuffer();
+			onBatchFlushed(messageCount, writeBuffer.remaining());
 		}
+	}
 
-		if (message == null) {
-			return;
+	/**
+	 * Writes the {@link #writeBuffer} onto the {@link #channel} without exceeding the available upload tokens.
+	 * @return The amount of written bytes.
+	 */
+	private int writeLimited() throws IOException {
+		long allowedBytes = uploadLimiter.getAvailableTokens();
+		if (allowedBytes <= 0) {
+			return 0;
+		}
+
+		int limit = writeBuffer.limit();
+		if (allowedBytes < writeBuffer.remaining()) {
+			writeBuffer.limit(writeBuffer.position() + (int) allowedBytes);
+		}
+
+		try {
+			return channel.write(writeBuffer);
+		} finally {
+			writeBuffer.limit(limit);
+		}
+	}
+
+	/**
+	 * Transfers the data of the {@link #pendingRegion} directly from the files onto the {@link #channel}.
+	 * @return <code>true</code> when the entire block has been transferred.
+	 */
+	private boolean transferPendingRegion() throws IOException {
+		long allowedBytes = uploadLimiter.getAvailableTokens();
+		if (allowedBytes <= 0) {
+			return false;
+		}
+
+		int transferredBytes = pendingRegion.getPiece().transferTo(
+				pendingRegion.getOffset() + pendingRegionProgress,
+				(int) Math.min(allowedBytes, pendingRegion.getBlockLength() - pendingRegionProgress),
+				channel);
+
+		if (transferredBytes > 0) {
+			pendingRegionProgress += transferredBytes;
+			channelUploadRate += transferredBytes;
+			uploadLimiter.consume(transferredBytes);
+			lastActivity = LocalDateTime.now(clock);
+		}
+
+		if (pendingRegionProgress < pendingRegion.getBlockLength()) {
+			return false;
+		}
+
+		MessageBlockRegion region = pendingRegion;
+		pendingRegion = null;
+		region.onTransferred();
+		return true;
+	}
+
+	/**
+	 * Serializes pending messages into the {@link #writeBatch} until the batch is full or no more messages are pending. When in non-blocking mode the
+	 * batch will end at the header of a {@link MessageBlockRegion}, the data of that block is transferred after the batch has been written.
+	 * @return The amount of messages added to the batch.
+	 */
+	private int fillWriteBatch() {
+		int messageCount = 0;
+		while (writeBatch.size() < WRITE_BATCH_SIZE) {
+			IMessage message = pollMessage();
+			if (message == null) {
+				break;
+			}
+
+			LOGGER.trace("Writing message {}", message);
+			messageCount++;
+
+			if (channel != null && message instanceof MessageBlockRegion) {
+				pendingRegion = (MessageBlockRegion) message;
+				pendingRegionProgress = 0;
+				pendingRegion.writeHeader(writeBatch);
+				flushedByteCount += pendingRegion.getBlockLength();
+				break;
+			}
+
+			serialize(message, writeBatch);
+			if (message instanceof MessageBlockRegion) {
+				((MessageBlockRegion) message).onTransferred();
+			}
+		}
+
+		return messageCount;
+	}
+
+	private void onBatchFlushed(int messageCount, int byteCount) {
+		flushCount++;
+		flushedMessageCount += messageCount;
+		flushedByteCount += byteCount;
+		LOGGER.trace("Coalesced {} messages ({} bytes) into a single write.", messageCount, byteCount);
+	}
+
+	private IMessage pollMessage() {
+		IMessage message = messageQueue.poll();
+		if (message != null) {
+			return message;
 		}
 
-		LOGGER.trace("Writing message {}", message);
+		return blockQueue.poll();
+	}
 
-		OutStream outBuffer = new OutStream(message.getLength() + 4);
+	private static void serialize(IMessage message, OutStream outBuffer) {
 		outBuffer.writeInt(message.getLength());
 
 		if (message.getLength() > 0) {
 			outBuffer.writeByte(message.getId());
 			message.write(outBuffer);
 		}
-
-		outStream.write(outBuffer.toByteArray());
-		outStream.flush();
-		lastActivity = LocalDateTime.now(clock);
 	}
 
 	/**
@@ -225,6 +581,14 @@ public class BitTorrentSocket {
 
 		LOGGER.debug("Writing handshake", socket);
 
+		if (channel != null) {
+			// The handshake precedes all messages, the part which can't be written right away is written by the next write.
+			writeHandshake(writeBatch, extensionBytes, peerId, torrentHash);
+			writeBuffer = writeBatch.toByteBuffer();
+			writeMessages();
+			return;
+		}
+
 		outStream.writeByte(0x13);
 		outStream.writeString("BitTorrent protocol");
 		outStream.write(extensionBytes);
@@ -233,6 +597,65 @@ public class BitTorrentSocket {
 		outStream.flush();
 	}
 
+	private static void writeHandshake(OutStream outStream, byte[] extensionBytes, byte[] peerId, byte[] torrentHash) {
+		outStream.writeByte(0x13);
+		outStream.writeString("BitTorrent protocol");
+		outStream.write(extensionBytes);
+		outStream.write(torrentHash);
+		outStream.write(peerId);
+	}
+
+	/**
+	 * Reads the bytes of the handshake which are available without blocking. In contrast to {@link #readHandshake()} this method can be called
+	 * repeatedly until the complete handshake has been received. When in non-blocking mode, a partially written handshake is continued first.
+	 *
+	 * @return The handshake when all bytes have been received, otherwise {@link Optional#empty()}.
+	 * @throws IOException When either an io error occurs, the remote end has closed the connection or the received bytes are not a BitTorrent handshake.
+	 */
+	public Optional<BitTorrentHandshake> pollHandshake() throws IOException {
+		if (passedHandshake) {
+			throw new IllegalStateException("Handshake has already been completed.");
+		}
+
+		if (handshakeBuffer == null) {
+			handshakeBuffer = ByteBuffer.allocate(HANDSHAKE_SIZE);
+		}
+
+		if (channel != null) {
+			if (writeBuffer != null) {
+				writeMessages();
+			}
+
+			if (channel.read(handshakeBuffer) < 0) {
+				throw new EOFException("Remote end has closed the connection.");
+			}
+		} else {
+			int length = Math.min(handshakeBuffer.remaining(), inStream.available());
+			inStream.readByteArray(handshakeBuffer.array(), handshakeBuffer.position(), length);
+			handshakeBuffer.position(handshakeBuffer.position() + length);
+		}
+
+		if (handshakeBuffer.position() >= 20) {
+			InStream protocol = new InStream(handshakeBuffer.array(), 0, 20);
+			if (protocol.readByte() != 0x13 || !"BitTorrent protocol".equals(protocol.readString(0x13))) {
+				throw new IOException("Protocol handshake failed");
+			}
+		}
+
+		if (handshakeBuffer.hasRemaining()) {
+			return Optional.empty();
+		}
+
+		InStream stream = new InStream(handshakeBuffer.array(), 20, HANDSHAKE_SIZE - 20);
+		byte[] extensionBytes = stream.readFully(8);
+		byte[] torrentHash = stream.readFully(20);
+		byte[] peerId = stream.readFully(20);
+		handshakeBuffer = null;
+		lastActivity = LocalDateTime.now(clock);
+
+		return Optional.of(new BitTorrentHandshake(torrentHash, extensionBytes, peerId));
+	}
+
 	/**
 	 * Reads the handshake information from the peer
 	 *
@@ -262,10 +685,23 @@ public class BitTorrentSocket {
 		byte[] torrentHash = inStream.readByteArray(20);
 		byte[] peerId = inStream.readByteArray(20);
 
+		Optional<SocketChannel> socketChannel = socket.getChannel();
+		if (socketChannel.isPresent()) {
+			// Peers may be silent for a long time, only the handshake is bound to a timeout.
+			socketChannel.get().socket().setSoTimeout(0);
+		}
+
 		return new BitTorrentHandshake(torrentHash, extensionBytes, peerId);
 	}
 
 	private void awaitHandshake() throws IOException {
+		Optional<SocketChannel> socketChannel = socket.getChannel();
+		if (socketChannel.isPresent()) {
+			// Streams of channels don't report their available bytes on all JVMs, rely on the read timeout instead.
+			socketChannel.get().socket().setSoTimeout(HANDSHAKE_TIMEOUT);
+			return;
+		}
+
 		LocalDateTime startTime = LocalDateTime.now(clock);
 
 		while (Duration.between(startTime, LocalDateTime.now(clock)).minusSeconds(5).isNegative() && inStream.available() < HANDSHAKE_SIZE) {
@@ -294,20 +730,35 @@ public class BitTorrentSocket {
 		if (outStream != null) {
 			uploadRate = outStream.pollSpeed();
 		}
+		if (channel != null) {
+			downloadRate += channelDownloadRate;
+			channelDownloadRate = 0;
+			uploadRate += channelUploadRate;
+			channelUploadRate = 0;
+		}
 	}
 
 	/**
 	 * Closes the connection with the socket
 	 */
 	public void close() {
-		if (socket.isClosed()) {
-			return;
+		// Close the socket first to release a thread which is blocked in awaitMessage while holding the read buffer.
+		if (!socket.isClosed()) {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				LOGGER.warn("Failed to close socket.", e);
+			}
 		}
 
+		readBufferLock.lock();
 		try {
-			socket.close();
-		} catch (IOException e) {
-			LOGGER.warn("Failed to close socket.", e);
+			if (readBuffer != null) {
+				bufferPool.release(readBuffer);
+				readBuffer = null;
+			}
+		} finally {
+			readBufferLock.unlock();
 		}
 	}
 
@@ -317,33 +768,208 @@ public class BitTorrentSocket {
 	 * @throws IOException When an IO error occurs during the buffering.
 	 */
 	public boolean canReadMessage() throws IOException {
-		if (buffer == null) {
+		readBufferLock.lock();
+		try {
+			if (readBuffer == null) {
+				if (closed()) {
+					return false;
+				}
+
+				readBuffer = bufferPool.acquire();
+				readOffset = 0;
+			}
+
+			if (hasBufferedFrame()) {
+				return true;
+			}
+
+			prepareReadBuffer();
+			if (channel != null) {
+				readFromChannel();
+			} else {
+				readFromStream();
+			}
+
+			return hasBufferedFrame();
+		} finally {
+			readBufferLock.unlock();
+		}
+	}
+
+	/**
+	 * Reads the next message, blocking until it has been received completely. This is intended for sockets which are processed by a dedicated
+	 * thread and can only be used while the socket is in blocking mode. The download limiters are honoured by waiting for them to be refilled.
+	 * @return The received message.
+	 * @throws IOException When an IO error occurs or the socket has been closed.
+	 * @throws IllegalStateException When the socket is in non-blocking mode.
+	 */
+	public IMessage awaitMessage() throws IOException {
+		if (channel != null) {
+			throw new IllegalStateException("Messages can not be awaited in non-blocking mode.");
+		}
+
+		readBufferLock.lock();
+		try {
+			if (readBuffer == null) {
+				if (closed()) {
+					throw new EOFException("Socket has been closed.");
+				}
+
+				readBuffer = bufferPool.acquire();
+				readOffset = 0;
+			}
+
+			while (!hasBufferedFrame()) {
+				prepareReadBuffer();
+				awaitDownloadTokens();
+
+				if (readBuffer.position() < 4) {
+					if (readBuffer.position() == 0) {
+						lastBufferCreate = LocalDateTime.now(clock);
+					}
+					readFromStream(4 - readBuffer.position());
+				} else {
+					int remainingBytes = readBuffer.getInt(0) + 4 - readBuffer.position();
+					readFromStream((int) Math.min(remainingBytes, downloadLimiter.getAvailableTokens()));
+				}
+
+				lastActivity = LocalDateTime.now(clock);
+			}
+
+			return readMessage();
+		} finally {
+			readBufferLock.unlock();
+		}
+	}
+
+	private void awaitDownloadTokens() throws IOException {
+		while (isDownloadThrottled()) {
+			if (closed()) {
+				throw new EOFException("Socket has been closed.");
+			}
+
+			LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(THROTTLE_WAIT));
+		}
+	}
+
+	private void readFromChannel() throws IOException {
+		long allowedBytes = downloadLimiter.getAvailableTokens();
+		if (allowedBytes <= 0) {
+			return;
+		}
+
+		int limit = readBuffer.limit();
+		if (allowedBytes < readBuffer.remaining()) {
+			readBuffer.limit(readBuffer.position() + (int) allowedBytes);
+		}
+
+		int readBytes;
+		try {
+			readBytes = channel.read(readBuffer);
+		} finally {
+			readBuffer.limit(limit);
+		}
+
+		if (readBytes < 0) {
+			throw new EOFException("Remote end has closed the connection.");
+		}
+
+		if (readBytes > 0) {
+			downloadLimiter.consume(readBytes);
+			if (readBuffer.position() == readBytes) {
+				lastBufferCreate = LocalDateTime.now(clock);
+			}
+			channelDownloadRate += readBytes;
+			lastActivity = LocalDateTime.now(clock);
+		}
+	}
+
+	/**
+	 * Reads the available bytes of the next message from the stream. In contrast to the channel, the stream is never read beyond the current message.
+	 * This keeps the bytes of the next message available for {@link #enableNonBlockingMode()} and the stream based availability checks.
+	 */
+	private void readFromStream() throws IOException {
+		long allowedBytes = downloadLimiter.getAvailableTokens();
+		if (allowedBytes <= 0) {
+			return;
+		}
+
+		if (readBuffer.position() < 4) {
 			if (inStream.available() < 4) {
-				return false;
+				return;
 			}
 
 			lastBufferCreate = LocalDateTime.now(clock);
-			int length = inStream.readInt();
-			buffer = new OutStream(length + 4);
-			bufferSize = length + 4;
-			buffer.writeInt(length);
+			readFromStream(4);
+			prepareReadBuffer();
 		}
 
-		int remainingBytes = bufferSize - buffer.size();
+		int remainingBytes = readBuffer.getInt(0) + 4 - readBuffer.position();
 		if (remainingBytes == 0) {
-			return true;
+			return;
 		}
 
-		int availableBytes = Math.min(remainingBytes, inStream.available());
-		buffer.write(inStream.readByteArray(availableBytes));
+		readFromStream((int) Math.min(allowedBytes, Math.min(remainingBytes, inStream.available())));
 		lastActivity = LocalDateTime.now(clock);
+	}
 
-		return bufferSize - buffer.size() == 0;
+	private void readFromStream(int length) throws IOException {
+		inStream.readByteArray(readBuffer.array(), readBuffer.arrayOffset() + readBuffer.position(), length);
+		readBuffer.position(readBuffer.position() + length);
+		downloadLimiter.consume(length);
+	}
+
+	private boolean hasBufferedFrame() {
+		int bufferedBytes = readBuffer.position() - readOffset;
+		return bufferedBytes >= 4 && bufferedBytes - 4 >= readBuffer.getInt(readOffset);
+	}
+
+	/**
+	 * Moves the unconsumed bytes to the start of the {@link #readBuffer} and resizes the buffer when the next message won't fit or after a large
+	 * message has been consumed.
+	 */
+	private void prepareReadBuffer() throws IOException {
+		if (readOffset > 0) {
+			readBuffer.limit(readBuffer.position());
+			readBuffer.position(readOffset);
+			readBuffer.compact();
+			readOffset = 0;
+		}
+
+		if (readBuffer.position() == 0 && readBuffer.capacity() != bufferPool.getBufferSize()) {
+			// The large message has been consumed, continue on a regular buffer.
+			readBuffer = bufferPool.acquire();
+		}
+
+		if (readBuffer.position() < 4) {
+			return;
+		}
+
+		int length = readBuffer.getInt(0);
+		if (length < 0) {
+			throw new IOException(String.format("Received message with negative length: %d", length));
+		}
+
+		if (length + 4 > readBuffer.capacity()) {
+			ByteBuffer largerBuffer = ByteBuffer.allocate(length + 4);
+			readBuffer.flip();
+			largerBuffer.put(readBuffer);
+			bufferPool.release(readBuffer);
+			readBuffer = largerBuffer;
+		}
 	}
 
 	private InStream getBufferedMessage() {
-		InStream bufferedStream = new InStream(buffer.toByteArray(), getBufferLifetime());
-		buffer = null;
+		int frameSize = readBuffer.getInt(readOffset) + 4;
+
+		// The message gets read before new bytes are buffered, therefore it can safely read from a view on the buffer.
+		InStream bufferedStream = new InStream(readBuffer.array(), readBuffer.arrayOffset() + readOffset, frameSize, getBufferLifetime());
+		readOffset += frameSize;
+
+		if (readBuffer.position() > readOffset) {
+			// The next message has already started arriving.
+			lastBufferCreate = LocalDateTime.now(clock);
+		}
 		return bufferedStream;
 	}
 
@@ -410,7 +1036,7 @@ public class BitTorrentSocket {
 	 */
 	public boolean hasOutboundMessages() {
 		LOGGER.trace("Pending outbound messages [{}] blocks [{}]", messageQueue.size(), blockQueue.size());
-		return !messageQueue.isEmpty() || !blockQueue.isEmpty();
+		return !messageQueue.isEmpty() || !blockQueue.isEmpty() || writeBuffer != null || pendingRegion != null;
 	}
 
 	/**
@@ -440,4 +1066,29 @@ public class BitTorrentSocket {
 	public LocalDateTime getLastActivity() {
 		return lastActivity;
 	}
+
+	/**
+	 * Gets the amount of batches which have been written. Each batch is written to the socket with a single flush.
+	 * @return The amount of written batches.
+	 */
+	public long getFlushCount() {
+		return flushCount;
+	}
+
+	/**
+	 * Gets the amount of messages which have been written. Together with {@link #getFlushCount()} this shows how many messages are coalesced per flush.
+	 * @return The amount of written messages.
+	 */
+	public long getFlushedMessageCount() {
+		return flushedMessageCount;
+	}
+
+	/**
+	 * Gets the amount of bytes which have been written in batches. Together with {@link #getFlushCount()} this shows how many bytes are coalesced per
+	 * flush.
+	 * @return The amount of written bytes excluding the handshake.
+	 */
+	public long getFlushedByteCount() {
+		return flushedByteCount;
+	}
 }
@@ -3,6 +3,8 @@ package org.johnnei.javatorrent.network;
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 
 import org.johnnei.javatorrent.internal.utils.CheckedRunnable;
@@ -14,7 +16,7 @@ public class OutStream {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(OutStream.class);
 
-	private ByteArrayOutputStream buffer;
+	private ExposedByteArrayOutputStream buffer;
 	private DataOutputStream out;
 
 	public OutStream() {
@@ -22,7 +24,7 @@ public class OutStream {
 	}
 
 	public OutStream(int size) {
-		buffer = new ByteArrayOutputStream(size);
+		buffer = new ExposedByteArrayOutputStream(size);
 		out = new DataOutputStream(buffer);
 	}
 
@@ -66,6 +68,30 @@ public class OutStream {
 		return buffer.toByteArray();
 	}
 
+	/**
+	 * Creates a view on the written bytes without copying them. The view is only valid until the next write or {@link #reset()}.
+	 * @return The buffer containing the written bytes.
+	 */
+	public ByteBuffer toByteBuffer() {
+		return buffer.wrap();
+	}
+
+	/**
+	 * Writes the written bytes onto the given stream without creating an intermediate copy.
+	 * @param outputStream The stream to write to.
+	 * @throws IOException When the given stream fails to write.
+	 */
+	public void writeTo(OutputStream outputStream) throws IOException {
+		buffer.writeTo(outputStream);
+	}
+
+	/**
+	 * Discards all written bytes. The allocated capacity is kept to allow the stream to be re-used.
+	 */
+	public void reset() {
+		buffer.reset();
+	}
+
 	private void writeUnchecked(CheckedRunnable<IOException> writeCall) {
 		try {
 			writeCall.run();
@@ -75,4 +101,16 @@ public class OutStream {
 		}
 	}
 
+	private static final class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+
+		ExposedByteArrayOutputStream(int size) {
+			super(size);
+		}
+
+		ByteBuffer wrap() {
+			return ByteBuffer.wrap(buf, 0, count);
+		}
+
+	}
+
 }
@@ -0,0 +1,24 @@
+package org.johnnei.javatorrent.network;
+
+/**
+ * The strategies which can be used to process the reading and writing of messages of connected peers.
+ */
+public enum PeerIoMode {
+
+	/**
+	 * All peers are visited in a loop which pauses for a few milliseconds between each pass. Every pass will write and read at most one message per peer.
+	 */
+	Polling,
+	/**
+	 * Peers which are backed by a {@link java.nio.channels.SocketChannel} are driven by a {@link java.nio.channels.Selector}. The peer will only be
+	 * processed when the socket is ready. Peers which are only accessible through streams (ex. uTP) will be polled by the same thread.
+	 */
+	Selector,
+	/**
+	 * Every peer is processed by a reader and a writer thread which block on the socket streams, handshakes are executed on their own thread as well.
+	 * This mode is intended for Java 21 and later on which virtual threads are used. On older JVMs platform threads are used which limits the amount
+	 * of peers which can be handled.
+	 */
+	VirtualThread
+
+}
@@ -1,7 +1,9 @@
 package org.johnnei.javatorrent.network;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
+import java.nio.channels.ServerSocketChannel;
 
 import org.johnnei.javatorrent.TorrentClient;
 import org.johnnei.javatorrent.network.socket.ISocket;
@@ -22,6 +24,13 @@ public class TcpPeerConnectionAcceptor extends AbstractPeerConnectionAcceptor {
 	}
 
 	ServerSocket createServerSocket() throws IOException {
+		if (torrentClient.getPeerIoMode() == PeerIoMode.Selector) {
+			// Sockets accepted by a channel backed server socket are backed by a channel as well.
+			ServerSocket channelSocket = ServerSocketChannel.open().socket();
+			channelSocket.bind(new InetSocketAddress(torrentClient.getDownloadPort()));
+			return channelSocket;
+		}
+
 		return new ServerSocket(torrentClient.getDownloadPort());
 	}
 
@@ -0,0 +1,155 @@
+package org.johnnei.javatorrent.network;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket which limits the amount of bytes which can be transferred per second. Buckets can be chained to form a hierarchy (ex. global,
+ * torrent, peer) in which a transfer is only allowed when every bucket in the chain has tokens left.
+ * <p>
+ * Transfers are allowed as long as there is at least one token available, the transferred amount is consumed afterwards and may leave the bucket
+ * in debt. This allows messages to be written as a whole while the average rate is still honoured. Tokens are refilled lazily whenever the bucket
+ * is consulted, without allocating.
+ * </p>
+ */
+public class TokenBucket {
+
+	private final TokenBucket parent;
+
+	private final Clock clock;
+
+	/**
+	 * The maximum amount of bytes per second. Zero or less means unlimited.
+	 */
+	private volatile int rate;
+
+	private final AtomicLong tokens;
+
+	/**
+	 * The time in milliseconds up to which the tokens have been added.
+	 */
+	private final AtomicLong lastRefill;
+
+	/**
+	 * Creates a new bucket without a parent.
+	 * @param rate The maximum amount of bytes per second, zero or less for unlimited.
+	 */
+	public TokenBucket(int rate) {
+		this(rate, null);
+	}
+
+	/**
+	 * Creates a new bucket which is limited by the given parent as well.
+	 * @param rate The maximum amount of bytes per second, zero or less for unlimited.
+	 * @param parent The bucket which must also allow the transfer or <code>null</code>.
+	 */
+	public TokenBucket(int rate, TokenBucket parent) {
+		this(rate, parent, Clock.systemDefaultZone());
+	}
+
+	TokenBucket(int rate, TokenBucket parent, Clock clock) {
+		this.parent = parent;
+		this.clock = clock;
+		this.rate = rate;
+		tokens = new AtomicLong(Math.max(0, rate));
+		lastRefill = new AtomicLong(clock.millis());
+	}
+
+	/**
+	 * Gets the amount of bytes which may be transferred right now according to this bucket and all of its parents.
+	 * @return The amount of available tokens, {@link Long#MAX_VALUE} when unlimited. The value is zero or negative when the transfer must wait.
+	 */
+	public long getAvailableTokens() {
+		long available = Long.MAX_VALUE;
+		int currentRate = rate;
+		if (currentRate > 0) {
+			refill(currentRate);
+			available = tokens.get();
+		}
+
+		if (parent == null || available <= 0) {
+			return available;
+		}
+
+		return Math.min(available, parent.getAvailableTokens());
+	}
+
+	/**
+	 * Checks if a transfer is allowed right now.
+	 * @return <code>true</code> when this bucket and all of its parents have at least one token left.
+	 */
+	public boolean hasTokens() {
+		return getAvailableTokens() > 0;
+	}
+
+	/**
+	 * Removes the given amount of tokens from this bucket and all of its parents.
+	 * @param amount The amount of bytes which have been transferred.
+	 */
+	public void consume(long amount) {
+		if (rate > 0) {
+			tokens.addAndGet(-amount);
+		}
+
+		if (parent != null) {
+			parent.consume(amount);
+		}
+	}
+
+	/**
+	 * Changes the maximum rate of this bucket. The change takes effect immediately.
+	 * @param rate The maximum amount of bytes per second, zero or less for unlimited.
+	 */
+	public void setRate(int rate) {
+		int previousRate = this.rate;
+		if (previousRate <= 0 && rate > 0) {
+			// Start with a full bucket, the tokens have not been maintained while unlimited.
+			tokens.set(rate);
+			lastRefill.set(clock.millis());
+		}
+
+		this.rate = rate;
+		if (rate > 0) {
+			tokens.accumulateAndGet(rate, Math::min);
+		}
+	}
+
+	/**
+	 * @return The maximum amount of bytes per second, zero or less when unlimited.
+	 */
+	public int getRate() {
+		return rate;
+	}
+
+	private void refill(int currentRate) {
+		long now = clock.millis();
+		long last = lastRefill.get();
+		// Clamp the elapsed time to not overflow, a bucket idle for that long is full regardless of its debt.
+		long elapsed = Math.min(now - last, Long.MAX_VALUE / currentRate);
+		// The full elapsed time counts so that the debt of large transfers gets repaid, the bucket is capped at a second worth of tokens below.
+		long newTokens = elapsed * currentRate / 1000;
+		// Only advance the time for the whole tokens which have been added so that slow rates don't lose the remainder.
+		long refilledUntil = last + (newTokens * 1000) / currentRate;
+
+		if (newTokens <= 0) {
+			return;
+		}
+
+		if (!lastRefill.compareAndSet(last, refilledUntil)) {
+			// Another thread has refilled the bucket for this period.
+			return;
+		}
+
+		long current;
+		long updated;
+		do {
+			current = tokens.get();
+			updated = Math.min(currentRate, current + newTokens);
+		} while (updated > current && !tokens.compareAndSet(current, updated));
+	}
+
+	@Override
+	public String toString() {
+		return String.format("TokenBucket[rate=%d, tokens=%d]", rate, tokens.get());
+	}
+}
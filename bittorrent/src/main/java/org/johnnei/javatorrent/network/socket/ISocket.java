@@ -4,6 +4,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.Optional;
 
 /**
  * A socket facade to get multiple socket protocols work on the some functions<br>
@@ -62,4 +64,12 @@ public interface ISocket extends AutoCloseable {
 	 */
 	void flush() throws IOException;
 
+	/**
+	 * Gets the channel which backs this socket. Sockets which are backed by a channel can be driven by a {@link java.nio.channels.Selector}.
+	 * @return The channel or {@link Optional#empty()} when this socket can only be accessed through its streams.
+	 */
+	default Optional<SocketChannel> getChannel() {
+		return Optional.empty();
+	}
+
 }
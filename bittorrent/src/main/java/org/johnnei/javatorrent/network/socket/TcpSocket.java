@@ -3,9 +3,12 @@ package org.johnnei.javatorrent.network.socket;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.channels.SocketChannel;
 import java.util.Objects;
+import java.util.Optional;
 
 /**
  * A Socket implementation which utilizes TCP to connect the two endpoints.
@@ -21,6 +24,21 @@ public class TcpSocket implements ISocket {
 		socket = new Socket();
 	}
 
+	/**
+	 * Creates a new unconnected socket which is backed by a {@link SocketChannel}. These sockets can be processed by
+	 * {@link org.johnnei.javatorrent.network.PeerIoMode#Selector}. This method can be used as supplier in
+	 * {@link org.johnnei.javatorrent.network.ConnectionDegradation.Builder}.
+	 * @return The newly created socket.
+	 * @throws UncheckedIOException When the channel can not be opened.
+	 */
+	public static TcpSocket openChannel() {
+		try {
+			return new TcpSocket(SocketChannel.open());
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to open socket channel.", e);
+		}
+	}
+
 	/**
 	 * Creates a TcpSocket on a pre-connected socket
 	 *
@@ -30,6 +48,15 @@ public class TcpSocket implements ISocket {
 		this.socket = socket;
 	}
 
+	/**
+	 * Creates a TcpSocket on a socket channel. The channel can either be connected or unconnected.
+	 *
+	 * @param channel The underlying TCP channel
+	 */
+	public TcpSocket(SocketChannel channel) {
+		this(channel.socket());
+	}
+
 	@Override
 	public void connect(InetSocketAddress endpoint) throws IOException {
 		socket.connect(endpoint, 10_000);
@@ -75,6 +102,11 @@ public class TcpSocket implements ISocket {
 		socket.getOutputStream().flush();
 	}
 
+	@Override
+	public Optional<SocketChannel> getChannel() {
+		return Optional.ofNullable(socket.getChannel());
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) {
@@ -47,11 +47,16 @@ public class PhaseData implements IDownloadPhase {
 
 	@Override
 	public boolean isDone() {
-		return torrent.getFileSet().isDone();
+		return !torrent.isRechecking() && torrent.getFileSet().isDone();
 	}
 
 	@Override
 	public void process() {
+		if (torrent.isRechecking()) {
+			// Pieces which haven't been checked yet might already be on disk, only the verified pieces are shared until the recheck completes.
+			return;
+		}
+
 		getRelevantPeers(torrent.getPeers()).forEach(peer -> {
 			while (peer.getFreeWorkTime() > 0) {
 				Optional<Piece> piece = torrent.getPieceSelector().getPieceForPeer(peer);
@@ -79,7 +84,7 @@ public class PhaseData implements IDownloadPhase {
 
 	@Override
 	public void onPhaseEnter() {
-		torrent.checkProgress();
+		torrent.startRecheck();
 		torrent.setPieceSelector(new FullPieceSelect(torrent));
 		File downloadFolder = torrent.getFileSet().getDownloadFolder();
 
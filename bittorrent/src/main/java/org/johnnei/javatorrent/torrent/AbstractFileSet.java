@@ -5,7 +5,9 @@ import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.stream.Stream;
 
+import org.johnnei.javatorrent.internal.torrent.FileSpanIndex;
 import org.johnnei.javatorrent.torrent.files.BlockStatus;
+import org.johnnei.javatorrent.torrent.files.FileSetProgress;
 import org.johnnei.javatorrent.torrent.files.IFileSetRequestFactory;
 import org.johnnei.javatorrent.torrent.files.Piece;
 import org.johnnei.javatorrent.utils.Argument;
@@ -28,8 +30,24 @@ public abstract class AbstractFileSet {
 	 */
 	private final int blockSize;
 
+	/**
+	 * The progress counters which are maintained by the pieces of this {@link AbstractFileSet}.
+	 */
+	private final FileSetProgress progress;
+
+	/**
+	 * The sum of the sizes of all pieces. Lazily calculated as the pieces are created by the implementations.
+	 */
+	private volatile long totalPieceSize = -1;
+
+	/**
+	 * The index to find the files of a section of a piece. Lazily created as the files are created by the implementations.
+	 */
+	private volatile FileSpanIndex fileSpanIndex;
+
 	public AbstractFileSet(int blockSize) {
 		this.blockSize = blockSize;
+		this.progress = new FileSetProgress();
 	}
 
 	/**
@@ -69,15 +87,31 @@ public abstract class AbstractFileSet {
 		validateGetFileForBytes(pieceIndex, blockIndex, byteOffset);
 		long bytesStartPosition = (pieceIndex * getPieceSize()) + (blockIndex * getBlockSize()) + byteOffset;
 
-		// Iterate in reverse order so that first file having a smaller first byte offset will be the file containing this section.
-		for (int i = fileInfos.size() - 1; i >= 0; i--) {
-			FileInfo fileInfo = fileInfos.get(i);
-			if (fileInfo.getFirstByteOffset() <= bytesStartPosition) {
-				return fileInfo;
-			}
+		return getFileSpanIndex().getFile(bytesStartPosition);
+	}
+
+	/**
+	 * Gets the sections of the files which are covered by the given section of a piece.
+	 *
+	 * @param pieceIndex The piece index
+	 * @param offset The offset within the piece
+	 * @param length The amount of bytes
+	 * @return The segments of the files in order of their position within the section.
+	 * @throws IllegalArgumentException When the section is outside of this fileset.
+	 */
+	public List<FileSegment> getFileSegments(int pieceIndex, int offset, int length) {
+		Argument.requireWithinBounds(pieceIndex, 0, pieces.size(), () -> String.format("Piece %d is not within the file set.", pieceIndex));
+		Argument.requirePositive(offset, "Offset cannot be negative.");
+
+		return getFileSpanIndex().getSegments(pieceIndex * getPieceSize() + offset, length);
+	}
+
+	private FileSpanIndex getFileSpanIndex() {
+		if (fileSpanIndex == null) {
+			fileSpanIndex = new FileSpanIndex(fileInfos);
 		}
 
-		throw new IllegalArgumentException("Piece is not within fileset.");
+		return fileSpanIndex;
 	}
 
 	private void validateGetFileForBytes(int pieceIndex, int blockIndex, int byteOffset) {
@@ -132,16 +166,16 @@ public abstract class AbstractFileSet {
 	 * @return <code>true</code> when all pieces are done an verified, otherwise <code>false</code>
 	 */
 	public boolean isDone() {
-		return pieces.stream().allMatch(Piece::isDone);
+		return progress.getCompletedPieceCount() == pieces.size();
 	}
 
 	/**
-	 * Creates a stream with only the pieces which are not done
+	 * Creates a stream with only the pieces which are not done. The done pieces are skipped without visiting them.
 	 *
 	 * @return A stream with pieces which need to be downloaded
 	 */
 	public Stream<Piece> getNeededPieces() {
-		return pieces.stream().filter(p -> !p.isDone());
+		return progress.getNeededPieces(pieces.size()).stream().mapToObj(pieces::get);
 	}
 
 	/**
@@ -168,7 +202,11 @@ public abstract class AbstractFileSet {
 	 * @return The amount of bytes still needed to be downloaded
 	 */
 	public long countRemainingBytes() {
-		return pieces.stream().mapToLong(Piece::countRemainingBytes).sum();
+		if (totalPieceSize < 0) {
+			totalPieceSize = pieces.stream().mapToLong(Piece::getSize).sum();
+		}
+
+		return totalPieceSize - progress.getVerifiedBytes();
 	}
 
 	/**
@@ -177,7 +215,14 @@ public abstract class AbstractFileSet {
 	 * @return The amount of pieces still needed to be downloaded.
 	 */
 	public int countCompletedPieces() {
-		return (int) pieces.stream().filter(Piece::isDone).count();
+		return progress.getCompletedPieceCount();
+	}
+
+	/**
+	 * @return The progress counters of this {@link AbstractFileSet}, which are updated by its pieces.
+	 */
+	public FileSetProgress getProgress() {
+		return progress;
 	}
 
 	/**
@@ -4,7 +4,14 @@ import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 
+import org.johnnei.javatorrent.disk.ChannelFileStorage;
+import org.johnnei.javatorrent.disk.IFileHandlePool;
+import org.johnnei.javatorrent.disk.IFileStorage;
+import org.johnnei.javatorrent.disk.IFileStorageFactory;
+import org.johnnei.javatorrent.internal.disk.FileHandlePool;
+import org.johnnei.javatorrent.internal.disk.PooledFileStorage;
 import org.johnnei.javatorrent.torrent.fileset.FileEntry;
+import org.johnnei.javatorrent.utils.Argument;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,32 +23,59 @@ public class FileInfo {
 	private final FileEntry fileEntry;
 
 	/**
-	 * The amount of pieces which contain a part of data for this file
+	 * The file on the harddrive
 	 */
-	private int pieceCount;
+	private final File file;
 
 	/**
-	 * The link between the file on the harddrive
+	 * The amount of pieces which contain a part of data for this file
 	 */
-	private RandomAccessFile fileAccess;
+	private int pieceCount;
 
 	/**
 	 * A lock to prevent concurrent writes to a single file
+	 * @deprecated {@link org.johnnei.javatorrent.torrent.files.Piece} uses positional IO on {@link #getStorage()} which doesn't require locking.
 	 */
+	@Deprecated
 	public final Object fileLock = new Object();
 
+	/**
+	 * The storage which is used to read and write the data of this file, the file is opened on first access
+	 */
+	private IFileStorage storage;
+
 	public FileInfo(long filesize, long firstByteOffset, File file, int pieceCount) {
+		this(filesize, firstByteOffset, file, pieceCount, (channel, size) -> new ChannelFileStorage(channel));
+	}
+
+	/**
+	 * Creates a new file info of which the data is accessed through a storage created by the given factory. The file is opened through the pool which is
+	 * shared by all files which are not opened through the pool of a {@link org.johnnei.javatorrent.TorrentClient}.
+	 * @param filesize The size of the file.
+	 * @param firstByteOffset The offset of the first byte as if the entire torrent is a single file.
+	 * @param file The file on disk.
+	 * @param pieceCount The amount of pieces which contain a part of data for this file.
+	 * @param storageFactory The factory to create the storage of the file with.
+	 */
+	public FileInfo(long filesize, long firstByteOffset, File file, int pieceCount, IFileStorageFactory storageFactory) {
+		this(filesize, firstByteOffset, file, pieceCount, storageFactory, FileHandlePool.getSharedPool());
+	}
+
+	/**
+	 * Creates a new file info of which the file is opened through the given pool once it is accessed.
+	 * @param filesize The size of the file.
+	 * @param firstByteOffset The offset of the first byte as if the entire torrent is a single file.
+	 * @param file The file on disk.
+	 * @param pieceCount The amount of pieces which contain a part of data for this file.
+	 * @param storageFactory The factory to create the storage of the file with.
+	 * @param fileHandlePool The pool which limits the amount of open files.
+	 */
+	public FileInfo(long filesize, long firstByteOffset, File file, int pieceCount, IFileStorageFactory storageFactory, IFileHandlePool fileHandlePool) {
+		Argument.requireNonNull(fileHandlePool, "File handle pool can not be null.");
 		this.fileEntry = new FileEntry(file.getName(), filesize, firstByteOffset);
+		this.file = file;
 		this.pieceCount = pieceCount;
-		try {
-			if (!file.exists()) {
-				file.getParentFile().mkdirs();
-				file.createNewFile();
-			}
-			fileAccess = new RandomAccessFile(file, "rw");
-		} catch (IOException ex) {
-			LOGGER.warn("Failed to open read/write access to {}", file.getAbsolutePath(), ex);
-		}
+		storage = fileHandlePool.createStorage(file, filesize, storageFactory);
 	}
 
 	/**
@@ -80,11 +114,38 @@ public class FileInfo {
 	}
 
 	/**
-	 * Gets the handle to write/read from this file.
-	 * @return The IO handle.
+	 * Gets the location of this file on disk.
+	 * @return The file on disk.
 	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Gets the handle to write/read from this file. The file is opened when needed.
+	 * @return The IO handle or <code>null</code> when the file can't be opened or the file handle pool doesn't expose the handle.
+	 * @deprecated The handle is closed once the file handle pool evicts the file, access the file through {@link #getStorage()} instead.
+	 */
+	@Deprecated
 	public RandomAccessFile getFileAccess() {
-		return fileAccess;
+		if (!(storage instanceof PooledFileStorage)) {
+			return null;
+		}
+
+		try {
+			return ((PooledFileStorage) storage).getFileAccess();
+		} catch (IOException e) {
+			LOGGER.warn("Failed to open read/write access to {}", file.getAbsolutePath(), e);
+			return null;
+		}
+	}
+
+	/**
+	 * Gets the storage through which the data of this file is read and written.
+	 * @return The storage of this file.
+	 */
+	public IFileStorage getStorage() {
+		return storage;
 	}
 
 	@Override
@@ -0,0 +1,64 @@
+package org.johnnei.javatorrent.torrent;
+
+/**
+ * A continuous section of a single file which is covered by a range of bytes within a {@link AbstractFileSet}.
+ *
+ * @see AbstractFileSet#getFileSegments(int, int, int)
+ */
+public class FileSegment {
+
+	private final FileInfo file;
+
+	private final long offsetInFile;
+
+	private final int dataOffset;
+
+	private final int length;
+
+	/**
+	 * Creates a new segment.
+	 * @param file The file which contains the segment.
+	 * @param offsetInFile The offset of the first byte of the segment within the file.
+	 * @param dataOffset The offset of the first byte of the segment within the requested range.
+	 * @param length The amount of bytes in the segment.
+	 */
+	public FileSegment(FileInfo file, long offsetInFile, int dataOffset, int length) {
+		this.file = file;
+		this.offsetInFile = offsetInFile;
+		this.dataOffset = dataOffset;
+		this.length = length;
+	}
+
+	/**
+	 * @return The file which contains this segment.
+	 */
+	public FileInfo getFile() {
+		return file;
+	}
+
+	/**
+	 * @return The offset of the first byte of this segment within the file.
+	 */
+	public long getOffsetInFile() {
+		return offsetInFile;
+	}
+
+	/**
+	 * @return The offset of the first byte of this segment within the requested range.
+	 */
+	public int getDataOffset() {
+		return dataOffset;
+	}
+
+	/**
+	 * @return The amount of bytes in this segment.
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("FileSegment[file=%s, offsetInFile=%d, dataOffset=%d, length=%d]", file, offsetInFile, dataOffset, length);
+	}
+}
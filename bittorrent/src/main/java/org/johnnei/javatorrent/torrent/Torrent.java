@@ -4,8 +4,13 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import org.johnnei.javatorrent.TorrentClient;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.IMessage;
@@ -13,8 +18,15 @@ import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageBitfield;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageHave;
 import org.johnnei.javatorrent.disk.DiskJobCheckHash;
 import org.johnnei.javatorrent.disk.DiskJobWriteBlock;
+import org.johnnei.javatorrent.disk.DiskJobWritePiece;
 import org.johnnei.javatorrent.disk.IDiskJob;
+import org.johnnei.javatorrent.internal.disk.PieceCache;
+import org.johnnei.javatorrent.internal.disk.PieceReadCache;
+import org.johnnei.javatorrent.internal.torrent.PieceAvailability;
+import org.johnnei.javatorrent.internal.torrent.PieceRecheck;
+import org.johnnei.javatorrent.internal.torrent.ResumeData;
 import org.johnnei.javatorrent.module.IModule;
+import org.johnnei.javatorrent.network.TokenBucket;
 import org.johnnei.javatorrent.torrent.algos.pieceselector.FullPieceSelect;
 import org.johnnei.javatorrent.torrent.algos.pieceselector.IPieceSelector;
 import org.johnnei.javatorrent.torrent.algos.requests.IRequestLimiter;
@@ -45,6 +57,11 @@ public class Torrent {
 	 */
 	private TorrentFileSet fileSet;
 
+	/**
+	 * The availability of the pieces of the {@link #fileSet} over the peers.
+	 */
+	private volatile PieceAvailability pieceAvailability;
+
 	/**
 	 * Contains the information about the metadata backing this torrent.
 	 */
@@ -69,6 +86,41 @@ public class Torrent {
 	 */
 	private TorrentClient torrentClient;
 
+	/**
+	 * Limits the download rate of all peers of this torrent.
+	 */
+	private final TokenBucket downloadLimiter;
+
+	/**
+	 * Limits the upload rate of all peers of this torrent.
+	 */
+	private final TokenBucket uploadLimiter;
+
+	/**
+	 * The cache which keeps received blocks in memory until their piece is complete
+	 */
+	private final PieceCache pieceCache;
+
+	/**
+	 * The cache which keeps recently uploaded pieces in memory
+	 */
+	private final PieceReadCache readCache;
+
+	/**
+	 * The pool on which the pieces are verified when the progress is checked
+	 */
+	private final ForkJoinPool recheckPool;
+
+	/**
+	 * The most recently started check of the pieces on disk
+	 */
+	private volatile PieceRecheck recheck;
+
+	/**
+	 * If the resume data has been used to restore the progress
+	 */
+	private boolean resumeDataRestored;
+
 	/**
 	 * Creates a new Torrent.
 	 *
@@ -82,7 +134,12 @@ public class Torrent {
 		} else {
 			displayName = builder.displayName;
 		}
-		torrentClient = builder.torrentClient;
+		torrentClient = Argument.requireNonNull(builder.torrentClient, "Torrent requires a client to download with.");
+		downloadLimiter = new TokenBucket(0, torrentClient.getDownloadLimiter());
+		uploadLimiter = new TokenBucket(0, torrentClient.getUploadLimiter());
+		pieceCache = torrentClient.getPieceCache();
+		readCache = torrentClient.getReadCache();
+		recheckPool = torrentClient.getRecheckPool();
 		downloadedBytes = 0L;
 		peers = new LinkedList<>();
 		pieceSelector = new FullPieceSelect(this);
@@ -110,6 +167,10 @@ public class Torrent {
 		}
 
 		peer.getBitTorrentSocket().setPassedHandshake();
+		peer.getBitTorrentSocket().setRateLimiters(
+				new TokenBucket(torrentClient.getPeerDownloadRateLimit(), downloadLimiter),
+				new TokenBucket(torrentClient.getPeerUploadRateLimit(), uploadLimiter)
+		);
 		for (IModule module : torrentClient.getModules()) {
 			module.onPostHandshake(peer);
 		}
@@ -117,7 +178,12 @@ public class Torrent {
 
 		synchronized (this) {
 			peers.add(peer);
+			if (pieceAvailability != null) {
+				pieceAvailability.addPeer(peer);
+			}
 		}
+
+		torrentClient.registerPeer(peer);
 	}
 
 	/**
@@ -131,11 +197,41 @@ public class Torrent {
 			if (!peers.remove(peer)) {
 				return;
 			}
+
+			if (pieceAvailability != null) {
+				pieceAvailability.removePeer(peer);
+			}
 		}
 
 		peer.discardAllBlockRequests();
 	}
 
+	/**
+	 * Updates the availability of the piece after the peer announced to have it.
+	 * @param peer The peer which has the piece.
+	 * @param pieceIndex The index of the piece.
+	 */
+	public void onPeerHasPiece(Peer peer, int pieceIndex) {
+		PieceAvailability availability = pieceAvailability;
+		if (availability != null) {
+			availability.onPeerHasPiece(peer, pieceIndex);
+		}
+	}
+
+	/**
+	 * @return The availability of the pieces over the peers or <code>null</code> when the files aren't known yet.
+	 */
+	public PieceAvailability getPieceAvailability() {
+		return pieceAvailability;
+	}
+
+	private void onTorrentPieceCompleted(int pieceIndex) {
+		PieceAvailability availability = pieceAvailability;
+		if (availability != null) {
+			availability.onPieceCompleted(pieceIndex);
+		}
+	}
+
 	private void sendHaveMessages(Peer peer) throws IOException {
 		if (isDownloadingMetadata()) {
 			return;
@@ -191,42 +287,94 @@ public class Torrent {
 		int blockIndex = offset / fileSet.getBlockSize();
 
 		Piece piece = fileSet.getPiece(index);
-		if (piece.getBlockSize(blockIndex) != data.length) {
+		BlockStatus blockStatus = piece.getBlockStatus(blockIndex);
+		if (blockStatus == BlockStatus.Stored || blockStatus == BlockStatus.Verified) {
+			// Duplicate blocks must not overwrite data which has already been hashed.
+			LOGGER.debug("Ignoring duplicate block {} of piece {}", blockIndex, index);
+		} else if (piece.getBlockSize(blockIndex) != data.length) {
 			LOGGER.debug("Received incorrect sized block for piece {}, offset {}", index, offset);
 			piece.setBlockStatus(blockIndex, BlockStatus.Needed);
+		} else if (pieceCache.storeBlock(piece, blockIndex, data)) {
+			piece.updateHash(blockIndex, data);
+			onBlockStored(piece, blockIndex);
 		} else {
-			addDiskJob(new DiskJobWriteBlock(piece, blockIndex, data, this::onStoreBlockComplete));
+			addDiskJob(new DiskJobWriteBlock(piece, blockIndex, data, this::onStoreBlockComplete, this::onStoreBlockFailed));
 		}
 	}
 
 	private void onStoreBlockComplete(DiskJobWriteBlock storeBlock) {
-		Piece piece = storeBlock.getPiece();
-		piece.setBlockStatus(storeBlock.getBlockIndex(), BlockStatus.Stored);
+		onBlockStored(storeBlock.getPiece(), storeBlock.getBlockIndex());
+	}
+
+	private void onStoreBlockFailed(DiskJobWriteBlock storeBlock) {
+		LOGGER.warn("Failed to store block {} of piece {}, requesting it again.", storeBlock.getBlockIndex(), storeBlock.getPiece().getIndex());
+		storeBlock.getPiece().setBlockStatus(storeBlock.getBlockIndex(), BlockStatus.Needed);
+	}
+
+	private void onBlockStored(Piece piece, int blockIndex) {
+		piece.setBlockStatus(blockIndex, BlockStatus.Stored);
 
 		if (piece.countBlocksWithStatus(BlockStatus.Stored) != piece.getBlockCount()) {
 			return;
 		}
 
-		addDiskJob(new DiskJobCheckHash(piece, this::onCheckPieceHashComplete));
+		byte[] pieceData = pieceCache.getPieceData(piece);
+		if (pieceData == null) {
+			addDiskJob(new DiskJobCheckHash(piece, this::onCheckPieceHashComplete, job -> onPieceDiskFailure(job.getPiece())));
+		} else {
+			addDiskJob(new DiskJobWritePiece(piece, pieceData, this::onWritePieceComplete, job -> onPieceDiskFailure(job.getPiece())));
+		}
+	}
+
+	private void onWritePieceComplete(DiskJobWritePiece writeJob) {
+		onPieceHashChecked(writeJob.getPiece(), writeJob.isMatchingHash());
 	}
 
 	private void onCheckPieceHashComplete(DiskJobCheckHash checkJob) {
-		Piece piece = checkJob.getPiece();
-		if (!checkJob.isMatchingHash()) {
+		onPieceHashChecked(checkJob.getPiece(), checkJob.isMatchingHash());
+	}
+
+	private void onPieceDiskFailure(Piece piece) {
+		LOGGER.warn("Failed to store piece {}, requesting it again.", piece.getIndex());
+		pieceCache.release(piece);
+		piece.onDiskFailure();
+	}
+
+	private void onPieceHashChecked(Piece piece, boolean matchingHash) {
+		if (!matchingHash) {
 			LOGGER.debug("Piece hash mismatched");
+			// Cached blocks are kept, only the dropped blocks will be received again.
 			piece.onHashMismatch();
 			return;
 		}
 
-		piece.getFileSet().setHavingPiece(piece.getIndex());
-		if (piece.getFileSet().equals(fileSet)) {
+		pieceCache.release(piece);
+
+		boolean isTorrentPiece;
+		synchronized (this) {
+			// Hash checks of different pieces complete concurrently when multiple disk workers are used.
+			piece.getFileSet().setHavingPiece(piece.getIndex());
+			isTorrentPiece = piece.getFileSet().equals(fileSet);
+			if (isTorrentPiece) {
+				downloadedBytes += piece.getSize();
+				onTorrentPieceCompleted(piece.getIndex());
+			}
+		}
+
+		if (isTorrentPiece) {
 			broadcastMessage(new MessageHave(piece.getIndex()));
-			downloadedBytes += piece.getSize();
 		}
 
 		LOGGER.debug("Completed piece {}", piece.getIndex());
 	}
 
+	/**
+	 * @return The cache through which the blocks which are uploaded are read.
+	 */
+	public PieceReadCache getReadCache() {
+		return readCache;
+	}
+
 	/**
 	 * Adds a task to the IOManager of this torrent
 	 *
@@ -237,31 +385,113 @@ public class Torrent {
 	}
 
 	private void broadcastMessage(IMessage m) {
+		// Enqueue on a snapshot so that the torrent lock isn't held while waking up the IO threads.
+		getPeers().forEach(p -> p.getBitTorrentSocket().enqueueMessage(m));
+	}
+
+	/**
+	 * Calculates the current progress based on all available fileSet on the HDD. This blocks until all pieces have been checked.
+	 * @see #startRecheck()
+	 */
+	public void checkProgress() {
+		startRecheck().await();
+	}
+
+	/**
+	 * Starts to calculate the current progress based on all available fileSet on the HDD. The pieces are verified in parallel and each piece which passes
+	 * the hash check is immediately announced to the peers, so the verified pieces can be uploaded while the other pieces are still being checked. When a
+	 * recheck is already in progress that recheck is returned instead.
+	 *
+	 * @return The recheck which reports the progress and can be cancelled.
+	 */
+	public PieceRecheck startRecheck() {
+		List<Piece> restoredPieces = new ArrayList<>();
+		PieceRecheck newRecheck;
 		synchronized (this) {
-			peers.stream().forEach(p -> p.getBitTorrentSocket().enqueueMessage(m));
+			if (isRechecking()) {
+				return recheck;
+			}
+
+			newRecheck = new PieceRecheck(getPiecesToCheck(restoredPieces::add), this::onPieceRechecked);
+			recheck = newRecheck;
 		}
+
+		restoredPieces.forEach(piece -> broadcastMessage(new MessageHave(piece.getIndex())));
+		newRecheck.start(recheckPool);
+		return newRecheck;
+	}
+
+	private Collection<Piece> getPiecesToCheck(Consumer<Piece> onPieceRestored) {
+		File resumeFile = getResumeFile();
+		if (resumeFile != null && !resumeDataRestored) {
+			// Only the first check can rely on the resume data, later checks are requested to verify the current state of the files.
+			resumeDataRestored = true;
+			Optional<ResumeData> resumeData = ResumeData.read(resumeFile);
+			if (resumeData.isPresent()) {
+				return resumeData.get().restore(metadata.getHash(), fileSet, piece -> {
+					fileSet.setHavingPiece(piece.getIndex());
+					onTorrentPieceCompleted(piece.getIndex());
+					onPieceRestored.accept(piece);
+				});
+			}
+		}
+
+		return fileSet.getNeededPieces().collect(Collectors.toList());
+	}
+
+	private void onPieceRechecked(Piece piece) {
+		synchronized (this) {
+			fileSet.setHavingPiece(piece.getIndex());
+			onTorrentPieceCompleted(piece.getIndex());
+		}
+
+		broadcastMessage(new MessageHave(piece.getIndex()));
 	}
 
 	/**
-	 * Calculates the current progress based on all available fileSet on the HDD
+	 * Saves the progress of the torrent in the resume folder of the client so that a restart can skip checking the pieces which have been verified
+	 * before. This has no effect when no resume folder is configured or when the progress isn't known because the pieces on disk haven't been
+	 * completely checked.
 	 */
-	public void checkProgress() {
-		LOGGER.info("Checking progress...");
-		fileSet.getNeededPieces()
-				.filter(p -> {
-					try {
-						return p.checkHash();
-					} catch (IOException e) {
-						LOGGER.warn("Failed hash check for piece {}.", p.getIndex(), e);
-						return false;
-					}
-				}).
-				forEach(p -> {
-						fileSet.setHavingPiece(p.getIndex());
-						broadcastMessage(new MessageHave(p.getIndex()));
-					}
-				);
-		LOGGER.info("Checking progress done");
+	public void saveResumeData() {
+		File resumeFile = getResumeFile();
+		PieceRecheck currentRecheck = recheck;
+		if (resumeFile == null || fileSet == null || currentRecheck == null || !currentRecheck.isCompleted()) {
+			return;
+		}
+
+		try {
+			ResumeData.capture(metadata.getHash(), fileSet, piece -> !pieceCache.isCached(piece)).write(resumeFile);
+		} catch (IOException e) {
+			LOGGER.warn("Failed to save resume data of {}.", this, e);
+		}
+	}
+
+	/**
+	 * @return The file in which the resume data of this torrent is stored or <code>null</code> when no resume folder is configured.
+	 */
+	File getResumeFile() {
+		File resumeFolder = torrentClient.getResumeFolder();
+		if (resumeFolder == null) {
+			return null;
+		}
+
+		return new File(resumeFolder, String.format("%s.resume", metadata.getHashString()));
+	}
+
+	/**
+	 * @return The most recently started recheck of the pieces on disk.
+	 */
+	public Optional<PieceRecheck> getRecheck() {
+		return Optional.ofNullable(recheck);
+	}
+
+	/**
+	 * @return <code>true</code> when the pieces on disk are still being checked.
+	 */
+	public boolean isRechecking() {
+		PieceRecheck currentRecheck = recheck;
+		return currentRecheck != null && !currentRecheck.isDone();
 	}
 
 	/**
@@ -274,12 +504,27 @@ public class Torrent {
 	}
 
 	/**
-	 * Sets the current set of fileSet this torrent is downloading.
+	 * Sets the current set of fileSet this torrent is downloading. The availability of the pieces is counted from the peers which are already connected.
 	 *
 	 * @param files The file set.
 	 */
 	public void setFileSet(TorrentFileSet files) {
-		this.fileSet = files;
+		synchronized (this) {
+			this.fileSet = files;
+			if (files == null) {
+				pieceAvailability = null;
+				return;
+			}
+
+			PieceAvailability availability = new PieceAvailability(files.getPieceCount());
+			for (int pieceIndex = 0; pieceIndex < files.getPieceCount(); pieceIndex++) {
+				if (files.hasPiece(pieceIndex)) {
+					availability.onPieceCompleted(pieceIndex);
+				}
+			}
+			peers.forEach(availability::addPeer);
+			pieceAvailability = availability;
+		}
 	}
 
 	public Metadata getMetadata() {
@@ -425,6 +670,22 @@ public class Torrent {
 		return torrentClient.getRequestLimiter();
 	}
 
+	/**
+	 * Gets the limiter which caps the download rate of this torrent. The limit can be changed at any time with {@link TokenBucket#setRate(int)}.
+	 * @return The download limiter, unlimited by default.
+	 */
+	public TokenBucket getDownloadLimiter() {
+		return downloadLimiter;
+	}
+
+	/**
+	 * Gets the limiter which caps the upload rate of this torrent. The limit can be changed at any time with {@link TokenBucket#setRate(int)}.
+	 * @return The upload limiter, unlimited by default.
+	 */
+	public TokenBucket getUploadLimiter() {
+		return uploadLimiter;
+	}
+
 	/**
 	 * A builder to create new instances of {@link Torrent}
 	 */
@@ -487,8 +748,7 @@ public class Torrent {
 			}
 
 			if (!metadata.getFileEntries().isEmpty()) {
-				TorrentFileSet fileSet = new TorrentFileSet(metadata, downloadFolder);
-				torrent.setFileSet(fileSet);
+				torrent.setFileSet(new TorrentFileSet(metadata, downloadFolder, torrentClient.getFileStorageFactory(), torrentClient.getFileHandlePool()));
 			}
 
 			return torrent;
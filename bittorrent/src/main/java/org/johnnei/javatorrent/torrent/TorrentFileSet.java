@@ -4,6 +4,10 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.johnnei.javatorrent.disk.ChannelFileStorage;
+import org.johnnei.javatorrent.disk.IFileHandlePool;
+import org.johnnei.javatorrent.disk.IFileStorageFactory;
+import org.johnnei.javatorrent.internal.disk.FileHandlePool;
 import org.johnnei.javatorrent.internal.torrent.TorrentFileSetRequestFactory;
 import org.johnnei.javatorrent.internal.torrent.peer.Bitfield;
 import org.johnnei.javatorrent.torrent.files.Piece;
@@ -37,9 +41,37 @@ public class TorrentFileSet extends AbstractFileSet {
 	 * @throws IllegalArgumentException When the torrent file is missing or incomplete.
 	 */
 	public TorrentFileSet(Metadata metadata, File downloadFolder) {
+		this(metadata, downloadFolder, (channel, size) -> new ChannelFileStorage(channel));
+	}
+
+	/**
+	 * Creates a TorrentFileSet instance based upon a .torrent file of which the files are accessed through the storages created by the given factory. The
+	 * files are opened through the pool which is shared by all files which are not opened through the pool of a {@link org.johnnei.javatorrent.TorrentClient}.
+	 *
+	 * @param metadata The metadata containing the torrent information
+	 * @param downloadFolder The folder in which the downloads need to be stored.
+	 * @param storageFactory The factory to create the storage of each file with.
+	 * @throws IllegalArgumentException When the torrent file is missing or incomplete.
+	 */
+	public TorrentFileSet(Metadata metadata, File downloadFolder, IFileStorageFactory storageFactory) {
+		this(metadata, downloadFolder, storageFactory, FileHandlePool.getSharedPool());
+	}
+
+	/**
+	 * Creates a TorrentFileSet instance based upon a .torrent file of which the files are opened through the given pool once they are accessed.
+	 *
+	 * @param metadata The metadata containing the torrent information
+	 * @param downloadFolder The folder in which the downloads need to be stored.
+	 * @param storageFactory The factory to create the storage of each file with.
+	 * @param fileHandlePool The pool which limits the amount of open files.
+	 * @throws IllegalArgumentException When the torrent file is missing or incomplete.
+	 */
+	public TorrentFileSet(Metadata metadata, File downloadFolder, IFileStorageFactory storageFactory, IFileHandlePool fileHandlePool) {
 		super(BLOCK_SIZE);
 		this.metadata = Argument.requireNonNull(metadata, "Torrent metadata can not be null");
 		this.downloadFolder = Argument.requireNonNull(downloadFolder, "Download folder cannot be null");
+		Argument.requireNonNull(storageFactory, "Storage factory can not be null");
+		Argument.requireNonNull(fileHandlePool, "File handle pool can not be null");
 
 		requestFactory = new TorrentFileSetRequestFactory();
 
@@ -47,7 +79,14 @@ public class TorrentFileSet extends AbstractFileSet {
 		fileInfos = new ArrayList<>(metadata.getFileEntries().size());
 		for (FileEntry fileEntry : metadata.getFileEntries()) {
 			int pieceCount = (int) MathUtils.ceilDivision(fileEntry.getSize(), metadata.getPieceSize());
-			FileInfo info = new FileInfo(fileEntry.getSize(), fileEntry.getFirstByteOffset(), getFile(fileEntry.getFileName()), pieceCount);
+			FileInfo info = new FileInfo(
+				fileEntry.getSize(),
+				fileEntry.getFirstByteOffset(),
+				getFile(fileEntry.getFileName()),
+				pieceCount,
+				storageFactory,
+				fileHandlePool
+			);
 			fileInfos.add(info);
 
 			remainingSize += fileEntry.getSize();
@@ -100,6 +139,13 @@ public class TorrentFileSet extends AbstractFileSet {
 		return bitfield.getBytes();
 	}
 
+	/**
+	 * @return The bitfield of the pieces which have been completed.
+	 */
+	public Bitfield getBitfield() {
+		return bitfield;
+	}
+
 	@Override
 	public TorrentFileSetRequestFactory getRequestFactory() {
 		return requestFactory;
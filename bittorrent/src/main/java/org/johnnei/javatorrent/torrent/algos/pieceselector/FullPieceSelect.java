@@ -1,7 +1,11 @@
 package org.johnnei.javatorrent.torrent.algos.pieceselector;
 
+import java.util.BitSet;
 import java.util.Optional;
+import java.util.OptionalInt;
 
+import org.johnnei.javatorrent.internal.torrent.PieceAvailability;
+import org.johnnei.javatorrent.torrent.AbstractFileSet;
 import org.johnnei.javatorrent.torrent.Torrent;
 import org.johnnei.javatorrent.torrent.files.BlockStatus;
 import org.johnnei.javatorrent.torrent.files.Piece;
@@ -10,6 +14,7 @@ import org.johnnei.javatorrent.torrent.peer.Peer;
 /**
  * A Piece selection algorithm which favors completing a started piece over starting a second piece.
  * This selector also favors rarer pieces over highly available ones (as advised by BEP #3).
+ * The availability is read from the {@link PieceAvailability} of the torrent which is kept up to date as the peers announce their pieces.
  * @author Johnnei
  *
  */
@@ -21,66 +26,54 @@ public class FullPieceSelect implements IPieceSelector {
 		this.torrent = torrent;
 	}
 
-	private int countAvailability(Piece piece) {
-		return (int) torrent.getPeers().stream()
-				.filter(peer -> peer.hasPiece(piece.getIndex()))
-				.count();
-	}
-
-	/**
-	 * Note: this comparator imposes orderings that are inconsistent with equals.
-	 */
-	private int comparePieces(CachedPiece a, CachedPiece b) {
-		if (a.isStarted() == b.isStarted()) {
-			// When they are either both started or not, the availability indicates the priority.
-			return a.getAvailability() - b.getAvailability();
-		}
-
-		if (a.isStarted() && !b.isStarted()) {
-			return -1;
-		} else {
-			return 1;
-		}
-	}
-
 	@Override
 	public Optional<Piece> getPieceForPeer(Peer peer) {
-		return torrent.getFileSet().getNeededPieces()
-				.filter(piece -> piece.hasBlockWithStatus(BlockStatus.Needed))
-				.filter(piece -> peer.hasPiece(piece.getIndex()))
-				// Create a cache of the information used in the comparator to create a consistent sorting state.
-				.map(piece -> new CachedPiece(piece, countAvailability(piece)))
-				.sorted(this::comparePieces)
-				// Retrieve the actual piece from the cache.
-				.map(CachedPiece::getPiece)
-				.findFirst();
-	}
-
-	private class CachedPiece {
-
-		private final Piece piece;
-
-		private final boolean isStarted;
-
-		private final int availability;
-
-		CachedPiece(Piece piece, int availability) {
-			this.piece = piece;
-			this.availability = availability;
-			isStarted = piece.isStarted();
+		PieceAvailability availability = torrent.getPieceAvailability();
+		AbstractFileSet fileSet = torrent.getFileSet();
+		if (availability == null || fileSet == null) {
+			return Optional.empty();
 		}
 
-		Piece getPiece() {
-			return piece;
+		Optional<Piece> startedPiece = getStartedPieceForPeer(peer, fileSet, availability);
+		if (startedPiece.isPresent()) {
+			return startedPiece;
 		}
 
-		boolean isStarted() {
-			return isStarted;
+		OptionalInt rarestPiece = availability.findRarestPiece(peer, pieceIndex -> {
+			Piece piece = fileSet.getPiece(pieceIndex);
+			return !piece.isDone() && piece.hasBlockWithStatus(BlockStatus.Needed);
+		});
+
+		if (rarestPiece.isPresent()) {
+			return Optional.of(fileSet.getPiece(rarestPiece.getAsInt()));
+		} else {
+			return Optional.empty();
 		}
+	}
 
-		int getAvailability() {
-			return availability;
+	/**
+	 * Finds the rarest started piece which the peer has and still has blocks to request. Only a few pieces are started at the same time so this is cheap
+	 * compared to visiting all needed pieces.
+	 */
+	private Optional<Piece> getStartedPieceForPeer(Peer peer, AbstractFileSet fileSet, PieceAvailability availability) {
+		BitSet startedPieces = fileSet.getProgress().getStartedPieces();
+
+		Piece rarestPiece = null;
+		int rarestAvailability = Integer.MAX_VALUE;
+		for (int pieceIndex = startedPieces.nextSetBit(0); pieceIndex >= 0; pieceIndex = startedPieces.nextSetBit(pieceIndex + 1)) {
+			if (!peer.hasPiece(pieceIndex)) {
+				continue;
+			}
+
+			Piece piece = fileSet.getPiece(pieceIndex);
+			int pieceAvailability = availability.getAvailability(pieceIndex);
+			if (pieceAvailability < rarestAvailability && piece.hasBlockWithStatus(BlockStatus.Needed)) {
+				rarestPiece = piece;
+				rarestAvailability = pieceAvailability;
+			}
 		}
+
+		return Optional.ofNullable(rarestPiece);
 	}
 
 }
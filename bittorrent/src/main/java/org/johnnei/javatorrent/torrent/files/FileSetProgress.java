@@ -0,0 +1,105 @@
+package org.johnnei.javatorrent.torrent.files;
+
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the progress of a {@link org.johnnei.javatorrent.torrent.AbstractFileSet}. The counters are updated by the {@link Piece pieces} of the file set
+ * on every change of their verified blocks, so the progress can be queried without visiting every piece.
+ */
+public class FileSetProgress {
+
+	/**
+	 * The amount of bytes of all blocks which have been verified.
+	 */
+	private final AtomicLong verifiedBytes;
+
+	/**
+	 * The indices of the pieces of which all blocks have been verified.
+	 */
+	private final BitSet completedPieces;
+
+	private int completedPieceCount;
+
+	/**
+	 * The indices of the pieces which have blocks in progress but are not completed yet.
+	 */
+	private final BitSet startedPieces;
+
+	/**
+	 * Creates a new progress without any verified blocks.
+	 */
+	public FileSetProgress() {
+		verifiedBytes = new AtomicLong();
+		completedPieces = new BitSet();
+		startedPieces = new BitSet();
+	}
+
+	void addVerifiedBytes(long bytes) {
+		verifiedBytes.addAndGet(bytes);
+	}
+
+	synchronized void onPieceCompleted(int pieceIndex) {
+		if (!completedPieces.get(pieceIndex)) {
+			completedPieces.set(pieceIndex);
+			completedPieceCount++;
+		}
+	}
+
+	synchronized void onPieceReverted(int pieceIndex) {
+		if (completedPieces.get(pieceIndex)) {
+			completedPieces.clear(pieceIndex);
+			completedPieceCount--;
+		}
+	}
+
+	synchronized void onPieceStarted(int pieceIndex) {
+		startedPieces.set(pieceIndex);
+	}
+
+	synchronized void onPieceStopped(int pieceIndex) {
+		startedPieces.clear(pieceIndex);
+	}
+
+	/**
+	 * @return The amount of bytes of all blocks which have been verified.
+	 */
+	public long getVerifiedBytes() {
+		return verifiedBytes.get();
+	}
+
+	/**
+	 * @return The amount of pieces of which all blocks have been verified.
+	 */
+	public synchronized int getCompletedPieceCount() {
+		return completedPieceCount;
+	}
+
+	/**
+	 * Creates a snapshot of the pieces which have not been completed.
+	 * @param pieceCount The amount of pieces in the file set.
+	 * @return The indices of the pieces which are not completed.
+	 */
+	public BitSet getNeededPieces(int pieceCount) {
+		BitSet neededPieces;
+		synchronized (this) {
+			neededPieces = (BitSet) completedPieces.clone();
+		}
+
+		neededPieces.flip(0, pieceCount);
+		return neededPieces;
+	}
+
+	/**
+	 * Creates a snapshot of the pieces which have been started but are not completed yet.
+	 * @return The indices of the started pieces.
+	 */
+	public synchronized BitSet getStartedPieces() {
+		return (BitSet) startedPieces.clone();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("FileSetProgress[completedPieces=%d, verifiedBytes=%d]", getCompletedPieceCount(), getVerifiedBytes());
+	}
+}
@@ -1,16 +1,19 @@
 package org.johnnei.javatorrent.torrent.files;
 
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
 import java.util.Arrays;
-import java.util.List;
+import java.util.BitSet;
 import java.util.Objects;
 import java.util.Optional;
 
 import org.johnnei.javatorrent.bittorrent.encoding.SHA1;
+import org.johnnei.javatorrent.disk.IFileStorage;
 import org.johnnei.javatorrent.torrent.AbstractFileSet;
-import org.johnnei.javatorrent.torrent.FileInfo;
+import org.johnnei.javatorrent.torrent.FileSegment;
 import org.johnnei.javatorrent.utils.MathUtils;
 import org.johnnei.javatorrent.utils.StringUtils;
 
@@ -21,6 +24,8 @@ public class Piece {
 
 	private static final String ERR_BLOCK_IS_NOT_WITHIN_PIECE = "Block %d is not within the %d blocks of %s";
 
+	private static final BlockStatus[] BLOCK_STATUSES = BlockStatus.values();
+
 	/**
 	 * The files associated with this piece
 	 */
@@ -30,9 +35,47 @@ public class Piece {
 	 */
 	private int index;
 	/**
-	 * All the blocks in this piece
+	 * The size of all blocks except for the last block
+	 */
+	private final int blockSize;
+	/**
+	 * The size of the last block, which is smaller when the piece size isn't a multiple of the block size
+	 */
+	private final int lastBlockSize;
+	/**
+	 * The amount of blocks in this piece
+	 */
+	private final int blockCount;
+	/**
+	 * The size of this piece in bytes
+	 */
+	private final int size;
+	/**
+	 * The ordinal of the {@link BlockStatus} of each block
+	 */
+	private final byte[] blockStates;
+	/**
+	 * The amount of blocks for each {@link BlockStatus}, indexed by ordinal
+	 */
+	private final int[] statusCounts;
+	/**
+	 * The blocks which have the status {@link BlockStatus#Needed}
+	 */
+	private final BitSet neededBlocks;
+	/**
+	 * The index from which the next needed block is searched, all blocks before it are not needed
+	 */
+	private int neededCursor;
+	/**
+	 * The amount of bytes of the blocks which have the status {@link BlockStatus#Verified}
+	 */
+	private int verifiedBytes;
+	/**
+	 * The progress of the file set which is informed about the changes of the verified and started blocks
 	 */
-	private List<Block> blocks;
+	private final FileSetProgress progress;
+
+	private final Object blockLock = new Object();
 	/**
 	 * The next piece which will be dropped on hash fail
 	 */
@@ -40,6 +83,21 @@ public class Piece {
 
 	private byte[] expectedHash;
 
+	/**
+	 * The digest of the blocks which have been stored contiguously from the start of this piece
+	 */
+	private MessageDigest digest;
+	/**
+	 * The amount of blocks which have been fed into {@link #digest}
+	 */
+	private int digestedBlocks;
+	/**
+	 * The blocks which have been written to the files by {@link #storeBlock(int, byte[])} and can be read back to catch up the digest
+	 */
+	private final BitSet writtenBlocks;
+
+	private final Object digestLock = new Object();
+
 	/**
 	 * Creates a new piece.
 	 * @param files The {@link AbstractFileSet} which owns this piece.
@@ -52,14 +110,23 @@ public class Piece {
 		this.index = index;
 		this.files = files;
 		this.expectedHash = hash;
-		blocks = new ArrayList<>(MathUtils.ceilDivision(pieceSize, blockSize));
-		int blockIndex = 0;
-		int remainingPieceSize = pieceSize;
-		while (remainingPieceSize > 0) {
-			Block block = new Block(blockIndex, Math.min(blockSize, remainingPieceSize));
-			remainingPieceSize -= block.getSize();
-			blocks.add(block);
-			++blockIndex;
+		this.size = Math.max(0, pieceSize);
+		this.blockSize = blockSize;
+		blockCount = MathUtils.ceilDivision(size, blockSize);
+		lastBlockSize = blockCount == 0 ? 0 : size - (blockCount - 1) * blockSize;
+
+		// All blocks start as needed, which has ordinal 0.
+		blockStates = new byte[blockCount];
+		statusCounts = new int[BLOCK_STATUSES.length];
+		statusCounts[BlockStatus.Needed.ordinal()] = blockCount;
+		neededBlocks = new BitSet(blockCount);
+		neededBlocks.set(0, blockCount);
+		writtenBlocks = new BitSet(blockCount);
+
+		progress = files == null ? null : files.getProgress();
+		if (progress != null && blockCount == 0) {
+			// A piece without blocks has nothing to verify.
+			progress.onPieceCompleted(index);
 		}
 	}
 
@@ -67,11 +134,32 @@ public class Piece {
 	 * Drops ceil(10%) of the blocks in order to maintain speed and still try to *not* redownload the entire piece
 	 */
 	public void onHashMismatch() {
-		int tenPercent = MathUtils.ceilDivision(blocks.size(), 10);
-		for (int i = 0; i < tenPercent; i++) {
-			blocks.get(hashFailCheck++).setStatus(BlockStatus.Needed);
-			if (hashFailCheck >= blocks.size()) {
-				hashFailCheck = 0;
+		synchronized (digestLock) {
+			resetDigest();
+			synchronized (blockLock) {
+				int tenPercent = MathUtils.ceilDivision(blockCount, 10);
+				for (int i = 0; i < tenPercent; i++) {
+					writtenBlocks.clear(hashFailCheck);
+					updateStatus(hashFailCheck++, BlockStatus.Needed);
+					if (hashFailCheck >= blockCount) {
+						hashFailCheck = 0;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Marks all blocks as needed again as the data of the piece could not be written or read back from disk.
+	 */
+	public void onDiskFailure() {
+		synchronized (digestLock) {
+			resetDigest();
+			writtenBlocks.clear();
+		}
+		synchronized (blockLock) {
+			for (int i = 0; i < blockCount; i++) {
+				updateStatus(i, BlockStatus.Needed);
 			}
 		}
 	}
@@ -87,43 +175,49 @@ public class Piece {
 	public byte[] loadPiece(int offset, int length) throws IOException {
 		byte[] pieceData = new byte[length];
 
-		int readBytes = 0;
-		while (readBytes < length) {
-			// Offset within the piece
-			int alreadyReadOffset = offset + readBytes;
-
-			// Find file for the given offset
-			FileInfo outputFile = files.getFileForBytes(index, alreadyReadOffset / files.getBlockSize(), alreadyReadOffset % files.getBlockSize());
-
-			// Calculate offset as if the torrent was one file
-			long pieceIndexOffset = index * files.getPieceSize();
-			long totalOffset = pieceIndexOffset + alreadyReadOffset;
-
-			// Calculate the offset within the file
-			long offsetInFile = totalOffset - outputFile.getFirstByteOffset();
-
-			// Calculate how many bytes we want/can read from the file
-			int bytesToRead = Math.min(length - readBytes, (int) (outputFile.getSize() - offsetInFile));
+		for (FileSegment segment : files.getFileSegments(index, offset, length)) {
+			// Storage access is positional so no need to acquire the file lock.
+			segment.getFile().getStorage().read(ByteBuffer.wrap(pieceData, segment.getDataOffset(), segment.getLength()), segment.getOffsetInFile());
+		}
 
-			// Check if we don't read outside the file
-			if (offsetInFile < 0) {
-				// TODO Figure out why this exception can be thrown in the first place.
-				throw new IOException("Cannot seek to position: " + offsetInFile);
-			}
+		return pieceData;
+	}
 
-			// Read the actual files
-			synchronized (outputFile.fileLock) {
-				RandomAccessFile file = outputFile.getFileAccess();
-				file.seek(offsetInFile);
-				file.readFully(pieceData, readBytes, bytesToRead);
-				readBytes += bytesToRead;
+	/**
+	 * Transfers a section of this piece from the files onto the given channel without copying the data onto the heap. When the channel is in
+	 * non-blocking mode less bytes than requested can be transferred, the remainder can be transferred by calling this method again with an updated
+	 * offset and length.
+	 *
+	 * @param offset The offset in the piece
+	 * @param length The amount of bytes to transfer
+	 * @param target The channel to transfer the bytes to
+	 * @return The amount of bytes which have been transferred.
+	 * @throws EOFException When the files don't contain the requested section.
+	 * @throws IOException When the underlying IO causes an error.
+	 */
+	public int transferTo(int offset, int length, WritableByteChannel target) throws IOException {
+		int transferredBytes = 0;
+		for (FileSegment segment : files.getFileSegments(index, offset, length)) {
+			// Positional transfers don't modify the file pointer, so no need to acquire the file lock.
+			IFileStorage storage = segment.getFile().getStorage();
+			int transferred = (int) storage.transferTo(segment.getOffsetInFile(), segment.getLength(), target);
+			transferredBytes += transferred;
+
+			if (transferred < segment.getLength()) {
+				// Either the target can't accept more bytes without blocking or the file is shorter than expected. The latter would never complete.
+				if (storage.size() < segment.getOffsetInFile() + segment.getLength()) {
+					throw new EOFException(String.format("%s is too short to contain section %d-%d of %s", segment.getFile(), offset, offset + length, this));
+				}
+				break;
 			}
 		}
-		return pieceData;
+
+		return transferredBytes;
 	}
 
 	/**
-	 * Checks if the received bytes hash matches with the hash which was given in the metadata
+	 * Checks if the received bytes hash matches with the hash which was given in the metadata. The blocks which have already been fed by
+	 * {@link #updateHash(int, byte[])} are not read again.
 	 *
 	 * @return hashMatched ? true : false
 	 */
@@ -131,76 +225,166 @@ public class Piece {
 		final int pieceSize = getSize();
 
 		// Test if the piece is completely available on disk.
-		int remainingBytes = pieceSize;
-		int alreadyReadOffset = 0;
-		while (remainingBytes > 0) {
-			FileInfo file = files.getFileForBytes(index, alreadyReadOffset / files.getBlockSize(), alreadyReadOffset % files.getBlockSize());
-
-			long pieceIndexOffset = index * files.getPieceSize();
-			long totalOffset = pieceIndexOffset + alreadyReadOffset;
-
-			// Calculate the offset within the file
-			long offsetInFile = totalOffset - file.getFirstByteOffset();
-			long fileSize;
-			synchronized (file.fileLock) {
-				fileSize = file.getFileAccess().length();
-			}
-
-			// Subtract the available bytes.
-			long availableBytes = fileSize - offsetInFile;
-			if (availableBytes <= 0) {
+		for (FileSegment segment : files.getFileSegments(index, 0, pieceSize)) {
+			if (segment.getFile().getStorage().size() < segment.getOffsetInFile() + segment.getLength()) {
 				// Not enough bytes are available to read this entire piece.
 				return false;
 			}
+		}
+
+		// Verify the hash, the storage feeds the data which hasn't been hashed yet straight into the digest.
+		MessageDigest pieceDigest;
+		int digestedBytes;
+		synchronized (digestLock) {
+			pieceDigest = digest == null ? SHA1.createDigest() : digest;
+			digestedBytes = countBytesOfBlocks(digestedBlocks);
+			resetDigest();
+		}
 
-			remainingBytes -= availableBytes;
-			alreadyReadOffset += availableBytes;
+		for (FileSegment segment : files.getFileSegments(index, digestedBytes, pieceSize - digestedBytes)) {
+			segment.getFile().getStorage().digest(pieceDigest, segment.getOffsetInFile(), segment.getLength());
 		}
 
-		// Verify the hash.
-		byte[] pieceData = loadPiece(0, pieceSize);
-		return Arrays.equals(expectedHash, SHA1.hash(pieceData));
+		return Arrays.equals(expectedHash, pieceDigest.digest());
 	}
 
 	/**
-	 * Writes the block into the correct file(s)
+	 * Checks if the given data matches with the hash which was given in the metadata. Only the data which hasn't been fed by
+	 * {@link #updateHash(int, byte[])} yet is hashed.
 	 *
-	 * @param blockIndex The index of the block to write
+	 * @param pieceData The data of the entire piece
+	 * @return <code>true</code> when the hash matches, otherwise <code>false</code>
+	 */
+	public boolean checkHash(byte[] pieceData) {
+		MessageDigest pieceDigest;
+		int digestedBytes;
+		synchronized (digestLock) {
+			pieceDigest = digest == null ? SHA1.createDigest() : digest;
+			digestedBytes = countBytesOfBlocks(digestedBlocks);
+			resetDigest();
+		}
+
+		pieceDigest.update(pieceData, digestedBytes, pieceData.length - digestedBytes);
+		return Arrays.equals(expectedHash, pieceDigest.digest());
+	}
+
+	/**
+	 * Feeds the block into the hash of this piece when it directly follows the blocks which have been hashed so far. Blocks which are received out of
+	 * order are skipped, those will be hashed from the stored data by {@link #checkHash()} or {@link #checkHash(byte[])} once the piece is complete.
+	 * When a block which has already been hashed is received again the hash is started over, as the stored data might no longer match the hash.
+	 *
+	 * @param blockIndex The index of the block
 	 * @param blockData The data of the block
 	 */
-	public void storeBlock(int blockIndex, byte[] blockData) throws IOException {
-		Block block = blocks.get(blockIndex);
-		int remainingBytesToWrite = block.getSize();
-		// Write Block
-		while (remainingBytesToWrite > 0) {
-			// The offset within the block itself
-			int dataOffset = block.getSize() - remainingBytesToWrite;
-			// Retrieve the file to which we need to write
-			FileInfo outputFile = files.getFileForBytes(index, blockIndex, dataOffset);
-
-			// Calculate the offset in bytes as if the torrent was one file
-			final long pieceOffset = index * files.getPieceSize();
-			final long blockOffset = (long) blockIndex * files.getBlockSize();
-			final long totalOffset = pieceOffset + blockOffset + dataOffset;
-
-			// Calculate the offset within the file
-			long offsetInFile = totalOffset - outputFile.getFirstByteOffset();
-
-			// Determine how many bytes still belong in this file
-			int bytesToWrite = Math.min(remainingBytesToWrite, (int) (outputFile.getSize() - offsetInFile));
-
-			// Check if the calculated offset is within the file
-			if (offsetInFile < 0) {
-				throw new IOException("Cannot seek to position: " + offsetInFile);
+	public void updateHash(int blockIndex, byte[] blockData) {
+		synchronized (digestLock) {
+			updateDigest(blockIndex, blockData);
+		}
+	}
+
+	private void updateDigest(int blockIndex, byte[] blockData) {
+		if (blockIndex < digestedBlocks) {
+			// The block has been overwritten by a second copy.
+			resetDigest();
+		}
+
+		if (blockIndex != digestedBlocks || getBlockStatus(blockIndex) == BlockStatus.Verified) {
+			return;
+		}
+
+		if (digest == null) {
+			digest = SHA1.createDigest();
+		}
+
+		digest.update(blockData, 0, getBlockSize(blockIndex));
+		digestedBlocks++;
+	}
+
+	/**
+	 * Feeds the blocks which have been written out of order and now directly follow the hashed blocks into the digest. The blocks have just been
+	 * written so they are likely still in the page cache of the OS.
+	 */
+	private void catchUpDigest() throws IOException {
+		while (digestedBlocks < blockCount && writtenBlocks.get(digestedBlocks) && getBlockStatus(digestedBlocks) != BlockStatus.Verified) {
+			if (digest == null) {
+				digest = SHA1.createDigest();
 			}
 
-			// Write the actual bytes
-			synchronized (outputFile.fileLock) {
-				RandomAccessFile file = outputFile.getFileAccess();
-				file.seek(offsetInFile);
-				file.write(blockData, dataOffset, bytesToWrite);
-				remainingBytesToWrite -= bytesToWrite;
+			try {
+				for (FileSegment segment : files.getFileSegments(index, countBytesOfBlocks(digestedBlocks), getBlockSize(digestedBlocks))) {
+					segment.getFile().getStorage().digest(digest, segment.getOffsetInFile(), segment.getLength());
+				}
+			} catch (IOException e) {
+				// The digest might contain a part of the block.
+				resetDigest();
+				throw e;
 			}
+			digestedBlocks++;
+		}
+	}
+
+	/**
+	 * @return The amount of blocks which have been hashed by {@link #updateHash(int, byte[])}.
+	 */
+	public int getHashedBlockCount() {
+		synchronized (digestLock) {
+			return digestedBlocks;
+		}
+	}
+
+	private void resetDigest() {
+		synchronized (digestLock) {
+			digest = null;
+			digestedBlocks = 0;
+		}
+	}
+
+	private int countBytesOfBlocks(int blocks) {
+		// Only the last block can be smaller than the block size.
+		return blocks >= blockCount ? size : blocks * blockSize;
+	}
+
+	/**
+	 * Writes the block into the correct file(s) and feeds it into the hash when it's next in order. The blocks which were written out of order and
+	 * directly follow this block are read back into the hash as well.
+	 *
+	 * @param blockIndex The index of the block to write
+	 * @param blockData The data of the block
+	 */
+	public void storeBlock(int blockIndex, byte[] blockData) throws IOException {
+		storeData(blockIndex * files.getBlockSize(), blockData, getBlockSize(blockIndex));
+
+		synchronized (digestLock) {
+			writtenBlocks.set(blockIndex);
+			updateDigest(blockIndex, blockData);
+			catchUpDigest();
+		}
+	}
+
+	/**
+	 * Writes the data of the entire piece into the correct file(s) in a single pass.
+	 *
+	 * @param pieceData The data of the piece
+	 */
+	public void storePiece(byte[] pieceData) throws IOException {
+		if (pieceData.length != getSize()) {
+			throw new IllegalArgumentException(String.format("Piece data of %d bytes doesn't match the size of %s", pieceData.length, this));
+		}
+
+		storeData(0, pieceData, pieceData.length);
+	}
+
+	/**
+	 * Writes a section of this piece into the correct file(s)
+	 *
+	 * @param offset The offset within the piece of the first byte of the data
+	 * @param data The data to write
+	 * @param length The amount of bytes to write
+	 */
+	private void storeData(int offset, byte[] data, int length) throws IOException {
+		for (FileSegment segment : files.getFileSegments(index, offset, length)) {
+			// Write the actual bytes, storage access is positional so no need to acquire the file lock.
+			segment.getFile().getStorage().write(ByteBuffer.wrap(data, segment.getDataOffset(), segment.getLength()), segment.getOffsetInFile());
 		}
 	}
 
@@ -210,7 +394,9 @@ public class Piece {
 	 * @return The remaining amount of bytes to finish this piece
 	 */
 	public long countRemainingBytes() {
-		return blocks.stream().filter(b -> b.getStatus() != BlockStatus.Verified).mapToLong(Block::getSize).sum();
+		synchronized (blockLock) {
+			return size - verifiedBytes;
+		}
 	}
 
 	/**
@@ -220,11 +406,78 @@ public class Piece {
 	 * @param blockStatus The new status of the block.
 	 */
 	public void setBlockStatus(int blockIndex, BlockStatus blockStatus) {
-		if (blockIndex < 0 || blockIndex >= blocks.size()) {
-			throw new IllegalArgumentException(String.format(ERR_BLOCK_IS_NOT_WITHIN_PIECE, blockIndex, blocks.size(), this));
+		requireBlockWithinPiece(blockIndex);
+
+		synchronized (blockLock) {
+			updateStatus(blockIndex, blockStatus);
+		}
+	}
+
+	private void updateStatus(int blockIndex, BlockStatus blockStatus) {
+		BlockStatus oldStatus = BLOCK_STATUSES[blockStates[blockIndex]];
+		if (oldStatus == blockStatus) {
+			return;
+		}
+
+		boolean wasInProgress = isInProgress();
+		blockStates[blockIndex] = (byte) blockStatus.ordinal();
+		statusCounts[oldStatus.ordinal()]--;
+		statusCounts[blockStatus.ordinal()]++;
+
+		if (oldStatus == BlockStatus.Verified) {
+			onVerifiedBytesChanged(-getBlockSize(blockIndex), statusCounts[BlockStatus.Verified.ordinal()] == blockCount - 1);
+		} else if (blockStatus == BlockStatus.Verified) {
+			onVerifiedBytesChanged(getBlockSize(blockIndex), statusCounts[BlockStatus.Verified.ordinal()] == blockCount);
 		}
 
-		blocks.get(blockIndex).setStatus(blockStatus);
+		if (blockStatus == BlockStatus.Needed) {
+			neededBlocks.set(blockIndex);
+			neededCursor = Math.min(neededCursor, blockIndex);
+		} else if (oldStatus == BlockStatus.Needed) {
+			neededBlocks.clear(blockIndex);
+		}
+
+		boolean inProgress = isInProgress();
+		if (progress != null && wasInProgress != inProgress) {
+			if (inProgress) {
+				progress.onPieceStarted(index);
+			} else {
+				progress.onPieceStopped(index);
+			}
+		}
+	}
+
+	/**
+	 * @return <code>true</code> when some blocks have left the needed state but not all blocks have been verified.
+	 */
+	private boolean isInProgress() {
+		return statusCounts[BlockStatus.Needed.ordinal()] != blockCount && statusCounts[BlockStatus.Verified.ordinal()] != blockCount;
+	}
+
+	/**
+	 * Updates the verified bytes of this piece and informs the file set.
+	 * @param bytes The change in verified bytes.
+	 * @param completionChanged <code>true</code> when the change has completed or reverted the completion of this piece.
+	 */
+	private void onVerifiedBytesChanged(int bytes, boolean completionChanged) {
+		verifiedBytes += bytes;
+
+		if (progress == null) {
+			return;
+		}
+
+		progress.addVerifiedBytes(bytes);
+		if (completionChanged && bytes > 0) {
+			progress.onPieceCompleted(index);
+		} else if (completionChanged) {
+			progress.onPieceReverted(index);
+		}
+	}
+
+	private void requireBlockWithinPiece(int blockIndex) {
+		if (blockIndex < 0 || blockIndex >= blockCount) {
+			throw new IllegalArgumentException(String.format(ERR_BLOCK_IS_NOT_WITHIN_PIECE, blockIndex, blockCount, this));
+		}
 	}
 
 	/**
@@ -234,11 +487,11 @@ public class Piece {
 	 * @return The status of the given block.
 	 */
 	public BlockStatus getBlockStatus(int blockIndex) {
-		if (blockIndex < 0 || blockIndex >= blocks.size()) {
-			throw new IllegalArgumentException(String.format(ERR_BLOCK_IS_NOT_WITHIN_PIECE, blockIndex, blocks.size(), this));
-		}
+		requireBlockWithinPiece(blockIndex);
 
-		return blocks.get(blockIndex).getStatus();
+		synchronized (blockLock) {
+			return BLOCK_STATUSES[blockStates[blockIndex]];
+		}
 	}
 
 	/**
@@ -247,7 +500,7 @@ public class Piece {
 	 * @return If this piece is completed
 	 */
 	public boolean isDone() {
-		return blocks.stream().allMatch(b -> b.getStatus() == BlockStatus.Verified);
+		return countBlocksWithStatus(BlockStatus.Verified) == blockCount;
 	}
 
 	/**
@@ -256,7 +509,7 @@ public class Piece {
 	 * @return true if any progress is found
 	 */
 	public boolean isStarted() {
-		return blocks.stream().anyMatch(b -> b.getStatus() != BlockStatus.Needed);
+		return countBlocksWithStatus(BlockStatus.Needed) != blockCount;
 	}
 
 	/**
@@ -265,7 +518,7 @@ public class Piece {
 	 * @return block count
 	 */
 	public int getBlockCount() {
-		return blocks.size();
+		return blockCount;
 	}
 
 	/**
@@ -284,7 +537,7 @@ public class Piece {
 	 * @return The size of this piece
 	 */
 	public int getSize() {
-		return blocks.stream().mapToInt(Block::getSize).sum();
+		return size;
 	}
 
 	/**
@@ -292,7 +545,9 @@ public class Piece {
 	 * @return The amount of blocks in this piece with the given status.
 	 */
 	public int countBlocksWithStatus(BlockStatus status) {
-		return (int) blocks.stream().filter(block -> block.getStatus() == status).count();
+		synchronized (blockLock) {
+			return statusCounts[status.ordinal()];
+		}
 	}
 
 	/**
@@ -302,7 +557,7 @@ public class Piece {
 	 * @return returns <code>true</code> when at least 1 block has the given status, otherwise <code>false</code>
 	 */
 	public boolean hasBlockWithStatus(BlockStatus status) {
-		return blocks.stream().anyMatch(block -> block.getStatus() == status);
+		return countBlocksWithStatus(status) > 0;
 	}
 
 	/**
@@ -311,13 +566,21 @@ public class Piece {
 	 * @return an unrequested block
 	 */
 	public Optional<Block> getRequestBlock() {
-		Optional<Block> block = blocks.stream().filter(p -> p.getStatus() == BlockStatus.Needed).findAny();
+		int blockIndex;
+		synchronized (blockLock) {
+			blockIndex = neededBlocks.nextSetBit(neededCursor);
+			if (blockIndex < 0) {
+				neededCursor = blockCount;
+				return Optional.empty();
+			}
 
-		if (block.isPresent()) {
-			block.get().setStatus(BlockStatus.Requested);
+			updateStatus(blockIndex, BlockStatus.Requested);
+			neededCursor = blockIndex + 1;
 		}
 
-		return block;
+		Block block = new Block(blockIndex, getBlockSize(blockIndex));
+		block.setStatus(BlockStatus.Requested);
+		return Optional.of(block);
 	}
 
 	/**
@@ -327,11 +590,9 @@ public class Piece {
 	 * @return Size of the block in bytes
 	 */
 	public int getBlockSize(int blockIndex) {
-		if (blockIndex < 0 || blockIndex >= blocks.size()) {
-			throw new IllegalArgumentException(String.format(ERR_BLOCK_IS_NOT_WITHIN_PIECE, blockIndex, blocks.size(), this));
-		}
+		requireBlockWithinPiece(blockIndex);
 
-		return blocks.get(blockIndex).getSize();
+		return blockIndex == blockCount - 1 ? lastBlockSize : blockSize;
 	}
 
 	/**
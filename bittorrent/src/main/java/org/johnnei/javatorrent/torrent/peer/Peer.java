@@ -11,6 +11,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageBlock;
+import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageBlockRegion;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageChoke;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageInterested;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageKeepAlive;
@@ -23,6 +24,7 @@ import org.johnnei.javatorrent.internal.torrent.peer.Job;
 import org.johnnei.javatorrent.module.IModule;
 import org.johnnei.javatorrent.network.BitTorrentSocket;
 import org.johnnei.javatorrent.torrent.Torrent;
+import org.johnnei.javatorrent.torrent.TorrentFileSet;
 import org.johnnei.javatorrent.torrent.files.BlockStatus;
 import org.johnnei.javatorrent.torrent.files.Piece;
 import org.johnnei.javatorrent.utils.Argument;
@@ -327,6 +329,7 @@ public class Peer {
 	 */
 	public void setHavingPiece(int pieceIndex) {
 		haveState.havePiece(pieceIndex, torrent.isDownloadingMetadata());
+		torrent.onPeerHasPiece(this, pieceIndex);
 	}
 
 	/**
@@ -339,6 +342,17 @@ public class Peer {
 		return haveState.hasPiece(pieceIndex);
 	}
 
+	/**
+	 * Checks if the peer has any piece which hasn't been completed in the given file set. The bitfields are compared word by word instead of
+	 * checking every needed piece.
+	 *
+	 * @param fileSet The file set to compare with
+	 * @return returns true when the peer has a piece which we still need
+	 */
+	public boolean hasNeededPiece(TorrentFileSet fileSet) {
+		return haveState.hasAnyAndNot(fileSet.getBitfield(), fileSet.getPieceCount());
+	}
+
 	/**
 	 * Gets the time at which the last byte has been read or written to the socket.
 	 * @return The most recent activity time
@@ -540,9 +554,31 @@ public class Peer {
 			return;
 		}
 
+		Optional<byte[]> cachedData = torrent.getReadCache().readCached(request.getPiece(), request.getBlockIndex(), request.getLength());
+		if (cachedData.isPresent()) {
+			// The piece is already in memory, there is no need to wait for a disk worker.
+			socket.enqueueMessage(new MessageBlock(request.getPiece().getIndex(), request.getBlockIndex(), cachedData.get()));
+			torrent.addUploadedBytes(cachedData.get().length);
+			return;
+		}
+
 		addToPendingMessages(1);
 
-		torrent.addDiskJob(new DiskJobReadBlock(request.getPiece(), request.getBlockIndex(), request.getLength(), this::onReadBlockComplete));
+		if (socket.supportsFileTransfer()) {
+			// The data will be transferred from the files onto the socket without passing through the heap. These transfers don't populate the read cache
+			// as the operating system already keeps the recently transferred file pages in memory.
+			socket.enqueueMessage(new MessageBlockRegion(request.getPiece(), request.getBlockIndex(), request.getLength(), this::onBlockRegionTransferred));
+			return;
+		}
+
+		torrent.addDiskJob(new DiskJobReadBlock(
+			request.getPiece(),
+			request.getBlockIndex(),
+			request.getLength(),
+			torrent.getReadCache(),
+			this::onReadBlockComplete,
+			this::onReadBlockFailed
+		));
 	}
 
 	/**
@@ -559,6 +595,16 @@ public class Peer {
 		torrent.addUploadedBytes(data.length);
 	}
 
+	private void onBlockRegionTransferred(MessageBlockRegion region) {
+		addToPendingMessages(-1);
+		torrent.addUploadedBytes(region.getBlockLength());
+	}
+
+	private void onReadBlockFailed(DiskJobReadBlock readJob) {
+		LOGGER.warn("Failed to read block at offset {} of piece {} for {}.", readJob.getOffset(), readJob.getPiece().getIndex(), this);
+		addToPendingMessages(-1);
+	}
+
 	public static final class Builder {
 
 		private BitTorrentSocket socket;
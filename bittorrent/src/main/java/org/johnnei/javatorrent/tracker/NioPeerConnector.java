@@ -0,0 +1,549 @@
+package org.johnnei.javatorrent.tracker;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.time.Clock;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.johnnei.javatorrent.TorrentClient;
+import org.johnnei.javatorrent.async.LoopingRunnable;
+import org.johnnei.javatorrent.internal.utils.PeerThreadFactory;
+import org.johnnei.javatorrent.network.BitTorrentSocket;
+import org.johnnei.javatorrent.network.PeerConnectInfo;
+import org.johnnei.javatorrent.network.PeerIoMode;
+import org.johnnei.javatorrent.network.socket.ISocket;
+import org.johnnei.javatorrent.network.socket.TcpSocket;
+import org.johnnei.javatorrent.torrent.Torrent;
+import org.johnnei.javatorrent.utils.Argument;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link IPeerConnector} which establishes many TCP connections concurrently on a single thread by using non-blocking {@link SocketChannel}s. The
+ * amount of concurrent connection attempts is capped, queued peers are started in a round-robin fashion over the torrents so that a large tracker
+ * response of one torrent doesn't delay the other torrents. Established connections are handed to {@link TorrentClient#startHandshake(BitTorrentSocket,
+ * Torrent)}.
+ * <p>
+ * The sockets are created by the {@link org.johnnei.javatorrent.network.ConnectionDegradation} of the client and a failed attempt is retried with the
+ * next connection type. Sockets which are backed by a channel (see {@link TcpSocket#openChannel()}) are connected on the selector. With
+ * {@link PeerIoMode#Selector} this includes TCP sockets which the degradation creates without a channel. Other sockets (such as uTP) can only connect
+ * blocking and are connected on a small pool of threads owned by this connector, so they never occupy the executor service of the client.
+ * </p>
+ */
+public class NioPeerConnector implements Runnable, IPeerConnector {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(NioPeerConnector.class);
+
+	/**
+	 * The maximum time in milliseconds to wait on the remote end to accept the connection.
+	 */
+	private static final long CONNECT_TIMEOUT = 10_000;
+
+	/**
+	 * The maximum time in milliseconds to wait on the selector.
+	 */
+	private static final long SELECT_TIMEOUT = 1_000;
+
+	/**
+	 * The default maximum amount of connection attempts which are in progress at the same time.
+	 */
+	public static final int DEFAULT_MAX_IN_FLIGHT = 100;
+
+	/**
+	 * The maximum amount of threads which connect the sockets which can only connect blocking.
+	 */
+	private static final int MAX_BLOCKING_CONNECT_THREADS = 8;
+
+	private final Object peerListLock = new Object();
+
+	private final TorrentClient torrentClient;
+
+	private final int maxInFlight;
+
+	private final Selector selector;
+
+	private final LoopingRunnable runnable;
+
+	/**
+	 * The threads which connect the sockets which aren't backed by a channel. Idle threads are stopped.
+	 */
+	private final ThreadPoolExecutor blockingConnectPool;
+
+	private Clock clock = Clock.systemDefaultZone();
+
+	/**
+	 * The peers waiting for a connection attempt, grouped by torrent.
+	 */
+	private final Map<Torrent, Queue<PeerConnectInfo>> queuedPeers;
+
+	/**
+	 * The order in which the torrents get to start their next connection attempt.
+	 */
+	private final Queue<Torrent> torrentRotation;
+
+	/**
+	 * The attempts which failed and are retried with the next connection type. These remain counted as in progress.
+	 */
+	private final Queue<ConnectAttempt> fallbackAttempts;
+
+	/**
+	 * The amount of connection attempts in progress per torrent.
+	 */
+	private final Map<Torrent, Integer> inFlightPeers;
+
+	private int queuedCount;
+
+	private int inFlightCount;
+
+	/**
+	 * The connection attempts in order of their deadline. Only accessed from the thread executing this connector.
+	 */
+	private final Queue<ConnectAttempt> attempts;
+
+	/**
+	 * The attempts which have connected but of which the selection key has not yet been removed from the selector.
+	 */
+	private final List<ConnectAttempt> connectedAttempts;
+
+	/**
+	 * Creates a new connector.
+	 * @param torrentClient The client for which the peers are being connected.
+	 * @param maxInFlight The maximum amount of connection attempts which are in progress at the same time.
+	 * @throws UncheckedIOException When the selector can not be opened.
+	 */
+	public NioPeerConnector(TorrentClient torrentClient, int maxInFlight) {
+		Argument.requireWithinBounds(maxInFlight, 1, Integer.MAX_VALUE, () -> "The connector must allow at least one connection attempt.");
+		this.torrentClient = torrentClient;
+		this.maxInFlight = maxInFlight;
+		queuedPeers = new HashMap<>();
+		torrentRotation = new LinkedList<>();
+		fallbackAttempts = new LinkedList<>();
+		inFlightPeers = new HashMap<>();
+		attempts = new ArrayDeque<>();
+		connectedAttempts = new ArrayList<>();
+		runnable = new LoopingRunnable(this, true);
+		int blockingConnectThreads = Math.min(maxInFlight, MAX_BLOCKING_CONNECT_THREADS);
+		blockingConnectPool = new ThreadPoolExecutor(
+			blockingConnectThreads,
+			blockingConnectThreads,
+			60,
+			TimeUnit.SECONDS,
+			new LinkedBlockingQueue<>(),
+			new PeerThreadFactory("Peer Connector ")
+		);
+		blockingConnectPool.allowCoreThreadTimeOut(true);
+		try {
+			selector = Selector.open();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to open selector.", e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void enqueuePeer(PeerConnectInfo peerInfo) {
+		if (peerInfo == null) {
+			return;
+		}
+
+		synchronized (peerListLock) {
+			Queue<PeerConnectInfo> peers = queuedPeers.get(peerInfo.getTorrent());
+			if (peers == null) {
+				peers = new LinkedList<>();
+				queuedPeers.put(peerInfo.getTorrent(), peers);
+				torrentRotation.add(peerInfo.getTorrent());
+			}
+
+			peers.add(peerInfo);
+			queuedCount++;
+		}
+
+		selector.wakeup();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void start() {
+		Thread thread = new Thread(runnable, "Peer Connector");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void stop() {
+		runnable.stop();
+		blockingConnectPool.shutdownNow();
+		try {
+			selector.close();
+		} catch (IOException e) {
+			LOGGER.debug("Failed to close selector.", e);
+		}
+	}
+
+	/**
+	 * Starts queued connection attempts up to the in-flight limit and processes the attempts which have completed or timed out.
+	 */
+	@Override
+	public void run() {
+		try {
+			startConnectionAttempts();
+			selector.select(getSelectTimeout());
+			processSelectedKeys();
+			expireAttempts();
+		} catch (ClosedSelectorException e) {
+			LOGGER.trace("Selector has been closed.", e);
+		} catch (IOException e) {
+			LOGGER.warn("Failed to select connected peers.", e);
+		}
+	}
+
+	private long getSelectTimeout() {
+		ConnectAttempt nextDeadline = attempts.peek();
+		if (nextDeadline == null) {
+			return SELECT_TIMEOUT;
+		}
+
+		// A timeout of zero would block indefinitely.
+		return Math.max(1, Math.min(SELECT_TIMEOUT, nextDeadline.deadline - clock.millis()));
+	}
+
+	private void startConnectionAttempts() {
+		ConnectAttempt fallbackAttempt;
+		while ((fallbackAttempt = pollFallbackAttempt()) != null) {
+			connect(fallbackAttempt);
+		}
+
+		PeerConnectInfo peerInfo;
+		while (hasAttemptCapacity() && (peerInfo = pollQueuedPeer()) != null) {
+			if (torrentClient.getPeerDistributor().hasReachedPeerLimit(peerInfo.getTorrent())) {
+				// Later on we might need to peer.
+				final PeerConnectInfo delayedPeer = peerInfo;
+				torrentClient.getExecutorService().schedule(() -> enqueuePeer(delayedPeer), 10, TimeUnit.SECONDS);
+				continue;
+			}
+
+			startConnectionAttempt(peerInfo);
+		}
+	}
+
+	private boolean hasAttemptCapacity() {
+		// Attempts of sockets which connect blocking finish on the executor service.
+		synchronized (peerListLock) {
+			return inFlightCount < maxInFlight;
+		}
+	}
+
+	/**
+	 * Takes the next peer of the torrent which is next in the rotation.
+	 * @return The peer to connect or <code>null</code> when no peers are queued.
+	 */
+	private PeerConnectInfo pollQueuedPeer() {
+		synchronized (peerListLock) {
+			Torrent torrent = torrentRotation.poll();
+			if (torrent == null) {
+				return null;
+			}
+
+			Queue<PeerConnectInfo> peers = queuedPeers.get(torrent);
+			PeerConnectInfo peerInfo = peers.remove();
+			if (peers.isEmpty()) {
+				queuedPeers.remove(torrent);
+			} else {
+				torrentRotation.add(torrent);
+			}
+
+			queuedCount--;
+			return peerInfo;
+		}
+	}
+
+	private ConnectAttempt pollFallbackAttempt() {
+		synchronized (peerListLock) {
+			return fallbackAttempts.poll();
+		}
+	}
+
+	private void startConnectionAttempt(PeerConnectInfo peerInfo) {
+		ISocket socket;
+		try {
+			socket = toSelectableSocket(torrentClient.getConnectionDegradation().createPreferredSocket());
+		} catch (UncheckedIOException e) {
+			LOGGER.warn("Failed to create socket to connect to peer ({}:{})", peerInfo.getAddress().getAddress(), peerInfo.getAddress().getPort(), e);
+			return;
+		}
+
+		onAttemptStarted(peerInfo.getTorrent());
+		connect(new ConnectAttempt(peerInfo, socket));
+	}
+
+	/**
+	 * Replaces a TCP socket without a channel with one that has a channel when the peers are processed by a selector, so it can connect without blocking.
+	 * Other peer IO modes keep the socket as they read from its streams, which don't report the available bytes of a channel on all JVMs.
+	 */
+	private ISocket toSelectableSocket(ISocket socket) {
+		if (!(socket instanceof TcpSocket) || socket.getChannel().isPresent() || torrentClient.getPeerIoMode() != PeerIoMode.Selector) {
+			return socket;
+		}
+
+		closeQuietly(socket);
+		return TcpSocket.openChannel();
+	}
+
+	private void connect(ConnectAttempt attempt) {
+		Optional<SocketChannel> channel = attempt.socket.getChannel();
+		if (!channel.isPresent()) {
+			blockingConnectPool.execute(() -> connectBlocking(attempt));
+			return;
+		}
+
+		attempt.deadline = clock.millis() + CONNECT_TIMEOUT;
+		try {
+			channel.get().configureBlocking(false);
+			if (channel.get().connect(attempt.peerInfo.getAddress())) {
+				onConnected(attempt);
+				return;
+			}
+
+			attempt.key = channel.get().register(selector, SelectionKey.OP_CONNECT, attempt);
+			attempts.add(attempt);
+		} catch (IOException e) {
+			fail(attempt, e);
+		}
+	}
+
+	private void connectBlocking(ConnectAttempt attempt) {
+		try {
+			attempt.socket.connect(attempt.peerInfo.getAddress());
+			onConnected(attempt);
+		} catch (IOException e) {
+			fail(attempt, e);
+		}
+	}
+
+	private void processSelectedKeys() throws IOException {
+		Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+		while (keys.hasNext()) {
+			SelectionKey key = keys.next();
+			keys.remove();
+
+			ConnectAttempt attempt = (ConnectAttempt) key.attachment();
+			if (attempt.done) {
+				continue;
+			}
+
+			try {
+				if (attempt.socket.getChannel().get().finishConnect()) {
+					key.cancel();
+					finish(attempt);
+					connectedAttempts.add(attempt);
+				}
+			} catch (IOException e) {
+				fail(attempt, e);
+			}
+		}
+
+		if (connectedAttempts.isEmpty()) {
+			return;
+		}
+
+		// The channels can only be handed over once the cancelled keys have been removed from the selector.
+		selector.selectNow();
+		for (ConnectAttempt attempt : connectedAttempts) {
+			try {
+				onConnected(attempt);
+			} catch (IOException e) {
+				fail(attempt, e);
+			}
+		}
+		connectedAttempts.clear();
+	}
+
+	private void expireAttempts() {
+		long now = clock.millis();
+		ConnectAttempt attempt;
+		while ((attempt = attempts.peek()) != null && (attempt.done || attempt.deadline <= now)) {
+			attempts.poll();
+			if (!attempt.done) {
+				fail(attempt, new IOException("Connection attempt timed out."));
+			}
+		}
+	}
+
+	private void onConnected(ConnectAttempt attempt) throws IOException {
+		finish(attempt);
+
+		PeerConnectInfo peerInfo = attempt.peerInfo;
+		LOGGER.debug("Connected with {}:{}", peerInfo.getAddress().getAddress(), peerInfo.getAddress().getPort());
+		Optional<SocketChannel> channel = attempt.socket.getChannel();
+		if (channel.isPresent()) {
+			// The handshake will switch the channel back to non-blocking mode when it is driven by an event loop.
+			channel.get().configureBlocking(true);
+		}
+		BitTorrentSocket peerSocket = createSocket(attempt.socket);
+		torrentClient.startHandshake(peerSocket, peerInfo.getTorrent());
+	}
+
+	BitTorrentSocket createSocket(ISocket socket) throws IOException {
+		return new BitTorrentSocket(torrentClient.getMessageFactory(), socket);
+	}
+
+	private void fail(ConnectAttempt attempt, IOException e) {
+		PeerConnectInfo peerInfo = attempt.peerInfo;
+		LOGGER.debug(
+			"Failed to connect to peer ({}:{}) with {}",
+			peerInfo.getAddress().getAddress(),
+			peerInfo.getAddress().getPort(),
+			attempt.socket.getClass().getSimpleName(),
+			e
+		);
+
+		if (attempt.key != null) {
+			attempt.key.cancel();
+		}
+		closeQuietly(attempt.socket);
+
+		if (attempt.done) {
+			// The connection was established but could not be handed over, other connection types won't fix that.
+			return;
+		}
+
+		Optional<ISocket> fallbackSocket;
+		try {
+			fallbackSocket = torrentClient.getConnectionDegradation().degradeSocket(attempt.socket).map(this::toSelectableSocket);
+		} catch (UncheckedIOException fallbackException) {
+			LOGGER.warn(
+				"Failed to create fallback socket to connect to peer ({}:{})",
+				peerInfo.getAddress().getAddress(),
+				peerInfo.getAddress().getPort(),
+				fallbackException
+			);
+			fallbackSocket = Optional.empty();
+		}
+
+		if (!fallbackSocket.isPresent()) {
+			finish(attempt);
+			return;
+		}
+
+		// The peer remains in progress while it is retried with the next connection type.
+		attempt.done = true;
+		synchronized (peerListLock) {
+			fallbackAttempts.add(new ConnectAttempt(peerInfo, fallbackSocket.get()));
+		}
+		selector.wakeup();
+	}
+
+	/**
+	 * Marks the attempt as no longer being in progress.
+	 */
+	private void finish(ConnectAttempt attempt) {
+		if (attempt.done) {
+			return;
+		}
+
+		attempt.done = true;
+		onAttemptFinished(attempt.peerInfo.getTorrent());
+	}
+
+	private void onAttemptStarted(Torrent torrent) {
+		synchronized (peerListLock) {
+			inFlightCount++;
+			inFlightPeers.merge(torrent, 1, Integer::sum);
+		}
+	}
+
+	private void onAttemptFinished(Torrent torrent) {
+		synchronized (peerListLock) {
+			inFlightCount--;
+			inFlightPeers.computeIfPresent(torrent, (key, count) -> count == 1 ? null : count - 1);
+		}
+	}
+
+	private static void closeQuietly(ISocket socket) {
+		try {
+			socket.close();
+		} catch (IOException e) {
+			LOGGER.debug("Failed to close socket.", e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getConnectingCount() {
+		synchronized (peerListLock) {
+			return queuedCount + inFlightCount;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getConnectingCountFor(Torrent torrent) {
+		synchronized (peerListLock) {
+			Queue<PeerConnectInfo> peers = queuedPeers.get(torrent);
+			return (peers == null ? 0 : peers.size()) + inFlightPeers.getOrDefault(torrent, 0);
+		}
+	}
+
+	/**
+	 * @return The maximum amount of connection attempts which are in progress at the same time.
+	 */
+	public int getMaxInFlight() {
+		return maxInFlight;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("NioPeerConnector[maxInFlight=%d]", maxInFlight);
+	}
+
+	private static final class ConnectAttempt {
+
+		private final PeerConnectInfo peerInfo;
+
+		private final ISocket socket;
+
+		/**
+		 * The time in milliseconds at which the attempt is abandoned. Only used for sockets which are connected on the selector.
+		 */
+		private long deadline;
+
+		private SelectionKey key;
+
+		/**
+		 * If the attempt has either connected, failed or has been replaced by an attempt with the next connection type.
+		 */
+		private boolean done;
+
+		ConnectAttempt(PeerConnectInfo peerInfo, ISocket socket) {
+			this.peerInfo = peerInfo;
+			this.socket = socket;
+		}
+	}
+}
@@ -1,7 +1,6 @@
 package org.johnnei.javatorrent.tracker;
 
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
@@ -10,12 +9,9 @@ import java.util.concurrent.locks.ReentrantLock;
 
 import org.johnnei.javatorrent.TorrentClient;
 import org.johnnei.javatorrent.async.LoopingRunnable;
-import org.johnnei.javatorrent.bittorrent.protocol.BitTorrentHandshake;
 import org.johnnei.javatorrent.network.BitTorrentSocket;
 import org.johnnei.javatorrent.network.PeerConnectInfo;
 import org.johnnei.javatorrent.torrent.Torrent;
-import org.johnnei.javatorrent.torrent.peer.Peer;
-import org.johnnei.javatorrent.utils.StringUtils;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -123,16 +119,8 @@ public class PeerConnector implements Runnable, IPeerConnector {
 		BitTorrentSocket peerSocket = createUnconnectedSocket();
 		try {
 			peerSocket.connect(torrentClient.getConnectionDegradation(), peerInfo.getAddress());
-			peerSocket.sendHandshake(torrentClient.getExtensionBytes(), torrentClient.getPeerId(), peerInfo.getTorrent().getMetadata().getHash());
-			BitTorrentHandshake handshake = checkHandshake(peerSocket, peerInfo.getTorrent().getMetadata().getHash());
-			Peer peer = new Peer.Builder()
-					.setSocket(peerSocket)
-					.setTorrent(peerInfo.getTorrent())
-					.setExtensionBytes(handshake.getPeerExtensionBytes())
-					.setId(handshake.getPeerId())
-					.build();
 			LOGGER.debug("Connected with {}:{}", peerInfo.getAddress().getAddress(), peerInfo.getAddress().getPort());
-			peerInfo.getTorrent().addPeer(peer);
+			torrentClient.startHandshake(peerSocket, peerInfo.getTorrent());
 		} catch (IOException e) {
 			LOGGER.debug("Failed to connect to peer ({}:{})", peerInfo.getAddress().getAddress(), peerInfo.getAddress().getPort(), e);
 			peerSocket.close();
@@ -143,16 +131,6 @@ public class PeerConnector implements Runnable, IPeerConnector {
 		return new BitTorrentSocket(torrentClient.getMessageFactory());
 	}
 
-	private BitTorrentHandshake checkHandshake(BitTorrentSocket peerSocket, byte[] torrentHash) throws IOException {
-		BitTorrentHandshake handshake = peerSocket.readHandshake();
-
-		if (!Arrays.equals(torrentHash, handshake.getTorrentHash())) {
-			throw new IOException(String.format("Peer does not download the same torrent (Expected: %s, Got: %s)", StringUtils.byteArrayToString(torrentHash), StringUtils.byteArrayToString(handshake.getTorrentHash())));
-		}
-
-		return handshake;
-	}
-
 	/**
 	 * {@inheritDoc}
 	 */
@@ -11,16 +11,18 @@ import org.johnnei.javatorrent.async.LoopingRunnable;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.IMessage;
 import org.johnnei.javatorrent.bittorrent.tracker.ITracker;
 import org.johnnei.javatorrent.disk.IDiskJob;
-import org.johnnei.javatorrent.internal.disk.IOManager;
+import org.johnnei.javatorrent.internal.disk.DiskWorkerPool;
 import org.johnnei.javatorrent.internal.torrent.TorrentManager;
 import org.johnnei.javatorrent.module.IModule;
 import org.johnnei.javatorrent.network.ConnectionDegradation;
+import org.johnnei.javatorrent.network.PeerIoMode;
 import org.johnnei.javatorrent.phases.IDownloadPhase;
 import org.johnnei.javatorrent.phases.PhaseRegulator;
 import org.johnnei.javatorrent.torrent.Torrent;
 import org.johnnei.javatorrent.torrent.algos.requests.IRequestLimiter;
 import org.johnnei.javatorrent.tracker.IPeerConnector;
 import org.johnnei.javatorrent.tracker.IPeerDistributor;
+import org.johnnei.javatorrent.tracker.NioPeerConnector;
 
 import static org.johnnei.javatorrent.test.TestUtils.assertPresent;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
@@ -255,7 +257,7 @@ public class TorrentClientTest {
 		IPeerConnector peerConnectorMock = mock(IPeerConnector.class);
 		IPeerDistributor peerDistributor = mock(IPeerDistributor.class);
 		IRequestLimiter requestLimiterMock = mock(IRequestLimiter.class);
-		IOManager ioManagerMock = mock(IOManager.class);
+		DiskWorkerPool diskWorkerPoolMock = mock(DiskWorkerPool.class);
 		IDiskJob diskJobMock = mock(IDiskJob.class);
 
 		TorrentClient cut = new TorrentClient.Builder()
@@ -268,12 +270,12 @@ public class TorrentClientTest {
 				.registerTrackerProtocol("udp", (url, client) -> null)
 				.build();
 
-		Whitebox.setInternalState(cut, ioManagerMock);
+		Whitebox.setInternalState(cut, diskWorkerPoolMock);
 
 		cut.addDiskJob(diskJobMock);
 
 		verify(peerConnectorMock).start();
-		verify(ioManagerMock).addTask(same(diskJobMock));
+		verify(diskWorkerPoolMock).addTask(same(diskJobMock));
 	}
 
 	@Test
@@ -301,4 +303,36 @@ public class TorrentClientTest {
 		TorrentManager torrentManager = Whitebox.getInternalState(cut, TorrentManager.class);
 		assertNotNull(Whitebox.getInternalState(torrentManager, "connectorRunnable"), "Connector should have been attempted to start.");
 	}
+
+	@Test
+	public void testSelectorModeDefaultsToNioPeerConnector() throws Exception {
+		TorrentClient cut = new TorrentClient.Builder()
+				.setConnectionDegradation(mock(ConnectionDegradation.class))
+				.setPhaseRegulator(mock(PhaseRegulator.class))
+				.setExecutorService(mock(ScheduledExecutorService.class))
+				.setRequestLimiter(mock(IRequestLimiter.class))
+				.setPeerDistributor(tc -> mock(IPeerDistributor.class))
+				.setPeerIoMode(PeerIoMode.Selector)
+				.registerTrackerProtocol("udp", (url, client) -> null)
+				.build();
+
+		try {
+			assertTrue(cut.getPeerConnector() instanceof NioPeerConnector, "Selector mode should connect peers without blocking by default");
+		} finally {
+			cut.shutdown();
+		}
+	}
+
+	@Test
+	public void testPollingModeRequiresPeerConnector() {
+		TorrentClient.Builder builder = new TorrentClient.Builder()
+				.setConnectionDegradation(mock(ConnectionDegradation.class))
+				.setPhaseRegulator(mock(PhaseRegulator.class))
+				.setExecutorService(mock(ScheduledExecutorService.class))
+				.setRequestLimiter(mock(IRequestLimiter.class))
+				.setPeerDistributor(tc -> mock(IPeerDistributor.class))
+				.registerTrackerProtocol("udp", (url, client) -> null);
+
+		assertThrows(NullPointerException.class, builder::build);
+	}
 }
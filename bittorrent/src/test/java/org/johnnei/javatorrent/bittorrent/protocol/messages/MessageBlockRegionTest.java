@@ -0,0 +1,88 @@
+package org.johnnei.javatorrent.bittorrent.protocol.messages;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import org.johnnei.javatorrent.network.OutStream;
+import org.johnnei.javatorrent.torrent.files.Piece;
+import org.johnnei.javatorrent.torrent.peer.Peer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link MessageBlockRegion}
+ */
+public class MessageBlockRegionTest {
+
+	@Test
+	public void testStaticMethods() {
+		Piece pieceMock = mock(Piece.class);
+		MessageBlockRegion cut = new MessageBlockRegion(pieceMock, 0, 16384);
+
+		assertEquals(7, cut.getId(), "Incorrect message ID");
+		assertEquals(16393, cut.getLength(), "Incorrect message length");
+		assertEquals(16384, cut.getBlockLength(), "Incorrect block length");
+		assertTrue(cut.toString().startsWith("MessageBlockRegion["), "Incorrect toString start.");
+	}
+
+	@Test
+	public void testOnTransferred() {
+		AtomicReference<MessageBlockRegion> transferredRegion = new AtomicReference<>();
+		MessageBlockRegion cut = new MessageBlockRegion(mock(Piece.class), 0, 16384, transferredRegion::set);
+
+		cut.onTransferred();
+
+		assertSame(cut, transferredRegion.get(), "Callback should have been invoked with the region");
+	}
+
+	@Test
+	public void testWriteHeader() {
+		Piece pieceMock = mock(Piece.class);
+		when(pieceMock.getIndex()).thenReturn(2);
+
+		MessageBlockRegion cut = new MessageBlockRegion(pieceMock, 5, 3);
+		OutStream outStream = new OutStream();
+		cut.writeHeader(outStream);
+
+		assertArrayEquals(new byte[] {
+				0x00, 0x00, 0x00, 0x0C,
+				0x07,
+				0x00, 0x00, 0x00, 0x02,
+				0x00, 0x00, 0x00, 0x05
+		}, outStream.toByteArray(), "Incorrect header");
+		assertEquals(MessageBlockRegion.HEADER_SIZE, outStream.size(), "Incorrect header size");
+	}
+
+	@Test
+	public void testWrite() throws Exception {
+		Piece pieceMock = mock(Piece.class);
+		when(pieceMock.getIndex()).thenReturn(2);
+		when(pieceMock.loadPiece(5, 3)).thenReturn(new byte[] { 1, 2, 3 });
+
+		MessageBlockRegion cut = new MessageBlockRegion(pieceMock, 5, 3);
+		OutStream outStream = new OutStream();
+		cut.write(outStream);
+
+		assertArrayEquals(new byte[] {
+				0x00, 0x00, 0x00, 0x02,
+				0x00, 0x00, 0x00, 0x05,
+				0x01, 0x02, 0x03
+		}, outStream.toByteArray(), "Incorrect message content");
+	}
+
+	@Test
+	public void testReadAndProcessAreUnsupported() {
+		MessageBlockRegion cut = new MessageBlockRegion(mock(Piece.class), 0, 1);
+
+		assertThrows(UnsupportedOperationException.class, () -> cut.read(null));
+		assertThrows(UnsupportedOperationException.class, () -> cut.process(mock(Peer.class)));
+	}
+
+}
@@ -0,0 +1,84 @@
+package org.johnnei.javatorrent.disk;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.johnnei.javatorrent.bittorrent.encoding.SHA1;
+import org.johnnei.junit.jupiter.Folder;
+import org.johnnei.junit.jupiter.TempFolderExtension;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests {@link ChannelFileStorage}
+ */
+@ExtendWith(TempFolderExtension.class)
+public class ChannelFileStorageTest {
+
+	@Test
+	public void testWriteAndRead(@Folder Path tmp) throws Exception {
+		try (RandomAccessFile file = new RandomAccessFile(tmp.resolve("a").toFile(), "rw")) {
+			ChannelFileStorage cut = new ChannelFileStorage(file.getChannel());
+
+			cut.write(ByteBuffer.wrap(new byte[] { 1, 2, 3, 4 }), 2);
+			ByteBuffer buffer = ByteBuffer.allocate(3);
+			cut.read(buffer, 3);
+
+			assertEquals(6, cut.size(), "Incorrect file size");
+			assertArrayEquals(new byte[] { 2, 3, 4 }, buffer.array(), "Incorrect bytes read");
+		}
+	}
+
+	@Test
+	public void testReadBeyondEndOfFile(@Folder Path tmp) throws Exception {
+		try (RandomAccessFile file = new RandomAccessFile(tmp.resolve("a").toFile(), "rw")) {
+			ChannelFileStorage cut = new ChannelFileStorage(file.getChannel());
+			cut.write(ByteBuffer.wrap(new byte[] { 1, 2 }), 0);
+
+			assertThrows(EOFException.class, () -> cut.read(ByteBuffer.allocate(3), 0));
+		}
+	}
+
+	@Test
+	public void testDigest(@Folder Path tmp) throws Exception {
+		byte[] data = new byte[50_000];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) i;
+		}
+
+		try (RandomAccessFile file = new RandomAccessFile(tmp.resolve("a").toFile(), "rw")) {
+			ChannelFileStorage cut = new ChannelFileStorage(file.getChannel());
+			cut.write(ByteBuffer.wrap(data), 0);
+
+			MessageDigest digest = SHA1.createDigest();
+			cut.digest(digest, 0, data.length);
+
+			assertArrayEquals(SHA1.hash(data), digest.digest(), "Incorrect digest");
+		}
+	}
+
+	@Test
+	public void testTransferTo(@Folder Path tmp) throws Exception {
+		try (RandomAccessFile file = new RandomAccessFile(tmp.resolve("a").toFile(), "rw")) {
+			ChannelFileStorage cut = new ChannelFileStorage(file.getChannel());
+			cut.write(ByteBuffer.wrap(new byte[] { 1, 2, 3, 4, 5 }), 0);
+
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+			long transferred = cut.transferTo(1, 3, Channels.newChannel(outputStream));
+
+			assertEquals(3, transferred, "Incorrect amount of bytes transferred");
+			assertArrayEquals(new byte[] { 2, 3, 4 }, outputStream.toByteArray(), "Incorrect bytes transferred");
+		}
+	}
+
+}
@@ -8,6 +8,7 @@ import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import org.johnnei.javatorrent.internal.disk.PieceReadCache;
 import org.johnnei.javatorrent.test.StubEntity;
 import org.johnnei.javatorrent.torrent.AbstractFileSet;
 import org.johnnei.javatorrent.torrent.FileInfo;
@@ -16,6 +17,9 @@ import org.johnnei.javatorrent.torrent.files.Piece;
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 
 /**
@@ -53,4 +57,19 @@ public class DiskJobReadBlockTest {
 		);
 	}
 
+	@Test
+	public void testReadBlockThroughCache() throws Exception {
+		Piece piece = mock(Piece.class);
+		PieceReadCache readCache = mock(PieceReadCache.class);
+		byte[] data = new byte[] { 1, 2, 3 };
+		when(readCache.read(piece, 3, 3)).thenReturn(data);
+
+		DiskJobReadBlock cut = new DiskJobReadBlock(piece, 3, 3, readCache, x -> countDownLatch.countDown());
+		cut.process();
+
+		assertTrue(countDownLatch.await(5, TimeUnit.SECONDS), "Callback method wasn't called");
+		assertEquals(data, cut.getBlockData(), "Data should have been read through the cache");
+		verify(readCache).read(piece, 3, 3);
+	}
+
 }
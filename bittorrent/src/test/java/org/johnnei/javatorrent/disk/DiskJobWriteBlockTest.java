@@ -2,6 +2,7 @@ package org.johnnei.javatorrent.disk;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -24,6 +25,7 @@ import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
 
 
 /**
@@ -65,4 +67,13 @@ public class DiskJobWriteBlockTest {
 		);
 	}
 
+	@Test
+	public void testOnFailure() throws Exception {
+		Piece piece = mock(Piece.class);
+		DiskJobWriteBlock cut = new DiskJobWriteBlock(piece, 0, new byte[0], x -> {}, x -> countDownLatch.countDown());
+		cut.onFailure(new IOException("Test failure"));
+
+		assertTrue(countDownLatch.await(5, TimeUnit.SECONDS), "Failure callback should have been called");
+	}
+
 }
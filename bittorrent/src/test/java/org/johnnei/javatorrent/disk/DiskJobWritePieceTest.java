@@ -0,0 +1,66 @@
+package org.johnnei.javatorrent.disk;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import org.johnnei.javatorrent.torrent.files.Piece;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link DiskJobWritePiece}
+ */
+public class DiskJobWritePieceTest {
+
+	@Test
+	public void testMatchingHash() throws Exception {
+		byte[] data = new byte[] { 1, 2, 3 };
+		Piece piece = mock(Piece.class);
+		when(piece.checkHash(data)).thenReturn(true);
+		AtomicBoolean called = new AtomicBoolean();
+
+		DiskJobWritePiece cut = new DiskJobWritePiece(piece, data, job -> called.set(true));
+		cut.process();
+
+		assertTrue(called.get(), "Callback should have been called");
+		assertTrue(cut.isMatchingHash(), "Hash should have matched");
+		verify(piece).storePiece(data);
+	}
+
+	@Test
+	public void testNonMatchingHash() throws Exception {
+		byte[] data = new byte[] { 1, 2, 3 };
+		Piece piece = mock(Piece.class);
+		when(piece.checkHash(data)).thenReturn(false);
+		AtomicBoolean called = new AtomicBoolean();
+
+		DiskJobWritePiece cut = new DiskJobWritePiece(piece, data, job -> called.set(true));
+		cut.process();
+
+		assertTrue(called.get(), "Callback should have been called");
+		assertFalse(cut.isMatchingHash(), "Hash should not have matched");
+		verify(piece, never()).storePiece(any());
+	}
+
+	@Test
+	public void testStaticMethods() {
+		Piece piece = new Piece(null, null, 0, 1, 1);
+
+		DiskJobWritePiece cut = new DiskJobWritePiece(piece, new byte[1], x -> {});
+		assertAll(
+			() -> assertEquals(piece, cut.getPiece(), "Incorrect piece"),
+			() -> assertEquals(0, cut.getPriority(), "Incorrect priority"),
+			() -> assertTrue(cut.toString().startsWith("DiskJobWritePiece["), "Incorrect toString start")
+		);
+	}
+
+}
@@ -0,0 +1,131 @@
+package org.johnnei.javatorrent.internal.disk;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import org.johnnei.javatorrent.disk.IDiskJob;
+import org.johnnei.javatorrent.torrent.AbstractFileSet;
+import org.johnnei.javatorrent.torrent.files.Piece;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link DiskWorkerPool}
+ */
+public class DiskWorkerPoolTest {
+
+	private static IDiskJob createJob(Piece piece) {
+		IDiskJob job = mock(IDiskJob.class);
+		when(job.getPiece()).thenReturn(piece);
+		return job;
+	}
+
+	private static Piece createPiece(AbstractFileSet fileSet, int index) {
+		Piece piece = mock(Piece.class);
+		when(piece.getFileSet()).thenReturn(fileSet);
+		when(piece.getIndex()).thenReturn(index);
+		return piece;
+	}
+
+	@Test
+	public void testInvalidWorkerCount() {
+		assertThrows(IllegalArgumentException.class, () -> new DiskWorkerPool(0));
+	}
+
+	@Test
+	public void testSamePieceSameWorker() {
+		DiskWorkerPool cut = new DiskWorkerPool(4);
+		Piece piece = createPiece(mock(AbstractFileSet.class), 7);
+
+		int worker = cut.getWorkerIndex(createJob(piece));
+		for (int i = 0; i < 10; i++) {
+			assertEquals(worker, cut.getWorkerIndex(createJob(piece)), "Jobs of the same piece must be processed by the same worker");
+		}
+	}
+
+	@Test
+	public void testPiecesAreSpread() {
+		DiskWorkerPool cut = new DiskWorkerPool(4);
+		AbstractFileSet fileSet = mock(AbstractFileSet.class);
+
+		Set<Integer> usedWorkers = new HashSet<>();
+		for (int i = 0; i < 16; i++) {
+			usedWorkers.add(cut.getWorkerIndex(createJob(createPiece(fileSet, i))));
+		}
+
+		assertEquals(4, usedWorkers.size(), "Consecutive pieces should be spread over all workers");
+	}
+
+	@Test
+	public void testUnboundJobsAreSpread() {
+		DiskWorkerPool cut = new DiskWorkerPool(2);
+
+		int first = cut.getWorkerIndex(createJob(null));
+		int second = cut.getWorkerIndex(createJob(null));
+
+		assertTrue(first != second, "Jobs without a piece should be distributed round-robin");
+	}
+
+	@Test
+	public void testAddTask() {
+		DiskWorkerPool cut = new DiskWorkerPool(2);
+		Piece piece = createPiece(mock(AbstractFileSet.class), 3);
+
+		cut.addTask(createJob(piece));
+		cut.addTask(createJob(piece));
+
+		assertEquals(2, cut.getQueueSize(), "Jobs should have been queued");
+		assertEquals(2, cut.getWorkers().get(cut.getWorkerIndex(createJob(piece))).getQueueSize(), "Jobs should be on the worker of the piece");
+	}
+
+	@Test
+	public void testParallelProcessing() throws Exception {
+		DiskWorkerPool cut = new DiskWorkerPool(2);
+		AbstractFileSet fileSet = mock(AbstractFileSet.class);
+
+		// Find two pieces which are assigned to different workers.
+		Piece pieceOne = createPiece(fileSet, 0);
+		Piece pieceTwo = createPiece(fileSet, 1);
+		int index = 1;
+		while (cut.getWorkerIndex(createJob(pieceOne)) == cut.getWorkerIndex(createJob(pieceTwo))) {
+			pieceTwo = createPiece(fileSet, ++index);
+		}
+
+		CountDownLatch bothStarted = new CountDownLatch(2);
+		IDiskJob jobOne = createJob(pieceOne);
+		IDiskJob jobTwo = createJob(pieceTwo);
+		doAnswer(invocation -> {
+			bothStarted.countDown();
+			return bothStarted.await(5, TimeUnit.SECONDS);
+		}).when(jobOne).process();
+		doAnswer(invocation -> {
+			bothStarted.countDown();
+			return bothStarted.await(5, TimeUnit.SECONDS);
+		}).when(jobTwo).process();
+
+		cut.start();
+		try {
+			cut.addTask(jobOne);
+			cut.addTask(jobTwo);
+
+			assertTrue(bothStarted.await(5, TimeUnit.SECONDS), "Jobs of different pieces should be processed in parallel");
+		} finally {
+			cut.stop();
+		}
+	}
+
+	@Test
+	public void testToString() {
+		assertEquals("DiskWorkerPool[workers=3]", new DiskWorkerPool(3).toString(), "Incorrect toString");
+	}
+
+}
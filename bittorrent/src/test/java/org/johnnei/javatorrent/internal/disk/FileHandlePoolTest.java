@@ -0,0 +1,204 @@
+package org.johnnei.javatorrent.internal.disk;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.johnnei.javatorrent.disk.ChannelFileStorage;
+import org.johnnei.javatorrent.disk.IFileStorage;
+import org.johnnei.junit.jupiter.Folder;
+import org.johnnei.junit.jupiter.TempFolderExtension;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link FileHandlePool} and {@link PooledFileStorage}
+ */
+@ExtendWith(TempFolderExtension.class)
+public class FileHandlePoolTest {
+
+	private static PooledFileStorage createStorage(File file, FileHandlePool pool) {
+		return new PooledFileStorage(file, 4, (channel, size) -> new ChannelFileStorage(channel), pool);
+	}
+
+	@Test
+	public void testInvalidCapacity() {
+		assertThrows(IllegalArgumentException.class, () -> new FileHandlePool(0));
+	}
+
+	@Test
+	public void testFileIsOpenedOnAccess(@Folder Path temporaryFolder) throws IOException {
+		FileHandlePool cut = new FileHandlePool(2);
+		File file = temporaryFolder.resolve("sub").resolve("a").toFile();
+		PooledFileStorage storage = createStorage(file, cut);
+
+		assertFalse(file.exists(), "File should not be created before it's accessed");
+		assertEquals(0, cut.getOpenFileCount(), "No files should be open yet");
+
+		storage.write(ByteBuffer.wrap(new byte[] { 1, 2, 3, 4 }), 0);
+
+		assertTrue(file.exists(), "File should have been created on access");
+		assertTrue(storage.isOpen(), "File should be open after access");
+		assertEquals(1, cut.getOpenFileCount(), "File should be open");
+		assertEquals(1, cut.getOpenCount(), "File should have been opened once");
+	}
+
+	@Test
+	public void testLeastRecentlyUsedFileIsClosed(@Folder Path temporaryFolder) throws IOException {
+		FileHandlePool cut = new FileHandlePool(2);
+		PooledFileStorage storageOne = createStorage(temporaryFolder.resolve("a").toFile(), cut);
+		PooledFileStorage storageTwo = createStorage(temporaryFolder.resolve("b").toFile(), cut);
+		PooledFileStorage storageThree = createStorage(temporaryFolder.resolve("c").toFile(), cut);
+
+		storageOne.write(ByteBuffer.wrap(new byte[] { 1, 1, 1, 1 }), 0);
+		storageTwo.write(ByteBuffer.wrap(new byte[] { 2, 2, 2, 2 }), 0);
+		// Mark the first file as recently used.
+		storageOne.size();
+		storageThree.write(ByteBuffer.wrap(new byte[] { 3, 3, 3, 3 }), 0);
+
+		assertEquals(2, cut.getOpenFileCount(), "Pool should not exceed the capacity");
+		assertEquals(1, cut.getEvictionCount(), "Least recently used file should have been evicted");
+		assertEquals(1, cut.getHitCount(), "Size should have been read from the open file");
+		assertTrue(storageOne.isOpen(), "Recently used file should be kept open");
+		assertFalse(storageTwo.isOpen(), "Least recently used file should have been closed");
+		assertTrue(storageThree.isOpen(), "Latest file should be open");
+	}
+
+	@Test
+	public void testClosedFileIsReopened(@Folder Path temporaryFolder) throws IOException {
+		FileHandlePool cut = new FileHandlePool(1);
+		PooledFileStorage storageOne = createStorage(temporaryFolder.resolve("a").toFile(), cut);
+		PooledFileStorage storageTwo = createStorage(temporaryFolder.resolve("b").toFile(), cut);
+
+		storageOne.write(ByteBuffer.wrap(new byte[] { 1, 2, 3, 4 }), 0);
+		storageTwo.write(ByteBuffer.wrap(new byte[] { 5, 6, 7, 8 }), 0);
+		assertFalse(storageOne.isOpen(), "First file should have been closed");
+
+		ByteBuffer buffer = ByteBuffer.allocate(4);
+		storageOne.read(buffer, 0);
+
+		assertArrayEquals(new byte[] { 1, 2, 3, 4 }, buffer.array(), "Data should have been read from the reopened file");
+		assertEquals(3, cut.getOpenCount(), "First file should have been opened again");
+		assertEquals(2, cut.getEvictionCount(), "Each open should have evicted the other file");
+	}
+
+	@Test
+	public void testFileInUseIsNotClosed(@Folder Path temporaryFolder) throws IOException {
+		FileHandlePool cut = new FileHandlePool(1);
+		PooledFileStorage storageOne = createStorage(temporaryFolder.resolve("a").toFile(), cut);
+		PooledFileStorage storageTwo = createStorage(temporaryFolder.resolve("b").toFile(), cut);
+
+		cut.acquire(storageOne);
+		try {
+			storageTwo.size();
+
+			assertTrue(storageOne.isOpen(), "File in use must not be closed");
+			assertFalse(storageTwo.isOpen(), "Idle file should have been closed to return within the capacity");
+		} finally {
+			cut.release(storageOne);
+		}
+
+		assertEquals(1, cut.getOpenFileCount(), "Pool should be within the capacity");
+	}
+
+	@Test
+	public void testCloseIdleFiles(@Folder Path temporaryFolder) throws IOException {
+		FileHandlePool cut = new FileHandlePool(4);
+		PooledFileStorage storage = createStorage(temporaryFolder.resolve("a").toFile(), cut);
+
+		storage.size();
+		cut.closeIdleFiles();
+
+		assertFalse(storage.isOpen(), "Idle file should have been closed");
+		assertEquals(0, cut.getOpenFileCount(), "No files should be open");
+		assertEquals(0, cut.getEvictionCount(), "Closing all files is not an eviction");
+	}
+
+	@Test
+	public void testClosedFileNotifiesStorage(@Folder Path temporaryFolder) throws IOException {
+		FileHandlePool cut = new FileHandlePool(4);
+		AtomicBoolean closed = new AtomicBoolean();
+		PooledFileStorage storage = new PooledFileStorage(temporaryFolder.resolve("a").toFile(), 4, (channel, size) -> new ChannelFileStorage(channel) {
+			@Override
+			public void onClose() {
+				closed.set(true);
+			}
+		}, cut);
+
+		storage.size();
+		cut.closeIdleFiles();
+
+		assertTrue(closed.get(), "Storage should have been notified that the file has been closed");
+	}
+
+	@Test
+	public void testCreateStorage(@Folder Path temporaryFolder) throws IOException {
+		FileHandlePool cut = new FileHandlePool(2);
+		IFileStorage storage = cut.createStorage(temporaryFolder.resolve("a").toFile(), 4, (channel, size) -> new ChannelFileStorage(channel));
+
+		storage.size();
+
+		assertTrue(storage instanceof PooledFileStorage, "Storage should open the file through the pool");
+		assertEquals(1, cut.getOpenFileCount(), "File should have been opened through the pool");
+	}
+
+	@Test
+	public void testSharedPool() {
+		assertSame(FileHandlePool.getSharedPool(), FileHandlePool.getSharedPool(), "Shared pool should be reused");
+		assertEquals(FileHandlePool.DEFAULT_CAPACITY, FileHandlePool.getSharedPool().getCapacity(), "Shared pool should have the default capacity");
+	}
+
+	@Test
+	public void testOpeningFileDoesNotBlockOpenFiles(@Folder Path temporaryFolder) throws Exception {
+		FileHandlePool cut = new FileHandlePool(4);
+		CountDownLatch openingLatch = new CountDownLatch(1);
+		CountDownLatch openedLatch = new CountDownLatch(1);
+		PooledFileStorage openStorage = createStorage(temporaryFolder.resolve("a").toFile(), cut);
+		PooledFileStorage slowStorage = new PooledFileStorage(temporaryFolder.resolve("b").toFile(), 4, (channel, size) -> {
+			openingLatch.countDown();
+			try {
+				openedLatch.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return new ChannelFileStorage(channel);
+		}, cut);
+
+		openStorage.size();
+
+		ExecutorService executorService = Executors.newSingleThreadExecutor();
+		try {
+			Future<Long> slowAccess = executorService.submit(slowStorage::size);
+			openingLatch.await();
+
+			assertEquals(0, openStorage.size(), "Open file should be accessible while another file is being opened");
+
+			openedLatch.countDown();
+			assertEquals(0L, (long) slowAccess.get(5, TimeUnit.SECONDS), "Slow file should have been opened");
+		} finally {
+			openedLatch.countDown();
+			executorService.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testToString() {
+		assertEquals("FileHandlePool[capacity=3, open=0, evictions=0]", new FileHandlePool(3).toString(), "Incorrect toString");
+	}
+
+}
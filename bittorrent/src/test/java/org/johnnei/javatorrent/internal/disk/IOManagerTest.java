@@ -1,6 +1,7 @@
 package org.johnnei.javatorrent.internal.disk;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
@@ -12,9 +13,13 @@ import org.powermock.reflect.Whitebox;
 import org.johnnei.javatorrent.disk.IDiskJob;
 
 import static com.jayway.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -103,7 +108,62 @@ public class IOManagerTest {
 		cut.addTask(diskJobMock);
 		cut.run();
 
+		verify(diskJobMock).process();
+		assertEquals(1, cut.getQueueSize(), "Failed job should be waiting to be retried");
+
+		// The second run waits for the retry delay to pass.
+		cut.run();
+
 		verify(diskJobMock, times(2)).process();
+		verify(diskJobMock, never()).onFailure(any());
+		assertEquals(0, cut.getQueueSize(), "Job should have been completed");
+	}
+
+	@Test
+	public void testFailingJobDoesNotStarveOtherJobs() throws Exception {
+		IOManager cut = new IOManager(5, Duration.ofMinutes(1));
+
+		IDiskJob failingJobMock = mock(IDiskJob.class, "FailingJob");
+		IDiskJob otherJobMock = mock(IDiskJob.class, "OtherJob");
+		when(failingJobMock.getPriority()).thenReturn(0);
+		when(otherJobMock.getPriority()).thenReturn(10);
+		doThrow(new IOException("Stubbed IO Exception")).when(failingJobMock).process();
+
+		cut.addTask(failingJobMock);
+		cut.addTask(otherJobMock);
+		cut.run();
+
+		verify(failingJobMock).process();
+		verify(otherJobMock).process();
+		assertEquals(1, cut.getQueueSize(), "Failing job should be waiting to be retried");
+	}
+
+	@Test
+	public void testDropJobAfterMaxAttempts() throws Exception {
+		IOManager cut = new IOManager(3, Duration.ofMillis(1));
+
+		IOException exception = new IOException("Stubbed IO Exception");
+		IDiskJob diskJobMock = mock(IDiskJob.class);
+		doThrow(exception).when(diskJobMock).process();
+
+		cut.addTask(diskJobMock);
+		cut.run();
+		cut.run();
+		cut.run();
+
+		verify(diskJobMock, times(3)).process();
+		verify(diskJobMock).onFailure(same(exception));
+		assertEquals(0, cut.getQueueSize(), "Job should have been dropped");
+	}
+
+	@Test
+	public void testGetRetryDelay() {
+		IOManager cut = new IOManager(64, Duration.ofMillis(250));
+
+		assertEquals(Duration.ofMillis(250), cut.getRetryDelay(1), "First retry should use the initial delay");
+		assertEquals(Duration.ofMillis(500), cut.getRetryDelay(2), "Delay should double on each attempt");
+		assertEquals(Duration.ofSeconds(1), cut.getRetryDelay(3), "Delay should double on each attempt");
+		assertEquals(Duration.ofSeconds(30), cut.getRetryDelay(63), "Delay should be capped");
 	}
 
 	@Test
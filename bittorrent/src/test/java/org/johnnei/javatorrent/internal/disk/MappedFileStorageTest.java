@@ -0,0 +1,200 @@
+package org.johnnei.javatorrent.internal.disk;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.johnnei.javatorrent.bittorrent.encoding.SHA1;
+import org.johnnei.junit.jupiter.Folder;
+import org.johnnei.junit.jupiter.TempFolderExtension;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link MappedFileStorage}
+ */
+@ExtendWith(TempFolderExtension.class)
+public class MappedFileStorageTest {
+
+	private static byte[] createData(int length) {
+		byte[] data = new byte[length];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) i;
+		}
+		return data;
+	}
+
+	@Test
+	public void testWriteAndReadSpanningWindows(@Folder Path tmp) throws Exception {
+		MappedWindowCache windowCache = new MappedWindowCache(16, 64);
+		try (RandomAccessFile file = new RandomAccessFile(tmp.resolve("a").toFile(), "rw")) {
+			MappedFileStorage cut = new MappedFileStorage(file.getChannel(), 100, windowCache);
+
+			byte[] data = createData(40);
+			cut.write(ByteBuffer.wrap(data), 10);
+
+			ByteBuffer buffer = ByteBuffer.allocate(40);
+			cut.read(buffer, 10);
+
+			assertArrayEquals(data, buffer.array(), "Incorrect bytes read");
+			assertEquals(50, cut.size(), "Writing should only have extended the file to the last written byte");
+
+			cut.onClose();
+			assertEquals(50, file.length(), "Unwritten part of the mapped window should have been cut off");
+		}
+	}
+
+	@Test
+	public void testMappedBytesAreBounded(@Folder Path tmp) throws Exception {
+		MappedWindowCache windowCache = new MappedWindowCache(16, 32);
+		try (RandomAccessFile file = new RandomAccessFile(tmp.resolve("a").toFile(), "rw")) {
+			MappedFileStorage cut = new MappedFileStorage(file.getChannel(), 100, windowCache);
+
+			byte[] data = createData(100);
+			cut.write(ByteBuffer.wrap(data), 0);
+
+			assertTrue(windowCache.getMappedBytes() <= 32, "Least recently used windows should have been dropped");
+
+			// Remapping the dropped windows must yield the written data.
+			ByteBuffer buffer = ByteBuffer.allocate(100);
+			cut.read(buffer, 0);
+			assertArrayEquals(data, buffer.array(), "Incorrect bytes read");
+		}
+	}
+
+	@Test
+	public void testReadBeyondEndOfFile(@Folder Path tmp) throws Exception {
+		MappedWindowCache windowCache = new MappedWindowCache(16, 64);
+		try (RandomAccessFile file = new RandomAccessFile(tmp.resolve("a").toFile(), "rw")) {
+			MappedFileStorage cut = new MappedFileStorage(file.getChannel(), 100, windowCache);
+
+			assertThrows(EOFException.class, () -> cut.read(ByteBuffer.allocate(3), 0));
+		}
+	}
+
+	@Test
+	public void testReadUnwrittenPartOfWindow(@Folder Path tmp) throws Exception {
+		MappedWindowCache windowCache = new MappedWindowCache(16, 64);
+		try (RandomAccessFile file = new RandomAccessFile(tmp.resolve("a").toFile(), "rw")) {
+			MappedFileStorage cut = new MappedFileStorage(file.getChannel(), 100, windowCache);
+
+			cut.write(ByteBuffer.wrap(createData(4)), 0);
+
+			assertEquals(4, cut.size(), "Mapping must not extend the file beyond the written bytes");
+			assertThrows(EOFException.class, () -> cut.read(ByteBuffer.allocate(4), 8));
+		}
+	}
+
+	@Test
+	public void testSequentialWritesMapEachWindowOnce(@Folder Path tmp) throws Exception {
+		MappedWindowCache windowCache = new MappedWindowCache(16, 64);
+		try (RandomAccessFile file = new RandomAccessFile(tmp.resolve("a").toFile(), "rw")) {
+			MappedFileStorage cut = new MappedFileStorage(file.getChannel(), 40, windowCache);
+			byte[] data = createData(40);
+
+			for (int i = 0; i < data.length; i++) {
+				cut.write(ByteBuffer.wrap(data, i, 1), i);
+			}
+
+			ByteBuffer buffer = ByteBuffer.allocate(40);
+			cut.read(buffer, 0);
+
+			assertArrayEquals(data, buffer.array(), "Incorrect bytes read");
+			assertEquals(3, windowCache.getMappingCount(), "Each window should have been mapped once");
+			assertEquals(40, windowCache.getMappedBytes(), "Last window should not have been mapped beyond the file size");
+		}
+	}
+
+	@Test
+	public void testEvictedWindowInUseStaysMapped(@Folder Path tmp) throws Exception {
+		MappedWindowCache windowCache = new MappedWindowCache(16, 16);
+		try (RandomAccessFile file = new RandomAccessFile(tmp.resolve("a").toFile(), "rw")) {
+			try (MappedWindowCache.MappedWindow window = windowCache.acquire(file.getChannel(), 100, 0)) {
+				window.getBuffer().put(0, (byte) 5);
+
+				windowCache.acquire(file.getChannel(), 100, 1).close();
+
+				assertEquals(16, windowCache.getMappedBytes(), "First window should have been evicted");
+				assertEquals(5, window.getBuffer().get(0), "Evicted window should be accessible until it is closed");
+			}
+		}
+	}
+
+	@Test
+	public void testOnCloseReleasesWindows(@Folder Path tmp) throws Exception {
+		MappedWindowCache windowCache = new MappedWindowCache(16, 64);
+		try (RandomAccessFile file = new RandomAccessFile(tmp.resolve("a").toFile(), "rw");
+			RandomAccessFile otherFile = new RandomAccessFile(tmp.resolve("b").toFile(), "rw")) {
+			MappedFileStorage cut = new MappedFileStorage(file.getChannel(), 100, windowCache);
+			MappedFileStorage otherStorage = new MappedFileStorage(otherFile.getChannel(), 100, windowCache);
+
+			cut.write(ByteBuffer.wrap(createData(20)), 0);
+			otherStorage.write(ByteBuffer.wrap(createData(8)), 0);
+			cut.onClose();
+
+			assertEquals(16, windowCache.getMappedBytes(), "Only the windows of the closed file should have been dropped");
+		}
+	}
+
+	@Test
+	public void testWriteBeyondFileSize(@Folder Path tmp) throws Exception {
+		MappedWindowCache windowCache = new MappedWindowCache(16, 64);
+		try (RandomAccessFile file = new RandomAccessFile(tmp.resolve("a").toFile(), "rw")) {
+			MappedFileStorage cut = new MappedFileStorage(file.getChannel(), 10, windowCache);
+
+			assertThrows(IOException.class, () -> cut.write(ByteBuffer.allocate(3), 8));
+		}
+	}
+
+	@Test
+	public void testDigest(@Folder Path tmp) throws Exception {
+		MappedWindowCache windowCache = new MappedWindowCache(16, 64);
+		try (RandomAccessFile file = new RandomAccessFile(tmp.resolve("a").toFile(), "rw")) {
+			MappedFileStorage cut = new MappedFileStorage(file.getChannel(), 100, windowCache);
+
+			byte[] data = createData(100);
+			cut.write(ByteBuffer.wrap(data), 0);
+
+			MessageDigest digest = SHA1.createDigest();
+			cut.digest(digest, 0, 100);
+
+			assertArrayEquals(SHA1.hash(data), digest.digest(), "Incorrect digest");
+		}
+	}
+
+	@Test
+	public void testTransferTo(@Folder Path tmp) throws Exception {
+		MappedWindowCache windowCache = new MappedWindowCache(16, 64);
+		try (RandomAccessFile file = new RandomAccessFile(tmp.resolve("a").toFile(), "rw")) {
+			MappedFileStorage cut = new MappedFileStorage(file.getChannel(), 100, windowCache);
+			byte[] data = createData(100);
+			cut.write(ByteBuffer.wrap(data), 0);
+
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+			long transferred = cut.transferTo(10, 30, Channels.newChannel(outputStream));
+
+			byte[] expected = new byte[30];
+			System.arraycopy(data, 10, expected, 0, 30);
+			assertEquals(30, transferred, "Incorrect amount of bytes transferred");
+			assertArrayEquals(expected, outputStream.toByteArray(), "Incorrect bytes transferred");
+		}
+	}
+
+	@Test
+	public void testInvalidWindowCache() {
+		assertThrows(IllegalArgumentException.class, () -> new MappedWindowCache(0, 64));
+		assertThrows(IllegalArgumentException.class, () -> new MappedWindowCache(64, 32));
+	}
+
+}
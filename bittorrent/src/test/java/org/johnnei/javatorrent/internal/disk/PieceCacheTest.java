@@ -0,0 +1,151 @@
+package org.johnnei.javatorrent.internal.disk;
+
+import org.junit.jupiter.api.Test;
+
+import org.johnnei.javatorrent.torrent.AbstractFileSet;
+import org.johnnei.javatorrent.torrent.files.Piece;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link PieceCache}
+ */
+public class PieceCacheTest {
+
+	private static Piece createPiece(int index) {
+		AbstractFileSet fileSet = mock(AbstractFileSet.class);
+		when(fileSet.getBlockSize()).thenReturn(2);
+
+		Piece piece = mock(Piece.class);
+		when(piece.getIndex()).thenReturn(index);
+		when(piece.getSize()).thenReturn(4);
+		when(piece.getBlockCount()).thenReturn(2);
+		when(piece.getFileSet()).thenReturn(fileSet);
+		return piece;
+	}
+
+	@Test
+	public void testStoreBlocks() {
+		PieceCache cut = new PieceCache(10);
+		Piece piece = createPiece(0);
+
+		assertTrue(cut.storeBlock(piece, 1, new byte[] { 3, 4 }), "Block should have been cached");
+		assertNull(cut.getPieceData(piece), "Piece is not complete yet");
+		assertTrue(cut.storeBlock(piece, 0, new byte[] { 1, 2 }), "Block should have been cached");
+
+		assertArrayEquals(new byte[] { 1, 2, 3, 4 }, cut.getPieceData(piece), "Incorrect piece data");
+		assertEquals(4, cut.getUsedBytes(), "Entire piece should have been reserved");
+	}
+
+	@Test
+	public void testIsCached() {
+		PieceCache cut = new PieceCache(10);
+		Piece piece = createPiece(0);
+
+		assertFalse(cut.isCached(piece), "Piece hasn't been stored yet");
+		cut.storeBlock(piece, 0, new byte[] { 1, 2 });
+		assertTrue(cut.isCached(piece), "Piece should be cached after storing a block");
+		cut.release(piece);
+		assertFalse(cut.isCached(piece), "Released piece is no longer cached");
+	}
+
+	@Test
+	public void testPieceDoesNotFit() {
+		PieceCache cut = new PieceCache(6);
+		Piece pieceOne = createPiece(0);
+		Piece pieceTwo = createPiece(1);
+
+		assertTrue(cut.storeBlock(pieceOne, 0, new byte[2]), "Block should have been cached");
+		assertFalse(cut.storeBlock(pieceTwo, 0, new byte[2]), "Piece doesn't fit in the cache");
+
+		cut.release(pieceOne);
+
+		assertFalse(cut.storeBlock(pieceTwo, 1, new byte[2]), "Piece of which blocks are on disk should not be cached");
+		cut.release(pieceTwo);
+		assertTrue(cut.storeBlock(pieceTwo, 0, new byte[2]), "Piece should be cached after being completed");
+	}
+
+	@Test
+	public void testPiecesOfDifferentTorrents() {
+		PieceCache cut = new PieceCache(10);
+		Piece pieceOne = createPiece(0);
+		Piece pieceTwo = createPiece(0);
+
+		cut.storeBlock(pieceOne, 0, new byte[] { 1, 1 });
+		cut.storeBlock(pieceOne, 1, new byte[] { 1, 1 });
+		cut.storeBlock(pieceTwo, 0, new byte[] { 2, 2 });
+		cut.storeBlock(pieceTwo, 1, new byte[] { 2, 2 });
+
+		assertArrayEquals(new byte[] { 1, 1, 1, 1 }, cut.getPieceData(pieceOne), "Pieces with the same index must not be shared");
+		assertArrayEquals(new byte[] { 2, 2, 2, 2 }, cut.getPieceData(pieceTwo), "Pieces with the same index must not be shared");
+	}
+
+	@Test
+	public void testDonePieceIsNotCached() {
+		PieceCache cut = new PieceCache(10);
+		Piece piece = createPiece(0);
+		when(piece.isDone()).thenReturn(true);
+
+		assertFalse(cut.storeBlock(piece, 0, new byte[2]), "Duplicate block of a completed piece should not be cached");
+		assertEquals(0, cut.getUsedBytes(), "No bytes should have been reserved");
+	}
+
+	@Test
+	public void testRelease() {
+		PieceCache cut = new PieceCache(10);
+		Piece piece = createPiece(0);
+
+		cut.storeBlock(piece, 0, new byte[2]);
+		cut.release(piece);
+
+		assertEquals(0, cut.getUsedBytes(), "Bytes should have been released");
+		assertNull(cut.getPieceData(piece), "Piece should no longer be cached");
+	}
+
+	@Test
+	public void testReleaseFileSet() {
+		PieceCache cut = new PieceCache(12);
+		Piece piece = createPiece(0);
+		Piece uncachedPiece = createPiece(1);
+		Piece otherTorrentPiece = createPiece(0);
+		when(uncachedPiece.getFileSet()).thenReturn(piece.getFileSet());
+		when(uncachedPiece.getSize()).thenReturn(20);
+
+		cut.storeBlock(piece, 0, new byte[] { 1, 2 });
+		cut.storeBlock(uncachedPiece, 0, new byte[] { 1, 2 });
+		cut.storeBlock(otherTorrentPiece, 0, new byte[] { 1, 2 });
+		cut.release(piece.getFileSet());
+
+		assertFalse(cut.isCached(piece), "Piece of the released file set should have been removed");
+		assertTrue(cut.isCached(otherTorrentPiece), "Piece of another file set should have been kept");
+		assertEquals(4, cut.getUsedBytes(), "Reserved bytes of the released file set should have been freed");
+
+		when(uncachedPiece.getSize()).thenReturn(4);
+		assertTrue(cut.storeBlock(uncachedPiece, 0, new byte[] { 1, 2 }), "Uncached state of the released file set should have been forgotten");
+	}
+
+	@Test
+	public void testDisabled() {
+		PieceCache cut = new PieceCache(0);
+
+		assertFalse(cut.storeBlock(createPiece(0), 0, new byte[2]), "Disabled cache should not store blocks");
+	}
+
+	@Test
+	public void testInvalidCapacity() {
+		assertThrows(IllegalArgumentException.class, () -> new PieceCache(-1));
+	}
+
+	@Test
+	public void testToString() {
+		assertEquals("PieceCache[capacity=10]", new PieceCache(10).toString(), "Incorrect toString");
+	}
+
+}
@@ -0,0 +1,138 @@
+package org.johnnei.javatorrent.internal.disk;
+
+import org.junit.jupiter.api.Test;
+
+import org.johnnei.javatorrent.torrent.AbstractFileSet;
+import org.johnnei.javatorrent.torrent.files.Piece;
+
+import static org.johnnei.javatorrent.test.TestUtils.assertNotPresent;
+import static org.johnnei.javatorrent.test.TestUtils.assertPresent;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link PieceReadCache}
+ */
+public class PieceReadCacheTest {
+
+	private static Piece createPiece(AbstractFileSet fileSet, int index) throws Exception {
+		Piece piece = mock(Piece.class);
+		when(piece.getFileSet()).thenReturn(fileSet);
+		when(piece.getIndex()).thenReturn(index);
+		when(piece.getSize()).thenReturn(4);
+		when(piece.isDone()).thenReturn(true);
+		when(piece.loadPiece(0, 4)).thenReturn(new byte[] { (byte) index, 1, 2, 3 });
+		return piece;
+	}
+
+	@Test
+	public void testReadAhead() throws Exception {
+		PieceReadCache cut = new PieceReadCache(10);
+		Piece piece = createPiece(mock(AbstractFileSet.class), 0);
+
+		assertArrayEquals(new byte[] { 0, 1 }, cut.read(piece, 0, 2), "Incorrect bytes read");
+		assertArrayEquals(new byte[] { 2, 3 }, cut.read(piece, 2, 2), "Incorrect bytes read");
+
+		verify(piece).loadPiece(0, 4);
+		assertEquals(1, cut.getHitCount(), "Second read should have been a hit");
+		assertEquals(1, cut.getMissCount(), "First read should have been a miss");
+		assertEquals(0.5, cut.getHitRate(), 0.001, "Incorrect hit rate");
+	}
+
+	@Test
+	public void testReadCached() throws Exception {
+		PieceReadCache cut = new PieceReadCache(10);
+		Piece piece = createPiece(mock(AbstractFileSet.class), 0);
+
+		assertNotPresent("Piece has not been read yet", cut.readCached(piece, 0, 2));
+		cut.read(piece, 0, 2);
+
+		assertArrayEquals(new byte[] { 2, 3 }, assertPresent("Piece should have been cached", cut.readCached(piece, 2, 2)), "Incorrect bytes read");
+		verify(piece).loadPiece(0, 4);
+		assertEquals(1, cut.getHitCount(), "Cached read should have been a hit");
+		assertEquals(1, cut.getMissCount(), "Only the first read should have been a miss");
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEviction() throws Exception {
+		PieceReadCache cut = new PieceReadCache(8);
+		AbstractFileSet fileSet = mock(AbstractFileSet.class);
+		Piece pieceOne = createPiece(fileSet, 1);
+		Piece pieceTwo = createPiece(fileSet, 2);
+		Piece pieceThree = createPiece(fileSet, 3);
+
+		cut.read(pieceOne, 0, 1);
+		cut.read(pieceTwo, 0, 1);
+		// Piece one is now the most recently used, piece two should be evicted.
+		cut.read(pieceOne, 0, 1);
+		cut.read(pieceThree, 0, 1);
+		cut.read(pieceOne, 0, 1);
+		cut.read(pieceTwo, 0, 1);
+
+		verify(pieceOne).loadPiece(0, 4);
+		verify(pieceTwo, times(2)).loadPiece(0, 4);
+		assertEquals(8, cut.getUsedBytes(), "Cache should be at capacity");
+	}
+
+	@Test
+	public void testPiecesOfDifferentTorrents() throws Exception {
+		PieceReadCache cut = new PieceReadCache(10);
+		Piece pieceOne = createPiece(mock(AbstractFileSet.class), 0);
+		Piece pieceTwo = createPiece(mock(AbstractFileSet.class), 0);
+		when(pieceTwo.loadPiece(0, 4)).thenReturn(new byte[] { 9, 9, 9, 9 });
+
+		cut.read(pieceOne, 0, 4);
+
+		assertArrayEquals(new byte[] { 9, 9, 9, 9 }, cut.read(pieceTwo, 0, 4), "Pieces with the same index must not be shared");
+	}
+
+	@Test
+	public void testReleaseFileSet() throws Exception {
+		PieceReadCache cut = new PieceReadCache(10);
+		Piece piece = createPiece(mock(AbstractFileSet.class), 0);
+		Piece otherTorrentPiece = createPiece(mock(AbstractFileSet.class), 0);
+
+		cut.read(piece, 0, 4);
+		cut.read(otherTorrentPiece, 0, 4);
+		cut.release(piece.getFileSet());
+
+		assertNotPresent("Piece of the released file set should have been removed", cut.readCached(piece, 0, 4));
+		assertPresent("Piece of another file set should have been kept", cut.readCached(otherTorrentPiece, 0, 4));
+		assertEquals(4, cut.getUsedBytes(), "Bytes of the released file set should have been freed");
+	}
+
+	@Test
+	public void testIncompletePieceIsNotCached() throws Exception {
+		PieceReadCache cut = new PieceReadCache(10);
+		Piece piece = createPiece(mock(AbstractFileSet.class), 0);
+		when(piece.isDone()).thenReturn(false);
+		when(piece.loadPiece(1, 2)).thenReturn(new byte[] { 1, 2 });
+
+		assertArrayEquals(new byte[] { 1, 2 }, cut.read(piece, 1, 2), "Incorrect bytes read");
+		assertEquals(0, cut.getUsedBytes(), "Incomplete piece should not have been cached");
+		assertEquals(0, cut.getHitRate(), 0.001, "Uncachable reads should not affect the hit rate");
+	}
+
+	@Test
+	public void testDisabled() throws Exception {
+		PieceReadCache cut = new PieceReadCache(0);
+		Piece piece = createPiece(mock(AbstractFileSet.class), 0);
+		when(piece.loadPiece(0, 2)).thenReturn(new byte[] { 0, 1 });
+
+		cut.read(piece, 0, 2);
+		cut.read(piece, 0, 2);
+
+		verify(piece, times(2)).loadPiece(0, 2);
+	}
+
+	@Test
+	public void testInvalidCapacity() {
+		assertThrows(IllegalArgumentException.class, () -> new PieceReadCache(-1));
+	}
+
+}
@@ -0,0 +1,66 @@
+package org.johnnei.javatorrent.internal.network;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Tests {@link ByteBufferPool}
+ */
+public class ByteBufferPoolTest {
+
+	@Test
+	public void testAcquireAllocatesWhenEmpty() {
+		ByteBufferPool cut = new ByteBufferPool(16, 2);
+
+		ByteBuffer buffer = cut.acquire();
+
+		assertEquals(16, buffer.capacity(), "Incorrect buffer capacity");
+		assertEquals(0, buffer.position(), "Buffer should be cleared");
+		assertEquals(0, cut.getPooledBufferCount(), "Pool should be empty");
+	}
+
+	@Test
+	public void testReleaseAndReuse() {
+		ByteBufferPool cut = new ByteBufferPool(16, 2);
+
+		ByteBuffer buffer = cut.acquire();
+		buffer.putInt(5);
+		cut.release(buffer);
+
+		assertEquals(1, cut.getPooledBufferCount(), "Buffer should have been pooled");
+
+		ByteBuffer reusedBuffer = cut.acquire();
+		assertSame(buffer, reusedBuffer, "Pooled buffer should have been re-used");
+		assertEquals(0, reusedBuffer.position(), "Re-used buffer should have been cleared");
+		assertEquals(0, cut.getPooledBufferCount(), "Pool should be empty");
+	}
+
+	@Test
+	public void testReleaseIsBounded() {
+		ByteBufferPool cut = new ByteBufferPool(16, 2);
+
+		cut.release(ByteBuffer.allocate(16));
+		cut.release(ByteBuffer.allocate(16));
+		cut.release(ByteBuffer.allocate(16));
+
+		assertEquals(2, cut.getPooledBufferCount(), "Pool should not exceed its maximum");
+	}
+
+	@Test
+	public void testReleaseIgnoresForeignBuffers() {
+		ByteBufferPool cut = new ByteBufferPool(16, 2);
+
+		ByteBuffer largeBuffer = ByteBuffer.allocate(32);
+		cut.release(largeBuffer);
+		cut.release(ByteBuffer.allocateDirect(16));
+
+		assertEquals(0, cut.getPooledBufferCount(), "Buffers of another size or type should not be pooled");
+		assertNotSame(largeBuffer, cut.acquire(), "Foreign buffer should not be handed out");
+	}
+
+}
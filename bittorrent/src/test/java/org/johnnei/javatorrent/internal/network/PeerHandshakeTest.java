@@ -0,0 +1,141 @@
+package org.johnnei.javatorrent.internal.network;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.johnnei.javatorrent.TorrentClient;
+import org.johnnei.javatorrent.bittorrent.protocol.BitTorrentHandshake;
+import org.johnnei.javatorrent.network.BitTorrentSocket;
+import org.johnnei.javatorrent.torrent.Metadata;
+import org.johnnei.javatorrent.torrent.Torrent;
+import org.johnnei.javatorrent.torrent.peer.Peer;
+
+import static org.johnnei.javatorrent.test.DummyEntity.createPeerId;
+import static org.johnnei.javatorrent.test.DummyEntity.createRandomBytes;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link PeerHandshake}
+ */
+public class PeerHandshakeTest {
+
+	private TorrentClient torrentClientMock;
+
+	private BitTorrentSocket socketMock;
+
+	private Torrent torrentMock;
+
+	private byte[] torrentHash;
+
+	private byte[] extensionBytes;
+
+	private byte[] peerId;
+
+	@BeforeEach
+	public void setUp() {
+		torrentHash = createRandomBytes(20);
+		extensionBytes = createRandomBytes(8);
+		peerId = createPeerId();
+
+		torrentClientMock = mock(TorrentClient.class);
+		socketMock = mock(BitTorrentSocket.class);
+		torrentMock = mock(Torrent.class);
+		Metadata metadataMock = mock(Metadata.class);
+
+		when(torrentClientMock.getExtensionBytes()).thenReturn(extensionBytes);
+		when(torrentClientMock.getPeerId()).thenReturn(peerId);
+		when(torrentMock.getMetadata()).thenReturn(metadataMock);
+		when(metadataMock.getHash()).thenReturn(torrentHash);
+	}
+
+	@Test
+	public void testOutgoing() throws Exception {
+		when(socketMock.pollHandshake())
+				.thenReturn(Optional.empty())
+				.thenReturn(Optional.of(new BitTorrentHandshake(torrentHash, createRandomBytes(8), createPeerId())));
+
+		PeerHandshake cut = new PeerHandshake(torrentClientMock, socketMock, torrentMock);
+
+		assertFalse(cut.process(), "Handshake hasn't been received yet");
+		verify(socketMock).sendHandshake(aryEq(extensionBytes), aryEq(peerId), aryEq(torrentHash));
+		assertEquals(PeerHandshake.State.AwaitingHandshake, cut.getState(), "Incorrect state");
+
+		assertTrue(cut.process(), "Handshake should have been received");
+		cut.complete();
+
+		verify(torrentMock).addPeer(any(Peer.class));
+		assertEquals(PeerHandshake.State.Completed, cut.getState(), "Incorrect state");
+	}
+
+	@Test
+	public void testOutgoingOtherTorrent() throws Exception {
+		when(socketMock.pollHandshake()).thenReturn(Optional.of(new BitTorrentHandshake(createRandomBytes(20), createRandomBytes(8), createPeerId())));
+
+		PeerHandshake cut = new PeerHandshake(torrentClientMock, socketMock, torrentMock);
+
+		assertTrue(cut.process(), "Handshake should have been received");
+		assertThrows(IOException.class, cut::complete);
+		verify(torrentMock, never()).addPeer(any());
+	}
+
+	@Test
+	public void testIncoming() throws Exception {
+		when(socketMock.pollHandshake()).thenReturn(Optional.of(new BitTorrentHandshake(torrentHash, createRandomBytes(8), createPeerId())));
+		when(torrentClientMock.getTorrentByHash(aryEq(torrentHash))).thenReturn(Optional.of(torrentMock));
+
+		PeerHandshake cut = new PeerHandshake(torrentClientMock, socketMock, null);
+
+		assertTrue(cut.process(), "Handshake should have been received");
+		verify(socketMock, never()).sendHandshake(any(), any(), any());
+
+		cut.complete();
+
+		verify(socketMock).sendHandshake(aryEq(extensionBytes), aryEq(peerId), aryEq(torrentHash));
+		verify(torrentMock).addPeer(any(Peer.class));
+	}
+
+	@Test
+	public void testIncomingUnknownTorrent() throws Exception {
+		when(socketMock.pollHandshake()).thenReturn(Optional.of(new BitTorrentHandshake(torrentHash, createRandomBytes(8), createPeerId())));
+		when(torrentClientMock.getTorrentByHash(aryEq(torrentHash))).thenReturn(Optional.empty());
+
+		PeerHandshake cut = new PeerHandshake(torrentClientMock, socketMock, null);
+
+		assertTrue(cut.process(), "Handshake should have been received");
+		cut.complete();
+
+		verify(socketMock).close();
+		verify(socketMock, never()).sendHandshake(any(), any(), any());
+	}
+
+	@Test
+	public void testCompleteBeforeReceived() {
+		PeerHandshake cut = new PeerHandshake(torrentClientMock, socketMock, null);
+
+		assertThrows(IllegalStateException.class, cut::complete);
+	}
+
+	@Test
+	public void testProcessBlocking() throws Exception {
+		when(socketMock.readHandshake()).thenReturn(new BitTorrentHandshake(torrentHash, createRandomBytes(8), createPeerId()));
+
+		PeerHandshake cut = new PeerHandshake(torrentClientMock, socketMock, torrentMock);
+		cut.processBlocking();
+
+		verify(socketMock).sendHandshake(aryEq(extensionBytes), aryEq(peerId), aryEq(torrentHash));
+		verify(torrentMock).addPeer(any(Peer.class));
+	}
+
+}
@@ -0,0 +1,223 @@
+package org.johnnei.javatorrent.internal.network;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.powermock.reflect.Whitebox;
+
+import org.johnnei.javatorrent.TorrentClient;
+import org.johnnei.javatorrent.bittorrent.protocol.MessageFactory;
+import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageKeepAlive;
+import org.johnnei.javatorrent.network.BitTorrentSocket;
+import org.johnnei.javatorrent.network.socket.TcpSocket;
+import org.johnnei.javatorrent.test.DummyEntity;
+import org.johnnei.javatorrent.torrent.Metadata;
+import org.johnnei.javatorrent.torrent.Torrent;
+import org.johnnei.javatorrent.torrent.peer.Peer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link PeerIoEventLoop}
+ */
+public class PeerIoEventLoopTest {
+
+	private ServerSocketChannel serverChannel;
+
+	private SocketChannel remoteChannel;
+
+	private SocketChannel localChannel;
+
+	private PeerIoEventLoop cut;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		remoteChannel = SocketChannel.open(serverChannel.getLocalAddress());
+		localChannel = serverChannel.accept();
+
+		cut = new PeerIoEventLoop();
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		cut.close();
+		remoteChannel.close();
+		localChannel.close();
+		serverChannel.close();
+	}
+
+	@Test
+	public void testPollStreamOnlyPeer() throws Exception {
+		Peer peer = mock(Peer.class);
+		BitTorrentSocket socket = mock(BitTorrentSocket.class);
+		when(peer.getBitTorrentSocket()).thenReturn(socket);
+		when(socket.hasOutboundMessages()).thenReturn(true);
+
+		cut.registerPeer(peer);
+		cut.run();
+
+		verify(socket).sendMessage();
+	}
+
+	@Test
+	public void testWriteQueuedMessagesUponRegistration() throws Exception {
+		BitTorrentSocket socket = new BitTorrentSocket(new MessageFactory.Builder().build(), new TcpSocket(localChannel));
+		Peer peer = createPeer(socket);
+
+		socket.enqueueMessage(new MessageKeepAlive());
+		cut.registerPeer(peer);
+		cut.run();
+
+		ByteBuffer buffer = ByteBuffer.allocate(4);
+		while (buffer.hasRemaining()) {
+			remoteChannel.read(buffer);
+		}
+
+		assertEquals(0, buffer.getInt(0), "Keep alive should have been written");
+	}
+
+	@Test
+	public void testReadMessage() throws Exception {
+		BitTorrentSocket socket = new BitTorrentSocket(new MessageFactory.Builder().build(), new TcpSocket(localChannel));
+		Peer peer = createPeer(socket);
+
+		cut.registerPeer(peer);
+		cut.run();
+
+		remoteChannel.write(ByteBuffer.wrap(new byte[] { 0, 0, 0, 0 }));
+		cut.run();
+
+		socket.pollRates();
+		assertEquals(4, socket.getDownloadRate(), "Keep alive should have been read");
+	}
+
+	@Test
+	public void testDisconnectOnRemoteClose() throws Exception {
+		BitTorrentSocket socket = new BitTorrentSocket(new MessageFactory.Builder().build(), new TcpSocket(localChannel));
+		Peer peer = createPeer(socket);
+
+		cut.registerPeer(peer);
+		cut.run();
+
+		remoteChannel.close();
+		cut.run();
+
+		verify(peer.getTorrent()).removePeer(peer);
+		assertTrue(socket.closed(), "Socket should have been closed");
+	}
+
+	@Test
+	public void testMigratePeers() throws Exception {
+		BitTorrentSocket socket = new BitTorrentSocket(new MessageFactory.Builder().build(), new TcpSocket(localChannel));
+		Peer peer = createPeer(socket);
+
+		cut.registerPeer(peer);
+		cut.run();
+		assertEquals(1, cut.getPeerCount(), "Peer should have been registered");
+
+		PeerIoEventLoop target = new PeerIoEventLoop();
+		try {
+			cut.migratePeers(1, target);
+			cut.run();
+			target.run();
+
+			remoteChannel.write(ByteBuffer.wrap(new byte[] { 0, 0, 0, 0 }));
+			target.run();
+
+			socket.pollRates();
+			assertEquals(4, socket.getDownloadRate(), "Keep alive should have been read by the target loop");
+			assertEquals(1, target.getPeerCount(), "Peer should have been moved");
+		} finally {
+			target.close();
+		}
+	}
+
+	@Test
+	public void testIncomingHandshake() throws Exception {
+		byte[] torrentHash = DummyEntity.createRandomBytes(20);
+		TorrentClient torrentClient = mock(TorrentClient.class);
+		Torrent torrent = mock(Torrent.class);
+		Metadata metadata = mock(Metadata.class);
+		when(torrentClient.getTorrentByHash(aryEq(torrentHash))).thenReturn(Optional.of(torrent));
+		when(torrentClient.getExtensionBytes()).thenReturn(new byte[8]);
+		when(torrentClient.getPeerId()).thenReturn(DummyEntity.createPeerId());
+		when(torrent.getMetadata()).thenReturn(metadata);
+		when(metadata.getHash()).thenReturn(torrentHash);
+
+		BitTorrentSocket socket = new BitTorrentSocket(new MessageFactory.Builder().build(), new TcpSocket(localChannel));
+		cut.registerHandshake(new PeerHandshake(torrentClient, socket, null));
+		cut.run();
+
+		ByteBuffer handshake = ByteBuffer.allocate(68);
+		handshake.put((byte) 0x13);
+		handshake.put("BitTorrent protocol".getBytes(StandardCharsets.UTF_8));
+		handshake.put(new byte[8]);
+		handshake.put(torrentHash);
+		handshake.put(DummyEntity.createPeerId());
+		handshake.flip();
+
+		// Send the handshake in two parts to verify that the handshake is read incrementally.
+		handshake.limit(30);
+		remoteChannel.write(handshake);
+		cut.run();
+		verify(torrent, never()).addPeer(any());
+
+		handshake.limit(68);
+		remoteChannel.write(handshake);
+		cut.run();
+
+		verify(torrent).addPeer(any(Peer.class));
+
+		ByteBuffer response = ByteBuffer.allocate(68);
+		while (response.hasRemaining()) {
+			remoteChannel.read(response);
+		}
+		assertArrayEquals(torrentHash, Arrays.copyOfRange(response.array(), 28, 48), "Our handshake should have been sent");
+	}
+
+	@Test
+	public void testHandshakeTimeout() throws Exception {
+		BitTorrentSocket socket = new BitTorrentSocket(new MessageFactory.Builder().build(), new TcpSocket(localChannel));
+		cut.registerHandshake(new PeerHandshake(mock(TorrentClient.class), socket, null));
+		cut.run();
+
+		assertFalse(socket.closed(), "Handshake should still be pending");
+
+		Whitebox.setInternalState(cut, "clock", Clock.offset(Clock.systemDefaultZone(), Duration.ofSeconds(10)));
+		cut.run();
+
+		assertTrue(socket.closed(), "Socket should have been closed after the deadline");
+	}
+
+	private Peer createPeer(BitTorrentSocket socket) {
+		Peer peer = mock(Peer.class);
+		Torrent torrent = mock(Torrent.class);
+		when(peer.getBitTorrentSocket()).thenReturn(socket);
+		when(peer.getTorrent()).thenReturn(torrent);
+		when(peer.getIdAsString()).thenReturn("peer");
+		return peer;
+	}
+
+}
@@ -0,0 +1,149 @@
+package org.johnnei.javatorrent.internal.network;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.johnnei.javatorrent.bittorrent.protocol.messages.IMessage;
+import org.johnnei.javatorrent.network.BitTorrentSocket;
+import org.johnnei.javatorrent.torrent.Torrent;
+import org.johnnei.javatorrent.torrent.peer.Peer;
+import org.johnnei.javatorrent.torrent.peer.PeerDirection;
+
+import static com.jayway.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link PeerIoThreads}
+ */
+public class PeerIoThreadsTest {
+
+	private PeerIoThreads cut;
+
+	private Peer peer;
+
+	private BitTorrentSocket socket;
+
+	private Torrent torrent;
+
+	private AtomicBoolean closed;
+
+	@BeforeEach
+	public void setUp() {
+		cut = new PeerIoThreads();
+		peer = mock(Peer.class);
+		socket = mock(BitTorrentSocket.class);
+		torrent = mock(Torrent.class);
+		closed = new AtomicBoolean();
+
+		when(peer.getBitTorrentSocket()).thenReturn(socket);
+		when(peer.getTorrent()).thenReturn(torrent);
+		when(peer.getIdAsString()).thenReturn("peer");
+		when(socket.closed()).thenAnswer(invocation -> closed.get());
+		doAnswer(invocation -> {
+			closed.set(true);
+			return null;
+		}).when(socket).close();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		cut.close();
+	}
+
+	@Test
+	public void testReadMessages() throws Exception {
+		IMessage message = mock(IMessage.class);
+		when(socket.awaitMessage()).thenReturn(message).thenThrow(new EOFException("Remote end has closed the connection."));
+
+		cut.registerPeer(peer);
+
+		verify(message, timeout(5000)).process(peer);
+		verify(torrent, timeout(5000)).removePeer(peer);
+		verify(socket).close();
+		await().until(() -> cut.getPeerCount() == 0);
+	}
+
+	@Test
+	public void testWriteMessages() throws Exception {
+		when(socket.awaitMessage()).thenAnswer(invocation -> {
+			await().until(() -> closed.get());
+			throw new EOFException("Socket has been closed.");
+		});
+		when(socket.hasOutboundMessages()).thenReturn(true, false);
+
+		cut.registerPeer(peer);
+
+		verify(socket, timeout(5000)).sendMessage();
+	}
+
+	@Test
+	public void testQueueUpload() throws Exception {
+		when(socket.awaitMessage()).thenAnswer(invocation -> {
+			await().until(() -> closed.get());
+			throw new EOFException("Socket has been closed.");
+		});
+		when(peer.getWorkQueueSize(eq(PeerDirection.Upload))).thenReturn(1);
+
+		cut.registerPeer(peer);
+
+		verify(peer, timeout(5000)).queueNextPieceForSending();
+	}
+
+	@Test
+	public void testWriteFailure() throws Exception {
+		when(socket.awaitMessage()).thenAnswer(invocation -> {
+			await().until(() -> closed.get());
+			throw new EOFException("Socket has been closed.");
+		});
+		when(socket.hasOutboundMessages()).thenReturn(true);
+		doThrow(new IOException("Test exception")).when(socket).sendMessage();
+
+		cut.registerPeer(peer);
+
+		verify(torrent, timeout(5000)).removePeer(peer);
+		verify(socket).close();
+	}
+
+	@Test
+	public void testHandshake() throws Exception {
+		PeerHandshake handshake = mock(PeerHandshake.class);
+
+		cut.registerHandshake(handshake);
+
+		verify(handshake, timeout(5000)).processBlocking();
+	}
+
+	@Test
+	public void testHandshakeFailure() throws Exception {
+		PeerHandshake handshake = mock(PeerHandshake.class);
+		when(handshake.getSocket()).thenReturn(socket);
+		doThrow(new IOException("Test exception")).when(handshake).processBlocking();
+
+		cut.registerHandshake(handshake);
+
+		verify(socket, timeout(5000)).close();
+	}
+
+	@Test
+	public void testRegisterAfterClose() throws Exception {
+		cut.close();
+		cut.registerPeer(peer);
+
+		verify(socket).close();
+		verify(socket, never()).setOutboundMessageListener(any());
+	}
+
+}
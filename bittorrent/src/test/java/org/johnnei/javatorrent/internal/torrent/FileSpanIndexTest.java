@@ -0,0 +1,95 @@
+package org.johnnei.javatorrent.internal.torrent;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import org.johnnei.javatorrent.torrent.FileInfo;
+import org.johnnei.javatorrent.torrent.FileSegment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link FileSpanIndex}
+ */
+public class FileSpanIndexTest {
+
+	private final FileInfo fileOne = new FileInfo(10, 0, new File("1"), 1);
+
+	private final FileInfo emptyFile = new FileInfo(0, 10, new File("2"), 0);
+
+	private final FileInfo fileTwo = new FileInfo(4, 10, new File("3"), 1);
+
+	private final FileInfo fileThree = new FileInfo(20, 14, new File("4"), 2);
+
+	private final FileSpanIndex cut = new FileSpanIndex(Arrays.asList(fileOne, emptyFile, fileTwo, fileThree));
+
+	private static void assertSegment(FileSegment segment, FileInfo file, long offsetInFile, int dataOffset, int length) {
+		assertSame(file, segment.getFile(), "Incorrect file");
+		assertEquals(offsetInFile, segment.getOffsetInFile(), "Incorrect offset in file");
+		assertEquals(dataOffset, segment.getDataOffset(), "Incorrect data offset");
+		assertEquals(length, segment.getLength(), "Incorrect length");
+	}
+
+	@Test
+	public void testGetFile() {
+		assertSame(fileOne, cut.getFile(0), "Incorrect file for the first byte");
+		assertSame(fileOne, cut.getFile(9), "Incorrect file for the last byte of the first file");
+		assertSame(fileTwo, cut.getFile(10), "Empty file can't contain bytes");
+		assertSame(fileThree, cut.getFile(33), "Incorrect file for the last byte");
+	}
+
+	@Test
+	public void testGetSegmentsWithinFile() {
+		List<FileSegment> segments = cut.getSegments(15, 5);
+
+		assertEquals(1, segments.size(), "Range is within a single file");
+		assertSegment(segments.get(0), fileThree, 1, 0, 5);
+	}
+
+	@Test
+	public void testGetSegmentsSpanningFiles() {
+		List<FileSegment> segments = cut.getSegments(8, 10);
+
+		assertEquals(3, segments.size(), "Range should cover three files, the empty file has no segment");
+		assertSegment(segments.get(0), fileOne, 8, 0, 2);
+		assertSegment(segments.get(1), fileTwo, 0, 2, 4);
+		assertSegment(segments.get(2), fileThree, 0, 6, 4);
+	}
+
+	@Test
+	public void testGetSegmentsEmptyRange() {
+		assertTrue(cut.getSegments(5, 0).isEmpty(), "Empty range has no segments");
+	}
+
+	@Test
+	public void testGetSegmentsOutsideFiles() {
+		assertThrows(IllegalArgumentException.class, () -> cut.getSegments(30, 5));
+		assertThrows(IllegalArgumentException.class, () -> cut.getSegments(0, -1));
+	}
+
+	@Test
+	public void testUnorderedFiles() {
+		assertThrows(IllegalArgumentException.class, () -> new FileSpanIndex(Arrays.asList(fileTwo, fileOne)));
+	}
+
+	@Test
+	public void testNoFiles() {
+		FileSpanIndex emptyIndex = new FileSpanIndex(Collections.emptyList());
+
+		assertEquals(0, emptyIndex.getFileCount(), "Index should not contain files");
+		assertThrows(IllegalArgumentException.class, () -> emptyIndex.getFile(0));
+	}
+
+	@Test
+	public void testToString() {
+		assertEquals("FileSpanIndex[files=4, size=34]", cut.toString(), "Incorrect toString");
+	}
+
+}
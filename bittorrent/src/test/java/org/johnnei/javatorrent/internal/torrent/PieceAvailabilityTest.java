@@ -0,0 +1,113 @@
+package org.johnnei.javatorrent.internal.torrent;
+
+import java.util.OptionalInt;
+
+import org.junit.jupiter.api.Test;
+
+import org.johnnei.javatorrent.torrent.peer.Peer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link PieceAvailability}
+ */
+public class PieceAvailabilityTest {
+
+	private static Peer createPeer(int... pieces) {
+		Peer peer = mock(Peer.class);
+		for (int piece : pieces) {
+			when(peer.hasPiece(piece)).thenReturn(true);
+		}
+		return peer;
+	}
+
+	@Test
+	public void testAddPeerCountsExistingPieces() {
+		PieceAvailability cut = new PieceAvailability(4);
+
+		cut.addPeer(createPeer(0, 2));
+		cut.addPeer(createPeer(2));
+
+		assertEquals(1, cut.getAvailability(0), "Incorrect availability of piece 0");
+		assertEquals(0, cut.getAvailability(1), "Incorrect availability of piece 1");
+		assertEquals(2, cut.getAvailability(2), "Incorrect availability of piece 2");
+		assertEquals(2, cut.getPeerCount(), "Incorrect peer count");
+	}
+
+	@Test
+	public void testOnPeerHasPiece() {
+		PieceAvailability cut = new PieceAvailability(4);
+		Peer peer = createPeer();
+		Peer unknownPeer = createPeer();
+
+		cut.addPeer(peer);
+		cut.onPeerHasPiece(peer, 1);
+		cut.onPeerHasPiece(peer, 1);
+		cut.onPeerHasPiece(peer, 7);
+		cut.onPeerHasPiece(unknownPeer, 1);
+
+		assertEquals(1, cut.getAvailability(1), "Piece should be counted once per registered peer");
+	}
+
+	@Test
+	public void testRemovePeer() {
+		PieceAvailability cut = new PieceAvailability(4);
+		Peer peer = createPeer(0);
+
+		cut.addPeer(peer);
+		cut.onPeerHasPiece(peer, 3);
+		cut.removePeer(peer);
+		cut.removePeer(peer);
+
+		assertEquals(0, cut.getAvailability(0), "Pieces of the removed peer should no longer be counted");
+		assertEquals(0, cut.getAvailability(3), "Announced pieces of the removed peer should no longer be counted");
+
+		cut.onPeerHasPiece(peer, 1);
+		assertEquals(0, cut.getAvailability(1), "Pieces of a removed peer should be ignored");
+	}
+
+	@Test
+	public void testFindRarestPiece() {
+		PieceAvailability cut = new PieceAvailability(4);
+		Peer peer = createPeer(0, 1, 2);
+
+		cut.addPeer(peer);
+		cut.addPeer(createPeer(0, 1));
+		cut.addPeer(createPeer(1, 3));
+
+		assertEquals(OptionalInt.of(2), cut.findRarestPiece(peer, piece -> true), "Rarest piece of the peer should be selected");
+		assertEquals(OptionalInt.of(0), cut.findRarestPiece(peer, piece -> piece != 2), "Rarest accepted piece should be selected");
+		assertFalse(cut.findRarestPiece(peer, piece -> false).isPresent(), "No piece is accepted");
+		assertFalse(cut.findRarestPiece(createPeer(0), piece -> true).isPresent(), "Unregistered peer has no pieces");
+	}
+
+	@Test
+	public void testCompletedPiecesAreNotSelected() {
+		PieceAvailability cut = new PieceAvailability(2);
+		Peer peer = mock(Peer.class);
+		when(peer.hasPiece(anyInt())).thenReturn(true);
+
+		cut.onPieceCompleted(0);
+		cut.addPeer(peer);
+
+		assertEquals(1, cut.getAvailability(0), "Completed pieces should still be counted");
+		assertEquals(OptionalInt.of(1), cut.findRarestPiece(peer, piece -> true), "Completed piece should not be selected");
+
+		cut.onPieceCompleted(1);
+		cut.removePeer(peer);
+		cut.addPeer(peer);
+
+		assertFalse(cut.findRarestPiece(peer, piece -> true).isPresent(), "All pieces are completed");
+	}
+
+	@Test
+	public void testToString() {
+		assertTrue(new PieceAvailability(3).toString().startsWith("PieceAvailability["), "Incorrect toString start");
+	}
+
+}
@@ -0,0 +1,185 @@
+package org.johnnei.javatorrent.internal.torrent;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.johnnei.javatorrent.torrent.files.Piece;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link PieceRecheck}
+ */
+public class PieceRecheckTest {
+
+	private ForkJoinPool pool;
+
+	@BeforeEach
+	public void setUp() {
+		pool = new ForkJoinPool(2);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		pool.shutdownNow();
+	}
+
+	private static Piece createPiece(int index, boolean hashMatches) throws IOException {
+		Piece piece = mock(Piece.class);
+		when(piece.getIndex()).thenReturn(index);
+		when(piece.checkHash()).thenReturn(hashMatches);
+		return piece;
+	}
+
+	@Test
+	public void testRecheck() throws Exception {
+		Piece pieceOne = createPiece(0, true);
+		Piece pieceTwo = createPiece(1, false);
+		Piece pieceThree = createPiece(2, true);
+		Piece pieceFour = mock(Piece.class);
+		when(pieceFour.getIndex()).thenReturn(3);
+		when(pieceFour.checkHash()).thenThrow(new IOException("Test recheck IO exception"));
+
+		Collection<Piece> verifiedPieces = new ConcurrentLinkedQueue<>();
+		PieceRecheck cut = new PieceRecheck(Arrays.asList(pieceOne, pieceTwo, pieceThree, pieceFour), verifiedPieces::add);
+
+		assertEquals(0, cut.getCheckedPieceCount(), "No pieces should have been checked before starting");
+		assertEquals(4, cut.getPieceCount(), "Incorrect piece count");
+
+		cut.start(pool);
+		cut.await();
+
+		assertTrue(cut.isDone(), "Recheck should have completed");
+		assertTrue(cut.isCompleted(), "All pieces should have been checked");
+		assertFalse(cut.isCancelled(), "Recheck should not have been cancelled");
+		assertEquals(4, cut.getCheckedPieceCount(), "All pieces should have been checked");
+		assertEquals(2, cut.getVerifiedPieceCount(), "Only the matching pieces should have been verified");
+		assertEquals(1, cut.getProgress(), 0.0001, "Progress should be complete");
+		assertThat(verifiedPieces, containsInAnyOrder(pieceOne, pieceThree));
+	}
+
+	@Test
+	public void testRecheckNoPieces() {
+		PieceRecheck cut = new PieceRecheck(Collections.emptyList(), piece -> {});
+
+		assertEquals(1, cut.getProgress(), 0.0001, "Recheck without pieces has nothing to do");
+
+		cut.start(pool);
+		cut.await();
+
+		assertTrue(cut.isDone(), "Recheck should have completed");
+	}
+
+	@Test
+	public void testRecheckIsParallel() throws Exception {
+		CountDownLatch bothStarted = new CountDownLatch(2);
+		Piece pieceOne = mock(Piece.class);
+		Piece pieceTwo = mock(Piece.class);
+		doAnswer(invocation -> {
+			bothStarted.countDown();
+			return bothStarted.await(5, TimeUnit.SECONDS);
+		}).when(pieceOne).checkHash();
+		doAnswer(invocation -> {
+			bothStarted.countDown();
+			return bothStarted.await(5, TimeUnit.SECONDS);
+		}).when(pieceTwo).checkHash();
+
+		PieceRecheck cut = new PieceRecheck(Arrays.asList(pieceOne, pieceTwo), piece -> {});
+		cut.start(pool);
+
+		assertTrue(bothStarted.await(5, TimeUnit.SECONDS), "Pieces should be checked in parallel");
+		cut.await();
+		assertEquals(2, cut.getVerifiedPieceCount(), "Both pieces should have been verified");
+	}
+
+	@Test
+	public void testReportPiecesBeforeCompletion() throws Exception {
+		CountDownLatch firstVerified = new CountDownLatch(1);
+		CountDownLatch releaseLast = new CountDownLatch(1);
+
+		Piece pieceOne = createPiece(0, true);
+		Piece pieceTwo = mock(Piece.class);
+		doAnswer(invocation -> releaseLast.await(5, TimeUnit.SECONDS)).when(pieceTwo).checkHash();
+
+		PieceRecheck cut = new PieceRecheck(Arrays.asList(pieceOne, pieceTwo), piece -> {
+			if (piece == pieceOne) {
+				firstVerified.countDown();
+			}
+		});
+		cut.start(pool);
+
+		assertTrue(firstVerified.await(5, TimeUnit.SECONDS), "Verified piece should be reported while the other piece is being checked");
+		assertFalse(cut.isDone(), "Recheck can't be done while a piece is being checked");
+
+		releaseLast.countDown();
+		cut.await();
+		assertTrue(cut.isDone(), "Recheck should have completed");
+	}
+
+	@Test
+	public void testCancel() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		ForkJoinPool singleThreadPool = new ForkJoinPool(1);
+		try {
+			Piece blockingPiece = mock(Piece.class);
+			doAnswer(invocation -> {
+				started.countDown();
+				return release.await(5, TimeUnit.SECONDS);
+			}).when(blockingPiece).checkHash();
+
+			List<Piece> pieces = new ArrayList<>();
+			pieces.add(blockingPiece);
+			for (int i = 1; i < 8; i++) {
+				pieces.add(createPiece(i, true));
+			}
+
+			PieceRecheck cut = new PieceRecheck(pieces, piece -> {});
+			cut.start(singleThreadPool);
+
+			assertTrue(started.await(5, TimeUnit.SECONDS), "First piece should have been started on");
+			cut.cancel();
+			release.countDown();
+			cut.await();
+
+			assertTrue(cut.isCancelled(), "Recheck should have been cancelled");
+			assertTrue(cut.isDone(), "Cancelled recheck should be done");
+			assertFalse(cut.isCompleted(), "Cancelled recheck didn't check all pieces");
+			assertEquals(1, cut.getCheckedPieceCount(), "Only the piece which was being checked should have completed");
+			for (int i = 1; i < pieces.size(); i++) {
+				verify(pieces.get(i), never()).checkHash();
+			}
+		} finally {
+			singleThreadPool.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testToString() {
+		PieceRecheck cut = new PieceRecheck(Collections.emptyList(), piece -> {});
+		assertTrue(cut.toString().startsWith("PieceRecheck["), "Incorrect toString start");
+	}
+
+}
@@ -0,0 +1,201 @@
+package org.johnnei.javatorrent.internal.torrent;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.johnnei.javatorrent.test.DummyEntity;
+import org.johnnei.javatorrent.torrent.Metadata;
+import org.johnnei.javatorrent.torrent.TorrentFileSet;
+import org.johnnei.javatorrent.torrent.files.BlockStatus;
+import org.johnnei.javatorrent.torrent.files.Piece;
+import org.johnnei.javatorrent.torrent.fileset.FileEntry;
+import org.johnnei.junit.jupiter.Folder;
+import org.johnnei.junit.jupiter.TempFolderExtension;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.collection.IsEmptyCollection.empty;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link ResumeData}
+ */
+@ExtendWith(TempFolderExtension.class)
+public class ResumeDataTest {
+
+	private static final byte[] INFO_HASH = DummyEntity.createRandomBytes(20);
+
+	private Metadata metadata;
+
+	private TorrentFileSet createFileSet(Path temporaryFolder) {
+		if (metadata == null) {
+			// Each file contains exactly one piece of two blocks.
+			metadata = mock(Metadata.class);
+			when(metadata.getPieceSize()).thenReturn(32_768L);
+			when(metadata.getFileEntries()).thenReturn(Arrays.asList(
+				new FileEntry("file1.txt", 32_768, 0),
+				new FileEntry("file2.txt", 32_768, 32_768),
+				new FileEntry("file3.txt", 32_768, 65_536)
+			));
+			when(metadata.getPieceHashes()).thenReturn(Arrays.asList(
+				DummyEntity.createRandomBytes(20),
+				DummyEntity.createRandomBytes(20),
+				DummyEntity.createRandomBytes(20)
+			));
+		}
+
+		return new TorrentFileSet(metadata, temporaryFolder.toFile());
+	}
+
+	private static Collection<Piece> restore(File resumeFile, byte[] infoHash, TorrentFileSet fileSet, List<Piece> restoredPieces) {
+		ResumeData resumeData = ResumeData.read(resumeFile).orElseThrow(() -> new AssertionError("Resume data should have been read"));
+		return resumeData.restore(infoHash, fileSet, piece -> {
+			fileSet.setHavingPiece(piece.getIndex());
+			restoredPieces.add(piece);
+		});
+	}
+
+	@Test
+	public void testWriteAndRestore(@Folder Path temporaryFolder) throws IOException {
+		File resumeFile = temporaryFolder.resolve("resume").resolve("torrent.resume").toFile();
+
+		TorrentFileSet fileSet = createFileSet(temporaryFolder);
+		fileSet.setHavingPiece(0);
+		fileSet.getPiece(1).setBlockStatus(1, BlockStatus.Stored);
+
+		ResumeData cut = ResumeData.capture(INFO_HASH, fileSet, piece -> true);
+		assertEquals(3, cut.getFileCount(), "Incorrect file count");
+		assertEquals(1, cut.getPartialPieceCount(), "Incorrect partial piece count");
+		cut.write(resumeFile);
+
+		assertTrue(resumeFile.exists(), "Resume data should have been written");
+
+		TorrentFileSet restoredFileSet = createFileSet(temporaryFolder);
+		List<Piece> restoredPieces = new ArrayList<>();
+		Collection<Piece> piecesToCheck = restore(resumeFile, INFO_HASH, restoredFileSet, restoredPieces);
+
+		assertThat("No files have changed, no piece should need to be checked", piecesToCheck, empty());
+		assertThat(restoredPieces, contains(restoredFileSet.getPiece(0)));
+		assertTrue(restoredFileSet.hasPiece(0), "Verified piece should have been restored");
+		assertEquals(BlockStatus.Needed, restoredFileSet.getPiece(1).getBlockStatus(0), "Block which wasn't stored should still be needed");
+		assertEquals(BlockStatus.Stored, restoredFileSet.getPiece(1).getBlockStatus(1), "Stored block should have been restored");
+		assertFalse(restoredFileSet.getPiece(2).isStarted(), "Piece without progress should not have been changed");
+	}
+
+	@Test
+	public void testRestoreChangedFile(@Folder Path temporaryFolder) throws IOException {
+		File resumeFile = temporaryFolder.resolve("torrent.resume").toFile();
+
+		TorrentFileSet fileSet = createFileSet(temporaryFolder);
+		fileSet.setHavingPiece(0);
+		fileSet.setHavingPiece(1);
+		ResumeData.capture(INFO_HASH, fileSet, piece -> true).write(resumeFile);
+
+		Files.write(temporaryFolder.resolve("file2.txt"), DummyEntity.createRandomBytes(16));
+
+		TorrentFileSet restoredFileSet = createFileSet(temporaryFolder);
+		List<Piece> restoredPieces = new ArrayList<>();
+		Collection<Piece> piecesToCheck = restore(resumeFile, INFO_HASH, restoredFileSet, restoredPieces);
+
+		assertThat("Pieces of the changed file must be checked", piecesToCheck, contains(restoredFileSet.getPiece(1)));
+		assertThat(restoredPieces, contains(restoredFileSet.getPiece(0)));
+		assertFalse(restoredFileSet.hasPiece(1), "Piece of the changed file can't be trusted");
+	}
+
+	@Test
+	public void testRestoreFullyStoredPiece(@Folder Path temporaryFolder) throws IOException {
+		File resumeFile = temporaryFolder.resolve("torrent.resume").toFile();
+
+		TorrentFileSet fileSet = createFileSet(temporaryFolder);
+		fileSet.getPiece(2).setBlockStatus(0, BlockStatus.Stored);
+		fileSet.getPiece(2).setBlockStatus(1, BlockStatus.Stored);
+		ResumeData.capture(INFO_HASH, fileSet, piece -> true).write(resumeFile);
+
+		TorrentFileSet restoredFileSet = createFileSet(temporaryFolder);
+		Collection<Piece> piecesToCheck = restore(resumeFile, INFO_HASH, restoredFileSet, new ArrayList<>());
+
+		assertThat("Piece of which the hash check didn't complete must be checked", piecesToCheck, contains(restoredFileSet.getPiece(2)));
+	}
+
+	@Test
+	public void testCaptureSkipsPiecesNotOnDisk(@Folder Path temporaryFolder) {
+		TorrentFileSet fileSet = createFileSet(temporaryFolder);
+		fileSet.getPiece(1).setBlockStatus(0, BlockStatus.Stored);
+
+		ResumeData cut = ResumeData.capture(INFO_HASH, fileSet, piece -> false);
+
+		assertEquals(0, cut.getPartialPieceCount(), "Blocks which are only in memory should not be recorded");
+	}
+
+	@Test
+	public void testRestoreOtherTorrent(@Folder Path temporaryFolder) throws IOException {
+		File resumeFile = temporaryFolder.resolve("torrent.resume").toFile();
+
+		TorrentFileSet fileSet = createFileSet(temporaryFolder);
+		fileSet.setHavingPiece(0);
+		ResumeData.capture(INFO_HASH, fileSet, piece -> true).write(resumeFile);
+
+		TorrentFileSet restoredFileSet = createFileSet(temporaryFolder);
+		List<Piece> restoredPieces = new ArrayList<>();
+		Collection<Piece> piecesToCheck = restore(resumeFile, DummyEntity.createRandomBytes(20), restoredFileSet, restoredPieces);
+
+		assertThat("All pieces must be checked when the resume data doesn't match", piecesToCheck, containsInAnyOrder(
+			restoredFileSet.getPiece(0),
+			restoredFileSet.getPiece(1),
+			restoredFileSet.getPiece(2)
+		));
+		assertThat(restoredPieces, empty());
+	}
+
+	@Test
+	public void testReadMissingFile(@Folder Path temporaryFolder) {
+		assertFalse(ResumeData.read(temporaryFolder.resolve("missing.resume").toFile()).isPresent(), "Missing file can't be read");
+	}
+
+	@Test
+	public void testReadInvalidFile(@Folder Path temporaryFolder) throws IOException {
+		Path resumeFile = temporaryFolder.resolve("invalid.resume");
+		Files.write(resumeFile, "d7:versioni1ee".getBytes());
+
+		assertFalse(ResumeData.read(resumeFile.toFile()).isPresent(), "Incomplete resume data should have been ignored");
+	}
+
+	@Test
+	public void testReadMalformedBlockEntry(@Folder Path temporaryFolder) throws IOException {
+		Path resumeFile = temporaryFolder.resolve("malformed.resume");
+		Files.write(resumeFile, "d7:versioni1e9:info hash0:6:pieces0:6:blockslli3eee5:fileslee".getBytes());
+
+		assertFalse(ResumeData.read(resumeFile.toFile()).isPresent(), "Block entry without blocks should have been ignored");
+	}
+
+	@Test
+	public void testReadNegativePieceIndex(@Folder Path temporaryFolder) throws IOException {
+		Path resumeFile = temporaryFolder.resolve("malformed.resume");
+		Files.write(resumeFile, "d7:versioni1e9:info hash0:6:pieces0:6:blockslli-3e0:ee5:fileslee".getBytes());
+
+		assertFalse(ResumeData.read(resumeFile.toFile()).isPresent(), "Block entry of a negative piece should have been ignored");
+	}
+
+	@Test
+	public void testReadTruncatedFile(@Folder Path temporaryFolder) throws IOException {
+		Path resumeFile = temporaryFolder.resolve("truncated.resume");
+		Files.write(resumeFile, "d7:versioni1e9:info h".getBytes());
+
+		assertFalse(ResumeData.read(resumeFile.toFile()).isPresent(), "Truncated resume data should have been ignored");
+	}
+
+}
@@ -1,5 +1,7 @@
 package org.johnnei.javatorrent.internal.torrent;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -9,12 +11,16 @@ import org.powermock.reflect.Whitebox;
 
 import org.johnnei.javatorrent.TorrentClient;
 import org.johnnei.javatorrent.async.LoopingRunnable;
+import org.johnnei.javatorrent.internal.network.PeerIoEventLoop;
 import org.johnnei.javatorrent.internal.tracker.TrackerManager;
+import org.johnnei.javatorrent.network.BitTorrentSocket;
+import org.johnnei.javatorrent.network.PeerIoMode;
 import org.johnnei.javatorrent.phases.IDownloadPhase;
 import org.johnnei.javatorrent.phases.PhaseRegulator;
 import org.johnnei.javatorrent.test.DummyEntity;
 import org.johnnei.javatorrent.torrent.Metadata;
 import org.johnnei.javatorrent.torrent.Torrent;
+import org.johnnei.javatorrent.torrent.peer.Peer;
 
 import static org.johnnei.javatorrent.test.TestUtils.assertNotPresent;
 import static org.johnnei.javatorrent.test.TestUtils.assertPresent;
@@ -22,10 +28,12 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.notNull;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -156,7 +164,8 @@ public class TorrentManagerTest {
 
 		cut.start(torrentClientMock);
 
-		LoopingRunnable peerIoRunnable = Whitebox.getInternalState(cut, "peerIoRunnable");
+		List<LoopingRunnable> peerIoRunnables = Whitebox.getInternalState(cut, "peerIoRunnables");
+		LoopingRunnable peerIoRunnable = peerIoRunnables.get(0);
 		assertNotNull(peerIoRunnable, "Peer IO runner should have been started.");
 
 		cut.stop();
@@ -164,6 +173,116 @@ public class TorrentManagerTest {
 		assertFalse(isRunning(peerIoRunnable), "Peer IO runner should have been tasked to stop");
 	}
 
+	@Test
+	public void testStartStopSelectorMode() throws Exception {
+		TorrentClient torrentClientMock = mock(TorrentClient.class);
+		TrackerManager trackerManager = mock(TrackerManager.class);
+		when(torrentClientMock.getPeerIoMode()).thenReturn(PeerIoMode.Selector);
+
+		TorrentManager cut = new TorrentManager(trackerManager);
+
+		cut.start(torrentClientMock);
+
+		List<LoopingRunnable> peerIoRunnables = Whitebox.getInternalState(cut, "peerIoRunnables");
+		LoopingRunnable peerIoRunnable = peerIoRunnables.get(0);
+		List<PeerIoEventLoop> eventLoops = Whitebox.getInternalState(cut, "peerIoEventLoops");
+		assertNotNull(peerIoRunnable, "Peer IO runner should have been started.");
+		assertEquals(1, eventLoops.size(), "Event loop should have been created.");
+
+		cut.stop();
+
+		assertFalse(isRunning(peerIoRunnable), "Peer IO runner should have been tasked to stop");
+	}
+
+	@Test
+	public void testStartStopVirtualThreadMode() throws Exception {
+		TorrentClient torrentClientMock = mock(TorrentClient.class);
+		TrackerManager trackerManager = mock(TrackerManager.class);
+		Peer peerMock = mock(Peer.class);
+		BitTorrentSocket socketMock = mock(BitTorrentSocket.class);
+		when(torrentClientMock.getPeerIoMode()).thenReturn(PeerIoMode.VirtualThread);
+		when(peerMock.getBitTorrentSocket()).thenReturn(socketMock);
+		when(socketMock.closed()).thenReturn(true);
+
+		TorrentManager cut = new TorrentManager(trackerManager);
+
+		cut.start(torrentClientMock);
+
+		List<LoopingRunnable> peerIoRunnables = Whitebox.getInternalState(cut, "peerIoRunnables");
+		assertTrue(peerIoRunnables.isEmpty(), "Peers are processed by their own threads");
+		assertNotNull(Whitebox.getInternalState(cut, "peerIoThreads"), "Peer IO threads should have been created.");
+
+		cut.stop();
+		cut.registerPeer(peerMock);
+
+		verify(socketMock).close();
+	}
+
+	@Test
+	public void testStartStopShardedPolling() throws Exception {
+		TorrentClient torrentClientMock = mock(TorrentClient.class);
+		TrackerManager trackerManager = mock(TrackerManager.class);
+		when(torrentClientMock.getPeerIoThreadCount()).thenReturn(4);
+
+		TorrentManager cut = new TorrentManager(trackerManager);
+
+		cut.start(torrentClientMock);
+
+		List<LoopingRunnable> peerIoRunnables = Whitebox.getInternalState(cut, "peerIoRunnables");
+		assertEquals(4, peerIoRunnables.size(), "A runner per thread should have been started.");
+
+		cut.stop();
+
+		for (LoopingRunnable peerIoRunnable : peerIoRunnables) {
+			assertFalse(isRunning(peerIoRunnable), "Peer IO runner should have been tasked to stop");
+		}
+	}
+
+	@Test
+	public void testRegisterPeerPinsByHash() {
+		PeerIoEventLoop loopOne = mock(PeerIoEventLoop.class);
+		PeerIoEventLoop loopTwo = mock(PeerIoEventLoop.class);
+		Peer peer = mock(Peer.class);
+
+		TorrentManager cut = new TorrentManager(mock(TrackerManager.class));
+		Whitebox.setInternalState(cut, "peerIoEventLoops", Arrays.asList(loopOne, loopTwo));
+
+		cut.registerPeer(peer);
+
+		PeerIoEventLoop expectedLoop = Math.floorMod(peer.hashCode(), 2) == 0 ? loopOne : loopTwo;
+		verify(expectedLoop).registerPeer(same(peer));
+	}
+
+	@Test
+	public void testRebalancePeerIo() {
+		PeerIoEventLoop busyLoop = mock(PeerIoEventLoop.class);
+		PeerIoEventLoop idleLoop = mock(PeerIoEventLoop.class);
+		when(busyLoop.getPeerCount()).thenReturn(100);
+		when(idleLoop.getPeerCount()).thenReturn(20);
+
+		TorrentManager cut = new TorrentManager(mock(TrackerManager.class));
+		Whitebox.setInternalState(cut, "peerIoEventLoops", Arrays.asList(idleLoop, busyLoop));
+
+		cut.rebalancePeerIo();
+
+		verify(busyLoop).migratePeers(eq(40), same(idleLoop));
+	}
+
+	@Test
+	public void testRebalancePeerIoIgnoreSmallSkew() {
+		PeerIoEventLoop loopOne = mock(PeerIoEventLoop.class);
+		PeerIoEventLoop loopTwo = mock(PeerIoEventLoop.class);
+		when(loopOne.getPeerCount()).thenReturn(100);
+		when(loopTwo.getPeerCount()).thenReturn(90);
+
+		TorrentManager cut = new TorrentManager(mock(TrackerManager.class));
+		Whitebox.setInternalState(cut, "peerIoEventLoops", Arrays.asList(loopOne, loopTwo));
+
+		cut.rebalancePeerIo();
+
+		verify(loopOne, never()).migratePeers(anyInt(), notNull());
+	}
+
 	@Test
 	public void testStartStopWithPeerConnector() throws Exception {
 		TorrentClient torrentClientMock = mock(TorrentClient.class);
@@ -176,7 +295,8 @@ public class TorrentManagerTest {
 		cut.start(torrentClientMock);
 		cut.enableConnectionAcceptor();
 
-		LoopingRunnable peerIoRunnable = Whitebox.getInternalState(cut, "peerIoRunnable");
+		List<LoopingRunnable> peerIoRunnables = Whitebox.getInternalState(cut, "peerIoRunnables");
+		LoopingRunnable peerIoRunnable = peerIoRunnables.get(0);
 		LoopingRunnable peerConnectorRunnable = Whitebox.getInternalState(cut, "connectorRunnable");
 		assertNotNull(peerIoRunnable, "Peer IO runner should have been started.");
 		assertNotNull(peerConnectorRunnable, "Peer connector runner should have been started.");
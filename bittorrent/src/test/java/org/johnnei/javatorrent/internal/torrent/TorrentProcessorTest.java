@@ -9,11 +9,14 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import org.johnnei.javatorrent.TorrentClient;
+import org.johnnei.javatorrent.internal.disk.PieceCache;
+import org.johnnei.javatorrent.internal.disk.PieceReadCache;
 import org.johnnei.javatorrent.internal.tracker.TrackerManager;
 import org.johnnei.javatorrent.network.BitTorrentSocket;
 import org.johnnei.javatorrent.phases.IDownloadPhase;
 import org.johnnei.javatorrent.phases.PhaseRegulator;
 import org.johnnei.javatorrent.torrent.Torrent;
+import org.johnnei.javatorrent.torrent.TorrentFileSet;
 import org.johnnei.javatorrent.torrent.algos.choking.IChokingStrategy;
 import org.johnnei.javatorrent.torrent.peer.Peer;
 
@@ -72,6 +75,26 @@ public class TorrentProcessorTest {
 		verify(managerMock).removeTorrent(same(torrentMock));
 	}
 
+	@Test
+	public void testShutdownTorrentReleasesCachedPieces() {
+		Torrent torrentMock = mock(Torrent.class);
+		TorrentFileSet fileSetMock = mock(TorrentFileSet.class);
+		TrackerManager trackerManagerMock = mock(TrackerManager.class);
+		PieceCache pieceCacheMock = mock(PieceCache.class);
+		PieceReadCache readCacheMock = mock(PieceReadCache.class);
+
+		when(torrentMock.getFileSet()).thenReturn(fileSetMock);
+		when(torrentClient.getPieceCache()).thenReturn(pieceCacheMock);
+		when(torrentClient.getReadCache()).thenReturn(readCacheMock);
+
+		TorrentProcessor processor = new TorrentProcessor(managerMock, trackerManagerMock, torrentClient, torrentMock);
+		processor.shutdownTorrent();
+
+		verify(pieceCacheMock).release(same(fileSetMock));
+		verify(readCacheMock).release(same(fileSetMock));
+		verify(managerMock).removeTorrent(same(torrentMock));
+	}
+
 	@Test
 	public void testUpdateTorrentStateChangePhase() {
 		Torrent torrentMock = mock(Torrent.class);
@@ -58,4 +58,86 @@ public class BitfieldTest {
 		assertEquals(2, cut.getBytes().length, "Size should have been 1 byte");
 	}
 
+	@Test
+	public void testGetBytes() {
+		Bitfield cut = new Bitfield(10);
+
+		cut.havePiece(0);
+		cut.havePiece(9);
+		cut.havePiece(79);
+
+		byte[] bytes = cut.getBytes();
+		assertEquals((byte) 0x80, bytes[0], "Piece 0 should be the highest bit of the first byte");
+		assertEquals((byte) 0x40, bytes[1], "Piece 9 should be the second bit of the second byte");
+		assertEquals((byte) 0x01, bytes[9], "Piece 79 should be the lowest bit of the last byte");
+	}
+
+	@Test
+	public void testCountHavePiecesIgnoresDuplicates() {
+		Bitfield cut = new Bitfield(16);
+
+		cut.havePiece(3);
+		cut.havePiece(3);
+		cut.havePiece(64);
+		cut.havePiece(128);
+
+		assertEquals(2, cut.countHavePieces(), "Each piece should be counted once and pieces outside the bitfield are ignored");
+	}
+
+	@Test
+	public void testShrinkDropsPieces() {
+		Bitfield cut = new Bitfield(2);
+		cut.havePiece(1);
+		cut.havePiece(12);
+
+		cut.setSize(1);
+
+		assertTrue(cut.hasPiece(1), "Piece 1 should have been preserved");
+		assertFalse(cut.hasPiece(12), "Piece 12 is no longer within the bitfield");
+		assertEquals(1, cut.countHavePieces(), "Dropped piece should no longer be counted");
+	}
+
+	@Test
+	public void testBulkOperations() {
+		Bitfield cut = new Bitfield(16);
+		Bitfield other = new Bitfield(1);
+		cut.havePiece(2);
+		cut.havePiece(5);
+		cut.havePiece(70);
+		cut.havePiece(127);
+		other.havePiece(2);
+
+		assertEquals(1, cut.countAnd(other, 128), "Only piece 2 is in both bitfields");
+		assertEquals(3, cut.countAndNot(other, 128), "Pieces 5, 70 and 127 are only in this bitfield");
+		assertEquals(2, cut.countAndNot(other, 127), "Piece 127 is beyond the compared pieces");
+		assertTrue(cut.hasAnyAndNot(other, 6), "Piece 5 is only in this bitfield");
+		assertFalse(cut.hasAnyAndNot(other, 5), "Only piece 2 is within the compared pieces");
+		assertFalse(other.hasAnyAndNot(cut, 128), "All pieces of the other bitfield are in this bitfield");
+	}
+
+	@Test
+	public void testConcurrentHavePiece() throws Exception {
+		Bitfield cut = new Bitfield(0);
+
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final int offset = t;
+			threads[t] = new Thread(() -> {
+				for (int piece = offset; piece < 4096; piece += threads.length) {
+					cut.havePiece(piece, true);
+				}
+			});
+			threads[t].start();
+		}
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(4096, cut.countHavePieces(), "All pieces should have been marked");
+		for (int piece = 0; piece < 4096; piece++) {
+			assertTrue(cut.hasPiece(piece), String.format("Piece %d should have been marked", piece));
+		}
+	}
+
 }
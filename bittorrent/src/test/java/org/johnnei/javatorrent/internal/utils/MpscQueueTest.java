@@ -0,0 +1,123 @@
+package org.johnnei.javatorrent.internal.utils;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link MpscQueue}
+ */
+public class MpscQueueTest {
+
+	@Test
+	public void testPollEmpty() {
+		MpscQueue<Integer> cut = new MpscQueue<>();
+
+		assertTrue(cut.isEmpty(), "New queue must be empty");
+		assertNull(cut.poll(), "Empty queue must return null");
+		assertNull(cut.peek(), "Empty queue must return null");
+		assertEquals(0, cut.size(), "Incorrect size");
+	}
+
+	@Test
+	public void testFifoOrder() {
+		MpscQueue<Integer> cut = new MpscQueue<>();
+
+		cut.add(1);
+		cut.add(2);
+		cut.add(3);
+
+		assertEquals(3, cut.size(), "Incorrect size");
+		assertEquals(1, (int) cut.peek(), "Peek must return the head");
+		assertEquals(1, (int) cut.poll(), "Incorrect first element");
+		assertEquals(2, (int) cut.poll(), "Incorrect second element");
+		assertEquals(3, (int) cut.poll(), "Incorrect third element");
+		assertNull(cut.poll(), "Queue should have been drained");
+		assertTrue(cut.isEmpty(), "Queue should have been drained");
+	}
+
+	@Test
+	public void testIterator() {
+		MpscQueue<Integer> cut = new MpscQueue<>();
+		cut.add(1);
+		cut.add(2);
+		cut.poll();
+		cut.add(3);
+
+		Iterator<Integer> iterator = cut.iterator();
+		assertEquals(2, (int) iterator.next(), "Incorrect first element");
+		assertEquals(3, (int) iterator.next(), "Incorrect second element");
+		assertFalse(iterator.hasNext(), "Iterator should have been exhausted");
+	}
+
+	@Test
+	public void testAddNull() {
+		MpscQueue<Integer> cut = new MpscQueue<>();
+
+		assertThrows(IllegalArgumentException.class, () -> cut.add(null));
+	}
+
+	@Test
+	public void testConcurrentProducers() throws Exception {
+		final int producerCount = 4;
+		final int elementsPerProducer = 10_000;
+		MpscQueue<Integer> cut = new MpscQueue<>();
+		CountDownLatch start = new CountDownLatch(1);
+
+		List<Thread> producers = new ArrayList<>();
+		for (int producer = 0; producer < producerCount; producer++) {
+			final int base = producer * elementsPerProducer;
+			Thread thread = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				for (int i = 0; i < elementsPerProducer; i++) {
+					cut.add(base + i);
+				}
+			});
+			thread.start();
+			producers.add(thread);
+		}
+
+		start.countDown();
+
+		int[] lastSeen = new int[producerCount];
+		for (int i = 0; i < producerCount; i++) {
+			lastSeen[i] = -1;
+		}
+
+		int consumed = 0;
+		while (consumed < producerCount * elementsPerProducer) {
+			Integer value = cut.poll();
+			if (value == null) {
+				Thread.yield();
+				continue;
+			}
+
+			int producer = value / elementsPerProducer;
+			int sequence = value % elementsPerProducer;
+			assertTrue(sequence > lastSeen[producer], "Elements of a single producer must be consumed in order");
+			lastSeen[producer] = sequence;
+			consumed++;
+		}
+
+		for (Thread producer : producers) {
+			producer.join();
+		}
+
+		assertTrue(cut.isEmpty(), "All elements should have been consumed");
+	}
+
+}
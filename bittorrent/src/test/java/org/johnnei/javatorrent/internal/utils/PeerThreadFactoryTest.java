@@ -0,0 +1,45 @@
+package org.johnnei.javatorrent.internal.utils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link PeerThreadFactory}
+ */
+public class PeerThreadFactoryTest {
+
+	private static boolean isVirtualThreadSupported() {
+		try {
+			Thread.class.getMethod("ofVirtual").invoke(null);
+			return true;
+		} catch (ReflectiveOperationException e) {
+			return false;
+		}
+	}
+
+	@Test
+	public void testNewThread() throws Exception {
+		PeerThreadFactory cut = new PeerThreadFactory("Test ");
+		CountDownLatch latch = new CountDownLatch(1);
+
+		Thread thread = cut.newThread(latch::countDown);
+		thread.start();
+
+		assertTrue(latch.await(5, TimeUnit.SECONDS), "Runnable should have been executed");
+		assertTrue(thread.isDaemon(), "Peer threads must not keep the JVM alive");
+		assertTrue(thread.getName().startsWith("Test "), "Incorrect thread name");
+	}
+
+	@Test
+	public void testIsVirtual() {
+		PeerThreadFactory cut = new PeerThreadFactory("Test ");
+
+		assertEquals(isVirtualThreadSupported(), cut.isVirtual(), "Virtual threads should be used when supported");
+	}
+
+}
@@ -2,10 +2,14 @@ package org.johnnei.javatorrent.network;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.LocalDateTime;
@@ -267,6 +271,77 @@ public class BitTorrentSocketTest {
 		verify(messageMock).read(any());
 	}
 
+	@Test
+	public void testReadMessageLargerThanPooledBuffer() throws Exception {
+		MessageFactory messageFactory = new MessageFactory.Builder().build();
+
+		byte[] blockData = DummyEntity.createRandomBytes(40_000);
+		OutStream input = new OutStream();
+		input.writeInt(9 + blockData.length);
+		input.writeByte(BitTorrent.MESSAGE_PIECE);
+		input.writeInt(1);
+		input.writeInt(0);
+		input.write(blockData);
+		// Keep alive
+		input.writeInt(0);
+
+		ISocket socketMock = mock(ISocket.class);
+		when(socketMock.getInputStream()).thenReturn(new ByteArrayInputStream(input.toByteArray()));
+		when(socketMock.getOutputStream()).thenReturn(new ByteArrayOutputStream());
+
+		BitTorrentSocket cut = new BitTorrentSocket(messageFactory, socketMock);
+		cut.setPassedHandshake();
+
+		assertTrue(cut.canReadMessage(), "Should be able to read block message");
+		IMessage message = cut.readMessage();
+		assertTrue(message instanceof MessageBlock, "Incorrect message type");
+		assertEquals(9 + blockData.length, message.getLength(), "Incorrect block length");
+
+		assertTrue(cut.canReadMessage(), "Should be able to read keep alive after a large message");
+		assertTrue(cut.readMessage() instanceof MessageKeepAlive, "Incorrect message type");
+		assertFalse(cut.canReadMessage(), "No more messages should be available");
+	}
+
+	@Test
+	public void testAwaitMessage() throws Exception {
+		MessageFactory messageFactory = new MessageFactory.Builder().build();
+
+		byte[] blockData = DummyEntity.createRandomBytes(40_000);
+		OutStream input = new OutStream();
+		// Keep alive
+		input.writeInt(0);
+		input.writeInt(9 + blockData.length);
+		input.writeByte(BitTorrent.MESSAGE_PIECE);
+		input.writeInt(1);
+		input.writeInt(0);
+		input.write(blockData);
+
+		ISocket socketMock = mock(ISocket.class);
+		when(socketMock.getInputStream()).thenReturn(new ByteArrayInputStream(input.toByteArray()));
+		when(socketMock.getOutputStream()).thenReturn(new ByteArrayOutputStream());
+
+		BitTorrentSocket cut = new BitTorrentSocket(messageFactory, socketMock);
+		cut.setPassedHandshake();
+
+		assertTrue(cut.awaitMessage() instanceof MessageKeepAlive, "Incorrect message type");
+		IMessage message = cut.awaitMessage();
+		assertTrue(message instanceof MessageBlock, "Incorrect message type");
+		assertEquals(9 + blockData.length, message.getLength(), "Incorrect block length");
+		assertThrows(EOFException.class, cut::awaitMessage, "Stream has been exhausted");
+	}
+
+	@Test
+	public void testAwaitMessageClosed() throws Exception {
+		ISocket socketMock = mock(ISocket.class);
+		when(socketMock.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[0]));
+		when(socketMock.getOutputStream()).thenReturn(new ByteArrayOutputStream());
+		when(socketMock.isClosed()).thenReturn(true);
+
+		BitTorrentSocket cut = new BitTorrentSocket(mock(MessageFactory.class), socketMock);
+
+		assertThrows(EOFException.class, cut::awaitMessage);
+	}
+
 	@Test
 	public void testCantReadHandshakeTwice() throws Exception {
 		MessageFactory messageFactoryMock = mock(MessageFactory.class);
@@ -328,6 +403,58 @@ public class BitTorrentSocketTest {
 		assertThrows(IOException.class, cut::readHandshake);
 	}
 
+	@Test
+	public void testPollHandshake() throws Exception {
+		byte[] torrentHash = DummyEntity.createRandomBytes(20);
+		byte[] peerId = DummyEntity.createPeerId();
+		byte[] extensionBytes = DummyEntity.createRandomBytes(8);
+
+		ByteArrayOutputStream handshakeBytes = new ByteArrayOutputStream();
+		handshakeBytes.write(0x13);
+		handshakeBytes.write("BitTorrent protocol".getBytes(StandardCharsets.UTF_8));
+		handshakeBytes.write(extensionBytes);
+		handshakeBytes.write(torrentHash);
+		handshakeBytes.write(peerId);
+
+		PipedOutputStream remoteStream = new PipedOutputStream();
+		ISocket socketMock = mock(ISocket.class);
+		when(socketMock.getInputStream()).thenReturn(new PipedInputStream(remoteStream, 128));
+		when(socketMock.getOutputStream()).thenReturn(new ByteArrayOutputStream());
+
+		BitTorrentSocket cut = new BitTorrentSocket(mock(MessageFactory.class), socketMock);
+
+		assertFalse(cut.pollHandshake().isPresent(), "No bytes have been received yet");
+
+		remoteStream.write(handshakeBytes.toByteArray(), 0, 40);
+		assertFalse(cut.pollHandshake().isPresent(), "Handshake has only partially been received");
+
+		remoteStream.write(handshakeBytes.toByteArray(), 40, 28);
+		Optional<BitTorrentHandshake> handshake = cut.pollHandshake();
+
+		assertTrue(handshake.isPresent(), "Handshake should have been received");
+		assertArrayEquals(torrentHash, handshake.get().getTorrentHash(), "Incorrect torrent hash");
+		assertArrayEquals(peerId, handshake.get().getPeerId(), "Incorrect peer id");
+		assertArrayEquals(extensionBytes, handshake.get().getPeerExtensionBytes(), "Incorrect extension bytes");
+	}
+
+	@Test
+	public void testPollHandshakeIncorrectProtocolName() throws Exception {
+		byte[] inputBytes = new byte[]{
+			0x13,
+			// B   i     u     T     o     r     r     e    n      t    (space)
+			0x42, 0x69, 0x75, 0x54, 0x6F, 0x72, 0x72, 0x65, 0x6E, 0x74, 0x20,
+			// p   r     o     u     o     c     o     l
+			0x70, 0x72, 0x6F, 0x75, 0x6F, 0x63, 0x6F, 0x6C,
+		};
+
+		ISocket socketMock = mock(ISocket.class);
+		when(socketMock.getInputStream()).thenReturn(new ByteArrayInputStream(inputBytes));
+		when(socketMock.getOutputStream()).thenReturn(new ByteArrayOutputStream());
+
+		BitTorrentSocket cut = new BitTorrentSocket(mock(MessageFactory.class), socketMock);
+		assertThrows(IOException.class, cut::pollHandshake, "Invalid protocol should be detected before the full handshake has been received");
+	}
+
 	@Test
 	public void testReadHandshakeIncorrectProtocolName() throws Exception {
 		MessageFactory messageFactoryMock = mock(MessageFactory.class);
@@ -551,6 +678,30 @@ public class BitTorrentSocketTest {
 		cut.sendMessage();
 	}
 
+	@Test
+	public void testSendMessageThrottled() throws Exception {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		ISocket socketMock = mock(ISocket.class);
+		when(socketMock.getOutputStream()).thenReturn(outputStream);
+		when(socketMock.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[0]));
+
+		TokenBucket uploadLimiter = new TokenBucket(4);
+		BitTorrentSocket cut = new BitTorrentSocket(mock(MessageFactory.class), socketMock);
+		cut.setRateLimiters(new TokenBucket(0), uploadLimiter);
+
+		cut.enqueueMessage(new MessageKeepAlive());
+		cut.enqueueMessage(new MessageKeepAlive());
+
+		cut.sendMessage();
+		assertEquals(8, outputStream.size(), "The batch should have been written while tokens were available");
+		assertTrue(cut.isUploadThrottled(), "Limiter should have been drained by the batch");
+
+		cut.enqueueMessage(new MessageKeepAlive());
+		cut.sendMessage();
+		assertEquals(8, outputStream.size(), "No bytes should have been written while throttled");
+		assertTrue(cut.hasOutboundMessages(), "Message should remain queued while throttled");
+	}
+
 	@Test
 	public void testSendMessage() throws Exception {
 		Clock clock = Clock.fixed(Clock.offset(Clock.systemDefaultZone(), Duration.ofSeconds(1)).instant(), Clock.systemDefaultZone().getZone());
@@ -587,16 +738,21 @@ public class BitTorrentSocketTest {
 
 		cut.sendMessage();
 
-		assertArrayEquals(new byte[4], outputStream.toByteArray(), "Incorrect keep alive output.");
-		outputStream.reset();
+		// Both messages are expected to be written in a single batch, keep alive first.
+		byte[] whenedBytes = new byte[9 + randomBytes.length];
+		whenedBytes[7] = (byte) randomBytes.length;
+		whenedBytes[8] = (byte) BitTorrent.MESSAGE_PIECE;
+		TestUtils.copySection(randomBytes, whenedBytes, 9);
+		assertArrayEquals(whenedBytes, outputStream.toByteArray(), "Incorrect batch output.");
+		assertEquals(LocalDateTime.now(clock), cut.getLastActivity(), "Incorrect last activity timestamp");
+		assertEquals(1, cut.getFlushCount(), "Messages should have been flushed at once");
+		assertEquals(2, cut.getFlushedMessageCount(), "Incorrect amount of coalesced messages");
+		assertEquals(whenedBytes.length, cut.getFlushedByteCount(), "Incorrect amount of coalesced bytes");
+		assertFalse(cut.hasOutboundMessages(), "All messages should have been written");
 
+		outputStream.reset();
 		cut.sendMessage();
-
-		byte[] whenedBytes = new byte[5 + randomBytes.length];
-		whenedBytes[3] = (byte) randomBytes.length;
-		whenedBytes[4] = (byte) BitTorrent.MESSAGE_PIECE;
-		TestUtils.copySection(randomBytes, whenedBytes, 5);
-		assertArrayEquals(whenedBytes, outputStream.toByteArray(), "Incorrect piece output.");
-		assertEquals(LocalDateTime.now(clock), cut.getLastActivity(), "Incorrect last activity timestamp");
+		assertEquals(0, outputStream.size(), "No messages should have been written");
+		assertEquals(1, cut.getFlushCount(), "Empty batches should not be flushed");
 	}
 }
@@ -1,6 +1,8 @@
 package org.johnnei.javatorrent.network;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -121,4 +123,29 @@ public class OutStreamTest {
 		RuntimeException exception = assertThrows(RuntimeException.class, () -> Whitebox.invokeMethod(cut, "writeUnchecked", runnable));
 		assertThat(exception.getMessage(), containsString("IO Exception on in-memory byte array"));
 	}
+
+	@Test
+	public void testToByteBuffer() throws Exception {
+		byte[] expectedOutput = new byte[] { 1, 2, 3, 4 };
+		cut.write(expectedOutput);
+
+		ByteBuffer buffer = cut.toByteBuffer();
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+
+		assertArrayEquals(expectedOutput, bytes, "Incorrect bytes in view");
+	}
+
+	@Test
+	public void testWriteToAndReset() throws Exception {
+		byte[] expectedOutput = new byte[] { 1, 2, 3, 4 };
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		cut.write(expectedOutput);
+
+		cut.writeTo(outputStream);
+		cut.reset();
+
+		assertArrayEquals(expectedOutput, outputStream.toByteArray(), "Incorrect written bytes");
+		assertEquals(0, cut.size(), "Reset should have discarded the written bytes");
+	}
 }
@@ -0,0 +1,92 @@
+package org.johnnei.javatorrent.network;
+
+import java.time.Clock;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import org.johnnei.javatorrent.test.TestClock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link TokenBucket}
+ */
+public class TokenBucketTest {
+
+	@Test
+	public void testUnlimited() {
+		TokenBucket cut = new TokenBucket(0);
+
+		cut.consume(1_000_000);
+
+		assertEquals(Long.MAX_VALUE, cut.getAvailableTokens(), "Unlimited bucket should never run out of tokens");
+		assertTrue(cut.hasTokens(), "Unlimited bucket should never run out of tokens");
+	}
+
+	@Test
+	public void testConsumeAndRefill() {
+		Clock baseClock = Clock.systemDefaultZone();
+		TestClock clock = new TestClock(Clock.fixed(baseClock.instant(), baseClock.getZone()));
+		TokenBucket cut = new TokenBucket(1000, null, clock);
+
+		assertEquals(1000, cut.getAvailableTokens(), "Bucket should start full");
+
+		cut.consume(1500);
+		assertFalse(cut.hasTokens(), "Bucket should be in debt");
+
+		clock.setClock(Clock.offset(Clock.fixed(baseClock.instant(), baseClock.getZone()), Duration.ofMillis(750)));
+		assertEquals(250, cut.getAvailableTokens(), "Debt should have been repaid by the refill");
+
+		clock.setClock(Clock.offset(Clock.fixed(baseClock.instant(), baseClock.getZone()), Duration.ofSeconds(10)));
+		assertEquals(1000, cut.getAvailableTokens(), "Refill should be capped at one second of tokens");
+	}
+
+	@Test
+	public void testDebtIsRepaidOverMultipleSeconds() {
+		Clock baseClock = Clock.systemDefaultZone();
+		TestClock clock = new TestClock(Clock.fixed(baseClock.instant(), baseClock.getZone()));
+		TokenBucket cut = new TokenBucket(1000, null, clock);
+
+		cut.consume(3500);
+		assertEquals(-2500, cut.getAvailableTokens(), "Bucket should be in debt");
+
+		clock.setClock(Clock.offset(Clock.fixed(baseClock.instant(), baseClock.getZone()), Duration.ofSeconds(3)));
+		assertEquals(500, cut.getAvailableTokens(), "Every second of idle time should have repaid the debt");
+	}
+
+	@Test
+	public void testHierarchy() {
+		Clock clock = Clock.fixed(Clock.systemDefaultZone().instant(), Clock.systemDefaultZone().getZone());
+		TokenBucket global = new TokenBucket(100, null, clock);
+		TokenBucket torrent = new TokenBucket(0, global, clock);
+		TokenBucket peer = new TokenBucket(1000, torrent, clock);
+
+		assertEquals(100, peer.getAvailableTokens(), "Global limit should restrict the peer");
+
+		peer.consume(100);
+
+		assertFalse(peer.hasTokens(), "Global bucket should have been drained");
+		assertEquals(0, peer.getAvailableTokens(), "Peer should not be allowed to transfer");
+		assertFalse(global.hasTokens(), "Consumption should propagate to the parents");
+	}
+
+	@Test
+	public void testSetRate() {
+		Clock clock = Clock.fixed(Clock.systemDefaultZone().instant(), Clock.systemDefaultZone().getZone());
+		TokenBucket cut = new TokenBucket(0, null, clock);
+
+		cut.setRate(500);
+		assertEquals(500, cut.getRate(), "Incorrect rate");
+		assertEquals(500, cut.getAvailableTokens(), "Bucket should be full after enabling the limit");
+
+		cut.setRate(200);
+		assertEquals(200, cut.getAvailableTokens(), "Tokens should be capped at the new rate");
+
+		cut.setRate(0);
+		assertEquals(Long.MAX_VALUE, cut.getAvailableTokens(), "Bucket should be unlimited");
+	}
+
+}
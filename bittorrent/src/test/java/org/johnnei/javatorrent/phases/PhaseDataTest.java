@@ -37,6 +37,7 @@ import org.johnnei.junit.jupiter.TempFolderExtension;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.collection.IsIterableContainingInAnyOrder.containsInAnyOrder;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Matchers.any;
@@ -45,6 +46,7 @@ import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -126,7 +128,7 @@ public class PhaseDataTest {
 		PhaseData cut = new PhaseData(torrentClientMock, torrentMock);
 		cut.onPhaseEnter();
 
-		verify(torrentMock).checkProgress();
+		verify(torrentMock).startRecheck();
 		verify(torrentMock).setPieceSelector(isA(FullPieceSelect.class));
 	}
 
@@ -144,7 +146,7 @@ public class PhaseDataTest {
 		PhaseData cut = new PhaseData(torrentClientMock, torrentMock);
 		cut.onPhaseEnter();
 
-		verify(torrentMock).checkProgress();
+		verify(torrentMock).startRecheck();
 		verify(torrentMock).setPieceSelector(isA(FullPieceSelect.class));
 		assertTrue(file.exists(), "Download folder should have been created.");
 	}
@@ -167,7 +169,7 @@ public class PhaseDataTest {
 		Exception e = assertThrows(TorrentException.class, cut::onPhaseEnter);
 		assertThat(e.getMessage(), containsString("download folder"));
 
-		verify(torrentMock).checkProgress();
+		verify(torrentMock).startRecheck();
 		verify(torrentMock).setPieceSelector(isA(FullPieceSelect.class));
 	}
 
@@ -185,6 +187,35 @@ public class PhaseDataTest {
 		assertTrue(cut.isDone(), "File set should have returned done, so the phase should have been done");
 	}
 
+	@Test
+	public void testIsDoneWhileRechecking() {
+		TorrentClient torrentClientMock = mock(TorrentClient.class);
+		Torrent torrentMock = mock(Torrent.class);
+		TorrentFileSet fileSetMock = mock(TorrentFileSet.class);
+
+		when(torrentMock.getFileSet()).thenReturn(fileSetMock);
+		when(torrentMock.isRechecking()).thenReturn(true);
+		when(fileSetMock.isDone()).thenReturn(true);
+
+		PhaseData cut = new PhaseData(torrentClientMock, torrentMock);
+
+		assertFalse(cut.isDone(), "Phase can't be done while the pieces are still being checked");
+	}
+
+	@Test
+	public void testProcessWhileRechecking() {
+		TorrentClient torrentClientMock = mock(TorrentClient.class);
+		Torrent torrentMock = mock(Torrent.class);
+
+		when(torrentMock.isRechecking()).thenReturn(true);
+
+		PhaseData cut = new PhaseData(torrentClientMock, torrentMock);
+		cut.process();
+
+		verify(torrentMock, never()).getPieceSelector();
+		verify(torrentMock, never()).getPeers();
+	}
+
 	@Test
 	public void testProcessTestConcurrentBlockGiveaway() {
 		TorrentClient torrentClientMock = mock(TorrentClient.class);
@@ -5,15 +5,22 @@ import java.net.DatagramSocket;
 import java.net.ServerSocket;
 import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Supplier;
 
 import org.johnnei.javatorrent.TorrentClient;
+import org.johnnei.javatorrent.disk.ChannelFileStorage;
+import org.johnnei.javatorrent.internal.disk.FileHandlePool;
+import org.johnnei.javatorrent.internal.disk.PieceCache;
+import org.johnnei.javatorrent.internal.disk.PieceReadCache;
 import org.johnnei.javatorrent.network.BitTorrentSocket;
+import org.johnnei.javatorrent.network.TokenBucket;
 import org.johnnei.javatorrent.torrent.Metadata;
 import org.johnnei.javatorrent.torrent.Torrent;
 import org.johnnei.javatorrent.torrent.peer.Peer;
 
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class DummyEntity {
 
@@ -72,6 +79,23 @@ public class DummyEntity {
 				.build();
 	}
 
+	/**
+	 * Creates a mocked client which provides the components which torrents take from their client: unlimited rate limiters, disabled caches, the common
+	 * pool to recheck on and channel backed files in the shared file handle pool.
+	 * @return The mocked client.
+	 */
+	public static TorrentClient createTorrentClient() {
+		TorrentClient torrentClient = mock(TorrentClient.class);
+		when(torrentClient.getDownloadLimiter()).thenReturn(new TokenBucket(0));
+		when(torrentClient.getUploadLimiter()).thenReturn(new TokenBucket(0));
+		when(torrentClient.getPieceCache()).thenReturn(new PieceCache(0));
+		when(torrentClient.getReadCache()).thenReturn(new PieceReadCache(0));
+		when(torrentClient.getRecheckPool()).thenReturn(ForkJoinPool.commonPool());
+		when(torrentClient.getFileStorageFactory()).thenReturn((channel, size) -> new ChannelFileStorage(channel));
+		when(torrentClient.getFileHandlePool()).thenReturn(FileHandlePool.getSharedPool());
+		return torrentClient;
+	}
+
 	public static Metadata createMetadata() {
 		return new Metadata.Builder().setHash(createUniqueTorrentHash()).build();
 	}
@@ -86,6 +110,7 @@ public class DummyEntity {
 
 		return new Torrent.Builder()
 				.setMetadata(new Metadata.Builder().setHash(hash).build())
+				.setTorrentClient(createTorrentClient())
 				.setName("Dummy Torrent")
 				.build();
 	}
@@ -5,16 +5,20 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
 import org.johnnei.javatorrent.test.DummyEntity;
+import org.johnnei.javatorrent.torrent.files.BlockStatus;
+import org.johnnei.javatorrent.torrent.files.Piece;
 import org.johnnei.javatorrent.torrent.fileset.FileEntry;
 import org.johnnei.junit.jupiter.Folder;
 import org.johnnei.junit.jupiter.TempFolderExtension;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsString;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -86,6 +90,29 @@ public class TorrentFileSetTest {
 		assertEquals(cut.getFiles().get(1), cut.getFileForBytes(0, 0, 7680), "Incorrect file info got returned for the first byte in the second file");
 	}
 
+	@Test
+	public void testGetFileSegments(@Folder Path tmp) throws Exception {
+		TorrentFileSet cut = getMultiFileTorrent(tmp);
+
+		List<FileSegment> segments = cut.getFileSegments(0, 7_000, 1 << 14);
+
+		assertEquals(2, segments.size(), "Block should have been split over the first two files");
+		assertEquals(cut.getFiles().get(0), segments.get(0).getFile(), "Incorrect first file");
+		assertEquals(7_000, segments.get(0).getOffsetInFile(), "Incorrect offset in the first file");
+		assertEquals(680, segments.get(0).getLength(), "Incorrect length in the first file");
+		assertEquals(cut.getFiles().get(1), segments.get(1).getFile(), "Incorrect second file");
+		assertEquals(0, segments.get(1).getOffsetInFile(), "Incorrect offset in the second file");
+		assertEquals(680, segments.get(1).getDataOffset(), "Incorrect data offset in the second file");
+		assertEquals((1 << 14) - 680, segments.get(1).getLength(), "Incorrect length in the second file");
+	}
+
+	@Test
+	public void testGetFileSegmentsOutOfRangePiece(@Folder Path tmp) throws Exception {
+		TorrentFileSet cut = getSingleFileTorrent(tmp);
+		Exception e = assertThrows(IllegalArgumentException.class, () -> cut.getFileSegments(2, 0, 1));
+		assertThat(e.getMessage(), containsString("Piece"));
+	}
+
 	@Test
 	public void testGetFileForBytesNegativePiece(@Folder Path tmp) throws Exception {
 		TorrentFileSet cut = getSingleFileTorrent(tmp);
@@ -227,4 +254,24 @@ public class TorrentFileSetTest {
 		assertTrue(cut.isDone(), "Should have been done yet.");
 		assertEquals(0, cut.getNeededPieces().count(), "None of the pieces should have been needed");
 	}
+
+	@Test
+	public void testProgressFollowsBlockStatus(@Folder Path tmp) throws Exception {
+		TorrentFileSet cut = getSingleFileTorrent(tmp);
+		Piece piece = cut.getPiece(0);
+
+		piece.setBlockStatus(0, BlockStatus.Verified);
+		assertEquals(32_768, cut.countRemainingBytes(), "Verified block should no longer be remaining");
+		assertEquals(0, cut.countCompletedPieces(), "Piece is not complete yet");
+
+		piece.setBlockStatus(1, BlockStatus.Verified);
+		assertEquals(16_384, cut.countRemainingBytes(), "Completed piece should no longer be remaining");
+		assertEquals(1, cut.countCompletedPieces(), "Piece should have been completed");
+		assertThat(cut.getNeededPieces()::iterator, contains(cut.getPiece(1)));
+
+		piece.onHashMismatch();
+		assertEquals(32_768, cut.countRemainingBytes(), "Dropped block should be remaining again");
+		assertEquals(0, cut.countCompletedPieces(), "Piece should no longer be complete");
+		assertThat(cut.getNeededPieces()::iterator, contains(cut.getPiece(0), cut.getPiece(1)));
+	}
 }
@@ -1,11 +1,13 @@
 package org.johnnei.javatorrent.torrent;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Test;
@@ -18,7 +20,11 @@ import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageBitfield;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageHave;
 import org.johnnei.javatorrent.disk.DiskJobCheckHash;
 import org.johnnei.javatorrent.disk.DiskJobWriteBlock;
+import org.johnnei.javatorrent.disk.DiskJobWritePiece;
 import org.johnnei.javatorrent.disk.IDiskJob;
+import org.johnnei.javatorrent.internal.disk.PieceCache;
+import org.johnnei.javatorrent.internal.torrent.PieceAvailability;
+import org.johnnei.javatorrent.internal.torrent.PieceRecheck;
 import org.johnnei.javatorrent.module.IModule;
 import org.johnnei.javatorrent.network.BitTorrentSocket;
 import org.johnnei.javatorrent.test.DummyEntity;
@@ -27,6 +33,7 @@ import org.johnnei.javatorrent.torrent.algos.pieceselector.IPieceSelector;
 import org.johnnei.javatorrent.torrent.files.BlockStatus;
 import org.johnnei.javatorrent.torrent.files.Piece;
 import org.johnnei.javatorrent.torrent.peer.Peer;
+import org.johnnei.junit.jupiter.Folder;
 import org.johnnei.junit.jupiter.TempFolderExtension;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -39,12 +46,17 @@ import static org.hamcrest.core.IsCollectionContaining.hasItem;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -75,6 +87,7 @@ public class TorrentTest {
 		Torrent equal = new Torrent.Builder()
 				.setName("Torrent")
 				.setMetadata(new Metadata.Builder().setHash(Arrays.copyOf(base.getMetadata().getHash(), 20)).build())
+				.setTorrentClient(DummyEntity.createTorrentClient())
 				.build();
 
 		TestUtils.assertEqualityMethods(base, equal, notEqual);
@@ -82,7 +95,7 @@ public class TorrentTest {
 
 	@Test
 	public void testAddDiskJob() {
-		TorrentClient torrentClientMock = mock(TorrentClient.class);
+		TorrentClient torrentClientMock = DummyEntity.createTorrentClient();
 		Piece pieceMock = mock(Piece.class);
 
 		Torrent cut = new Torrent.Builder()
@@ -117,7 +130,7 @@ public class TorrentTest {
 		socketMock.setPassedHandshake();
 		socketMock.enqueueMessage(isA(MessageHave.class));
 
-		TorrentClient torrentClientMock = mock(TorrentClient.class);
+		TorrentClient torrentClientMock = DummyEntity.createTorrentClient();
 		when(torrentClientMock.getModules()).thenReturn(Collections.emptyList());
 
 		Torrent cut = new Torrent.Builder()
@@ -133,6 +146,106 @@ public class TorrentTest {
 		verify(fileSetMock).setHavingPiece(eq(0));
 	}
 
+	@Test
+	public void testStartRecheck() throws Exception {
+		TorrentFileSet fileSetMock = mock(TorrentFileSet.class);
+		Piece pieceMock = mock(Piece.class);
+
+		when(fileSetMock.getNeededPieces()).thenReturn(Stream.of(pieceMock));
+		when(pieceMock.checkHash()).thenReturn(true);
+		when(pieceMock.getIndex()).thenReturn(3);
+
+		ForkJoinPool pool = new ForkJoinPool(1);
+		TorrentClient torrentClientMock = DummyEntity.createTorrentClient();
+		when(torrentClientMock.getRecheckPool()).thenReturn(pool);
+
+		Torrent cut = new Torrent.Builder()
+				.setTorrentClient(torrentClientMock)
+				.setName("Start recheck test")
+				.setMetadata(DummyEntity.createMetadata())
+				.build();
+		cut.setFileSet(fileSetMock);
+
+		assertFalse(cut.getRecheck().isPresent(), "No recheck should have been started yet");
+
+		PieceRecheck recheck = cut.startRecheck();
+		recheck.await();
+
+		assertSame(recheck, cut.getRecheck().get(), "Started recheck should be exposed");
+		assertFalse(cut.isRechecking(), "Recheck should have completed");
+		assertEquals(1, recheck.getVerifiedPieceCount(), "Piece should have been verified");
+		verify(fileSetMock).setHavingPiece(eq(3));
+		pool.shutdown();
+	}
+
+	@Test
+	public void testSaveResumeData(@Folder Path temporaryFolder) throws Exception {
+		TorrentFileSet fileSetMock = mock(TorrentFileSet.class);
+		when(fileSetMock.getNeededPieces()).thenAnswer(invocation -> Stream.empty());
+		when(fileSetMock.getBitfieldBytes()).thenReturn(new byte[1]);
+		when(fileSetMock.getFiles()).thenReturn(Collections.emptyList());
+
+		ForkJoinPool pool = new ForkJoinPool(1);
+		TorrentClient torrentClientMock = DummyEntity.createTorrentClient();
+		when(torrentClientMock.getRecheckPool()).thenReturn(pool);
+		when(torrentClientMock.getResumeFolder()).thenReturn(temporaryFolder.toFile());
+
+		Torrent cut = new Torrent.Builder()
+				.setTorrentClient(torrentClientMock)
+				.setName("Save resume data test")
+				.setMetadata(DummyEntity.createMetadata())
+				.build();
+		cut.setFileSet(fileSetMock);
+
+		cut.saveResumeData();
+		assertFalse(cut.getResumeFile().exists(), "Resume data can't be saved before the progress has been checked");
+
+		cut.checkProgress();
+		cut.saveResumeData();
+		assertTrue(cut.getResumeFile().exists(), "Resume data should have been saved after the progress has been checked");
+		pool.shutdown();
+	}
+
+	@Test
+	public void testPieceAvailabilityFollowsPeers() throws Exception {
+		TorrentFileSet fileSetMock = mock(TorrentFileSet.class);
+		when(fileSetMock.getPieceCount()).thenReturn(3);
+		when(fileSetMock.hasPiece(2)).thenReturn(true);
+
+		Peer peerMock = mock(Peer.class);
+		when(peerMock.getBitTorrentSocket()).thenReturn(mock(BitTorrentSocket.class));
+		when(peerMock.hasPiece(0)).thenReturn(true);
+
+		Peer peerMockTwo = mock(Peer.class);
+		when(peerMockTwo.getBitTorrentSocket()).thenReturn(mock(BitTorrentSocket.class));
+
+		TorrentClient torrentClientMock = DummyEntity.createTorrentClient();
+		when(torrentClientMock.getModules()).thenReturn(Collections.emptyList());
+
+		Torrent cut = new Torrent.Builder()
+				.setTorrentClient(torrentClientMock)
+				.setMetadata(DummyEntity.createMetadata())
+				.setName("Piece availability test")
+				.build();
+
+		cut.addPeer(peerMock);
+		assertNull(cut.getPieceAvailability(), "Availability can't be known without the files");
+
+		cut.setFileSet(fileSetMock);
+		cut.addPeer(peerMockTwo);
+		cut.onPeerHasPiece(peerMockTwo, 0);
+		cut.onPeerHasPiece(peerMockTwo, 1);
+
+		PieceAvailability availability = cut.getPieceAvailability();
+		assertEquals(2, availability.getAvailability(0), "Pieces of the connected and added peers should be counted");
+		assertEquals(1, availability.getAvailability(1), "Announced piece should be counted");
+
+		cut.removePeer(peerMock);
+
+		assertEquals(1, availability.getAvailability(0), "Pieces of the removed peer should no longer be counted");
+		assertFalse(availability.findRarestPiece(peerMockTwo, piece -> piece == 2).isPresent(), "Completed piece should not be selected");
+	}
+
 	@Test
 	public void testSeederLeecherCount() throws Exception {
 		TorrentFileSet fileSetMock = mock(TorrentFileSet.class);
@@ -150,7 +263,7 @@ public class TorrentTest {
 		when(peerMockTwo.getBitTorrentSocket()).thenReturn(socketMockTwo);
 		when(peerMockTwo.countHavePieces()).thenReturn(3);
 
-		TorrentClient torrentClientMock = mock(TorrentClient.class);
+		TorrentClient torrentClientMock = DummyEntity.createTorrentClient();
 		when(torrentClientMock.getModules()).thenReturn(Collections.emptyList());
 
 		Torrent cut = new Torrent.Builder()
@@ -191,7 +304,7 @@ public class TorrentTest {
 		socketMockTwo.pollRates();
 		socketMockTwo.setPassedHandshake();
 
-		TorrentClient torrentClientMock = mock(TorrentClient.class);
+		TorrentClient torrentClientMock = DummyEntity.createTorrentClient();
 		when(torrentClientMock.getModules()).thenReturn(Collections.emptyList());
 
 		Torrent cut = new Torrent.Builder()
@@ -211,7 +324,7 @@ public class TorrentTest {
 	@Test
 	public void testOnReceivedBlockChechHashMismatch() throws Exception {
 		TorrentFileSet fileSetMock = mock(TorrentFileSet.class);
-		TorrentClient torrentClient = mock(TorrentClient.class);
+		TorrentClient torrentClient = DummyEntity.createTorrentClient();
 		Piece pieceMock = mock(Piece.class);
 
 		ArgumentCaptor<IDiskJob> writeJobCapture = ArgumentCaptor.forClass(IDiskJob.class);
@@ -247,7 +360,7 @@ public class TorrentTest {
 	@Test
 	public void testOnReceivedBlockChechHash() throws Exception {
 		TorrentFileSet fileSetMock = mock(TorrentFileSet.class);
-		TorrentClient torrentClient = mock(TorrentClient.class);
+		TorrentClient torrentClient = DummyEntity.createTorrentClient();
 		Piece pieceMock = mock(Piece.class);
 
 		ArgumentCaptor<DiskJobWriteBlock> writeJobCapture = ArgumentCaptor.forClass(DiskJobWriteBlock.class);
@@ -296,10 +409,108 @@ public class TorrentTest {
 		assertEquals(15, cut.getDownloadedBytes(), "Incorrect downloaded bytes, piece size should have been added.");
 	}
 
+	@Test
+	public void testOnReceivedBlockDuplicate() throws Exception {
+		TorrentFileSet fileSetMock = mock(TorrentFileSet.class);
+		TorrentClient torrentClient = DummyEntity.createTorrentClient();
+		Piece pieceMock = mock(Piece.class);
+
+		when(fileSetMock.getBlockSize()).thenReturn(15);
+		when(fileSetMock.getPiece(eq(0))).thenReturn(pieceMock);
+		when(pieceMock.getBlockSize(eq(1))).thenReturn(15);
+		when(pieceMock.getBlockStatus(eq(1))).thenReturn(BlockStatus.Stored);
+
+		Torrent cut = new Torrent.Builder()
+				.setName("On Received Duplicate Block Test")
+				.setMetadata(DummyEntity.createMetadata())
+				.setTorrentClient(torrentClient)
+				.build();
+		cut.setFileSet(fileSetMock);
+
+		cut.onReceivedBlock(fileSetMock, 0, 15, new byte[15]);
+
+		verify(torrentClient, never()).addDiskJob(any());
+		verify(pieceMock, never()).updateHash(anyInt(), any());
+		verify(pieceMock, never()).setBlockStatus(anyInt(), any());
+	}
+
+	@Test
+	public void testOnReceivedBlockStoreFailed() throws Exception {
+		TorrentFileSet fileSetMock = mock(TorrentFileSet.class);
+		TorrentClient torrentClient = DummyEntity.createTorrentClient();
+		Piece pieceMock = mock(Piece.class);
+
+		ArgumentCaptor<DiskJobWriteBlock> writeJobCapture = ArgumentCaptor.forClass(DiskJobWriteBlock.class);
+
+		when(fileSetMock.getBlockSize()).thenReturn(15);
+		when(fileSetMock.getPiece(eq(0))).thenReturn(pieceMock);
+		when(pieceMock.getBlockSize(eq(1))).thenReturn(15);
+		when(torrentClient.getModules()).thenReturn(Collections.emptyList());
+
+		Torrent cut = new Torrent.Builder()
+				.setName("On Received Block Store Failed Test")
+				.setMetadata(DummyEntity.createMetadata())
+				.setTorrentClient(torrentClient)
+				.build();
+		cut.setFileSet(fileSetMock);
+
+		cut.onReceivedBlock(fileSetMock, 0, 15, new byte[15]);
+
+		verify(torrentClient).addDiskJob(writeJobCapture.capture());
+		writeJobCapture.getValue().onFailure(new IOException("Test store failure"));
+
+		verify(pieceMock).setBlockStatus(1, BlockStatus.Needed);
+		verify(pieceMock, never()).setBlockStatus(1, BlockStatus.Stored);
+	}
+
+	@Test
+	public void testOnReceivedBlockCached() throws Exception {
+		TorrentFileSet fileSetMock = mock(TorrentFileSet.class);
+		TorrentClient torrentClient = DummyEntity.createTorrentClient();
+		Piece pieceMock = mock(Piece.class);
+		PieceCache pieceCache = new PieceCache(100);
+
+		ArgumentCaptor<DiskJobWritePiece> writeJobCapture = ArgumentCaptor.forClass(DiskJobWritePiece.class);
+
+		when(torrentClient.getPieceCache()).thenReturn(pieceCache);
+		when(torrentClient.getModules()).thenReturn(Collections.emptyList());
+		when(fileSetMock.getBlockSize()).thenReturn(15);
+		when(fileSetMock.getPiece(eq(0))).thenReturn(pieceMock);
+		when(pieceMock.getBlockSize(anyInt())).thenReturn(15);
+		when(pieceMock.getIndex()).thenReturn(0);
+		when(pieceMock.getSize()).thenReturn(30);
+		when(pieceMock.getBlockCount()).thenReturn(2);
+		when(pieceMock.getFileSet()).thenReturn(fileSetMock);
+		when(pieceMock.countBlocksWithStatus(eq(BlockStatus.Stored))).thenReturn(1, 2);
+		when(pieceMock.checkHash(aryEq(new byte[30]))).thenReturn(true);
+
+		Torrent cut = new Torrent.Builder()
+				.setName("On Received Block Test")
+				.setMetadata(DummyEntity.createMetadata())
+				.setTorrentClient(torrentClient)
+				.build();
+		cut.setFileSet(fileSetMock);
+
+		cut.onReceivedBlock(fileSetMock, 0, 0, new byte[15]);
+		cut.onReceivedBlock(fileSetMock, 0, 15, new byte[15]);
+
+		verify(pieceMock, never()).storeBlock(anyInt(), isA(byte[].class));
+		verify(pieceMock).setBlockStatus(0, BlockStatus.Stored);
+		verify(pieceMock).setBlockStatus(1, BlockStatus.Stored);
+		verify(torrentClient).addDiskJob(writeJobCapture.capture());
+
+		writeJobCapture.getValue().process();
+
+		verify(pieceMock).storePiece(aryEq(new byte[30]));
+		verify(fileSetMock).setHavingPiece(0);
+		assertEquals(30, cut.getDownloadedBytes(), "Incorrect downloaded bytes, piece size should have been added.");
+		assertEquals(0, pieceCache.getUsedBytes(), "Piece should have been released from the cache");
+	}
+
 	@Test
 	public void testOnReceivedBlockIncorrectSize() throws Exception {
 		TorrentFileSet fileSetMock = mock(TorrentFileSet.class);
-		TorrentClient torrentClient = mock(TorrentClient.class);
+		TorrentClient torrentClient = DummyEntity.createTorrentClient();
 		Piece pieceMock = mock(Piece.class);
 
 		when(fileSetMock.getBlockSize()).thenReturn(15);
@@ -321,7 +532,7 @@ public class TorrentTest {
 	@Test
 	public void testOnReceivedBlockPieceNotDone() throws Exception {
 		TorrentFileSet fileSetMock = mock(TorrentFileSet.class);
-		TorrentClient torrentClient = mock(TorrentClient.class);
+		TorrentClient torrentClient = DummyEntity.createTorrentClient();
 		Piece pieceMock = mock(Piece.class);
 
 		ArgumentCaptor<IDiskJob> writeJobCapture = ArgumentCaptor.forClass(IDiskJob.class);
@@ -351,7 +562,7 @@ public class TorrentTest {
 	@Test
 	public void testOnReceivedBlockChechHashDownloadingMetadata() throws Exception {
 		TorrentFileSet fileSetMock = mock(TorrentFileSet.class);
-		TorrentClient torrentClient = mock(TorrentClient.class);
+		TorrentClient torrentClient = DummyEntity.createTorrentClient();
 		Piece pieceMock = mock(Piece.class);
 
 		ArgumentCaptor<IDiskJob> writeJobCapture = ArgumentCaptor.forClass(IDiskJob.class);
@@ -386,7 +597,7 @@ public class TorrentTest {
 	@Test
 	public void testOnReceivedBlock() throws Exception {
 		TorrentFileSet fileSetMock = mock(TorrentFileSet.class);
-		TorrentClient torrentClient = mock(TorrentClient.class);
+		TorrentClient torrentClient = DummyEntity.createTorrentClient();
 		Piece pieceMock = mock(Piece.class);
 
 		ArgumentCaptor<IDiskJob> writeJobCapture = ArgumentCaptor.forClass(IDiskJob.class);
@@ -431,7 +642,7 @@ public class TorrentTest {
 		BitTorrentSocket socketMockTwo = mock(BitTorrentSocket.class);
 		BitTorrentSocket socketMockThree = mock(BitTorrentSocket.class);
 
-		TorrentClient torrentClientMock = mock(TorrentClient.class);
+		TorrentClient torrentClientMock = DummyEntity.createTorrentClient();
 		when(torrentClientMock.getModules()).thenReturn(Collections.emptyList());
 
 		Torrent cut = DummyEntity.createUniqueTorrent(torrentClientMock);
@@ -500,7 +711,7 @@ public class TorrentTest {
 
 		IModule moduleMock = mock(IModule.class);
 
-		TorrentClient torrentClientMock = mock(TorrentClient.class);
+		TorrentClient torrentClientMock = DummyEntity.createTorrentClient();
 		when(torrentClientMock.getModules()).thenReturn(Collections.singletonList(moduleMock));
 
 		Torrent cut = DummyEntity.createUniqueTorrent(torrentClientMock);
@@ -528,7 +739,7 @@ public class TorrentTest {
 		when(fileSetMock.countCompletedPieces()).thenReturn(7);
 		when(fileSetMock.getBitfieldBytes()).thenReturn(new byte[2]);
 
-		TorrentClient torrentClientMock = mock(TorrentClient.class);
+		TorrentClient torrentClientMock = DummyEntity.createTorrentClient();
 		when(torrentClientMock.getModules()).thenReturn(Collections.emptyList());
 
 		Torrent cut = DummyEntity.createUniqueTorrent(torrentClientMock);
@@ -561,7 +772,7 @@ public class TorrentTest {
 		when(fileSetMock.hasPiece(0)).thenReturn(true);
 		when(fileSetMock.hasPiece(5)).thenReturn(true);
 
-		TorrentClient torrentClientMock = mock(TorrentClient.class);
+		TorrentClient torrentClientMock = DummyEntity.createTorrentClient();
 		when(torrentClientMock.getModules()).thenReturn(Collections.emptyList());
 
 		Torrent cut = DummyEntity.createUniqueTorrent(torrentClientMock);
@@ -608,6 +819,7 @@ public class TorrentTest {
 		Torrent cut = new Torrent.Builder()
 				.setName("Test")
 				.setMetadata(DummyEntity.createMetadata())
+				.setTorrentClient(DummyEntity.createTorrentClient())
 				.build();
 
 		assertEquals("Test", cut.getDisplayName(), "Incorrect display name");
@@ -618,6 +830,7 @@ public class TorrentTest {
 		Torrent cut = new Torrent.Builder()
 				.setName("Test")
 				.setMetadata(DummyEntity.createMetadata())
+				.setTorrentClient(DummyEntity.createTorrentClient())
 				.build();
 
 		assertEquals(0, cut.getUploadedBytes(), "Incorrect amount of uploaded bytes, nothing is uploaded");
@@ -641,6 +854,7 @@ public class TorrentTest {
 		Torrent cut = new Torrent.Builder()
 				.setName("Test")
 				.setMetadata(metadataMock)
+				.setTorrentClient(DummyEntity.createTorrentClient())
 				.build();
 
 		assertTrue(cut.isDownloadingMetadata(), "Metadata should have returned that it is not done yet");
@@ -658,8 +872,18 @@ public class TorrentTest {
 
 		Torrent cut = new Torrent.Builder()
 				.setMetadata(metadataMock)
+				.setTorrentClient(DummyEntity.createTorrentClient())
 				.build();
 
 		assertEquals("magnet(ab)", cut.getDisplayName(), "As no name has been supplied the metadata name should be used");
 	}
+
+	@Test
+	public void testBuildWithoutClient() {
+		Torrent.Builder builder = new Torrent.Builder()
+				.setName("Without client")
+				.setMetadata(DummyEntity.createMetadata());
+
+		assertThrows(IllegalArgumentException.class, builder::build);
+	}
 }
@@ -1,16 +1,14 @@
 package org.johnnei.javatorrent.torrent.algos.pieceselector;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
 import java.util.Optional;
 
 import org.junit.jupiter.api.Test;
 
+import org.johnnei.javatorrent.internal.torrent.PieceAvailability;
 import org.johnnei.javatorrent.torrent.Torrent;
 import org.johnnei.javatorrent.torrent.TorrentFileSet;
 import org.johnnei.javatorrent.torrent.files.BlockStatus;
+import org.johnnei.javatorrent.torrent.files.FileSetProgress;
 import org.johnnei.javatorrent.torrent.files.Piece;
 import org.johnnei.javatorrent.torrent.peer.Peer;
 
@@ -18,11 +16,10 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.johnnei.javatorrent.test.TestUtils.assertPresent;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.times;
-import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -30,124 +27,145 @@ import static org.mockito.Mockito.when;
  */
 public class FullPieceSelectTest {
 
-	@Test
-	public void testSelectStartedPiecesOverUnstarted() {
-		Piece pieceOne = new Piece(null, new byte[20], 0, 10, 5);
-		pieceOne.setBlockStatus(1, BlockStatus.Requested);
-		Piece pieceTwo = new Piece(null, new byte[20], 1, 10, 5);
+	private final TorrentFileSet filesMock = mock(TorrentFileSet.class);
 
-		TorrentFileSet filesMock = mock(TorrentFileSet.class);
-		when(filesMock.getNeededPieces()).thenReturn(Arrays.asList(pieceOne, pieceTwo).stream());
+	private final Torrent torrentMock = mock(Torrent.class);
 
-		Peer peerMock = mock(Peer.class);
+	private Piece[] createPieces(int count) {
+		when(filesMock.getProgress()).thenReturn(new FileSetProgress());
+		when(filesMock.getPieceCount()).thenReturn(count);
 
-		when(peerMock.hasPiece(anyInt())).thenReturn(true);
+		Piece[] pieces = new Piece[count];
+		for (int i = 0; i < count; i++) {
+			pieces[i] = new Piece(filesMock, new byte[20], i, 10, 5);
+			when(filesMock.getPiece(i)).thenReturn(pieces[i]);
+		}
 
-		Torrent torrentMock = mock(Torrent.class);
 		when(torrentMock.getFileSet()).thenReturn(filesMock);
-
-		FullPieceSelect cut = new FullPieceSelect(torrentMock);
-		Optional<Piece> chosenPiece = cut.getPieceForPeer(peerMock);
-
-		assertEquals(pieceOne, chosenPiece.get(), "Incorrect piece has been selected");
+		return pieces;
 	}
 
-	@Test
-	public void testStateChangesDoNotAffectResult() {
-		List<Piece> pieces = new ArrayList<>(300);
-		for (int i = 0; i < 300; i++) {
-			pieces.add(new Piece(null, new byte[20], i, 10, 5));
+	private PieceAvailability createAvailability(int pieceCount, Peer... peers) {
+		PieceAvailability availability = new PieceAvailability(pieceCount);
+		for (Peer peer : peers) {
+			availability.addPeer(peer);
 		}
+		when(torrentMock.getPieceAvailability()).thenReturn(availability);
+		return availability;
+	}
 
-		TorrentFileSet filesMock = mock(TorrentFileSet.class);
-		when(filesMock.getNeededPieces()).thenReturn(pieces.stream());
-
+	private static Peer createSeeder() {
 		Peer peerMock = mock(Peer.class);
-
 		when(peerMock.hasPiece(anyInt())).thenReturn(true);
+		return peerMock;
+	}
 
-		Torrent torrentMock = mock(Torrent.class);
-		when(torrentMock.getFileSet()).thenReturn(filesMock);
-		when(torrentMock.getPeers()).thenReturn(Collections.singletonList(peerMock));
+	@Test
+	public void testSelectStartedPiecesOverUnstarted() {
+		Piece[] pieces = createPieces(2);
+		pieces[0].setBlockStatus(1, BlockStatus.Requested);
+
+		Peer peerMock = createSeeder();
+		createAvailability(2, peerMock);
 
 		FullPieceSelect cut = new FullPieceSelect(torrentMock);
 		Optional<Piece> chosenPiece = cut.getPieceForPeer(peerMock);
 
-		assertPresent("No piece has been selected, even though all are and all are equal.", chosenPiece);
-
-		for (int i = 0; i < 300; i++) {
-			// Once to detect which pieces the peer has and once to count the availability.
-			verify(peerMock, times(2)).hasPiece(i);
-		}
+		assertEquals(pieces[0], chosenPiece.get(), "Incorrect piece has been selected");
 	}
 
 	@Test
-	public void testSelectStartedPiecesOverUnstartedExcludingPiecesWithoutAnyNeededBlock() {
-		Piece pieceOne = new Piece(null, new byte[20], 0, 10, 5);
-		pieceOne.setBlockStatus(0, BlockStatus.Requested);
-		pieceOne.setBlockStatus(1, BlockStatus.Requested);
-		Piece pieceTwo = new Piece(null, new byte[20], 1, 10, 5);
+	public void testCompletedPiecesAreNotSelected() {
+		Piece[] pieces = createPieces(300);
+		for (int i = 0; i < 299; i++) {
+			pieces[i].setBlockStatus(0, BlockStatus.Verified);
+			pieces[i].setBlockStatus(1, BlockStatus.Verified);
+		}
 
-		TorrentFileSet filesMock = mock(TorrentFileSet.class);
-		when(filesMock.getNeededPieces()).thenReturn(Arrays.asList(pieceOne, pieceTwo).stream());
+		Peer peerMock = createSeeder();
+		PieceAvailability availability = createAvailability(300, peerMock);
+		availability.onPieceCompleted(0);
 
-		Peer peerMock = mock(Peer.class);
+		FullPieceSelect cut = new FullPieceSelect(torrentMock);
+		Optional<Piece> chosenPiece = cut.getPieceForPeer(peerMock);
 
-		when(peerMock.hasPiece(anyInt())).thenReturn(true);
+		assertThat("Only the last piece is still needed.", assertPresent("A piece should be selected", chosenPiece), equalTo(pieces[299]));
+	}
 
-		Torrent torrentMock = mock(Torrent.class);
-		when(torrentMock.getFileSet()).thenReturn(filesMock);
+	@Test
+	public void testSelectStartedPiecesOverUnstartedExcludingPiecesWithoutAnyNeededBlock() {
+		Piece[] pieces = createPieces(2);
+		pieces[0].setBlockStatus(0, BlockStatus.Requested);
+		pieces[0].setBlockStatus(1, BlockStatus.Requested);
+
+		Peer peerMock = createSeeder();
+		createAvailability(2, peerMock);
 
 		FullPieceSelect cut = new FullPieceSelect(torrentMock);
 		Optional<Piece> chosenPiece = cut.getPieceForPeer(peerMock);
 
-		assertThat("Incorrect piece has been selected", assertPresent("A piece should be selected", chosenPiece), equalTo(pieceTwo));
+		assertThat("Incorrect piece has been selected", assertPresent("A piece should be selected", chosenPiece), equalTo(pieces[1]));
 	}
 
 	@Test
 	public void testSelectStartedPiecesOverUnstartedNonFirstElement() {
-		Piece pieceOne = new Piece(null, new byte[20], 0, 10, 5);
-		Piece pieceTwo = new Piece(null, new byte[20], 1, 10, 5);
-		pieceTwo.setBlockStatus(1, BlockStatus.Requested);
-
-		TorrentFileSet filesMock = mock(TorrentFileSet.class);
-		when(filesMock.getNeededPieces()).thenReturn(Arrays.asList(pieceOne, pieceTwo).stream());
-
-		Peer peerMock = mock(Peer.class);
+		Piece[] pieces = createPieces(2);
+		pieces[1].setBlockStatus(1, BlockStatus.Requested);
 
-		when(peerMock.hasPiece(anyInt())).thenReturn(true);
-
-		Torrent torrentMock = mock(Torrent.class);
-		when(torrentMock.getFileSet()).thenReturn(filesMock);
+		Peer peerMock = createSeeder();
+		createAvailability(2, peerMock);
 
 		FullPieceSelect cut = new FullPieceSelect(torrentMock);
 		Optional<Piece> chosenPiece = cut.getPieceForPeer(peerMock);
 
-		assertThat("Incorrect piece has been selected", assertPresent("A piece should be selected", chosenPiece), equalTo(pieceTwo));
+		assertThat("Incorrect piece has been selected", assertPresent("A piece should be selected", chosenPiece), equalTo(pieces[1]));
 	}
 
 	@Test
 	public void testPickRarerPieces() {
-		Piece pieceOne = new Piece(null, new byte[20], 0, 10, 5);
-		Piece pieceTwo = new Piece(null, new byte[20], 1, 10, 5);
-
-		TorrentFileSet filesMock = mock(TorrentFileSet.class);
-		when(filesMock.getNeededPieces()).thenReturn(Arrays.asList(pieceOne, pieceTwo).stream());
+		Piece[] pieces = createPieces(2);
 
-		Peer peerMock = mock(Peer.class);
+		Peer peerMock = createSeeder();
 		Peer peerTwoMock = mock(Peer.class);
-
-		when(peerMock.hasPiece(anyInt())).thenReturn(true);
 		when(peerTwoMock.hasPiece(eq(0))).thenReturn(true);
 		when(peerTwoMock.hasPiece(eq(1))).thenReturn(false);
+		createAvailability(2, peerMock, peerTwoMock);
 
-		Torrent torrentMock = mock(Torrent.class);
-		when(torrentMock.getFileSet()).thenReturn(filesMock);
-		when(torrentMock.getPeers()).thenReturn(Arrays.asList(peerMock, peerTwoMock));
+		FullPieceSelect cut = new FullPieceSelect(torrentMock);
+		Optional<Piece> chosenPiece = cut.getPieceForPeer(peerMock);
+
+		assertThat("Incorrect piece has been selected", assertPresent("A piece should be selected.", chosenPiece), equalTo(pieces[1]));
+	}
+
+	@Test
+	public void testPickRarerStartedPieces() {
+		Piece[] pieces = createPieces(3);
+		pieces[0].setBlockStatus(0, BlockStatus.Requested);
+		pieces[1].setBlockStatus(0, BlockStatus.Requested);
+
+		Peer peerMock = createSeeder();
+		Peer peerTwoMock = mock(Peer.class);
+		when(peerTwoMock.hasPiece(eq(0))).thenReturn(true);
+		PieceAvailability availability = createAvailability(3, peerMock, peerTwoMock);
 
 		FullPieceSelect cut = new FullPieceSelect(torrentMock);
 		Optional<Piece> chosenPiece = cut.getPieceForPeer(peerMock);
 
-		assertThat("Incorrect piece has been selected", assertPresent("A piece should be selected.", chosenPiece), equalTo(pieceTwo));
+		assertThat("Rarest started piece should be selected", assertPresent("A piece should be selected.", chosenPiece), equalTo(pieces[1]));
+
+		availability.onPeerHasPiece(peerTwoMock, 1);
+		availability.onPeerHasPiece(peerTwoMock, 2);
+		availability.removePeer(peerTwoMock);
+
+		assertEquals(pieces[0], cut.getPieceForPeer(peerMock).get(), "Equally available started pieces should be selected in order");
+	}
+
+	@Test
+	public void testNoPieceWithoutAvailability() {
+		createPieces(1);
+
+		FullPieceSelect cut = new FullPieceSelect(torrentMock);
+
+		assertFalse(cut.getPieceForPeer(createSeeder()).isPresent(), "No piece can be selected before the availability is known");
 	}
 }
@@ -0,0 +1,86 @@
+package org.johnnei.javatorrent.torrent.files;
+
+import java.util.BitSet;
+
+import org.junit.jupiter.api.Test;
+
+import org.johnnei.javatorrent.torrent.AbstractFileSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link FileSetProgress}
+ */
+public class FileSetProgressTest {
+
+	@Test
+	public void testCompletedPieces() {
+		FileSetProgress cut = new FileSetProgress();
+
+		cut.onPieceCompleted(1);
+		cut.onPieceCompleted(1);
+		cut.onPieceCompleted(3);
+
+		assertEquals(2, cut.getCompletedPieceCount(), "Completing a piece twice should count once");
+
+		cut.onPieceReverted(3);
+		cut.onPieceReverted(2);
+
+		assertEquals(1, cut.getCompletedPieceCount(), "Only completed pieces can be reverted");
+	}
+
+	@Test
+	public void testGetNeededPieces() {
+		FileSetProgress cut = new FileSetProgress();
+		cut.onPieceCompleted(0);
+		cut.onPieceCompleted(2);
+
+		BitSet neededPieces = cut.getNeededPieces(4);
+
+		assertEquals(2, neededPieces.cardinality(), "Incorrect amount of needed pieces");
+		assertTrue(neededPieces.get(1), "Piece 1 should be needed");
+		assertTrue(neededPieces.get(3), "Piece 3 should be needed");
+
+		neededPieces.clear();
+		assertEquals(2, cut.getNeededPieces(4).cardinality(), "Returned needed pieces should be a snapshot");
+	}
+
+	@Test
+	public void testStartedPiecesFollowBlockStatus() {
+		FileSetProgress cut = new FileSetProgress();
+		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
+		when(fileSetMock.getProgress()).thenReturn(cut);
+
+		Piece piece = new Piece(fileSetMock, new byte[20], 2, 10, 5);
+		assertTrue(cut.getStartedPieces().isEmpty(), "New piece should not be started");
+
+		piece.setBlockStatus(0, BlockStatus.Requested);
+		assertTrue(cut.getStartedPieces().get(2), "Piece with a requested block should be started");
+
+		piece.setBlockStatus(0, BlockStatus.Verified);
+		piece.setBlockStatus(1, BlockStatus.Verified);
+		assertFalse(cut.getStartedPieces().get(2), "Completed piece should no longer be started");
+
+		piece.setBlockStatus(1, BlockStatus.Needed);
+		assertTrue(cut.getStartedPieces().get(2), "Reverted piece should be started again");
+
+		piece.setBlockStatus(0, BlockStatus.Needed);
+		assertTrue(cut.getStartedPieces().isEmpty(), "Piece without progress should not be started");
+	}
+
+	@Test
+	public void testVerifiedBytes() {
+		FileSetProgress cut = new FileSetProgress();
+
+		cut.addVerifiedBytes(10);
+		cut.addVerifiedBytes(-4);
+
+		assertEquals(6, cut.getVerifiedBytes(), "Incorrect verified bytes");
+		assertTrue(cut.toString().startsWith("FileSetProgress["), "Incorrect toString start");
+	}
+
+}
@@ -1,7 +1,17 @@
 package org.johnnei.javatorrent.torrent.files;
 
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
@@ -10,16 +20,20 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import org.johnnei.javatorrent.bittorrent.encoding.SHA1;
+import org.johnnei.javatorrent.internal.torrent.FileSpanIndex;
 import org.johnnei.javatorrent.torrent.AbstractFileSet;
 import org.johnnei.javatorrent.torrent.FileInfo;
 import org.johnnei.junit.jupiter.Folder;
 import org.johnnei.junit.jupiter.TempFolderExtension;
 
 import static org.johnnei.javatorrent.test.TestUtils.assertEqualityMethods;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -29,6 +43,19 @@ import static org.mockito.Mockito.when;
 @ExtendWith(TempFolderExtension.class)
 public class PieceTest {
 
+	/**
+	 * Stubs the file segments of the file set mock as if the file set consists of the given files.
+	 */
+	private static void stubFiles(AbstractFileSet fileSetMock, FileInfo... files) {
+		FileSpanIndex fileSpanIndex = new FileSpanIndex(Arrays.asList(files));
+		when(fileSetMock.getFileSegments(anyInt(), anyInt(), anyInt())).thenAnswer(invocation -> {
+			int pieceIndex = invocation.getArgument(0);
+			int offset = invocation.getArgument(1);
+			int length = invocation.getArgument(2);
+			return fileSpanIndex.getSegments(pieceIndex * fileSetMock.getPieceSize() + offset, length);
+		});
+	}
+
 	@Test
 	public void testStatusCounts() {
 		Piece piece = new Piece(null, new byte[20], 0, 50, 5);
@@ -83,6 +110,41 @@ public class PieceTest {
 		assertFalse(piece.getRequestBlock().isPresent(), "Should not have returned a piece after all pieces have been requested");
 	}
 
+	@Test
+	public void testGetRequestBlockAfterBlockIsNeededAgain() {
+		Piece piece = new Piece(null, new byte[20], 0, 50, 5);
+
+		for (int i = 0; i < piece.getBlockCount(); i++) {
+			assertTrue(piece.getRequestBlock().isPresent(), "Piece should have returned a block, but didn't");
+		}
+		assertFalse(piece.getRequestBlock().isPresent(), "All blocks have been requested");
+
+		piece.setBlockStatus(3, BlockStatus.Needed);
+
+		Optional<Block> blockOptional = piece.getRequestBlock();
+		assertTrue(blockOptional.isPresent(), "Block which is needed again should be returned");
+		assertEquals(3, blockOptional.get().getIndex(), "Incorrect block has been returned");
+		assertEquals(0, piece.countBlocksWithStatus(BlockStatus.Needed), "No blocks should be needed");
+		assertEquals(10, piece.countBlocksWithStatus(BlockStatus.Requested), "All blocks should be requested");
+	}
+
+	@Test
+	public void testBlockSizesWithSmallerLastBlock() {
+		Piece piece = new Piece(null, new byte[20], 0, 12, 5);
+
+		assertEquals(3, piece.getBlockCount(), "Incorrect block count");
+		assertEquals(12, piece.getSize(), "Incorrect piece size");
+		assertEquals(5, piece.getBlockSize(1), "Incorrect block size");
+		assertEquals(2, piece.getBlockSize(2), "Last block should contain the remainder");
+
+		piece.setBlockStatus(2, BlockStatus.Verified);
+		assertEquals(10, piece.countRemainingBytes(), "Incorrect amount of bytes remaining");
+
+		piece.setBlockStatus(2, BlockStatus.Needed);
+		assertEquals(12, piece.countRemainingBytes(), "Unverified block should count as remaining again");
+		assertFalse(piece.isStarted(), "Piece should not be started after reverting the block");
+	}
+
 	@Test
 	public void testOnHashFail() {
 		Piece piece = new Piece(null, new byte[20], 0, 50, 5);
@@ -103,6 +165,20 @@ public class PieceTest {
 		}
 	}
 
+	@Test
+	public void testOnDiskFailure() {
+		Piece piece = new Piece(null, new byte[20], 0, 50, 5);
+		piece.updateHash(0, new byte[5]);
+		for (int i = 0; i < 10; i++) {
+			piece.setBlockStatus(i, BlockStatus.Stored);
+		}
+
+		piece.onDiskFailure();
+
+		assertEquals(10, piece.countBlocksWithStatus(BlockStatus.Needed), "All blocks should be needed again");
+		assertEquals(0, piece.getHashedBlockCount(), "Hash state should have been reset");
+	}
+
 	@Test
 	public void testGetFileSet() {
 		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
@@ -144,9 +220,9 @@ public class PieceTest {
 		when(fileSetMock.getPieceSize()).thenReturn(20L);
 
 		FileInfo fileInfo = new FileInfo(20, 0, temporaryFolder.resolve("1").toFile(), 1);
-		when(fileSetMock.getFileForBytes(0, 0, 0)).thenReturn(fileInfo);
+		stubFiles(fileSetMock, fileInfo);
 
-		Piece cut = new Piece(fileSetMock, new byte[20], 0, 50, 5);
+		Piece cut = new Piece(fileSetMock, new byte[20], 0, 20, 5);
 
 		assertFalse(cut.checkHash(), "Hash should not be matching, but also not throw an exception.");
 	}
@@ -160,16 +236,239 @@ public class PieceTest {
 		FileInfo fileInfoOne = new FileInfo(10, 0, temporaryFolder.resolve("1").toFile(), 1);
 
 		// Ensure that the first file passes the length requirement so the test could fail on the second file.
-		fileInfoOne.getFileAccess().seek(0);
-		fileInfoOne.getFileAccess().setLength(10);
+		fileInfoOne.getStorage().write(ByteBuffer.allocate(10), 0);
 
 		FileInfo fileInfoTwo = new FileInfo(10, 10, temporaryFolder.resolve("2").toFile(), 1);
-		when(fileSetMock.getFileForBytes(0, 0, 0)).thenReturn(fileInfoOne);
-		when(fileSetMock.getFileForBytes(0, 2, 0)).thenReturn(fileInfoTwo);
+		stubFiles(fileSetMock, fileInfoOne, fileInfoTwo);
 
-		Piece cut = new Piece(fileSetMock, new byte[20], 0, 50, 5);
+		Piece cut = new Piece(fileSetMock, new byte[20], 0, 20, 5);
 
 		assertFalse(cut.checkHash(), "Hash should not be matching, but also not throw an exception.");
 	}
 
+	@Test
+	public void testTransferToSpanningMultipleFiles(@Folder Path temporaryFolder) throws Exception {
+		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
+		when(fileSetMock.getBlockSize()).thenReturn(5);
+		when(fileSetMock.getPieceSize()).thenReturn(20L);
+
+		FileInfo fileInfoOne = new FileInfo(10, 0, temporaryFolder.resolve("1").toFile(), 1);
+		fileInfoOne.getStorage().write(ByteBuffer.wrap(new byte[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 }), 0);
+		FileInfo fileInfoTwo = new FileInfo(10, 10, temporaryFolder.resolve("2").toFile(), 1);
+		fileInfoTwo.getStorage().write(ByteBuffer.wrap(new byte[] { 10, 11, 12, 13, 14, 15, 16, 17, 18, 19 }), 0);
+
+		stubFiles(fileSetMock, fileInfoOne, fileInfoTwo);
+
+		Piece cut = new Piece(fileSetMock, new byte[20], 0, 20, 5);
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		int transferredBytes = cut.transferTo(8, 5, Channels.newChannel(outputStream));
+
+		assertEquals(5, transferredBytes, "Incorrect amount of bytes transferred");
+		assertArrayEquals(new byte[] { 8, 9, 10, 11, 12 }, outputStream.toByteArray(), "Incorrect bytes transferred");
+	}
+
+	@Test
+	public void testStoreAndLoadSpanningMultipleFiles(@Folder Path temporaryFolder) throws Exception {
+		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
+		when(fileSetMock.getBlockSize()).thenReturn(5);
+		when(fileSetMock.getPieceSize()).thenReturn(20L);
+
+		FileInfo fileInfoOne = new FileInfo(8, 0, temporaryFolder.resolve("1").toFile(), 1);
+		FileInfo fileInfoTwo = new FileInfo(12, 8, temporaryFolder.resolve("2").toFile(), 1);
+
+		stubFiles(fileSetMock, fileInfoOne, fileInfoTwo);
+
+		Piece cut = new Piece(fileSetMock, new byte[20], 0, 15, 5);
+		cut.storeBlock(1, new byte[] { 5, 6, 7, 8, 9 });
+		cut.storeBlock(0, new byte[] { 0, 1, 2, 3, 4 });
+		cut.storeBlock(2, new byte[] { 10, 11, 12, 13, 14 });
+
+		assertEquals(8, fileInfoOne.getStorage().size(), "Block should have been split at the end of the first file");
+		assertArrayEquals(new byte[] { 6, 7, 8, 9, 10, 11 }, cut.loadPiece(6, 6), "Incorrect bytes read");
+		assertArrayEquals(new byte[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14 }, cut.loadPiece(0, 15), "Incorrect bytes read");
+	}
+
+	@Test
+	public void testStorePieceSpanningMultipleFiles(@Folder Path temporaryFolder) throws Exception {
+		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
+		when(fileSetMock.getBlockSize()).thenReturn(5);
+		when(fileSetMock.getPieceSize()).thenReturn(10L);
+
+		FileInfo fileInfoOne = new FileInfo(7, 0, temporaryFolder.resolve("1").toFile(), 1);
+		FileInfo fileInfoTwo = new FileInfo(3, 7, temporaryFolder.resolve("2").toFile(), 1);
+
+		stubFiles(fileSetMock, fileInfoOne, fileInfoTwo);
+
+		byte[] data = new byte[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+		Piece cut = new Piece(fileSetMock, SHA1.hash(data), 0, 10, 5);
+
+		assertTrue(cut.checkHash(data), "Hash of the data should match");
+		assertFalse(cut.checkHash(new byte[10]), "Hash of other data should not match");
+
+		cut.storePiece(data);
+
+		assertEquals(7, fileInfoOne.getStorage().size(), "Incorrect amount of bytes in the first file");
+		assertEquals(3, fileInfoTwo.getStorage().size(), "Incorrect amount of bytes in the second file");
+		assertThrows(IllegalArgumentException.class, () -> cut.storePiece(new byte[5]));
+	}
+
+	@Test
+	public void testIncrementalHashInOrder(@Folder Path temporaryFolder) throws Exception {
+		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
+		when(fileSetMock.getBlockSize()).thenReturn(5);
+		when(fileSetMock.getPieceSize()).thenReturn(12L);
+
+		FileInfo fileInfo = new FileInfo(12, 0, temporaryFolder.resolve("1").toFile(), 1);
+		stubFiles(fileSetMock, fileInfo);
+
+		byte[] data = new byte[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11 };
+		Piece cut = new Piece(fileSetMock, SHA1.hash(data), 0, 12, 5);
+
+		cut.storeBlock(0, new byte[] { 0, 1, 2, 3, 4 });
+		cut.storeBlock(1, new byte[] { 5, 6, 7, 8, 9 });
+		cut.storeBlock(2, new byte[] { 10, 11 });
+		assertEquals(3, cut.getHashedBlockCount(), "All blocks should have been hashed as they arrived");
+
+		// Corrupt the data on disk, the hash must be based on the data as it was stored.
+		fileInfo.getStorage().write(ByteBuffer.allocate(12), 0);
+
+		assertTrue(cut.checkHash(), "Hash should have been completed without reading the file");
+		assertEquals(0, cut.getHashedBlockCount(), "Hash state should have been reset after the check");
+	}
+
+	@Test
+	public void testIncrementalHashOutOfOrder(@Folder Path temporaryFolder) throws Exception {
+		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
+		when(fileSetMock.getBlockSize()).thenReturn(5);
+		when(fileSetMock.getPieceSize()).thenReturn(12L);
+
+		FileInfo fileInfo = new FileInfo(12, 0, temporaryFolder.resolve("1").toFile(), 1);
+		stubFiles(fileSetMock, fileInfo);
+
+		byte[] data = new byte[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11 };
+		Piece cut = new Piece(fileSetMock, SHA1.hash(data), 0, 12, 5);
+
+		cut.storeBlock(0, new byte[] { 0, 1, 2, 3, 4 });
+		cut.storeBlock(2, new byte[] { 10, 11 });
+		assertEquals(1, cut.getHashedBlockCount(), "Out of order block should have been skipped");
+
+		cut.storeBlock(1, new byte[] { 5, 6, 7, 8, 9 });
+		assertEquals(3, cut.getHashedBlockCount(), "Out of order block should have been read back once it follows the hashed blocks");
+
+		assertTrue(cut.checkHash(), "Hash should have matched");
+	}
+
+	@Test
+	public void testIncrementalHashDuplicateBlock(@Folder Path temporaryFolder) throws Exception {
+		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
+		when(fileSetMock.getBlockSize()).thenReturn(5);
+		when(fileSetMock.getPieceSize()).thenReturn(12L);
+
+		FileInfo fileInfo = new FileInfo(12, 0, temporaryFolder.resolve("1").toFile(), 1);
+		stubFiles(fileSetMock, fileInfo);
+
+		byte[] data = new byte[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11 };
+		Piece cut = new Piece(fileSetMock, SHA1.hash(data), 0, 12, 5);
+
+		cut.storeBlock(0, new byte[] { 0, 1, 2, 3, 4 });
+		cut.storeBlock(1, new byte[] { 5, 6, 7, 8, 9 });
+		// A second copy of the first block overwrites the hashed data.
+		cut.storeBlock(0, new byte[] { 9, 9, 9, 9, 9 });
+		cut.storeBlock(2, new byte[] { 10, 11 });
+
+		assertEquals(3, cut.getHashedBlockCount(), "Hash should have been restarted from the stored blocks");
+		assertFalse(cut.checkHash(), "Hash must be based on the data which is stored");
+	}
+
+	@Test
+	public void testIncrementalHashFromMemory() {
+		byte[] data = new byte[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+		Piece cut = new Piece(null, SHA1.hash(data), 0, 10, 5);
+
+		cut.updateHash(0, new byte[] { 0, 1, 2, 3, 4 });
+		cut.updateHash(0, new byte[] { 0, 1, 2, 3, 4 });
+
+		assertEquals(1, cut.getHashedBlockCount(), "Duplicate block should have been ignored");
+		assertTrue(cut.checkHash(data), "Hash should have matched");
+
+		cut.updateHash(0, new byte[] { 9, 9, 9, 9, 9 });
+		assertFalse(cut.checkHash(data), "Hash should be based on the fed blocks");
+
+		cut.updateHash(0, new byte[] { 9, 9, 9, 9, 9 });
+		cut.onHashMismatch();
+		assertEquals(0, cut.getHashedBlockCount(), "Hash state should have been reset on mismatch");
+		assertTrue(cut.checkHash(data), "Hash should have matched after reset");
+	}
+
+	@Test
+	public void testLoadPieceBeyondEndOfFile(@Folder Path temporaryFolder) throws Exception {
+		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
+		when(fileSetMock.getBlockSize()).thenReturn(5);
+		when(fileSetMock.getPieceSize()).thenReturn(10L);
+
+		FileInfo fileInfo = new FileInfo(10, 0, temporaryFolder.resolve("1").toFile(), 1);
+		fileInfo.getStorage().write(ByteBuffer.wrap(new byte[] { 0, 1, 2 }), 0);
+		stubFiles(fileSetMock, fileInfo);
+
+		Piece cut = new Piece(fileSetMock, new byte[20], 0, 10, 5);
+
+		assertThrows(EOFException.class, () -> cut.loadPiece(0, 5));
+	}
+
+	@Test
+	public void testTransferToBeyondEndOfFile(@Folder Path temporaryFolder) throws Exception {
+		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
+		when(fileSetMock.getBlockSize()).thenReturn(5);
+		when(fileSetMock.getPieceSize()).thenReturn(10L);
+
+		FileInfo fileInfo = new FileInfo(10, 0, temporaryFolder.resolve("1").toFile(), 1);
+		fileInfo.getStorage().write(ByteBuffer.wrap(new byte[] { 0, 1, 2 }), 0);
+		stubFiles(fileSetMock, fileInfo);
+
+		Piece cut = new Piece(fileSetMock, new byte[20], 0, 10, 5);
+
+		assertThrows(EOFException.class, () -> cut.transferTo(0, 5, Channels.newChannel(new ByteArrayOutputStream())));
+	}
+
+	@Test
+	public void testConcurrentStoreAndLoad(@Folder Path temporaryFolder) throws Exception {
+		final int pieceCount = 16;
+		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
+		when(fileSetMock.getBlockSize()).thenReturn(4);
+		when(fileSetMock.getPieceSize()).thenReturn(8L);
+
+		FileInfo fileInfo = new FileInfo(8 * pieceCount, 0, temporaryFolder.resolve("1").toFile(), pieceCount);
+		stubFiles(fileSetMock, fileInfo);
+
+		List<Piece> pieces = new ArrayList<>();
+		for (int i = 0; i < pieceCount; i++) {
+			pieces.add(new Piece(fileSetMock, new byte[20], i, 8, 4));
+		}
+
+		ExecutorService executorService = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<byte[]>> results = new ArrayList<>();
+			for (Piece piece : pieces) {
+				results.add(executorService.submit(() -> {
+					byte value = (byte) piece.getIndex();
+					piece.storeBlock(1, new byte[] { value, value, value, value });
+					piece.storeBlock(0, new byte[] { value, value, value, value });
+					return piece.loadPiece(0, 8);
+				}));
+			}
+
+			for (int i = 0; i < pieceCount; i++) {
+				byte value = (byte) i;
+				assertArrayEquals(
+					new byte[] { value, value, value, value, value, value, value, value },
+					results.get(i).get(),
+					"Concurrent access to the file has corrupted the data"
+				);
+			}
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
 }
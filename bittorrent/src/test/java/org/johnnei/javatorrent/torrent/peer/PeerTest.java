@@ -7,13 +7,16 @@ import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageBlock;
+import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageBlockRegion;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageChoke;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageInterested;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageKeepAlive;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageUnchoke;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageUninterested;
 import org.johnnei.javatorrent.disk.DiskJobReadBlock;
+import org.johnnei.javatorrent.internal.disk.PieceReadCache;
 import org.johnnei.javatorrent.internal.torrent.TorrentFileSetRequestFactory;
+import org.johnnei.javatorrent.internal.torrent.peer.Bitfield;
 import org.johnnei.javatorrent.network.BitTorrentSocket;
 import org.johnnei.javatorrent.test.DummyEntity;
 import org.johnnei.javatorrent.test.TestUtils;
@@ -34,10 +37,12 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Matchers.isNotNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -88,6 +93,7 @@ public class PeerTest {
 		Torrent torrentMock = new Torrent.Builder()
 				.setName("StubTorrent")
 				.setMetadata(DummyEntity.createMetadata())
+				.setTorrentClient(DummyEntity.createTorrentClient())
 				.build();
 		BitTorrentSocket socketMock = mock(BitTorrentSocket.class);
 
@@ -103,6 +109,7 @@ public class PeerTest {
 		Torrent torrentMock = new Torrent.Builder()
 				.setName("StubTorrent")
 				.setMetadata(DummyEntity.createMetadata())
+				.setTorrentClient(DummyEntity.createTorrentClient())
 				.build();
 		BitTorrentSocket socketMock = mock(BitTorrentSocket.class);
 
@@ -118,6 +125,7 @@ public class PeerTest {
 		Torrent torrentMock = new Torrent.Builder()
 				.setName("StubTorrent")
 				.setMetadata(DummyEntity.createMetadata())
+				.setTorrentClient(DummyEntity.createTorrentClient())
 				.build();
 		BitTorrentSocket socketMock = mock(BitTorrentSocket.class);
 
@@ -134,6 +142,7 @@ public class PeerTest {
 		Torrent torrentMock = new Torrent.Builder()
 				.setName("StubTorrent")
 				.setMetadata(DummyEntity.createMetadata())
+				.setTorrentClient(DummyEntity.createTorrentClient())
 				.build();
 		BitTorrentSocket socketMock = mock(BitTorrentSocket.class);
 
@@ -150,6 +159,7 @@ public class PeerTest {
 		Torrent torrentMock = new Torrent.Builder()
 				.setName("StubTorrent")
 				.setMetadata(DummyEntity.createMetadata())
+				.setTorrentClient(DummyEntity.createTorrentClient())
 				.build();
 		BitTorrentSocket socketMock = mock(BitTorrentSocket.class);
 
@@ -166,6 +176,7 @@ public class PeerTest {
 		Torrent torrentMock = new Torrent.Builder()
 				.setName("StubTorrent")
 				.setMetadata(DummyEntity.createMetadata())
+				.setTorrentClient(DummyEntity.createTorrentClient())
 				.build();
 		BitTorrentSocket socketMock = mock(BitTorrentSocket.class);
 
@@ -358,6 +369,7 @@ public class PeerTest {
 		TorrentFileSet fileSetMock = mock(TorrentFileSet.class);
 		Piece pieceMock = mock(Piece.class);
 		when(torrentMock.getFileSet()).thenReturn(fileSetMock);
+		when(torrentMock.getReadCache()).thenReturn(new PieceReadCache(0));
 		when(fileSetMock.getBitfieldBytes()).thenReturn(new byte[1]);
 
 		Peer cut = new Peer.Builder()
@@ -384,6 +396,7 @@ public class PeerTest {
 		socketMock.enqueueMessage(isA(MessageBlock.class));
 		torrentMock.addUploadedBytes(15);
 		when(torrentMock.getFileSet()).thenReturn(fileSetMock);
+		when(torrentMock.getReadCache()).thenReturn(new PieceReadCache(0));
 		when(fileSetMock.getBitfieldBytes()).thenReturn(new byte[1]);
 		when(pieceMock.getIndex()).thenReturn(0);
 		when(pieceMock.loadPiece(eq(0), eq(15))).thenReturn(new byte[15]);
@@ -404,6 +417,78 @@ public class PeerTest {
 		diskJobCapture.getValue().process();
 	}
 
+	@Test
+	public void testQueueNextPieceForSendingFromReadCache() throws Exception {
+		Torrent torrentMock = mock(Torrent.class);
+		BitTorrentSocket socketMock = mock(BitTorrentSocket.class);
+		TorrentFileSet fileSetMock = mock(TorrentFileSet.class);
+		Piece pieceMock = mock(Piece.class);
+		PieceReadCache readCache = new PieceReadCache(30);
+
+		when(torrentMock.getFileSet()).thenReturn(fileSetMock);
+		when(torrentMock.getReadCache()).thenReturn(readCache);
+		when(fileSetMock.getBitfieldBytes()).thenReturn(new byte[1]);
+		when(socketMock.supportsFileTransfer()).thenReturn(true);
+		when(pieceMock.getFileSet()).thenReturn(fileSetMock);
+		when(pieceMock.isDone()).thenReturn(true);
+		when(pieceMock.getSize()).thenReturn(30);
+		when(pieceMock.loadPiece(0, 30)).thenReturn(new byte[30]);
+		readCache.read(pieceMock, 0, 15);
+
+		Peer cut = new Peer.Builder()
+				.setTorrent(torrentMock)
+				.setSocket(socketMock)
+				.setId(DummyEntity.createUniquePeerId())
+				.setExtensionBytes(DummyEntity.createRandomBytes(8))
+				.build();
+
+		cut.addBlockRequest(pieceMock, 15, 15, PeerDirection.Upload);
+		cut.addBlockRequest(pieceMock, 0, 15, PeerDirection.Upload);
+		cut.queueNextPieceForSending();
+		cut.queueNextPieceForSending();
+
+		verify(socketMock, times(2)).enqueueMessage(isA(MessageBlock.class));
+		verify(torrentMock, times(2)).addUploadedBytes(15);
+		verify(torrentMock, never()).addDiskJob(any());
+		assertEquals(2, readCache.getHitCount(), "Both blocks should have been served from the cache");
+	}
+
+	@Test
+	public void testQueueNextPieceForSendingRegion() {
+		Torrent torrentMock = mock(Torrent.class);
+		BitTorrentSocket socketMock = mock(BitTorrentSocket.class);
+		TorrentFileSet fileSetMock = mock(TorrentFileSet.class);
+		Piece pieceMock = mock(Piece.class);
+
+		when(torrentMock.getFileSet()).thenReturn(fileSetMock);
+		when(torrentMock.getReadCache()).thenReturn(new PieceReadCache(0));
+		when(fileSetMock.getBitfieldBytes()).thenReturn(new byte[1]);
+		when(socketMock.supportsFileTransfer()).thenReturn(true);
+
+		Peer cut = new Peer.Builder()
+				.setTorrent(torrentMock)
+				.setSocket(socketMock)
+				.setId(DummyEntity.createUniquePeerId())
+				.setExtensionBytes(DummyEntity.createRandomBytes(8))
+				.build();
+
+		cut.addBlockRequest(pieceMock, 0, 15, PeerDirection.Upload);
+		cut.addBlockRequest(pieceMock, 15, 15, PeerDirection.Upload);
+		cut.queueNextPieceForSending();
+		cut.queueNextPieceForSending();
+
+		ArgumentCaptor<MessageBlockRegion> regionCapture = ArgumentCaptor.forClass(MessageBlockRegion.class);
+		verify(socketMock).enqueueMessage(regionCapture.capture());
+		verify(torrentMock, never()).addUploadedBytes(anyLong());
+		verify(torrentMock, never()).addDiskJob(any());
+
+		regionCapture.getValue().onTransferred();
+		verify(torrentMock).addUploadedBytes(15);
+
+		cut.queueNextPieceForSending();
+		verify(socketMock, times(2)).enqueueMessage(isA(MessageBlockRegion.class));
+	}
+
 	@Test
 	public void testDiscardAllBlockRequests() {
 		Torrent torrentMock = mock(Torrent.class);
@@ -464,6 +549,34 @@ public class PeerTest {
 		assertEquals(1, cut.countHavePieces(), "One pieces should be completed");
 	}
 
+	@Test
+	public void testHasNeededPiece() {
+		Torrent torrentMock = mock(Torrent.class);
+		BitTorrentSocket socketMock = mock(BitTorrentSocket.class);
+		TorrentFileSet fileSetMock = mock(TorrentFileSet.class);
+		Bitfield completedPieces = new Bitfield(1);
+		completedPieces.havePiece(0);
+
+		when(torrentMock.getFileSet()).thenReturn(fileSetMock);
+		when(fileSetMock.getBitfieldBytes()).thenReturn(new byte[1]);
+		when(fileSetMock.getBitfield()).thenReturn(completedPieces);
+		when(fileSetMock.getPieceCount()).thenReturn(6);
+
+		Peer cut = new Peer.Builder()
+				.setTorrent(torrentMock)
+				.setSocket(socketMock)
+				.setId(DummyEntity.createUniquePeerId())
+				.setExtensionBytes(DummyEntity.createRandomBytes(8))
+				.build();
+
+		cut.setHavingPiece(0);
+		cut.setHavingPiece(7);
+		assertFalse(cut.hasNeededPiece(fileSetMock), "Completed piece and spare bits should not be needed");
+
+		cut.setHavingPiece(5);
+		assertTrue(cut.hasNeededPiece(fileSetMock), "Piece 5 should be needed");
+	}
+
 	@Test
 	public void testSetGetRequestLimit() {
 		Torrent torrentMock = mock(Torrent.class);
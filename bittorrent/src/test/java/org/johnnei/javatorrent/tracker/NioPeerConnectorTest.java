@@ -0,0 +1,238 @@
+package org.johnnei.javatorrent.tracker;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.johnnei.javatorrent.TorrentClient;
+import org.johnnei.javatorrent.network.BitTorrentSocket;
+import org.johnnei.javatorrent.network.ConnectionDegradation;
+import org.johnnei.javatorrent.network.PeerConnectInfo;
+import org.johnnei.javatorrent.network.PeerIoMode;
+import org.johnnei.javatorrent.network.socket.ISocket;
+import org.johnnei.javatorrent.network.socket.TcpSocket;
+import org.johnnei.javatorrent.torrent.Torrent;
+
+import static com.jayway.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link NioPeerConnector}
+ */
+public class NioPeerConnectorTest {
+
+	private ServerSocketChannel serverChannel;
+
+	private TorrentClient torrentClientMock;
+
+	private IPeerDistributor peerDistributorMock;
+
+	private ScheduledExecutorService executorServiceMock;
+
+	private NioPeerConnector cut;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+
+		torrentClientMock = mock(TorrentClient.class);
+		peerDistributorMock = mock(IPeerDistributor.class);
+		executorServiceMock = mock(ScheduledExecutorService.class);
+		when(torrentClientMock.getPeerDistributor()).thenReturn(peerDistributorMock);
+		when(torrentClientMock.getExecutorService()).thenReturn(executorServiceMock);
+		when(torrentClientMock.getConnectionDegradation()).thenReturn(new ConnectionDegradation.Builder()
+				.registerDefaultConnectionType(TcpSocket.class, TcpSocket::openChannel)
+				.build());
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		if (cut != null) {
+			cut.stop();
+		}
+		serverChannel.close();
+	}
+
+	private NioPeerConnector createConnector(int maxInFlight) {
+		return new NioPeerConnector(torrentClientMock, maxInFlight) {
+			@Override
+			BitTorrentSocket createSocket(ISocket socket) {
+				return mock(BitTorrentSocket.class);
+			}
+		};
+	}
+
+	private PeerConnectInfo createPeer(Torrent torrent) {
+		return new PeerConnectInfo(torrent, (InetSocketAddress) serverChannel.socket().getLocalSocketAddress());
+	}
+
+	private void runUntilIdle() {
+		await().atMost(5, TimeUnit.SECONDS).until(() -> {
+			cut.run();
+			return cut.getConnectingCount() == 0;
+		});
+	}
+
+	@Test
+	public void testConnect() {
+		Torrent torrent = mock(Torrent.class);
+		cut = createConnector(4);
+
+		cut.enqueuePeer(createPeer(torrent));
+		runUntilIdle();
+
+		verify(torrentClientMock).startHandshake(any(BitTorrentSocket.class), same(torrent));
+	}
+
+	@Test
+	public void testConnectRefused() throws Exception {
+		Torrent torrent = mock(Torrent.class);
+		PeerConnectInfo peer = createPeer(torrent);
+		serverChannel.close();
+		cut = createConnector(4);
+
+		cut.enqueuePeer(peer);
+		runUntilIdle();
+
+		verify(torrentClientMock, never()).startHandshake(any(BitTorrentSocket.class), any(Torrent.class));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testConnectRefusedFallsBackToNextConnectionType() throws Exception {
+		Torrent torrent = mock(Torrent.class);
+		PeerConnectInfo peer = createPeer(torrent);
+		ISocket fallbackSocket = mock(ISocket.class);
+		Class<ISocket> fallbackType = (Class<ISocket>) fallbackSocket.getClass();
+		serverChannel.close();
+
+		when(torrentClientMock.getConnectionDegradation()).thenReturn(new ConnectionDegradation.Builder()
+				.registerDefaultConnectionType(TcpSocket.class, TcpSocket::openChannel, fallbackType)
+				.registerConnectionType(fallbackType, () -> fallbackSocket)
+				.build());
+		cut = createConnector(4);
+
+		cut.enqueuePeer(peer);
+		runUntilIdle();
+
+		verify(fallbackSocket).connect(eq(peer.getAddress()));
+		// The blocking connect hands the socket over on the thread of the connector.
+		verify(torrentClientMock, timeout(5000)).startHandshake(any(BitTorrentSocket.class), same(torrent));
+		verify(executorServiceMock, never()).execute(any());
+	}
+
+	@Test
+	public void testConnectTcpWithoutChannelInSelectorMode() {
+		Torrent torrent = mock(Torrent.class);
+		List<ISocket> connectedSockets = new ArrayList<>();
+		when(torrentClientMock.getPeerIoMode()).thenReturn(PeerIoMode.Selector);
+		when(torrentClientMock.getConnectionDegradation()).thenReturn(new ConnectionDegradation.Builder()
+				.registerDefaultConnectionType(TcpSocket.class, TcpSocket::new)
+				.build());
+		cut = new NioPeerConnector(torrentClientMock, 4) {
+			@Override
+			BitTorrentSocket createSocket(ISocket socket) {
+				connectedSockets.add(socket);
+				return mock(BitTorrentSocket.class);
+			}
+		};
+
+		cut.enqueuePeer(createPeer(torrent));
+		runUntilIdle();
+
+		verify(torrentClientMock).startHandshake(any(BitTorrentSocket.class), same(torrent));
+		assertEquals(1, connectedSockets.size(), "Peer should have been connected");
+		assertTrue(connectedSockets.get(0).getChannel().isPresent(), "TCP socket should have been replaced with a selectable socket");
+		verify(executorServiceMock, never()).execute(any());
+	}
+
+	@Test
+	public void testFairnessBetweenTorrents() {
+		Torrent torrent = mock(Torrent.class);
+		Torrent torrentTwo = mock(Torrent.class);
+		cut = createConnector(1);
+
+		cut.enqueuePeer(createPeer(torrent));
+		cut.enqueuePeer(createPeer(torrent));
+		cut.enqueuePeer(createPeer(torrent));
+		cut.enqueuePeer(createPeer(torrentTwo));
+		runUntilIdle();
+
+		ArgumentCaptor<Torrent> torrentCaptor = ArgumentCaptor.forClass(Torrent.class);
+		verify(torrentClientMock, times(4)).startHandshake(any(BitTorrentSocket.class), torrentCaptor.capture());
+
+		assertEquals(torrent, torrentCaptor.getAllValues().get(0), "First attempt should be for the first torrent");
+		assertEquals(torrentTwo, torrentCaptor.getAllValues().get(1), "Second torrent should not wait on the queue of the first");
+		assertEquals(torrent, torrentCaptor.getAllValues().get(2), "Remaining attempts are for the first torrent");
+		assertEquals(torrent, torrentCaptor.getAllValues().get(3), "Remaining attempts are for the first torrent");
+	}
+
+	@Test
+	public void testPeerLimitReached() {
+		Torrent torrent = mock(Torrent.class);
+		when(peerDistributorMock.hasReachedPeerLimit(same(torrent))).thenReturn(true);
+		cut = createConnector(4);
+
+		cut.enqueuePeer(createPeer(torrent));
+		cut.run();
+
+		ArgumentCaptor<Runnable> runnableCapture = ArgumentCaptor.forClass(Runnable.class);
+		verify(executorServiceMock).schedule(runnableCapture.capture(), eq(10L), eq(TimeUnit.SECONDS));
+		assertEquals(0, cut.getConnectingCount(), "Peer should have been rescheduled");
+
+		// Executing the captured runnable should requeue the peer.
+		runnableCapture.getValue().run();
+		assertEquals(1, cut.getConnectingCount(), "Peer should have been requeued");
+	}
+
+	@Test
+	public void testGetConnectingCount() {
+		Torrent torrent = mock(Torrent.class);
+		Torrent torrentTwo = mock(Torrent.class);
+		cut = createConnector(4);
+
+		cut.enqueuePeer(null);
+		assertEquals(0, cut.getConnectingCount(), "Incorrect connecting count");
+
+		cut.enqueuePeer(createPeer(torrent));
+		cut.enqueuePeer(createPeer(torrent));
+
+		assertEquals(2, cut.getConnectingCount(), "Incorrect connecting count");
+		assertEquals(2, cut.getConnectingCountFor(torrent), "Incorrect connecting count");
+		assertEquals(0, cut.getConnectingCountFor(torrentTwo), "Incorrect connecting count");
+	}
+
+	@Test
+	public void testInvalidInFlightLimit() {
+		assertThrows(IllegalArgumentException.class, () -> new NioPeerConnector(torrentClientMock, 0));
+	}
+
+	@Test
+	public void testToString() {
+		cut = createConnector(4);
+
+		assertEquals("NioPeerConnector[maxInFlight=4]", cut.toString(), "Incorrect toString");
+	}
+
+}
@@ -16,26 +16,23 @@ import org.mockito.ArgumentCaptor;
 import org.powermock.reflect.Whitebox;
 
 import org.johnnei.javatorrent.TorrentClient;
-import org.johnnei.javatorrent.bittorrent.protocol.BitTorrentHandshake;
 import org.johnnei.javatorrent.network.BitTorrentSocket;
 import org.johnnei.javatorrent.network.ConnectionDegradation;
 import org.johnnei.javatorrent.network.PeerConnectInfo;
 import org.johnnei.javatorrent.test.DummyEntity;
 import org.johnnei.javatorrent.torrent.Metadata;
 import org.johnnei.javatorrent.torrent.Torrent;
-import org.johnnei.javatorrent.torrent.peer.Peer;
 
 import static com.jayway.awaitility.Awaitility.await;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.fail;
-import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
-import static org.mockito.Matchers.isA;
 import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -60,14 +57,10 @@ public class PeerConnectorTest {
 
 	@Test
 	public void testRun() throws Exception {
-		final byte[] peerId = DummyEntity.createPeerId();
 		final byte[] torrentHash = DummyEntity.createRandomBytes(20);
-		final byte[] extensionBytes = DummyEntity.createRandomBytes(8);
 
 		prepareMetadata(torrentHash);
 
-		torrent.addPeer(isA(Peer.class));
-
 		PeerConnectInfo peerConnectInfo = new PeerConnectInfo(torrent, new InetSocketAddress(InetAddress.getLocalHost(), 27960));
 
 		ConnectionDegradation connectionDegradation = mock(ConnectionDegradation.class);
@@ -75,19 +68,17 @@ public class PeerConnectorTest {
 
 		TorrentClient torrentClient = mock(TorrentClient.class);
 		when(torrentClient.getConnectionDegradation()).thenReturn(connectionDegradation);
-		when(torrentClient.getPeerId()).thenReturn(peerId);
-		when(torrentClient.getExtensionBytes()).thenReturn(extensionBytes);
 		when(torrentClient.getPeerDistributor()).thenReturn(peerDistributor);
 
 		final BitTorrentSocket socket = mock(BitTorrentSocket.class);
-		socket.connect(same(connectionDegradation), same(peerConnectInfo.getAddress()));
-		socket.sendHandshake(aryEq(extensionBytes), aryEq(peerId), aryEq(torrentHash));
-		when(socket.readHandshake()).thenReturn(new BitTorrentHandshake(torrentHash, extensionBytes, peerId));
-
 
 		PeerConnector cut = new DisconnectedPeerConnector(socket, torrentClient);
 		cut.enqueuePeer(peerConnectInfo);
 		cut.run();
+
+		verify(socket).connect(same(connectionDegradation), same(peerConnectInfo.getAddress()));
+		verify(torrentClient).startHandshake(same(socket), same(torrent));
+		verify(socket, never()).readHandshake();
 	}
 
 	@Test
@@ -178,40 +169,6 @@ public class PeerConnectorTest {
 		assertEquals(1, cut.getConnectingCount(), "Peer connector queue must not be empty");
 	}
 
-	@Test
-	public void testRunUnknownTorrent() throws Exception {
-		final byte[] peerId = DummyEntity.createPeerId();
-		final byte[] torrentHash = DummyEntity.createRandomBytes(20);
-		byte[] torrentHashTwo = DummyEntity.createRandomBytes(20);
-		while (Arrays.equals(torrentHash, torrentHashTwo)) {
-			torrentHashTwo = DummyEntity.createRandomBytes(20);
-		}
-		final byte[] extensionBytes = DummyEntity.createRandomBytes(8);
-
-		prepareMetadata(torrentHash);
-
-		PeerConnectInfo peerConnectInfo = new PeerConnectInfo(torrent, new InetSocketAddress(InetAddress.getLocalHost(), 27960));
-
-		ConnectionDegradation connectionDegradation = mock(ConnectionDegradation.class);
-		IPeerDistributor peerDistributor = mock(IPeerDistributor.class);
-
-		TorrentClient torrentClient = mock(TorrentClient.class);
-		when(torrentClient.getConnectionDegradation()).thenReturn(connectionDegradation);
-		when(torrentClient.getPeerId()).thenReturn(peerId);
-		when(torrentClient.getExtensionBytes()).thenReturn(extensionBytes);
-		when(torrentClient.getPeerDistributor()).thenReturn(peerDistributor);
-
-		final BitTorrentSocket socket = mock(BitTorrentSocket.class);
-		socket.connect(same(connectionDegradation), same(peerConnectInfo.getAddress()));
-		socket.sendHandshake(aryEq(extensionBytes), aryEq(peerId), aryEq(torrentHash));
-		when(socket.readHandshake()).thenReturn(new BitTorrentHandshake(torrentHashTwo, extensionBytes, peerId));
-		socket.close();
-
-		PeerConnector cut = new DisconnectedPeerConnector(socket, torrentClient);
-		cut.enqueuePeer(peerConnectInfo);
-		cut.run();
-	}
-
 	@Test
 	public void testGetConnectingCount() throws Exception {
 		final byte[] torrentHash = DummyEntity.createRandomBytes(20);
@@ -264,6 +221,8 @@ public class PeerConnectorTest {
 		cut.enqueuePeer(peerConnectInfo);
 		cut.run();
 
+		verify(socket).close();
+		verify(torrentClient, never()).startHandshake(any(), any());
 	}
 
 	@Test